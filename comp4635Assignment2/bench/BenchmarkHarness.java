@@ -0,0 +1,177 @@
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Minimal benchmark harness for the benchmarks in this folder.
+ * <p>
+ * Each benchmark runs a number of warm-up iterations followed by measured iterations of a fixed
+ * time budget; the harness reports the mean, the spread between iterations and the throughput,
+ * and can write all results as JSON so runs can be compared. The servers print a line for
+ * almost every call, so System.out is muted while an operation is measured to keep console I/O
+ * out of the numbers.
+ * </p>
+ */
+public class BenchmarkHarness {
+
+    /** One benchmarked operation. */
+    public interface Operation {
+        /** Runs the operation once. The returned value is consumed so the call cannot be optimized away. */
+        Object run() throws Exception;
+    }
+
+    /** Result of one benchmark with one set of parameters. */
+    public static class Result {
+        final String name;
+        final Map<String, String> params;
+        final long operations;
+        final double meanNanos;
+        final double errorNanos;
+        final double opsPerSecond;
+        // Additional per-operation measurements reported by the benchmark, e.g. bytes on the wire
+        final Map<String, Double> metrics = new LinkedHashMap<>();
+
+        Result(String name, Map<String, String> params, long operations, double meanNanos, double errorNanos) {
+            this.name = name;
+            this.params = params;
+            this.operations = operations;
+            this.meanNanos = meanNanos;
+            this.errorNanos = errorNanos;
+            this.opsPerSecond = meanNanos > 0 ? 1e9 / meanNanos : 0;
+        }
+
+        /** Adds a measurement of this result to the JSON output, e.g. metric("wireBytesPerOp", 812). */
+        public void metric(String name, double value) {
+            metrics.put(name, value);
+        }
+    }
+
+    private final int warmupIterations;
+    private final int measuredIterations;
+    private final long iterationMillis;
+    private final List<Result> results = new ArrayList<>();
+    private final PrintStream console = System.out;
+    private final PrintStream muted = new PrintStream(OutputStream.nullOutputStream());
+    // Written with every result so the JIT cannot drop the measured calls
+    private volatile long sink;
+
+    public BenchmarkHarness(int warmupIterations, int measuredIterations, long iterationMillis) {
+        this.warmupIterations = warmupIterations;
+        this.measuredIterations = measuredIterations;
+        this.iterationMillis = iterationMillis;
+    }
+
+    /**
+     * Measures an operation and records the result.
+     *
+     * @param name      benchmark name, e.g. "WordRepository.checkWord".
+     * @param params    parameter values of this run (printed and written to JSON).
+     * @param operation the operation to measure.
+     * @return the recorded result.
+     */
+    public Result measure(String name, Map<String, String> params, Operation operation) throws Exception {
+        for (int i = 0; i < warmupIterations; i++) {
+            runIteration(operation);
+        }
+        double[] means = new double[measuredIterations];
+        long totalOps = 0;
+        for (int i = 0; i < measuredIterations; i++) {
+            long[] iteration = runIteration(operation);
+            totalOps += iteration[0];
+            means[i] = (double) iteration[1] / iteration[0];
+        }
+        double mean = Arrays.stream(means).average().orElse(0);
+        double variance = 0;
+        for (double m : means) {
+            variance += (m - mean) * (m - mean);
+        }
+        double error = means.length > 1 ? Math.sqrt(variance / (means.length - 1)) : 0;
+        Result result = new Result(name, new LinkedHashMap<>(params), totalOps, mean, error);
+        results.add(result);
+        console.printf("%-45s %-28s %14.1f ns/op  +- %10.1f  %12.1f ops/s%n",
+                name, params, mean, error, result.opsPerSecond);
+        return result;
+    }
+
+    /** @return {operations, elapsed nanos} of one iteration. */
+    private long[] runIteration(Operation operation) throws Exception {
+        long budget = iterationMillis * 1_000_000L;
+        long ops = 0;
+        System.setOut(muted);
+        long start = System.nanoTime();
+        long elapsed;
+        try {
+            do {
+                Object value = operation.run();
+                sink += value == null ? 0 : value.hashCode();
+                ops++;
+                elapsed = System.nanoTime() - start;
+            } while (elapsed < budget);
+        } finally {
+            System.setOut(console);
+        }
+        return new long[] { ops, elapsed };
+    }
+
+    /** @return the results measured so far. */
+    public List<Result> getResults() {
+        return results;
+    }
+
+    /**
+     * Writes all results as a JSON array.
+     *
+     * @param path the output file.
+     */
+    public void writeJson(String path) throws IOException {
+        try (Writer out = new FileWriter(path)) {
+            out.write(toJson());
+        }
+        console.println("Results written to " + path);
+    }
+
+    /** @return all results as a JSON array. */
+    public String toJson() {
+        StringBuilder sb = new StringBuilder("[\n");
+        for (int i = 0; i < results.size(); i++) {
+            Result r = results.get(i);
+            sb.append("  {\"benchmark\": \"").append(escape(r.name)).append("\", \"params\": {");
+            int p = 0;
+            for (Map.Entry<String, String> e : r.params.entrySet()) {
+                sb.append(p++ > 0 ? ", " : "").append('"').append(escape(e.getKey())).append("\": \"")
+                        .append(escape(e.getValue())).append('"');
+            }
+            sb.append("}, \"operations\": ").append(r.operations)
+                    .append(", \"meanNanosPerOp\": ").append(String.format(Locale.ROOT, "%.1f", r.meanNanos))
+                    .append(", \"errorNanos\": ").append(String.format(Locale.ROOT, "%.1f", r.errorNanos))
+                    .append(", \"opsPerSecond\": ").append(String.format(Locale.ROOT, "%.1f", r.opsPerSecond));
+            for (Map.Entry<String, Double> e : r.metrics.entrySet()) {
+                sb.append(", \"").append(escape(e.getKey())).append("\": ")
+                        .append(String.format(Locale.ROOT, "%.1f", e.getValue()));
+            }
+            sb.append(i < results.size() - 1 ? "},\n" : "}\n");
+        }
+        return sb.append("]\n").toString();
+    }
+
+    private static String escape(String s) {
+        return s.replace("\\", "\\\\").replace("\"", "\\\"");
+    }
+
+    /** Convenience for building a parameter map: params("size", "1000", "level", "3"). */
+    public static Map<String, String> params(String... keyValues) {
+        Map<String, String> map = new LinkedHashMap<>();
+        for (int i = 0; i + 1 < keyValues.length; i += 2) {
+            map.put(keyValues[i], keyValues[i + 1]);
+        }
+        return map;
+    }
+}
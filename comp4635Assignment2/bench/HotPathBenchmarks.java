@@ -0,0 +1,286 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Benchmark suite for the hot paths of the game servers, run in-process:
+ * <ul>
+ * <li>WordArena.load: loading the dictionary into the packed arena and its indexes</li>
+ * <li>WordRepositoryImpl: checkWord, getRandomWord, generate_map_list and
+ *     find_matching_addtional_vertical_stem</li>
+ * <li>WordDawg against a HashSet of the same words: build, lookup, prefix count and prefix
+ *     search latency, and retained bytes per word</li>
+ * <li>CrissCrossImpl: startGame, guessLetter and guessWord</li>
+ * <li>Mutiplayer_Puzzle construction by level and player count</li>
+ * <li>LamportClock send/ack/deliver with N nodes</li>
+ * </ul>
+ * The dictionary benchmarks run once per dictionary size. Each dictionary is sampled from the
+ * project's words.txt (sizes above the file size are padded with derived words) and written to a
+ * temporary file, so the file-backed code paths are measured as they run in the servers.
+ * <p>
+ * Usage: java HotPathBenchmarks [--words src/words.txt] [--sizes 5000,25000,100000]
+ *        [--nodes 2,4,8] [--warmup 2] [--iterations 5] [--time 500] [--json results.json]
+ * </p>
+ */
+public class HotPathBenchmarks {
+
+    public static void main(String[] args) throws Exception {
+        String wordsPath = option(args, "--words", "src/words.txt");
+        int[] sizes = intList(option(args, "--sizes", "5000,25000,100000"));
+        int[] nodeCounts = intList(option(args, "--nodes", "2,4,8"));
+        int warmup = Integer.parseInt(option(args, "--warmup", "2"));
+        int iterations = Integer.parseInt(option(args, "--iterations", "5"));
+        long time = Long.parseLong(option(args, "--time", "500"));
+        String json = option(args, "--json", "hotpath-results.json");
+
+        BenchmarkHarness harness = new BenchmarkHarness(warmup, iterations, time);
+        List<String> source = loadWords(wordsPath);
+
+        for (int size : sizes) {
+            File dictionary = writeDictionary(source, size);
+            try {
+                benchmarkWordRepository(harness, dictionary, size);
+                benchmarkPrefixIndex(harness, dictionary, size);
+                benchmarkCrissCross(harness, dictionary, size);
+                benchmarkMultiplayerPuzzle(harness, dictionary, size);
+            } finally {
+                dictionary.delete();
+            }
+        }
+        for (int nodes : nodeCounts) {
+            benchmarkLamportClock(harness, nodes);
+        }
+
+        harness.writeJson(json);
+        // The exported servers and the failure detectors keep non-daemon threads alive
+        System.exit(0);
+    }
+
+    private static void benchmarkWordRepository(BenchmarkHarness harness, File dictionary, int size) throws Exception {
+        WordRepositoryImpl repository = new WordRepositoryImpl(dictionary.getPath());
+        String dict = String.valueOf(size);
+        List<String> words = loadWords(dictionary.getPath());
+        String present = words.get(words.size() / 2);
+
+        harness.measure("WordArena.load", BenchmarkHarness.params("dictionary", dict),
+                () -> WordArena.load(dictionary.getPath()));
+        harness.measure("WordRepository.checkWord", BenchmarkHarness.params("dictionary", dict, "case", "hit"),
+                () -> repository.checkWord(present));
+        harness.measure("WordRepository.checkWord", BenchmarkHarness.params("dictionary", dict, "case", "miss"),
+                () -> repository.checkWord("qqqzzzx"));
+        harness.measure("WordRepository.getRandomWord", BenchmarkHarness.params("dictionary", dict, "minLength", "5"),
+                () -> repository.getRandomWord(5));
+        for (int level : new int[] { 3, 5 }) {
+            harness.measure("WordRepository.generate_map_list",
+                    BenchmarkHarness.params("dictionary", dict, "level", String.valueOf(level)),
+                    () -> repository.generate_map_list(level));
+        }
+        // generate_map_list loaded the word list used by the constraint search
+        char[] firstLetterOnly = { 'c', '*', '*', '*' };
+        char[] twoLetters = { '*', 'a', '*', 'e', '*' };
+        harness.measure("WordRepository.find_matching_addtional_vertical_stem",
+                BenchmarkHarness.params("dictionary", dict, "constraint", "c***"),
+                () -> repository.find_matching_addtional_vertical_stem(firstLetterOnly));
+        harness.measure("WordRepository.find_matching_addtional_vertical_stem",
+                BenchmarkHarness.params("dictionary", dict, "constraint", "*a*e*"),
+                () -> repository.find_matching_addtional_vertical_stem(twoLetters));
+    }
+
+    private static void benchmarkPrefixIndex(BenchmarkHarness harness, File dictionary, int size) throws Exception {
+        String dict = String.valueOf(size);
+        String[] sorted = loadWords(dictionary.getPath()).stream()
+                .map(WordDictionary::fold).distinct().sorted().toArray(String[]::new);
+        String present = sorted[sorted.length / 2];
+        String prefix = present.substring(0, Math.min(3, present.length()));
+
+        // Both copies of the words are measured as the repository would hold them: the set owns
+        // its strings, the graph only its arrays
+        long[] setBytes = new long[1];
+        long[] dawgBytes = new long[1];
+        Set<String> set = retained(() -> {
+            Set<String> s = new HashSet<>();
+            for (String word : sorted) {
+                s.add(new String(word.toCharArray()));
+            }
+            return s;
+        }, setBytes);
+        WordDawg dawg = retained(() -> WordDawg.build(sorted), dawgBytes);
+
+        harness.measure("HashSet.build", BenchmarkHarness.params("dictionary", dict),
+                () -> new HashSet<>(Arrays.asList(sorted)))
+                .metric("retainedBytesPerWord", (double) setBytes[0] / sorted.length);
+        harness.measure("WordDawg.build", BenchmarkHarness.params("dictionary", dict),
+                () -> WordDawg.build(sorted))
+                .metric("retainedBytesPerWord", (double) dawgBytes[0] / sorted.length);
+        harness.measure("HashSet.contains", BenchmarkHarness.params("dictionary", dict, "case", "hit"),
+                () -> set.contains(present));
+        harness.measure("WordDawg.contains", BenchmarkHarness.params("dictionary", dict, "case", "hit"),
+                () -> dawg.contains(present));
+        harness.measure("HashSet.contains", BenchmarkHarness.params("dictionary", dict, "case", "miss"),
+                () -> set.contains("qqqzzzx"));
+        harness.measure("WordDawg.contains", BenchmarkHarness.params("dictionary", dict, "case", "miss"),
+                () -> dawg.contains("qqqzzzx"));
+        // A hash set has no order, so a prefix query has to scan it
+        harness.measure("HashSet.countWithPrefix", BenchmarkHarness.params("dictionary", dict, "prefix", prefix),
+                () -> set.stream().filter(word -> word.startsWith(prefix)).count());
+        harness.measure("WordDawg.countWithPrefix", BenchmarkHarness.params("dictionary", dict, "prefix", prefix),
+                () -> dawg.countWithPrefix(prefix));
+        harness.measure("WordDawg.withPrefix", BenchmarkHarness.params("dictionary", dict, "prefix", prefix, "limit", "10"),
+                () -> dawg.withPrefix(prefix, 10));
+    }
+
+    // Builds a value and reports the heap it retains, measured around full collections
+    private static <T> T retained(Supplier<T> build, long[] bytes) {
+        long before = usedHeap();
+        T value = build.get();
+        bytes[0] = Math.max(0, usedHeap() - before);
+        return value;
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static void benchmarkCrissCross(BenchmarkHarness harness, File dictionary, int size) throws Exception {
+        CrissCrossImpl server = new CrissCrossImpl("benchmark", dictionary.getPath());
+        String dict = String.valueOf(size);
+        AtomicInteger seq = new AtomicInteger();
+
+        for (int level : new int[] { 3, 5 }) {
+            harness.measure("CrissCross.startGame", BenchmarkHarness.params("dictionary", dict, "level", String.valueOf(level)),
+                    () -> server.startGame("bench-start", level, 100, seq.incrementAndGet()));
+        }
+
+        // A large attempt factor keeps the session alive for the whole run; the guesses take the miss
+        // path, which scans the full board and updates the deduplication tables on every call.
+        String player = "bench-guess";
+        server.startGame(player, 5, 1_000_000, seq.incrementAndGet());
+        harness.measure("CrissCross.guessLetter", BenchmarkHarness.params("dictionary", dict, "case", "miss"), () -> {
+            String result = server.guessLetter(player, '#', seq.incrementAndGet());
+            if (result.startsWith("No active")) {
+                server.startGame(player, 5, 1_000_000, seq.incrementAndGet());
+            }
+            return result;
+        });
+        harness.measure("CrissCross.guessWord", BenchmarkHarness.params("dictionary", dict, "case", "miss"), () -> {
+            String result = server.guessWord(player, "qqqzzzx", seq.incrementAndGet());
+            if (result.startsWith("No active")) {
+                server.startGame(player, 5, 1_000_000, seq.incrementAndGet());
+            }
+            return result;
+        });
+        server.endGame(player, seq.incrementAndGet());
+    }
+
+    private static void benchmarkMultiplayerPuzzle(BenchmarkHarness harness, File dictionary, int size) throws Exception {
+        WordRepositoryImpl repository = new WordRepositoryImpl(dictionary.getPath());
+        String dict = String.valueOf(size);
+        for (int level : new int[] { 2, 4 }) {
+            for (int players : new int[] { 2, 4 }) {
+                harness.measure("Mutiplayer_Puzzle.<init>",
+                        BenchmarkHarness.params("dictionary", dict, "level", String.valueOf(level),
+                                "players", String.valueOf(players)),
+                        () -> new Mutiplayer_Puzzle(players, level, repository));
+            }
+        }
+    }
+
+    /**
+     * Every node broadcasts in turn; a send is delivered to all nodes once every node has acked it,
+     * so one operation covers the send, N - 1 receives, the N * (N - 1) acks and the deliveries.
+     */
+    private static void benchmarkLamportClock(BenchmarkHarness harness, int nodes) throws Exception {
+        List<LamportClock> clocks = new ArrayList<>();
+        for (int i = 1; i <= nodes; i++) {
+            clocks.add(new LamportClock(i));
+        }
+        for (LamportClock clock : clocks) {
+            clock.setPeers(clocks);
+        }
+        AtomicInteger turn = new AtomicInteger();
+        harness.measure("LamportClock.send", BenchmarkHarness.params("nodes", String.valueOf(nodes)), () -> {
+            LamportClock sender = clocks.get(turn.getAndIncrement() % nodes);
+            sender.send("guess", null);
+            return sender;
+        });
+    }
+
+    // ---------------------------------------------------------------------
+    // Dictionary generation
+    // ---------------------------------------------------------------------
+
+    private static List<String> loadWords(String path) throws IOException {
+        List<String> words = new ArrayList<>();
+        try (BufferedReader br = new BufferedReader(new FileReader(path))) {
+            for (String line = br.readLine(); line != null; line = br.readLine()) {
+                line = line.trim().toLowerCase();
+                if (!line.isEmpty()) {
+                    words.add(line);
+                }
+            }
+        }
+        return words;
+    }
+
+    /**
+     * Writes a dictionary of the requested size: a random sample of the source words, padded with
+     * derived words (a source word plus a short suffix) when more words are requested than exist.
+     */
+    private static File writeDictionary(List<String> source, int size) throws IOException {
+        Random random = new Random(size);
+        List<String> shuffled = new ArrayList<>(source);
+        Collections.shuffle(shuffled, random);
+        Set<String> words = new LinkedHashSet<>(shuffled.subList(0, Math.min(size, shuffled.size())));
+        while (words.size() < size) {
+            String base = source.get(random.nextInt(source.size()));
+            StringBuilder suffix = new StringBuilder();
+            for (int i = 1 + random.nextInt(3); i > 0; i--) {
+                suffix.append((char) ('a' + random.nextInt(26)));
+            }
+            words.add(base + suffix);
+        }
+        File file = File.createTempFile("words-" + size + "-", ".txt");
+        try (BufferedWriter bw = new BufferedWriter(new FileWriter(file))) {
+            for (String word : words) {
+                bw.write(word);
+                bw.newLine();
+            }
+        }
+        return file;
+    }
+
+    private static String option(String[] args, String name, String defaultValue) {
+        for (int i = 0; i + 1 < args.length; i++) {
+            if (args[i].equals(name)) {
+                return args[i + 1];
+            }
+        }
+        return defaultValue;
+    }
+
+    private static int[] intList(String value) {
+        String[] parts = value.split(",");
+        int[] result = new int[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            result[i] = Integer.parseInt(parts[i].trim());
+        }
+        return result;
+    }
+}
@@ -0,0 +1,410 @@
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.rmi.Naming;
+import java.rmi.RemoteException;
+import java.rmi.server.UnicastRemoteObject;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Headless load driver for the centralized game servers.
+ * <p>
+ * Runs simulated players on virtual threads against a running CrissCrossPuzzleServer and
+ * UserAccountServer. Every solo player creates an account and logs in, then plays single-player
+ * games: startGame followed by a configurable mix of guessLetter, guessWord and checkWord calls,
+ * with heartbeats at the client's interval and an exponential think time between requests.
+ * Optional room groups run the multiplayer flow (startMultiGame, joinMultiGame, startGameRoom,
+ * setActivePlayer, runGame) with headless callbacks that answer the turn prompts.
+ * </p>
+ * <p>
+ * At the end (and every --report seconds) it prints the throughput and the latency percentiles
+ * of every operation, and it can write the final numbers as JSON.
+ * </p>
+ * Usage: java LoadDriver [--server rmi://localhost:1099/GameServer] [--players 1000]
+ *        [--duration 60] [--think 200] [--heartbeat 2000] [--level 3] [--attempts 3]
+ *        [--mix guessLetter:60,guessWord:30,checkWord:10] [--rooms 0] [--room-size 3]
+ *        [--words src/words.txt] [--prefix load] [--report 10] [--json load-results.json]
+ */
+public class LoadDriver {
+
+    private static final Pattern GAME_ID = Pattern.compile("Game ID = (\\d+)");
+
+    private final String serverUrl;
+    private final int players;
+    private final long durationMillis;
+    private final long thinkMillis;
+    private final long heartbeatMillis;
+    private final int level;
+    private final int attemptFactor;
+    private final String[] mixOps;
+    private final int[] mixWeights;
+    private final int rooms;
+    private final int roomSize;
+    private final String prefix;
+    private final List<String> guessWords;
+
+    private final Map<String, OpStats> stats = new ConcurrentHashMap<>();
+    private final LongAdder completedGames = new LongAdder();
+    private final LongAdder callbackMessages = new LongAdder();
+    private volatile long deadline;
+    private long elapsedMillis;
+
+    private CrissCrossPuzzleServer puzzleServer;
+    private UserAccountServer accountServer;
+    private WordRepositoryServer wordServer;
+
+    /** Call count, error count and latency histogram of one operation. */
+    private static class OpStats {
+        final LatencyHistogram latency = new LatencyHistogram();
+        final LongAdder errors = new LongAdder();
+    }
+
+    LoadDriver(String[] args) throws IOException {
+        serverUrl = option(args, "--server", "rmi://localhost:1099/GameServer");
+        players = Integer.parseInt(option(args, "--players", "1000"));
+        durationMillis = Long.parseLong(option(args, "--duration", "60")) * 1000;
+        thinkMillis = Long.parseLong(option(args, "--think", "200"));
+        heartbeatMillis = Long.parseLong(option(args, "--heartbeat", "2000"));
+        level = Integer.parseInt(option(args, "--level", "3"));
+        attemptFactor = Integer.parseInt(option(args, "--attempts", "3"));
+        rooms = Integer.parseInt(option(args, "--rooms", "0"));
+        roomSize = Integer.parseInt(option(args, "--room-size", "3"));
+        prefix = option(args, "--prefix", "load");
+        guessWords = loadWords(option(args, "--words", "src/words.txt"));
+
+        String[] mix = option(args, "--mix", "guessLetter:60,guessWord:30,checkWord:10").split(",");
+        mixOps = new String[mix.length];
+        mixWeights = new int[mix.length];
+        int cumulative = 0;
+        for (int i = 0; i < mix.length; i++) {
+            String[] entry = mix[i].split(":");
+            mixOps[i] = entry[0].trim();
+            cumulative += Integer.parseInt(entry[1].trim());
+            mixWeights[i] = cumulative;
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadDriver driver = new LoadDriver(args);
+        driver.run(Long.parseLong(option(args, "--report", "10")) * 1000);
+        String json = option(args, "--json", null);
+        if (json != null) {
+            driver.writeJson(json);
+        }
+        // Exported callbacks keep the RMI runtime alive
+        System.exit(0);
+    }
+
+    void run(long reportMillis) throws Exception {
+        puzzleServer = (CrissCrossPuzzleServer) Naming.lookup(serverUrl);
+        accountServer = (UserAccountServer) Naming.lookup("rmi://localhost:1099/UserAccountServer");
+        if (rooms > 0) {
+            wordServer = (WordRepositoryServer) Naming.lookup("rmi://localhost:1099/WordRepositoryServer");
+        }
+        System.out.println("Driving " + serverUrl + " with " + players + " solo players and " + rooms
+                + " rooms of " + roomSize + " for " + durationMillis / 1000 + "s");
+
+        long start = System.currentTimeMillis();
+        deadline = start + durationMillis;
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < players; i++) {
+                String name = prefix + "-" + i;
+                executor.submit(() -> playSolo(name));
+            }
+            for (int r = 0; r < rooms; r++) {
+                int room = r;
+                executor.submit(() -> playRoom(room));
+            }
+            long nextReport = start + reportMillis;
+            while (System.currentTimeMillis() < deadline) {
+                TimeUnit.MILLISECONDS.sleep(Math.max(1, Math.min(deadline, nextReport) - System.currentTimeMillis()));
+                if (reportMillis > 0 && System.currentTimeMillis() >= nextReport && System.currentTimeMillis() < deadline) {
+                    report(System.currentTimeMillis() - start);
+                    nextReport += reportMillis;
+                }
+            }
+            // Closing the executor waits for the players to finish their current request
+        }
+        elapsedMillis = System.currentTimeMillis() - start;
+        System.out.println("\n===== Final results =====");
+        report(elapsedMillis);
+    }
+
+    // ---------------------------------------------------------------------
+    // Simulated players
+    // ---------------------------------------------------------------------
+
+    private void playSolo(String name) {
+        int seq = 1;
+        login(name);
+        long nextHeartbeat = System.currentTimeMillis() + heartbeatMillis;
+        while (System.currentTimeMillis() < deadline) {
+            String response = timed("startGame", seq, (s) -> puzzleServer.startGame(name, level, attemptFactor, s));
+            seq++;
+            boolean active = response != null;
+            while (active && System.currentTimeMillis() < deadline) {
+                think();
+                if (System.currentTimeMillis() >= nextHeartbeat) {
+                    timed("heartbeat", seq, (s) -> {
+                        puzzleServer.heartbeat(name);
+                        return null;
+                    });
+                    nextHeartbeat += heartbeatMillis;
+                }
+                String op = pickOperation();
+                String result;
+                switch (op) {
+                    case "guessLetter":
+                        char letter = (char) ('a' + ThreadLocalRandom.current().nextInt(26));
+                        result = timed(op, seq, (s) -> puzzleServer.guessLetter(name, letter, s));
+                        break;
+                    case "guessWord":
+                        String word = randomWord();
+                        result = timed(op, seq, (s) -> puzzleServer.guessWord(name, word, s));
+                        break;
+                    case "checkWord":
+                        String checked = randomWord();
+                        timed(op, seq, (s) -> puzzleServer.checkWord(name, checked, s));
+                        result = null;
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Unknown operation in --mix: " + op);
+                }
+                seq++;
+                if (result != null && isGameOver(result)) {
+                    completedGames.increment();
+                    active = false;
+                }
+            }
+            if (active) {
+                timed("endGame", seq, (s) -> puzzleServer.endGame(name, s));
+                seq++;
+            }
+        }
+    }
+
+    /**
+     * One room group: the host creates the room, everyone joins, the host starts it, the others
+     * mark themselves ready and the host runs the game. Turns are answered by the callbacks.
+     */
+    private void playRoom(int room) {
+        List<String> names = new ArrayList<>();
+        List<HeadlessCallback> callbacks = new ArrayList<>();
+        try {
+            for (int j = 0; j < roomSize; j++) {
+                String name = prefix + "-room" + room + "-" + j;
+                names.add(name);
+                login(name);
+                callbacks.add(new HeadlessCallback());
+            }
+        } catch (RemoteException e) {
+            System.err.println("Could not export room callbacks: " + e.getMessage());
+            return;
+        }
+        String host = names.get(0);
+        try {
+            while (System.currentTimeMillis() < deadline) {
+                String created = timed("startMultiGame", 0, (s) -> puzzleServer.startMultiGame(host, roomSize, level));
+                Matcher m = created == null ? null : GAME_ID.matcher(created);
+                if (m == null || !m.find()) {
+                    think();
+                    continue;
+                }
+                int gameId = Integer.parseInt(m.group(1));
+                for (int j = 0; j < roomSize; j++) {
+                    String player = names.get(j);
+                    HeadlessCallback callback = callbacks.get(j);
+                    timed("joinMultiGame", 0, (s) -> puzzleServer.joinMultiGame(player, gameId, callback));
+                }
+                timed("startGameRoom", 0, (s) -> puzzleServer.startGameRoom(host, gameId));
+                for (int j = 1; j < roomSize; j++) {
+                    String player = names.get(j);
+                    timed("setActivePlayer", 0, (s) -> puzzleServer.setActivePlayer(player, gameId));
+                }
+                if (timed("runGame", 0, (s) -> puzzleServer.runGame(host, gameId, wordServer)) != null) {
+                    completedGames.increment();
+                }
+            }
+        } finally {
+            for (HeadlessCallback callback : callbacks) {
+                try {
+                    UnicastRemoteObject.unexportObject(callback, true);
+                } catch (RemoteException ignored) {
+                }
+            }
+        }
+    }
+
+    private void login(String name) {
+        Boolean created = timed("createAccount", 0, (s) -> accountServer.createAccount(name, "pw-" + name));
+        if (created == null || !created) {
+            timed("loginAccount", 0, (s) -> accountServer.loginAccount(name, "pw-" + name));
+        }
+    }
+
+    private static boolean isGameOver(String response) {
+        return response.startsWith("Congratulations") || response.startsWith("Game over")
+                || response.startsWith("No active game session");
+    }
+
+    /** Answers turn prompts of the multiplayer rooms without a console. */
+    private class HeadlessCallback extends UnicastRemoteObject implements ClientCallback {
+        private static final long serialVersionUID = 1L;
+
+        HeadlessCallback() throws RemoteException {
+            super();
+        }
+
+        @Override
+        public void receiveMessage(String message) {
+            callbackMessages.increment();
+        }
+
+        @Override
+        public String requestPlayerInput(String playerName) {
+            think();
+            return randomWord();
+        }
+
+        @Override
+        public boolean isInputBufferEmpty() {
+            return true;
+        }
+
+        @Override
+        public void flushInputBuffer() {
+        }
+    }
+
+    // ---------------------------------------------------------------------
+    // Measurement
+    // ---------------------------------------------------------------------
+
+    private <T> T timed(String operation, int seq, SeqCall<T> call) {
+        OpStats op = stats.computeIfAbsent(operation, k -> new OpStats());
+        long start = System.nanoTime();
+        try {
+            T result = call.invoke(seq);
+            op.latency.record(System.nanoTime() - start);
+            return result;
+        } catch (Exception e) {
+            op.latency.record(System.nanoTime() - start);
+            op.errors.increment();
+            return null;
+        }
+    }
+
+    /** An RMI call that takes the player's current sequence number. */
+    private interface SeqCall<T> {
+        T invoke(int seq) throws Exception;
+    }
+
+    private void report(long elapsedMillis) {
+        double seconds = elapsedMillis / 1000.0;
+        System.out.printf(Locale.ROOT, "%n[%6.1fs] completed games: %d, room messages received: %d%n", seconds,
+                completedGames.sum(), callbackMessages.sum());
+        System.out.printf(Locale.ROOT, "%-26s %10s %8s %10s %9s %9s %9s %9s %9s%n", "operation", "calls", "errors",
+                "calls/s", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms");
+        for (Map.Entry<String, OpStats> e : new TreeMap<>(stats).entrySet()) {
+            LatencyHistogram h = e.getValue().latency;
+            System.out.printf(Locale.ROOT, "%-26s %10d %8d %10.1f %9.2f %9.2f %9.2f %9.2f %9.2f%n", e.getKey(),
+                    h.getCount(), e.getValue().errors.sum(), h.getCount() / seconds, ms(h.getPercentile(50)),
+                    ms(h.getPercentile(90)), ms(h.getPercentile(99)), ms(h.getPercentile(99.9)), ms(h.getMax()));
+        }
+    }
+
+    private void writeJson(String path) throws IOException {
+        StringBuilder sb = new StringBuilder("{\n  \"players\": ").append(players).append(", \"rooms\": ").append(rooms)
+                .append(", \"durationSeconds\": ").append(durationMillis / 1000)
+                .append(", \"completedGames\": ").append(completedGames.sum()).append(",\n  \"operations\": {\n");
+        int i = 0;
+        for (Map.Entry<String, OpStats> e : new TreeMap<>(stats).entrySet()) {
+            LatencyHistogram h = e.getValue().latency;
+            sb.append(i++ > 0 ? ",\n" : "").append(String.format(Locale.ROOT,
+                    "    \"%s\": {\"calls\": %d, \"errors\": %d, \"callsPerSecond\": %.1f, \"meanMs\": %.3f, "
+                            + "\"p50Ms\": %.3f, \"p90Ms\": %.3f, \"p99Ms\": %.3f, \"p999Ms\": %.3f, \"maxMs\": %.3f}",
+                    e.getKey(), h.getCount(), e.getValue().errors.sum(), h.getCount() * 1000.0 / Math.max(1, elapsedMillis),
+                    h.getMean() / 1e6, ms(h.getPercentile(50)), ms(h.getPercentile(90)), ms(h.getPercentile(99)),
+                    ms(h.getPercentile(99.9)), ms(h.getMax())));
+        }
+        sb.append("\n  }\n}\n");
+        try (Writer out = new FileWriter(path)) {
+            out.write(sb.toString());
+        }
+        System.out.println("Results written to " + path);
+    }
+
+    private static double ms(long nanos) {
+        return nanos / 1e6;
+    }
+
+    // ---------------------------------------------------------------------
+    // Helpers
+    // ---------------------------------------------------------------------
+
+    private String pickOperation() {
+        int r = ThreadLocalRandom.current().nextInt(mixWeights[mixWeights.length - 1]);
+        for (int i = 0; i < mixWeights.length; i++) {
+            if (r < mixWeights[i]) {
+                return mixOps[i];
+            }
+        }
+        return mixOps[mixOps.length - 1];
+    }
+
+    /** Sleeps for an exponentially distributed think time with the configured mean. */
+    private void think() {
+        if (thinkMillis <= 0) {
+            return;
+        }
+        long pause = (long) (-thinkMillis * Math.log(1.0 - ThreadLocalRandom.current().nextDouble()));
+        try {
+            TimeUnit.MILLISECONDS.sleep(Math.min(pause, 10 * thinkMillis));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private String randomWord() {
+        return guessWords.get(ThreadLocalRandom.current().nextInt(guessWords.size()));
+    }
+
+    private static List<String> loadWords(String path) throws IOException {
+        List<String> words = new ArrayList<>();
+        try (BufferedReader br = new BufferedReader(new FileReader(path))) {
+            for (String line = br.readLine(); line != null; line = br.readLine()) {
+                line = line.trim().toLowerCase();
+                if (!line.isEmpty()) {
+                    words.add(line);
+                }
+            }
+        }
+        if (words.isEmpty()) {
+            throw new IOException("No guess words in " + path);
+        }
+        return words;
+    }
+
+    private static String option(String[] args, String name, String defaultValue) {
+        for (int i = 0; i + 1 < args.length; i++) {
+            if (args[i].equals(name)) {
+                return args[i + 1];
+            }
+        }
+        return defaultValue;
+    }
+}
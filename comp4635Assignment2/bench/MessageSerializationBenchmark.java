@@ -0,0 +1,109 @@
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+
+/**
+ * Micro-benchmark for the peer-to-peer wire format.
+ * <p>
+ * Compares the compact Externalizable encoding of {@link PeerProcess.Message} with the default
+ * Java serialization the messages used before (reproduced by {@link LegacyMessage}). For every
+ * message kind on the P2P hot path it reports the serialized size and the time of one
+ * serialize + deserialize round trip. The compact encoding is measured twice: with the sender's
+ * name, which isolates the gain of the encoding itself, and without it, as the transport sends
+ * messages once the receiver has acknowledged the name.
+ * </p>
+ * Usage: java MessageSerializationBenchmark [iterations]
+ */
+public class MessageSerializationBenchmark {
+
+    /** The message layout before the compact wire format (default serialization). */
+    static class LegacyMessage implements Serializable {
+        private static final long serialVersionUID = 1L;
+        PeerProcess.Message.Type type;
+        String content;
+        String senderName;
+        int senderId;
+        int timestamp;
+
+        LegacyMessage(PeerProcess.Message m) {
+            this.type = m.type;
+            this.content = m.content;
+            this.senderName = m.senderName;
+            this.senderId = m.senderId;
+            this.timestamp = m.timestamp;
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+
+        System.out.printf("%-8s %10s %10s %10s %14s %14s %14s%n", "message", "legacy B", "named B", "interned B",
+                "legacy ns/op", "named ns/op", "interned ns/op");
+        run("GUESS", message(PeerProcess.Message.Type.GUESS, "PLANET", "bob", 2, 37), iterations);
+        run("TEXT", message(PeerProcess.Message.Type.TEXT, "good luck everyone!", "alice", 1, 152), iterations);
+        run("START", message(PeerProcess.Message.Type.START, null, "alice", 1, 3), iterations);
+        run("JOIN", message(PeerProcess.Message.Type.JOIN, "carol", "alice", 1, 4), iterations);
+    }
+
+    private static PeerProcess.Message message(PeerProcess.Message.Type type, String content, String sender, int id, int ts) {
+        PeerProcess.Message m = new PeerProcess.Message(type, content);
+        m.senderName = sender;
+        m.senderId = id;
+        m.timestamp = ts;
+        if (type == PeerProcess.Message.Type.JOIN) {
+            m.newPeerId = 3;
+        }
+        return m;
+    }
+
+    private static void run(String label, PeerProcess.Message message, int iterations) throws Exception {
+        LegacyMessage legacy = new LegacyMessage(message);
+        PeerProcess.Message interned = message.withoutSenderName();
+        int legacySize = serialize(legacy).length;
+        int namedSize = serialize(message).length;
+        int internedSize = serialize(interned).length;
+
+        // Warm-up so all paths are compiled before measuring
+        roundTrips(legacy, iterations / 10);
+        roundTrips(message, iterations / 10);
+        roundTrips(interned, iterations / 10);
+
+        double legacyNs = roundTrips(legacy, iterations);
+        double namedNs = roundTrips(message, iterations);
+        double internedNs = roundTrips(interned, iterations);
+        System.out.printf("%-8s %10d %10d %10d %14.0f %14.0f %14.0f%n", label, legacySize, namedSize, internedSize,
+                legacyNs, namedNs, internedNs);
+    }
+
+    /** @return the average time in nanoseconds of one serialize + deserialize round trip. */
+    private static double roundTrips(Object message, int iterations) throws Exception {
+        long sink = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            sink += deserialize(serialize(message)).hashCode() & 1;
+        }
+        long elapsed = System.nanoTime() - start;
+        if (sink == Long.MIN_VALUE) {
+            System.out.println(sink);
+        }
+        return (double) elapsed / iterations;
+    }
+
+    // Each message is written through its own stream, as RMI marshals every call separately
+    private static byte[] serialize(Object message) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(message);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static Object deserialize(byte[] data) throws IOException, ClassNotFoundException {
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(data))) {
+            return in.readObject();
+        }
+    }
+}
@@ -0,0 +1,111 @@
+import java.rmi.server.RMIClientSocketFactory;
+import java.rmi.server.RMIServerSocketFactory;
+import java.rmi.server.UnicastRemoteObject;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Compares the RMI socket factories on real calls to a CrissCrossImpl exported over loopback:
+ * <ul>
+ * <li>startGame - puzzle generation plus a puzzle-sized reply</li>
+ * <li>guessLetter (miss) - a puzzle render as the reply</li>
+ * <li>guessWord (miss) - a short text reply</li>
+ * </ul>
+ * The server is re-exported with each factory configuration and called through its stub, so
+ * every call goes through the RMI transport and the sockets of that configuration. Next to the
+ * latency, the bytes on the wire per call (request plus reply) are reported for the tuned
+ * factories; "plain" is the tuned factory with every option off, i.e. the default RMI sockets
+ * with byte counting, and is the bandwidth baseline.
+ * <p>
+ * Usage: java RmiTransportBenchmark [--words src/words.txt] [--warmup 2] [--iterations 5]
+ *        [--time 500] [--bytes-calls 200] [--json rmi-transport-results.json]
+ * </p>
+ */
+public class RmiTransportBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        String wordsPath = option(args, "--words", "src/words.txt");
+        int warmup = Integer.parseInt(option(args, "--warmup", "2"));
+        int iterations = Integer.parseInt(option(args, "--iterations", "5"));
+        long time = Long.parseLong(option(args, "--time", "500"));
+        int bytesCalls = Integer.parseInt(option(args, "--bytes-calls", "200"));
+        String json = option(args, "--json", "rmi-transport-results.json");
+
+        Map<String, TunedSocketFactory> configurations = new LinkedHashMap<>();
+        configurations.put("default", null);
+        configurations.put("plain", new TunedSocketFactory(false, 0, 0, false, 0, 1));
+        configurations.put("nodelay", new TunedSocketFactory(true, 0, 0, false, 0, 1));
+        configurations.put("nodelay+buffers", new TunedSocketFactory(true, 256 * 1024, 256 * 1024, false, 0, 1));
+        configurations.put("nodelay+deflate", new TunedSocketFactory(true, 0, 0, true, 1024, 1));
+        configurations.put("nodelay+deflate-all", new TunedSocketFactory(true, 0, 0, true, 0, 6));
+
+        // The server logs every call; keep the log writer from competing with the measured calls
+        Log.setLevel("CrissCross", Log.Level.WARN);
+        Log.setLevel("FailureDetector", Log.Level.WARN);
+
+        BenchmarkHarness harness = new BenchmarkHarness(warmup, iterations, time);
+        CrissCrossImpl server = new CrissCrossImpl("transport-benchmark", wordsPath);
+        AtomicInteger seq = new AtomicInteger();
+
+        for (Map.Entry<String, TunedSocketFactory> configuration : configurations.entrySet()) {
+            String factoryName = configuration.getKey();
+            TunedSocketFactory factory = configuration.getValue();
+            UnicastRemoteObject.unexportObject(server, true);
+            CrissCrossPuzzleServer stub = (CrissCrossPuzzleServer) UnicastRemoteObject.exportObject(server, 0,
+                    (RMIClientSocketFactory) factory, (RMIServerSocketFactory) factory);
+            String player = "transport-" + factoryName;
+
+            measure(harness, factory, "CrissCross.startGame", factoryName, bytesCalls,
+                    () -> stub.startGame(player, 5, 1_000_000, seq.incrementAndGet()));
+            measure(harness, factory, "CrissCross.guessLetter", factoryName, bytesCalls, () -> {
+                String result = stub.guessLetter(player, '#', seq.incrementAndGet());
+                if (result.startsWith("No active")) {
+                    stub.startGame(player, 5, 1_000_000, seq.incrementAndGet());
+                }
+                return result;
+            });
+            measure(harness, factory, "CrissCross.guessWord", factoryName, bytesCalls, () -> {
+                String result = stub.guessWord(player, "qqqzzzx", seq.incrementAndGet());
+                if (result.startsWith("No active")) {
+                    stub.startGame(player, 5, 1_000_000, seq.incrementAndGet());
+                }
+                return result;
+            });
+            stub.endGame(player, seq.incrementAndGet());
+        }
+
+        harness.writeJson(json);
+        // The exported server and its failure detector keep non-daemon threads alive
+        System.exit(0);
+    }
+
+    /**
+     * Measures the latency of an operation and, for the tuned factories, the bytes on the wire per
+     * call over a fixed number of further calls. Client and server share this JVM, so every byte
+     * is counted once as sent and once as received.
+     */
+    private static void measure(BenchmarkHarness harness, TunedSocketFactory factory, String name, String factoryName,
+                                int bytesCalls, BenchmarkHarness.Operation operation) throws Exception {
+        BenchmarkHarness.Result result = harness.measure(name, BenchmarkHarness.params("factory", factoryName), operation);
+        if (factory == null) {
+            return;
+        }
+        long before = TunedSocketFactory.getBytesSent();
+        for (int i = 0; i < bytesCalls; i++) {
+            operation.run();
+        }
+        double bytesPerCall = (double) (TunedSocketFactory.getBytesSent() - before) / bytesCalls;
+        result.metric("wireBytesPerOp", bytesPerCall);
+        System.out.printf("%-45s %-28s %14.1f wire bytes/op%n", name, "{factory=" + factoryName + "}", bytesPerCall);
+    }
+
+    private static String option(String[] args, String name, String defaultValue) {
+        for (int i = 0; i + 1 < args.length; i++) {
+            if (args[i].equals(name)) {
+                return args[i + 1];
+            }
+        }
+        return defaultValue;
+    }
+}
@@ -52,6 +52,7 @@ public class Client {
 		add, // add <word>
 		remove, // remove <word>
 		check, // check <word>
+		suggest, // suggest <prefix>
 		score, // check score
 		scoreboard, // view scoreboard
 		help, // help
@@ -337,7 +338,8 @@ public class Client {
 			command.param2 = tokens[2]; // failedAttemptFactor as a string
 		} // For commands that require one argument: letter, word, add, remove, check.
 		else if (commandName == CommandName.letter || commandName == CommandName.word || commandName == CommandName.add
-				|| commandName == CommandName.remove || commandName == CommandName.check) {
+				|| commandName == CommandName.remove || commandName == CommandName.check
+				|| commandName == CommandName.suggest) {
 			if (tokens.length < 2) {
 				System.out.println("Command " + commandName + " requires an argument.");
 				return null;
@@ -583,6 +585,22 @@ public class Client {
                  }
                  break;
 
+			case suggest:
+				// Autocomplete for add/check, answered by the word repository
+				try {
+					java.util.List<String> suggestions = wordServer.prefixSearch(command.param1, 10);
+					int total = wordServer.countWithPrefix(command.param1);
+					if (total == 0) {
+						System.out.println("No word starts with '" + command.param1 + "'.");
+					} else {
+						System.out.println(total + " word(s) start with '" + command.param1 + "': "
+								+ String.join(", ", suggestions) + (total > suggestions.size() ? ", ..." : ""));
+					}
+				} catch (RemoteException re) {
+					System.out.println("Remote error: " + re.getMessage());
+				}
+				break;
+
 			case startmultiplayer:
 				// Expected usage: startmultiplayer <numPlayers> <level>
 				if (command.param1 == null || command.param2 == null) {
@@ -878,6 +896,7 @@ public class Client {
 		System.out.println("|   add <word>                                   - Add a new word             |");
 		System.out.println("|   remove <word>                                - Remove a word              |");
 		System.out.println("|   check <word>                                 - Check word existence       |");
+		System.out.println("|   suggest <prefix>                             - Words starting with prefix |");
 		System.out.println("|   score                                        - Get your user score        |");
 		System.out.println("|   scoreboard                                   - Get the scoreboard         |");
 		System.out.println("|   help                                         - Display this help          |");
@@ -11,6 +11,7 @@ public class ClientImpl extends UnicastRemoteObject implements ClientCallback {
     private final ReentrantLock inputLock = new ReentrantLock();
 
     public ClientImpl() throws RemoteException {
+        super(0, TunedSocketFactory.configured(), TunedSocketFactory.configured());
     }
 
     @Override
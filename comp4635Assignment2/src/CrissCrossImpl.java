@@ -1,21 +1,24 @@
 
-import java.io.BufferedReader;
 import java.io.FileInputStream;
-import java.io.FileReader;
 import java.io.IOException;
-import java.rmi.Naming;
 import java.rmi.RemoteException;
 import java.rmi.registry.LocateRegistry;
 import java.rmi.registry.Registry;
 import java.rmi.server.UnicastRemoteObject;
 import java.util.ArrayList;
-import java.util.List;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Properties;
-import java.util.Random;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.Map;
 
 /**
@@ -23,7 +26,7 @@ import java.util.Map;
  * <p>
  * This class provides methods for a word puzzle game over RMI, including support for
  * single-player and multiplayer modes. It also includes deduplication for at-most-once
- * semantics using sequence numbers, reconnect logic for a WordRepositoryServer, and
+ * semantics using sequence numbers, a fail-fast client of the WordRepositoryServer, and
  * failure detection using a configurable FailureDetector.
  * </p>
  *
@@ -35,8 +38,17 @@ public class CrissCrossImpl extends UnicastRemoteObject implements CrissCrossPuz
     // Map to hold a game session for each player
     private Map<String, GameSession> sessions = new ConcurrentHashMap<>();
 
-    // Reference to the WordRepository
-    private WordRepositoryServer wordServer;
+    // Client of the WordRepository: one client per shard primary and replica (circuit breaker,
+    // deadlines, background reconnection), with words routed to the shard that owns them
+    private final WordShardRouter wordService;
+
+    // Read-your-writes: the versions of each player's word changes, so that their later checks
+    // are answered by a replica that has applied them
+    private final Map<String, WordShardRouter.Session> wordSessions = new ConcurrentHashMap<>();
+    
+    // In-process services of an embedded deployment (null when they are reached over RMI)
+    private final WordRepositoryServer localWordServer;
+    private final UserAccountServer localAccountServer;
 
     // multiplayer manager
     private Multiplayer multiplayerManager = new Multiplayer();
@@ -51,12 +63,130 @@ public class CrissCrossImpl extends UnicastRemoteObject implements CrissCrossPuz
     private String currentRevealedPuzzle = "";
     
     
+    // Dictionary of single-player puzzles: the words of every shard of the word service, packed
+    // into an arena. It is rebuilt off the startGame path, one load at a time, when a shard's
+    // version changed; the check runs at most every dictionaryRefreshNanos. A server given an
+    // explicit word file (the benchmarks) packs that file once instead.
+    private final String wordsFile;
+    private final AtomicReference<PuzzleDictionary> dictionary = new AtomicReference<>();
+    private final ExecutorService dictionaryLoader = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "PuzzleDictionaryLoader");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicBoolean dictionaryRefreshQueued = new AtomicBoolean();
+    private final long dictionaryRefreshNanos;
+    
+    // Call metrics and server gauges, exposed over JMX
+    private final ServerMetrics metrics;
+    
+    // Server log; heartbeats go to their own (sampled) component
+    private static final Log.Logger LOG = Log.get("CrissCross");
+    private static final Log.Logger HEARTBEAT_LOG = Log.get("Heartbeat");
+    
     public CrissCrossImpl(String bankName) throws RemoteException {
-        super();
-        loadConfigAndInitializeFailureDetector();
-        connectToWordRepository();
+        this(bankName, null, null);
+    }
+    
+    /**
+     * Creates the server with puzzles generated from a specific word file instead of the words
+     * of the word service (e.g. a generated dictionary when the server is driven in-process by
+     * the benchmarks). The file is read once.
+     *
+     * @param bankName  The server name.
+     * @param wordsFile Path of the word file, one word per line.
+     * @throws RemoteException if the object cannot be exported.
+     */
+    public CrissCrossImpl(String bankName, String wordsFile) throws RemoteException {
+        this(bankName, wordsFile, null, null);
+    }
+    
+    /**
+     * Creates the server for an embedded deployment, where the word and account services run in
+     * the same JVM. The server calls them through these direct references instead of registry
+     * stubs, so no call between the services is serialized or sent over loopback TCP.
+     *
+     * @param bankName      The server name.
+     * @param wordServer    The in-process word repository (null: looked up in the registry).
+     * @param accountServer The in-process account service (null: looked up in the registry).
+     * @throws RemoteException if the object cannot be exported.
+     */
+    public CrissCrossImpl(String bankName, WordRepositoryServer wordServer, UserAccountServer accountServer)
+            throws RemoteException {
+        this(bankName, null, wordServer, accountServer);
+    }
+    
+    private CrissCrossImpl(String bankName, String wordsFile, WordRepositoryServer localWordServer,
+                           UserAccountServer localAccountServer) throws RemoteException {
+        super(0, TunedSocketFactory.configured(), TunedSocketFactory.configured());
+        this.wordsFile = wordsFile;
+        this.localWordServer = localWordServer;
+        this.localAccountServer = localAccountServer;
+        this.metrics = ServerMetrics.register("CrissCrossPuzzleServer-" + bankName);
+        Properties config = loadConfigAndInitializeFailureDetector();
+        wordService = WordShardRouter.fromConfig(config, localWordServer);
+        dictionaryRefreshNanos = TimeUnit.MILLISECONDS.toNanos(
+                Long.parseLong(config.getProperty("puzzleDictionaryRefreshMillis", "1000").trim()));
+        registerGauges();
     }
     
+    /**
+     * Registers the server-state gauges shown next to the call metrics: active sessions, game rooms,
+     * deduplication table size, the number of clients per failure-detector state, the bytes
+     * sent and received through the RMI sockets, the state of the word service circuit and the
+     * size and hit counts of the word near-cache. With several word shards the word service
+     * gauges are registered per shard, suffixed with the shard number; the circuits of the read
+     * replicas are suffixed with the replica number.
+     */
+    private void registerGauges() {
+        metrics.gauge("sessions", () -> sessions.size());
+        metrics.gauge("gameRooms", () -> multiplayerManager.getRoomCount());
+        metrics.gauge("dedupEntries", () -> lastSeenSeq.size());
+        metrics.gauge("dedupCachedResponses", () -> lastResponse.size());
+        metrics.gauge("rmiBytesSent", TunedSocketFactory::getBytesSent);
+        metrics.gauge("rmiBytesReceived", TunedSocketFactory::getBytesReceived);
+        for (int i = 0; i < wordService.getShardCount(); i++) {
+            WordReplicaSet replicaSet = wordService.shard(i);
+            WordServiceClient shard = replicaSet.getPrimary();
+            String suffix = wordService.getShardCount() == 1 ? "" : "Shard" + i;
+            for (int j = 0; j < replicaSet.getReplicas().size(); j++) {
+                WordServiceClient replica = replicaSet.getReplicas().get(j);
+                metrics.gauge("wordServiceCircuit" + suffix + "Replica" + j, () -> replica.getState().ordinal());
+            }
+            metrics.gauge("wordPrimaryReads" + suffix, replicaSet::getPrimaryReadCount);
+            // 0 = closed, 1 = open, 2 = half-open
+            metrics.gauge("wordServiceCircuit" + suffix, () -> shard.getState().ordinal());
+            WordNearCache wordCache = shard.getCache();
+            if (wordCache != null) {
+                metrics.gauge("wordCacheSize" + suffix, () -> wordCache.size());
+                metrics.gauge("wordCacheHits" + suffix, wordCache::getHits);
+                metrics.gauge("wordCacheMisses" + suffix, wordCache::getMisses);
+            }
+            metrics.gauge("wordChecksCoalesced" + suffix, shard::getCoalescedCount);
+        }
+        for (FailureDetector.ClientState state : FailureDetector.ClientState.values()) {
+            String name = "clients" + state.name().charAt(0) + state.name().substring(1).toLowerCase();
+            metrics.gauge(name, () -> failureDetector.countClients(state));
+        }
+    }
+
+    /**
+     * Returns the word service of this server, which routes words to the repository shards.
+     *
+     * @return The router.
+     */
+    public WordShardRouter getWordService() {
+        return wordService;
+    }
+
+    // The read-your-writes session of a player
+    private WordShardRouter.Session wordSession(String username) {
+        if (username == null) {
+            return wordService.newSession();
+        }
+        return wordSessions.computeIfAbsent(username, u -> wordService.newSession());
+    }
+
     /**
      * Builds a composite key for deduplication purposes by concatenating the player name and method name.
      *
@@ -74,12 +204,14 @@ public class CrissCrossImpl extends UnicastRemoteObject implements CrissCrossPuz
      * <p>
      * This class holds the state of a single game, including the vertical stem,
      * horizontal words, the puzzle grid (both formatted and revealed), and the number
-     * of remaining failed attempts.
+     * of remaining failed attempts. Words are IDs in the dictionary arena the puzzle was
+     * generated from; a horizontal word of -1 means the row has none.
      * </p>
      */
     private class GameSession {
-        String verticalStem;
-        String[] horizontalWords;
+        WordArena words;
+        int verticalStem;
+        int[] horizontalWords;
         char[][] puzzle;
         String formattedPuzzle;
         String revealedPuzzle;
@@ -93,13 +225,15 @@ public class CrissCrossImpl extends UnicastRemoteObject implements CrissCrossPuz
      * The configuration file "failureconfig.properties" is read to obtain the tolerance,
      * xFactor, and check interval. Default values are used if the file is not found.
      * </p>
+     *
+     * @return The loaded configuration, which also holds the word service settings.
      */
-    private void loadConfigAndInitializeFailureDetector() {
+    private Properties loadConfigAndInitializeFailureDetector() {
         Properties config = new Properties();
         try (FileInputStream fis = new FileInputStream("failureconfig.properties")) {
             config.load(fis);
         } catch (IOException e) {
-            System.err.println("Could not load configuration file, using defaults.");
+            LOG.warn("Could not load configuration file, using defaults.");
         }
         
         long toleranceMillis = Long.parseLong(config.getProperty("toleranceMillis", "6000"));
@@ -108,6 +242,7 @@ public class CrissCrossImpl extends UnicastRemoteObject implements CrissCrossPuz
         
         // Pass "this" as the callback reference to the FailureDetector.
         failureDetector = new FailureDetector(toleranceMillis, xFactor, checkIntervalMillis, this);
+        return config;
     }
 
     /**
@@ -124,7 +259,7 @@ public class CrissCrossImpl extends UnicastRemoteObject implements CrissCrossPuz
         try (FileInputStream fis = new FileInputStream("failureconfig.properties")) {
             config.load(fis);
         } catch (IOException e) {
-            System.err.println("Could not load configuration file, using defaults.");
+            LOG.warn("Could not load configuration file, using defaults.");
         }
         
         long toleranceMillis = Long.parseLong(config.getProperty("toleranceMillis", "6000"));
@@ -135,40 +270,17 @@ public class CrissCrossImpl extends UnicastRemoteObject implements CrissCrossPuz
         return new FailureDetector(toleranceMillis, xFactor, checkIntervalMillis, callback);
     }
     /**
-     * Initial connection to the WordRepositoryServer.
+     * Returns the account service used for score updates: the in-process instance in an embedded
+     * deployment, otherwise a stub looked up in the registry.
      */
-    private void connectToWordRepository() {
-        try {
-            wordServer = (WordRepositoryServer) Naming.lookup("rmi://localhost:1099/WordRepositoryServer");
-            System.out.println("Connected to WordRepositoryServer in CrissCrossImpl.");
-        } catch (Exception e) {
-            System.err.println("Failed to connect to WordRepositoryServer: " + e.getMessage());
+    private UserAccountServer accountServer() throws Exception {
+        if (localAccountServer != null) {
+            return localAccountServer;
         }
+        Registry registry = LocateRegistry.getRegistry("localhost", 1099);
+        return (UserAccountServer) registry.lookup("UserAccountServer");
     }
 
-    /**
-     * Attempt to reconnect to the WordRepositoryServer with multiple retries.
-     */
-    private void reconnectWordRepository() {
-        int maxAttempts = 3;
-        int attempt = 0;
-        while (attempt < maxAttempts) {
-            try {
-                System.out.println("Attempting to reconnect to WordRepositoryServer (attempt "
-                        + (attempt + 1) + " of " + maxAttempts + ")...");
-                // Wait a bit before retrying
-                Thread.sleep(1000);
-                wordServer = (WordRepositoryServer) Naming.lookup("rmi://localhost:1099/WordRepositoryServer");
-                System.out.println("Reconnecting to WordRepositoryServer in CrissCrossImpl.");
-                return;
-            } catch (Exception e) {
-                System.err.println("Reconnection attempt " + (attempt + 1) + " failed: " + e.getMessage());
-            }
-            attempt++;
-        }
-        // If all attempts fail, clear the reference.
-        wordServer = null;
-    }
     // ===============================
     // Implementation of word commands
     // ===============================
@@ -177,7 +289,7 @@ public class CrissCrossImpl extends UnicastRemoteObject implements CrissCrossPuz
      * Adds a word to the repository on behalf of a user.
      * <p>
      * Implements at-most-once semantics using deduplication by checking sequence numbers.
-     * If the WordRepositoryServer connection is lost, it attempts to reconnect.
+     * Fails fast while the WordRepositoryServer is unreachable (see {@link WordServiceClient}).
      * </p>
      *
      * @param username The user's name.
@@ -188,45 +300,27 @@ public class CrissCrossImpl extends UnicastRemoteObject implements CrissCrossPuz
      */
     @Override
     public boolean addWord(String username, String word, int seq) throws RemoteException {
-        String key = getCacheKey(username, "addWord");
-        Integer last = lastSeenSeq.get(key);
-        if (last != null && seq <= last) {
-            System.out.println("Duplicate request: addWord('" + word + "') from " + username + " with seq " + seq + " - **IGNORED**");
-            return lastResponse.containsKey(key) && lastResponse.get(key) instanceof Boolean 
-                   ? (Boolean) lastResponse.get(key) : false;
-        }
-        if (wordServer == null) {
-            connectToWordRepository();
-            if (wordServer == null) {
-                throw new RemoteException("WordRepositoryServer is not available.");
-            }
-        }
-        boolean result;
-        try {
-            result = wordServer.createWord(word);
-        } catch (RemoteException e) {
-            if (e.getMessage() != null && e.getMessage().contains("Connection refused")) {
-                System.out.println("Lost connection to WordRepositoryServer, attempting to reconnect...");
-                reconnectWordRepository();
-                if (wordServer == null) {
-                    throw new RemoteException("WordRepositoryServer is unavailable after reconnection attempt.");
-                }
-                result = wordServer.createWord(word);
-            } else {
-                throw e;
+        return metrics.timed("addWord", () -> {
+            String key = getCacheKey(username, "addWord");
+            Integer last = lastSeenSeq.get(key);
+            if (last != null && seq <= last) {
+                LOG.info("Duplicate request: addWord('{}') from {} with seq {} - **IGNORED**", word, username, seq);
+                return lastResponse.containsKey(key) && lastResponse.get(key) instanceof Boolean 
+                       ? (Boolean) lastResponse.get(key) : false;
             }
-        }
-        lastSeenSeq.put(key, seq);
-        lastResponse.put(key, result);
-        System.out.println("Processed addWord('" + word + "') for " + username + " [seq=" + seq + "], result=" + result);
-        return result;
+            boolean result = wordService.createWord(word, wordSession(username));
+            lastSeenSeq.put(key, seq);
+            lastResponse.put(key, result);
+            LOG.info("Processed addWord('{}') for {} [seq={}], result={}", word, username, seq, result);
+            return result;
+        });
     }
     
     /**
      * Removes a word from the repository on behalf of a user.
      * <p>
-     * Uses deduplication logic similar to {@code addWord}. If the connection is lost,
-     * it attempts to reconnect.
+     * Uses deduplication logic similar to {@code addWord}, and fails fast while the
+     * WordRepositoryServer is unreachable.
      * </p>
      *
      * @param username The user's name.
@@ -237,46 +331,28 @@ public class CrissCrossImpl extends UnicastRemoteObject implements CrissCrossPuz
      */
     @Override
     public boolean removeWord(String username, String word, int seq) throws RemoteException {
-        String key = getCacheKey(username, "removeWord");
-        Integer last = lastSeenSeq.get(key);
-        if (last != null && seq <= last) {
-            System.out.println("Duplicate request: removeWord('" + word + "') from " + username + " with seq " + seq + " - **IGNORED**");
-            return lastResponse.containsKey(key) && lastResponse.get(key) instanceof Boolean 
-                   ? (Boolean) lastResponse.get(key) : false;
-        }
-        if (wordServer == null) {
-            connectToWordRepository();
-            if (wordServer == null) {
-                throw new RemoteException("WordRepositoryServer is not available.");
+        return metrics.timed("removeWord", () -> {
+            String key = getCacheKey(username, "removeWord");
+            Integer last = lastSeenSeq.get(key);
+            if (last != null && seq <= last) {
+                LOG.info("Duplicate request: removeWord('{}') from {} with seq {} - **IGNORED**", word, username, seq);
+                return lastResponse.containsKey(key) && lastResponse.get(key) instanceof Boolean 
+                       ? (Boolean) lastResponse.get(key) : false;
             }
-        }
-        boolean result;
-        try {
-            result = wordServer.removeWord(word);
-        } catch (RemoteException e) {
-            if (e.getMessage() != null && e.getMessage().contains("Connection refused")) {
-                System.out.println("Lost connection to WordRepositoryServer, attempting to reconnect...");
-                reconnectWordRepository();
-                if (wordServer == null) {
-                    throw new RemoteException("WordRepositoryServer is unavailable after reconnection attempt.");
-                }
-                result = wordServer.removeWord(word);
-            } else {
-                throw e;
-            }
-        }
-        lastSeenSeq.put(key, seq);
-        lastResponse.put(key, result);
-        System.out.println("Processed removeWord('" + word + "') for " + username + " [seq=" + seq + "], result=" + result);
-        return result;
+            boolean result = wordService.removeWord(word, wordSession(username));
+            lastSeenSeq.put(key, seq);
+            lastResponse.put(key, result);
+            LOG.info("Processed removeWord('{}') for {} [seq={}], result={}", word, username, seq, result);
+            return result;
+        });
     }
     
     
     /**
      * Checks if a word exists in the repository on behalf of a user.
      * <p>
-     * Deduplication is performed using sequence numbers. If the connection is lost,
-     * reconnection is attempted.
+     * Deduplication is performed using sequence numbers. Fails fast while the
+     * WordRepositoryServer is unreachable.
      * </p>
      *
      * @param username The user's name.
@@ -287,143 +363,213 @@ public class CrissCrossImpl extends UnicastRemoteObject implements CrissCrossPuz
      */
     @Override
     public boolean checkWord(String username, String word, int seq) throws RemoteException {
-        String key = getCacheKey(username, "checkWord");
-        Integer last = lastSeenSeq.get(key);
-        if (last != null && seq <= last) {
-            System.out.println("Duplicate request: checkWord('" + word + "') from " + username + " with seq " + seq + " - **IGNORED**");
-            return lastResponse.containsKey(key) && lastResponse.get(key) instanceof Boolean 
-                   ? (Boolean) lastResponse.get(key) : false;
-        }
-        if (wordServer == null) {
-            connectToWordRepository();
-            if (wordServer == null) {
-                throw new RemoteException("WordRepositoryServer is not available.");
+        return metrics.timed("checkWord", () -> {
+            String key = getCacheKey(username, "checkWord");
+            Integer last = lastSeenSeq.get(key);
+            if (last != null && seq <= last) {
+                LOG.info("Duplicate request: checkWord('{}') from {} with seq {} - **IGNORED**", word, username, seq);
+                return lastResponse.containsKey(key) && lastResponse.get(key) instanceof Boolean 
+                       ? (Boolean) lastResponse.get(key) : false;
             }
+            boolean result = wordService.checkWord(word, wordSession(username));
+            lastSeenSeq.put(key, seq);
+            lastResponse.put(key, result);
+            LOG.info("Processed checkWord('{}') for {} [seq={}], result={}", word, username, seq, result);
+            return result;
+        });
+    }
+
+    /**
+     * The packed puzzle dictionary, with the version and lines of each word shard it was built
+     * from (a version of -1 if the shard's words were not read from the word service).
+     */
+    private static final class PuzzleDictionary {
+        final WordArena words;
+        final long[] versions;
+        final List<List<String>> lines;
+        final long checkedNanos;
+
+        PuzzleDictionary(WordArena words, long[] versions, List<List<String>> lines) {
+            this.words = words;
+            this.versions = versions;
+            this.lines = lines;
+            this.checkedNanos = System.nanoTime();
         }
-        boolean result;
-        try {
-            result = wordServer.checkWord(word);
-        } catch (RemoteException e) {
-            if (e.getMessage() != null && e.getMessage().contains("Connection refused")) {
-                System.out.println("Lost connection to WordRepositoryServer, attempting to reconnect...");
-                reconnectWordRepository();
-                if (wordServer == null) {
-                    throw new RemoteException("WordRepositoryServer is unavailable after reconnection attempt.");
-                }
-                result = wordServer.checkWord(word);
-            } else {
-                throw e;
+    }
+
+    /**
+     * Returns the puzzle dictionary. The first game waits for it to be loaded; later games get
+     * the current one at once and, when the refresh interval has passed, queue a background
+     * check of the word service that replaces it if a shard changed.
+     *
+     * @return The dictionary arena.
+     * @throws RemoteException if the first load was interrupted or failed.
+     */
+    private WordArena currentDictionary() throws RemoteException {
+        PuzzleDictionary current = dictionary.get();
+        if (current == null) {
+            try {
+                current = dictionaryLoader.submit(this::refreshDictionary).get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RemoteException("Interrupted while loading the puzzle dictionary.", e);
+            } catch (ExecutionException e) {
+                throw new RemoteException("Cannot load the puzzle dictionary.", e.getCause());
             }
+        } else if (wordsFile == null && System.nanoTime() - current.checkedNanos >= dictionaryRefreshNanos
+                && dictionaryRefreshQueued.compareAndSet(false, true)) {
+            dictionaryLoader.execute(() -> {
+                dictionaryRefreshQueued.set(false);
+                refreshDictionary();
+            });
         }
-        lastSeenSeq.put(key, seq);
-        lastResponse.put(key, result);
-        System.out.println("Processed checkWord('" + word + "') for " + username + " [seq=" + seq + "], result=" + result);
-        return result;
+        return current.words;
     }
 
     /**
-     * Returns a random word from the file "words.txt" that meets a minimum length.
+     * Loads the puzzle dictionary, or brings it up to date: the words of each shard whose
+     * version changed are fetched again with a snapshot from the shard's primary. If the word
+     * service cannot be reached the current dictionary is kept, and the first one is read from
+     * words.txt (or is empty) until a later check reaches the service. Runs on the loader thread.
      *
-     * @param minLength The minimum length of the word.
-     * @return A random word meeting the criteria or an empty string if none found.
-     */
-    private String getRandomWordFromFile(int minLength) {
-        List<String> words = new ArrayList<>();
-        try (BufferedReader br = new BufferedReader(new FileReader("words.txt"))) {
-            String line;
-            while ((line = br.readLine()) != null) {
-                line = line.trim().toLowerCase();
-                if (!line.isEmpty() && line.length() >= minLength) {
-                    words.add(line);
-                }
+     * @return The current puzzle dictionary.
+     */
+    private PuzzleDictionary refreshDictionary() {
+        PuzzleDictionary previous = dictionary.get();
+        if (previous != null && wordsFile != null) {
+            return previous;
+        }
+        PuzzleDictionary next;
+        if (wordsFile != null) {
+            next = new PuzzleDictionary(loadWordFile(wordsFile), new long[] { -1 }, null);
+        } else {
+            try {
+                next = fetchDictionary(previous);
+            } catch (RemoteException e) {
+                LOG.warn("Cannot refresh the puzzle dictionary from the word service: {}", e.getMessage());
+                next = previous != null
+                        ? new PuzzleDictionary(previous.words, previous.versions, previous.lines)
+                        : new PuzzleDictionary(loadWordFile("words.txt"), new long[] { -1 }, null);
             }
-        } catch (IOException e) {
-            System.err.println("Error reading words.txt: " + e.getMessage());
         }
-        if (words.isEmpty()) {
-            return "";
+        dictionary.set(next);
+        return next;
+    }
+
+    // The shards' words, fetched again for the shards whose version differs from the previous
+    // dictionary; the arena is only repacked when one did
+    private PuzzleDictionary fetchDictionary(PuzzleDictionary previous) throws RemoteException {
+        int shards = wordService.getShardCount();
+        boolean reusable = previous != null && previous.lines != null && previous.lines.size() == shards;
+        long[] versions = new long[shards];
+        List<List<String>> lines = new ArrayList<>(shards);
+        boolean changed = !reusable;
+        for (int i = 0; i < shards; i++) {
+            WordReplicaSet shard = wordService.shard(i);
+            if (reusable && shard.getVersion() == previous.versions[i]) {
+                versions[i] = previous.versions[i];
+                lines.add(previous.lines.get(i));
+            } else {
+                WordSnapshot snapshot = shard.getSnapshot();
+                versions[i] = snapshot.getVersion();
+                lines.add(snapshot.getLines());
+                changed = true;
+            }
+        }
+        if (!changed) {
+            return new PuzzleDictionary(previous.words, versions, lines);
+        }
+        long start = System.nanoTime();
+        WordArena.Builder builder = new WordArena.Builder();
+        for (List<String> shardLines : lines) {
+            for (String line : shardLines) {
+                builder.add(line);
+            }
+        }
+        WordArena words = builder.build();
+        LOG.info("Loaded {} puzzle words at versions {} in {} ms", words.size(), Arrays.toString(versions),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        return new PuzzleDictionary(words, versions, lines);
+    }
+
+    private static WordArena loadWordFile(String path) {
+        try {
+            return WordArena.load(path);
+        } catch (IOException e) {
+            LOG.warn("Error reading {}: {}", path, e.getMessage());
+            return WordArena.empty();
         }
-        Random rand = new Random();
-        return words.get(rand.nextInt(words.size()));
     }
 
     /**
-     * Retrieves a random word from "words.txt" that contains a specified character constraint.
+     * Returns a random word of the dictionary that meets a minimum length.
+     *
+     * @param words     The dictionary.
+     * @param minLength The minimum length of the word.
+     * @return The ID of a random word meeting the criteria, or -1 if none found.
+     */
+    private int getRandomWord(WordArena words, int minLength) {
+        return words.randomWithMinLength(minLength, ThreadLocalRandom.current());
+    }
+
+    /**
+     * Retrieves a random word of the dictionary that contains a specified character constraint.
      * <p>
      * The method ensures the word has exactly one occurrence of the constraint and that the word
-     * can be placed in the puzzle grid given the vertical stem's constraints.
+     * can be placed in the puzzle grid given the vertical stem's constraints: a word with the
+     * constraint at index k starts at column colForStem - k, so it fits if k is at most colForStem
+     * and its length at most numCols - colForStem + k. The arena's {@link CrossingIndex} holds
+     * those words by (constraint, k) ordered by length, so each k is a range count and the pick
+     * reads one entry; no word is examined.
      * </p>
      *
+     * @param words              The dictionary.
      * @param constraint         The character constraint.
      * @param minLength          The minimum word length.
      * @param verticalStemLength The length of the vertical stem.
      * @param colForStem         The column in which the vertical stem is placed.
-     * @return A random word meeting the criteria or an empty string if none found.
+     * @return The ID of a random word meeting the criteria, or -1 if none found.
      */
-    private String getConstrainedRandomWord(char constraint, int minLength, int verticalStemLength, int colForStem) {
-        List<String> validWords = new ArrayList<>();
+    private int getConstrainedRandomWord(WordArena words, char constraint, int minLength, int verticalStemLength,
+                                         int colForStem) {
         char lowerConstraint = Character.toLowerCase(constraint);
         int numCols = verticalStemLength; // Calculate numCols based on vertical stem + padding
 
-        try (BufferedReader br = new BufferedReader(new FileReader("words.txt"))) {
-            String line;
-            while ((line = br.readLine()) != null) {
-                line = line.trim().toLowerCase();
-                if (line.isEmpty() || line.length() < minLength)
-                    continue;
-
-                int constraintIndex = line.indexOf(lowerConstraint);
-                if (constraintIndex == -1)
-                    continue; // Skip if constraint not found
-                if (countOccurrences(line, lowerConstraint) != 1)
-                    continue; // Ensure exactly one occurrence
-
-                // Check if word fits without grid clamping
-                int startCol = colForStem - constraintIndex;
-                if (startCol < 0 || startCol + line.length() > numCols)
-                    continue;
-
-                validWords.add(line);
-            }
-        } catch (IOException e) {
-            System.err.println("Error reading words.txt: " + e.getMessage());
+        CrossingIndex crossing = words.crossing();
+        int[] counts = new int[colForStem + 1];
+        int count = 0;
+        for (int k = 0; k <= colForStem; k++) {
+            counts[k] = crossing.count(lowerConstraint, k, minLength, numCols - colForStem + k);
+            count += counts[k];
         }
+        if (count == 0)
+            return -1;
 
-        return validWords.isEmpty() ? "" : validWords.get(new Random().nextInt(validWords.size()));
-    }
-
-    /**
-     * Counts the number of times a specific character appears in a string.
-     *
-     * @param str the string in which to count occurrences
-     * @param ch  the character to count
-     * @return the number of times ch appears in str
-     */
-    private int countOccurrences(String str, char ch) {
-        int count = 0;
-        for (int i = 0; i < str.length(); i++) {
-            if (str.charAt(i) == ch) {
-                count++;
-            }
+        int pick = ThreadLocalRandom.current().nextInt(count);
+        int k = 0;
+        while (pick >= counts[k]) {
+            pick -= counts[k++];
         }
-        return count;
+        return crossing.get(lowerConstraint, k, minLength, pick);
     }
 
     /**
-     * Counts the number of occurrences of a character in a string.
+     * Builds the solution grid: the vertical stem in the middle column and each horizontal word
+     * in its row, crossing the stem at the stem's letter.
      *
-     * @param str The string to search.
-     * @param ch  The character to count.
-     * @return The number of occurrences of {@code ch} in {@code str}.
+     * @param words           The dictionary the word IDs refer to.
+     * @param verticalStem    The ID of the vertical stem.
+     * @param horizontalWords The IDs of the horizontal words by row, -1 for none.
+     * @return The grid, with '.' for empty cells.
      */
-    private char[][] constructPuzzle(String verticalStem, String[] horizontalWords) {
-        int numRows = verticalStem.length();
+    private char[][] constructPuzzle(WordArena words, int verticalStem, int[] horizontalWords) {
+        int numRows = words.length(verticalStem);
 
         // Compute the longest word length among verticalStem and horizontalWords.
-        int maxWordLength = verticalStem.length();
-        for (String word : horizontalWords) {
-            if (word != null && word.length() > maxWordLength) {
-                maxWordLength = word.length();
+        int maxWordLength = numRows;
+        for (int word : horizontalWords) {
+            if (word >= 0 && words.length(word) > maxWordLength) {
+                maxWordLength = words.length(word);
             }
         }
 
@@ -433,22 +579,23 @@ public class CrissCrossImpl extends UnicastRemoteObject implements CrissCrossPuz
             Arrays.fill(grid[i], '.');
         }
         int colForStem = numCols / 2;
-        for (int row = 0; row < verticalStem.length(); row++) {
-            grid[row][colForStem] = verticalStem.charAt(row);
+        for (int row = 0; row < numRows; row++) {
+            grid[row][colForStem] = words.charAt(verticalStem, row);
         }
         for (int row = 0; row < horizontalWords.length && row < numRows; row++) {
-            String hWord = horizontalWords[row];
-            if (hWord.isEmpty())
+            int hWord = horizontalWords[row];
+            if (hWord < 0)
                 continue;
-            char constraint = verticalStem.charAt(row);
-            int constraintIndex = hWord.indexOf(Character.toLowerCase(constraint));
+            char constraint = words.charAt(verticalStem, row);
+            int constraintIndex = words.indexOf(hWord, Character.toLowerCase(constraint));
             if (constraintIndex < 0)
                 continue;
+            int hLength = words.length(hWord);
             int startCol = colForStem - constraintIndex;
-            startCol = Math.max(0, Math.min(startCol, numCols - hWord.length()));
-            for (int j = 0; j < hWord.length() && (startCol + j) < numCols; j++) {
+            startCol = Math.max(0, Math.min(startCol, numCols - hLength));
+            for (int j = 0; j < hLength && (startCol + j) < numCols; j++) {
                 char currentChar = grid[row][startCol + j];
-                char newChar = hWord.charAt(j);
+                char newChar = words.charAt(hWord, j);
                 if (currentChar == '.' || currentChar == newChar) {
                     grid[row][startCol + j] = newChar;
                 }
@@ -543,6 +690,9 @@ public class CrissCrossImpl extends UnicastRemoteObject implements CrissCrossPuz
         synchronized (sessions) {
             sessions.remove(player);
         }
+        if (player != null) {
+            wordSessions.remove(player);
+        }
     }
 
     /**
@@ -561,52 +711,61 @@ public class CrissCrossImpl extends UnicastRemoteObject implements CrissCrossPuz
      */
     @Override
     public String startGame(String player, int level, int failedAttemptFactor, int seq) throws RemoteException {
-        // Register and update the client activity with the failure detector.
-        failureDetector.registerClient(player);
-        failureDetector.updateClientActivity(player);
-
-        // Deduplication check using sequence numbers.
-        String key = getCacheKey(player, "startGame");
-        Integer last = lastSeenSeq.get(key);
-        if (last != null && seq <= last) {
-            System.out.println("Duplicate request: startGame from " + player + " [seq=" + seq + "] - **IGNORED**");
-            return lastResponse.containsKey(key) ? (String) lastResponse.get(key) : "Duplicate request ignored.";
-        }
+        return metrics.timed("startGame", () -> {
+            // Register and update the client activity with the failure detector.
+            failureDetector.registerClient(player);
+            failureDetector.updateClientActivity(player);
 
-        int effectiveLevel = Math.max(1, Math.min(level, 10));
-        GameSession session = new GameSession();
-        String candidate;
-        do {
-            candidate = getRandomWordFromFile(effectiveLevel);
-        } while (candidate.length() < effectiveLevel);
-        session.verticalStem = candidate.toLowerCase();
-        int verticalStemLength = candidate.length();
-        int numCols = verticalStemLength;
-        int colForStem = numCols / 2;
-        session.horizontalWords = new String[effectiveLevel];
-        Arrays.fill(session.horizontalWords, "");
-        for (int i = 1; i < effectiveLevel && i < verticalStemLength; i++) {
-            String hWord;
+            // Deduplication check using sequence numbers.
+            String key = getCacheKey(player, "startGame");
+            Integer last = lastSeenSeq.get(key);
+            if (last != null && seq <= last) {
+                LOG.info("Duplicate request: startGame from {} [seq={}] - **IGNORED**", player, seq);
+                return lastResponse.containsKey(key) ? (String) lastResponse.get(key) : "Duplicate request ignored.";
+            }
+
+            int effectiveLevel = Math.max(1, Math.min(level, 10));
+            GameSession session = new GameSession();
+            session.words = currentDictionary();
+            // The constrained word search is deterministic for a given stem letter and position, so a
+            // letter without any fitting horizontal word can never succeed: pick a new stem instead.
+            boolean complete;
             do {
-                hWord = getConstrainedRandomWord(session.verticalStem.charAt(i), effectiveLevel, verticalStemLength, colForStem);
-            } while (hWord.isEmpty());
-            session.horizontalWords[i] = hWord.toLowerCase();
-        }
-        session.puzzle = constructPuzzle(session.verticalStem, session.horizontalWords);
-        int numLetters = countPuzzleLetters(session.puzzle);
-        session.failAttempts = failedAttemptFactor * numLetters;
-        session.formattedPuzzle = formatPuzzle(session.puzzle);
-        session.revealedPuzzle = revealPuzzle(session.puzzle);
-        putSession(player, session);
-        System.out.println("Completed puzzle on server:");
-        System.out.println(session.revealedPuzzle);
-        String response = "Game started for " + player + "!\n" + session.formattedPuzzle +
-                          "\nAttempts allowed: " + session.failAttempts;
-        // Store the sequence and response for deduplication.
-        lastSeenSeq.put(key, seq);
-        lastResponse.put(key, response);
-        System.out.println("Processed startGame for " + player + " [seq=" + seq + "]");
-        return response;
+                session.verticalStem = getRandomWord(session.words, effectiveLevel);
+                if (session.verticalStem < 0) {
+                    throw new RemoteException("No word of at least " + effectiveLevel + " letters in the dictionary.");
+                }
+                int verticalStemLength = session.words.length(session.verticalStem);
+                int numCols = verticalStemLength;
+                int colForStem = numCols / 2;
+                session.horizontalWords = new int[effectiveLevel];
+                Arrays.fill(session.horizontalWords, -1);
+                complete = true;
+                for (int i = 1; i < effectiveLevel && i < verticalStemLength; i++) {
+                    int hWord = getConstrainedRandomWord(session.words, session.words.charAt(session.verticalStem, i),
+                            effectiveLevel, verticalStemLength, colForStem);
+                    if (hWord < 0) {
+                        complete = false;
+                        break;
+                    }
+                    session.horizontalWords[i] = hWord;
+                }
+            } while (!complete);
+            session.puzzle = constructPuzzle(session.words, session.verticalStem, session.horizontalWords);
+            int numLetters = countPuzzleLetters(session.puzzle);
+            session.failAttempts = failedAttemptFactor * numLetters;
+            session.formattedPuzzle = formatPuzzle(session.puzzle);
+            session.revealedPuzzle = revealPuzzle(session.puzzle);
+            putSession(player, session);
+            LOG.debug("Completed puzzle on server:\n{}", session.revealedPuzzle);
+            String response = "Game started for " + player + "!\n" + session.formattedPuzzle +
+                              "\nAttempts allowed: " + session.failAttempts;
+            // Store the sequence and response for deduplication.
+            lastSeenSeq.put(key, seq);
+            lastResponse.put(key, response);
+            LOG.info("Processed startGame for {} [seq={}]", player, seq);
+            return response;
+        });
     }
     
     
@@ -626,70 +785,68 @@ public class CrissCrossImpl extends UnicastRemoteObject implements CrissCrossPuz
      */
     @Override
     public String guessLetter(String player, char letter, int seq) throws RemoteException {
-        String key = getCacheKey(player, "guessLetter");
-        Integer last = lastSeenSeq.get(key);
-        if (last != null && seq <= last) {
-            System.out.println("Duplicate request: guessLetter('" + letter + "') from " + player + " [seq=" + seq + "] - **IGNORED**");
-            return lastResponse.containsKey(key) ? (String) lastResponse.get(key) : "Duplicate request ignored.";
-        }
-        GameSession session = getSession(player);
-        if (session == null) {
-            String result = "No active game session for " + player + ".";
-            lastSeenSeq.put(key, seq);
-            lastResponse.put(key, result);
-            System.out.println("Processed guessLetter for " + player + " [seq=" + seq + "] - no active session.");
-            return result;
-        }
-        char lowerLetter = Character.toLowerCase(letter);
-        boolean found = false;
-        char[] formattedChars = session.formattedPuzzle.toCharArray();
-        char[] revealedChars = session.revealedPuzzle.toCharArray();
-        for (int i = 0; i < revealedChars.length; i++) {
-            if (Character.toLowerCase(revealedChars[i]) == lowerLetter && formattedChars[i] == '_') {
-                formattedChars[i] = revealedChars[i];
-                found = true;
+        return metrics.timed("guessLetter", () -> {
+            String key = getCacheKey(player, "guessLetter");
+            Integer last = lastSeenSeq.get(key);
+            if (last != null && seq <= last) {
+                LOG.info("Duplicate request: guessLetter('{}') from {} [seq={}] - **IGNORED**", letter, player, seq);
+                return lastResponse.containsKey(key) ? (String) lastResponse.get(key) : "Duplicate request ignored.";
             }
-        }
-        if (!found) {
-            session.failAttempts--;
-            if (session.failAttempts <= 0) {
+            GameSession session = getSession(player);
+            if (session == null) {
+                String result = "No active game session for " + player + ".";
+                lastSeenSeq.put(key, seq);
+                lastResponse.put(key, result);
+                LOG.info("Processed guessLetter for {} [seq={}] - no active session.", player, seq);
+                return result;
+            }
+            char lowerLetter = Character.toLowerCase(letter);
+            boolean found = false;
+            char[] formattedChars = session.formattedPuzzle.toCharArray();
+            char[] revealedChars = session.revealedPuzzle.toCharArray();
+            for (int i = 0; i < revealedChars.length; i++) {
+                if (Character.toLowerCase(revealedChars[i]) == lowerLetter && formattedChars[i] == '_') {
+                    formattedChars[i] = revealedChars[i];
+                    found = true;
+                }
+            }
+            if (!found) {
+                session.failAttempts--;
+                if (session.failAttempts <= 0) {
+                    try {
+                        accountServer().updateScore(player, -1, false);
+                    } catch (Exception e) {
+                        e.printStackTrace();
+                    }
+                    removeSession(player);
+                    String result = "Game over! No attempts remaining. The solution was:\n" + session.revealedPuzzle;
+                    lastSeenSeq.put(key, seq);
+                    lastResponse.put(key, result);
+                    LOG.info("Processed guessLetter for {} [seq={}] - game over.", player, seq);
+                    return result;
+                }
+            }
+            session.formattedPuzzle = new String(formattedChars);
+            if (!session.formattedPuzzle.contains("_")) {
+                removeSession(player);
                 try {
-                    Registry registry = LocateRegistry.getRegistry("localhost", 1099);
-                    UserAccountServer accountServer = (UserAccountServer) registry.lookup("UserAccountServer");
-                    accountServer.updateScore(player, -1, false);
+                    accountServer().updateScore(player, 1, false);
                 } catch (Exception e) {
                     e.printStackTrace();
                 }
-                removeSession(player);
-                String result = "Game over! No attempts remaining. The solution was:\n" + session.revealedPuzzle;
+                String result = "Congratulations " + player + ", you completed the puzzle!\n" + session.formattedPuzzle;
                 lastSeenSeq.put(key, seq);
                 lastResponse.put(key, result);
-                System.out.println("Processed guessLetter for " + player + " [seq=" + seq + "] - game over.");
+                LOG.info("Processed guessLetter for {} [seq={}] - puzzle solved.", player, seq);
                 return result;
             }
-        }
-        session.formattedPuzzle = new String(formattedChars);
-        if (!session.formattedPuzzle.contains("_")) {
-            removeSession(player);
-            try {
-                Registry registry = LocateRegistry.getRegistry("localhost", 1099);
-                UserAccountServer accountServer = (UserAccountServer) registry.lookup("UserAccountServer");
-                accountServer.updateScore(player, 1, false);
-            } catch (Exception e) {
-                e.printStackTrace();
-            }
-            String result = "Congratulations " + player + ", you completed the puzzle!\n" + session.formattedPuzzle;
+            String result = "Current puzzle state:\n" + session.formattedPuzzle +
+                            "\nAttempts remaining: " + session.failAttempts;
             lastSeenSeq.put(key, seq);
             lastResponse.put(key, result);
-            System.out.println("Processed guessLetter for " + player + " [seq=" + seq + "] - puzzle solved.");
+            LOG.info("Processed guessLetter for {} [seq={}] - letter {}.", player, seq, (found ? "found" : "not found"));
             return result;
-        }
-        String result = "Current puzzle state:\n" + session.formattedPuzzle +
-                        "\nAttempts remaining: " + session.failAttempts;
-        lastSeenSeq.put(key, seq);
-        lastResponse.put(key, result);
-        System.out.println("Processed guessLetter for " + player + " [seq=" + seq + "] - letter " + (found ? "found" : "not found") + ".");
-        return result;
+        });
     }
     
 
@@ -709,105 +866,104 @@ public class CrissCrossImpl extends UnicastRemoteObject implements CrissCrossPuz
      */
     @Override
     public String guessWord(String player, String word, int seq) throws RemoteException {
-        String key = getCacheKey(player, "guessWord");
-        Integer last = lastSeenSeq.get(key);
-        if (last != null && seq <= last) {
-            System.out.println("Duplicate request: guessWord(\"" + word + "\") from " + player + " [seq=" + seq + "] - **IGNORED**");
-            return lastResponse.containsKey(key) ? (String) lastResponse.get(key) : "Duplicate request ignored.";
-        }
-        GameSession session = getSession(player);
-        if (session == null) {
-            String result = "No active game session for " + player + ".";
-            lastSeenSeq.put(key, seq);
-            lastResponse.put(key, result);
-            System.out.println("Processed guessWord for " + player + " [seq=" + seq + "] - no active session.");
-            return result;
-        }
-        String lowerWord = word.toLowerCase();
-        boolean wordFound = false;
-        int gridWidth = session.puzzle[0].length;
-        int colForStem = gridWidth / 2;
-        String[] rows = session.formattedPuzzle.split("\\+\\n");
-        if (lowerWord.equals(session.verticalStem.toLowerCase())) {
-            for (int i = 0; i < rows.length && i < session.puzzle.length; i++) {
-                char[] rowChars = rows[i].toCharArray();
-                if (colForStem < rowChars.length) {
-                    rowChars[colForStem] = session.puzzle[i][colForStem];
-                }
-                rows[i] = new String(rowChars);
+        return metrics.timed("guessWord", () -> {
+            String key = getCacheKey(player, "guessWord");
+            Integer last = lastSeenSeq.get(key);
+            if (last != null && seq <= last) {
+                LOG.info("Duplicate request: guessWord(\"{}\") from {} [seq={}] - **IGNORED**", word, player, seq);
+                return lastResponse.containsKey(key) ? (String) lastResponse.get(key) : "Duplicate request ignored.";
             }
-            session.formattedPuzzle = String.join("+\n", rows) + "+";
-            session.formattedPuzzle = session.formattedPuzzle.replace("++", "+");
-            wordFound = true;
-        } else {
-            for (int i = 0; i < session.horizontalWords.length; i++) {
-                String hWord = session.horizontalWords[i];
-                if (hWord.isEmpty()) continue;
-                if (hWord.equalsIgnoreCase(lowerWord)) {
-                    char constraint = session.verticalStem.charAt(i);
-                    int constraintIndex = hWord.toLowerCase().indexOf(Character.toLowerCase(constraint));
-                    if (constraintIndex == -1) continue;
-                    int startCol = colForStem - constraintIndex;
-                    startCol = Math.max(0, Math.min(startCol, gridWidth - hWord.length()));
-                    if (i >= rows.length) continue;
+            GameSession session = getSession(player);
+            if (session == null) {
+                String result = "No active game session for " + player + ".";
+                lastSeenSeq.put(key, seq);
+                lastResponse.put(key, result);
+                LOG.info("Processed guessWord for {} [seq={}] - no active session.", player, seq);
+                return result;
+            }
+            String lowerWord = word.toLowerCase();
+            boolean wordFound = false;
+            int gridWidth = session.puzzle[0].length;
+            int colForStem = gridWidth / 2;
+            String[] rows = session.formattedPuzzle.split("\\+\\n");
+            if (session.words.matches(session.verticalStem, lowerWord)) {
+                for (int i = 0; i < rows.length && i < session.puzzle.length; i++) {
                     char[] rowChars = rows[i].toCharArray();
-                    for (int j = 0; j < hWord.length() && (startCol + j) < gridWidth; j++) {
-                        rowChars[startCol + j] = session.puzzle[i][startCol + j];
+                    if (colForStem < rowChars.length) {
+                        rowChars[colForStem] = session.puzzle[i][colForStem];
                     }
                     rows[i] = new String(rowChars);
-                    session.formattedPuzzle = String.join("+\n", rows) + "+";
-                    session.formattedPuzzle = session.formattedPuzzle.replace("++", "+");
-                    wordFound = true;
-                    break;
+                }
+                session.formattedPuzzle = String.join("+\n", rows) + "+";
+                session.formattedPuzzle = session.formattedPuzzle.replace("++", "+");
+                wordFound = true;
+            } else {
+                for (int i = 0; i < session.horizontalWords.length; i++) {
+                    int hWord = session.horizontalWords[i];
+                    if (hWord < 0) continue;
+                    if (session.words.matches(hWord, lowerWord)) {
+                        char constraint = session.words.charAt(session.verticalStem, i);
+                        int constraintIndex = session.words.indexOf(hWord, Character.toLowerCase(constraint));
+                        if (constraintIndex == -1) continue;
+                        int hLength = session.words.length(hWord);
+                        int startCol = colForStem - constraintIndex;
+                        startCol = Math.max(0, Math.min(startCol, gridWidth - hLength));
+                        if (i >= rows.length) continue;
+                        char[] rowChars = rows[i].toCharArray();
+                        for (int j = 0; j < hLength && (startCol + j) < gridWidth; j++) {
+                            rowChars[startCol + j] = session.puzzle[i][startCol + j];
+                        }
+                        rows[i] = new String(rowChars);
+                        session.formattedPuzzle = String.join("+\n", rows) + "+";
+                        session.formattedPuzzle = session.formattedPuzzle.replace("++", "+");
+                        wordFound = true;
+                        break;
+                    }
                 }
             }
-        }
-        if (wordFound) {
-            if (!session.formattedPuzzle.contains("_")) {
-                removeSession(player);
-                try {
-                    Registry registry = LocateRegistry.getRegistry("localhost", 1099);
-                    UserAccountServer accountServer = (UserAccountServer) registry.lookup("UserAccountServer");
-                    accountServer.updateScore(player, 1, false);
-                } catch (Exception e) {
-                    e.printStackTrace();
+            if (wordFound) {
+                if (!session.formattedPuzzle.contains("_")) {
+                    removeSession(player);
+                    try {
+                        accountServer().updateScore(player, 1, false);
+                    } catch (Exception e) {
+                        e.printStackTrace();
+                    }
+                    String result = "Congratulations " + player + ", you completed the puzzle!\n" + session.formattedPuzzle;
+                    lastSeenSeq.put(key, seq);
+                    lastResponse.put(key, result);
+                    LOG.info("Processed guessWord for {} [seq={}] - puzzle solved.", player, seq);
+                    return result;
                 }
-                String result = "Congratulations " + player + ", you completed the puzzle!\n" + session.formattedPuzzle;
+                String result = "Word correct!\nCurrent puzzle state:\n" + session.formattedPuzzle +
+                                "\nAttempts remaining: " + session.failAttempts;
                 lastSeenSeq.put(key, seq);
                 lastResponse.put(key, result);
-                System.out.println("Processed guessWord for " + player + " [seq=" + seq + "] - puzzle solved.");
+                LOG.info("Processed guessWord for {} [seq={}] - word found.", player, seq);
                 return result;
-            }
-            String result = "Word correct!\nCurrent puzzle state:\n" + session.formattedPuzzle +
-                            "\nAttempts remaining: " + session.failAttempts;
-            lastSeenSeq.put(key, seq);
-            lastResponse.put(key, result);
-            System.out.println("Processed guessWord for " + player + " [seq=" + seq + "] - word found.");
-            return result;
-        } else {
-            session.failAttempts--;
-            if (session.failAttempts <= 0) {
-                try {
-                    Registry registry = LocateRegistry.getRegistry("localhost", 1099);
-                    UserAccountServer accountServer = (UserAccountServer) registry.lookup("UserAccountServer");
-                    accountServer.updateScore(player, -1, false);
-                } catch (Exception e) {
-                    e.printStackTrace();
+            } else {
+                session.failAttempts--;
+                if (session.failAttempts <= 0) {
+                    try {
+                        accountServer().updateScore(player, -1, false);
+                    } catch (Exception e) {
+                        e.printStackTrace();
+                    }
+                    removeSession(player);
+                    String result = "Game over! No attempts remaining. The solution was:\n" + session.revealedPuzzle;
+                    lastSeenSeq.put(key, seq);
+                    lastResponse.put(key, result);
+                    LOG.info("Processed guessWord for {} [seq={}] - game over.", player, seq);
+                    return result;
                 }
-                removeSession(player);
-                String result = "Game over! No attempts remaining. The solution was:\n" + session.revealedPuzzle;
+                String result = "Sorry, the word \"" + word + "\" is not in the puzzle.\nAttempts remaining: " 
+                                + session.failAttempts;
                 lastSeenSeq.put(key, seq);
                 lastResponse.put(key, result);
-                System.out.println("Processed guessWord for " + player + " [seq=" + seq + "] - game over.");
+                LOG.info("Processed guessWord for {} [seq={}] - word not found.", player, seq);
                 return result;
             }
-            String result = "Sorry, the word \"" + word + "\" is not in the puzzle.\nAttempts remaining: " 
-                            + session.failAttempts;
-            lastSeenSeq.put(key, seq);
-            lastResponse.put(key, result);
-            System.out.println("Processed guessWord for " + player + " [seq=" + seq + "] - word not found.");
-            return result;
-        }
+        });
     }
     
     /**
@@ -823,26 +979,28 @@ public class CrissCrossImpl extends UnicastRemoteObject implements CrissCrossPuz
      */
     @Override
     public String endGame(String player, int seq) throws RemoteException {
-    	failureDetector.updateClientActivity(player);
-        String key = getCacheKey(player, "endGame");
-        Integer last = lastSeenSeq.get(key);
-        if (last != null && seq <= last) {
-            System.out.println("Duplicate request: endGame from " + player + " [seq=" + seq + "] - **IGNORED**");
-            return lastResponse.containsKey(key) ? (String) lastResponse.get(key) : "Duplicate request ignored.";
-        }
-        GameSession session = sessions.remove(player);
-        String result;
-        if (session == null) {
-            result = "No active game session for " + player + ".";
-        } else {
-            result = "Game ended for " + player + ".\nThe solution was:\n" + session.revealedPuzzle;
-        }
-        lastSeenSeq.put(key, seq);
-        lastResponse.put(key, result);
-        System.out.println("Processed endGame for " + player + " [seq=" + seq + "]");
+        return metrics.timed("endGame", () -> {
+        	failureDetector.updateClientActivity(player);
+            String key = getCacheKey(player, "endGame");
+            Integer last = lastSeenSeq.get(key);
+            if (last != null && seq <= last) {
+                LOG.info("Duplicate request: endGame from {} [seq={}] - **IGNORED**", player, seq);
+                return lastResponse.containsKey(key) ? (String) lastResponse.get(key) : "Duplicate request ignored.";
+            }
+            GameSession session = sessions.remove(player);
+            String result;
+            if (session == null) {
+                result = "No active game session for " + player + ".";
+            } else {
+                result = "Game ended for " + player + ".\nThe solution was:\n" + session.revealedPuzzle;
+            }
+            lastSeenSeq.put(key, seq);
+            lastResponse.put(key, result);
+            LOG.info("Processed endGame for {} [seq={}]", player, seq);
         
-        failureDetector.unregisterClient(player);
-        return result;
+            failureDetector.unregisterClient(player);
+            return result;
+        });
     }
 
     /**
@@ -858,16 +1016,18 @@ public class CrissCrossImpl extends UnicastRemoteObject implements CrissCrossPuz
      */
     @Override
     public synchronized String restartGame(String player, int seq) throws RemoteException {
-        String key = getCacheKey(player, "restartGame");
-        Integer last = lastSeenSeq.get(key);
-        if (last != null && seq <= last) {
-            System.out.println("Duplicate request: restartGame from " + player + " [seq=" + seq + "] - **IGNORED**");
-            return lastResponse.containsKey(key) ? (String) lastResponse.get(key) : "Duplicate request ignored.";
-        }
-        sessions.remove(player);
-        String result = startGame(player, 5, 3, seq);
-        System.out.println("Processed restartGame for " + player + " [seq=" + seq + "]");
-        return result;
+        return metrics.timed("restartGame", () -> {
+            String key = getCacheKey(player, "restartGame");
+            Integer last = lastSeenSeq.get(key);
+            if (last != null && seq <= last) {
+                LOG.info("Duplicate request: restartGame from {} [seq={}] - **IGNORED**", player, seq);
+                return lastResponse.containsKey(key) ? (String) lastResponse.get(key) : "Duplicate request ignored.";
+            }
+            sessions.remove(player);
+            String result = startGame(player, 5, 3, seq);
+            LOG.info("Processed restartGame for {} [seq={}]", player, seq);
+            return result;
+        });
     }
 
     // ====================================================
@@ -878,44 +1038,46 @@ public class CrissCrossImpl extends UnicastRemoteObject implements CrissCrossPuz
     @Override
     public String startMultiGame(String username, int numPlayers, int level)
             throws RemoteException, RejectedException {
-        return multiplayerManager.startMultiGame(username, numPlayers, level);
+        return metrics.timed("startMultiGame", () -> multiplayerManager.startMultiGame(username, numPlayers, level));
     }
 
     @Override
     public String joinMultiGame(String player, int gameId, ClientCallback callback)
             throws RemoteException, RejectedException {
-        // Delegate to the multiplayerManager instance.
-        return multiplayerManager.joinMultiGame(player, gameId, callback);
+        return metrics.timed("joinMultiGame", () -> {
+            // Delegate to the multiplayerManager instance.
+            return multiplayerManager.joinMultiGame(player, gameId, callback);
+        });
     }
 
     @Override
     public String showActiveGameRooms() throws RemoteException {
-        return multiplayerManager.showActiveGameRooms();
+        return metrics.timed("showActiveGameRooms", () -> multiplayerManager.showActiveGameRooms());
     }
 
     @Override
     public String startGameRoom(String hostName, int gameId) throws RemoteException {
-        return multiplayerManager.startGameRoom(hostName, gameId);
+        return metrics.timed("startGameRoom", () -> multiplayerManager.startGameRoom(hostName, gameId));
     }
 
     @Override
     public String setActivePlayer(String player, int gameId) throws RemoteException {
-        return multiplayerManager.setActivePlayer(player, gameId);
+        return metrics.timed("setActivePlayer", () -> multiplayerManager.setActivePlayer(player, gameId));
     }
 
     @Override
     public String leaveRoom(String player, int gameId) throws RemoteException {
-        return multiplayerManager.leaveRoom(player, gameId);
+        return metrics.timed("leaveRoom", () -> multiplayerManager.leaveRoom(player, gameId));
     }
 
     @Override
     public boolean isActiveRoom(int gameId) throws RemoteException {
-        return multiplayerManager.isActiveRoom(gameId);
+        return metrics.timed("isActiveRoom", () -> multiplayerManager.isActiveRoom(gameId));
     }
 
     @Override
     public synchronized boolean isGameRun(int gameId) throws RemoteException {
-        return multiplayerManager.isGameRun(gameId);
+        return metrics.timed("isGameRun", () -> multiplayerManager.isGameRun(gameId));
     }
 
     
@@ -926,7 +1088,10 @@ public class CrissCrossImpl extends UnicastRemoteObject implements CrissCrossPuz
      */
     @Override
     public String runGame(String player, int roomId, WordRepositoryServer wordServer) throws RemoteException {
-        return multiplayerManager.runGame(player, roomId, wordServer);
+        return metrics.timed("runGame", () -> {
+            // The room builds its puzzle with many repository calls; use the in-process repository if there is one
+            return multiplayerManager.runGame(player, roomId, localWordServer != null ? localWordServer : wordServer);
+        });
     }
 
     /**
@@ -940,8 +1105,10 @@ public class CrissCrossImpl extends UnicastRemoteObject implements CrissCrossPuz
      */
     @Override
     public void heartbeat(String client) throws RemoteException {
-        failureDetector.updateClientActivity(client);
-        System.out.println("Received heartbeat from " + client);
+        metrics.timed("heartbeat", () -> {
+            failureDetector.updateClientActivity(client);
+            HEARTBEAT_LOG.info("Received heartbeat from {}", client);
+        });
     }
     
     
@@ -952,25 +1119,28 @@ public class CrissCrossImpl extends UnicastRemoteObject implements CrissCrossPuz
      */
     public void releaseGameState(String clientName) {
         removeSession(clientName);
-        System.out.println("Released game state for " + clientName);
+        LOG.info("Released game state for {}", clientName);
     }
     
     @Override
     public void updateRevealedPuzzle(String updatedView) throws RemoteException {
-        // Update the persistent copy of the revealed puzzle.
-        currentRevealedPuzzle = updatedView;
-        // Print the updated puzzle to the server console.
-        System.out.println("=== Updated Revealed Puzzle on Server ===");
-        System.out.println(currentRevealedPuzzle);
+        metrics.timed("updateRevealedPuzzle", () -> {
+            // Update the persistent copy of the revealed puzzle.
+            currentRevealedPuzzle = updatedView;
+            // Print the updated puzzle to the server console.
+            LOG.debug("=== Updated Revealed Puzzle on Server ===\n{}", currentRevealedPuzzle);
+        });
     }
     
  // In CrissCrossImpl
     @Override
     public String getCurrentRevealedPuzzle() throws RemoteException {
-        if (currentRevealedPuzzle == null) {
-            return "No puzzle state available.";
-        }
-        return currentRevealedPuzzle;
+        return metrics.timed("getCurrentRevealedPuzzle", () -> {
+            if (currentRevealedPuzzle == null) {
+                return "No puzzle state available.";
+            }
+            return currentRevealedPuzzle;
+        });
     }
 	
     /**
@@ -981,6 +1151,6 @@ public class CrissCrossImpl extends UnicastRemoteObject implements CrissCrossPuz
      * @throws RemoteException if a remote communication error occurs.
      */
     public boolean isValidRoomID(int roomID) throws RemoteException {
-        return multiplayerManager.isValidRoomID(roomID);
+        return metrics.timed("isValidRoomID", () -> multiplayerManager.isValidRoomID(roomID));
     }
 }
@@ -0,0 +1,122 @@
+/**
+ * Index of the words of a {@link WordArena} by a letter that occurs exactly once, the position
+ * of that letter and the word's length: the candidates for a horizontal word that crosses the
+ * vertical stem at a given letter.
+ * <p>
+ * There is one bucket per (letter, position), holding the IDs of the words in which the letter
+ * occurs only at that position, ordered by length; a length range of a bucket is therefore a
+ * slice of it, and counting or picking the words of a (letter, position, length range) is a
+ * direct read. Built once per arena (see {@link WordArena#crossing()}).
+ * </p>
+ */
+public final class CrossingIndex {
+    private static final int ASCII = 128;
+    private static final int[] NONE = new int[0];
+
+    // buckets[position * 128 + c]: the IDs with c only at that position, ordered by length
+    private final int[][] buckets;
+    // lengthStarts[key][n]: the index in buckets[key] of the first word with at least n letters
+    private final int[][] lengthStarts;
+
+    CrossingIndex(WordArena words) {
+        int maxLength = 0;
+        for (int id = 0; id < words.size(); id++) {
+            maxLength = Math.max(maxLength, words.length(id));
+        }
+        int keys = maxLength * ASCII;
+        int[][] counts = new int[keys][];
+        int[] occurrences = new int[ASCII];
+
+        // Count the entries of every bucket by length
+        for (int id = 0; id < words.size(); id++) {
+            int length = words.length(id);
+            countLetters(words, id, occurrences);
+            for (int position = 0; position < length; position++) {
+                char c = words.charAt(id, position);
+                if (occurrences[c] == 1) {
+                    int key = position * ASCII + c;
+                    if (counts[key] == null) {
+                        counts[key] = new int[maxLength + 2];
+                    }
+                    counts[key][length + 1]++;
+                }
+            }
+            clearLetters(words, id, occurrences);
+        }
+        this.buckets = new int[keys][];
+        this.lengthStarts = new int[keys][];
+        int[] filled = new int[keys];
+        for (int key = 0; key < keys; key++) {
+            if (counts[key] == null) {
+                buckets[key] = NONE;
+                continue;
+            }
+            int[] starts = counts[key];
+            for (int n = 1; n < starts.length; n++) {
+                starts[n] += starts[n - 1];
+            }
+            buckets[key] = new int[starts[starts.length - 1]];
+            lengthStarts[key] = starts;
+        }
+
+        // Fill them in length order, so every bucket comes out ordered by length
+        for (int id : words.idsByLength()) {
+            int length = words.length(id);
+            countLetters(words, id, occurrences);
+            for (int position = 0; position < length; position++) {
+                char c = words.charAt(id, position);
+                if (occurrences[c] == 1) {
+                    int key = position * ASCII + c;
+                    buckets[key][filled[key]++] = id;
+                }
+            }
+            clearLetters(words, id, occurrences);
+        }
+    }
+
+    /**
+     * @return the number of words in which c occurs exactly once, at the given position, with a
+     *         length in [minLength, maxLength].
+     */
+    public int count(char c, int position, int minLength, int maxLength) {
+        int key = key(c, position);
+        if (key < 0 || lengthStarts[key] == null) {
+            return 0;
+        }
+        return Math.max(0, start(key, maxLength + 1) - start(key, minLength));
+    }
+
+    /**
+     * @param index an index in [0, {@link #count}) for the same arguments.
+     * @return the ID of the index-th of those words.
+     */
+    public int get(char c, int position, int minLength, int index) {
+        int key = key(c, position);
+        return buckets[key][start(key, minLength) + index];
+    }
+
+    private int key(char c, int position) {
+        if (c >= ASCII || position < 0) {
+            return -1;
+        }
+        int key = position * ASCII + c;
+        return key < buckets.length ? key : -1;
+    }
+
+    private int start(int key, int length) {
+        int[] starts = lengthStarts[key];
+        return starts[Math.max(0, Math.min(length, starts.length - 1))];
+    }
+
+    private static void countLetters(WordArena words, int id, int[] occurrences) {
+        for (int i = 0; i < words.length(id); i++) {
+            occurrences[words.charAt(id, i)]++;
+        }
+    }
+
+    private static void clearLetters(WordArena words, int id, int[] occurrences) {
+        for (int i = 0; i < words.length(id); i++) {
+            occurrences[words.charAt(id, i)] = 0;
+        }
+    }
+}
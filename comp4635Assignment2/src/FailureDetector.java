@@ -5,6 +5,8 @@ import java.util.concurrent.TimeUnit;
 
 public class FailureDetector {
 
+    private static final Log.Logger LOG = Log.get("FailureDetector");
+
     public enum ClientState { ALIVE, SUSPECTED, FAILED }
 
     public static class FailureRecord {
@@ -94,13 +96,13 @@ public class FailureDetector {
     // Register a new client with the current nanoTime.
     public void registerClient(String clientName) {
         records.put(clientName, new FailureRecord(System.nanoTime()));
-        System.out.println("Registered client " + clientName + " for failure detection.");
+        LOG.info("Registered client {} for failure detection.", clientName);
     }
 
     // Unregister a client
     public void unregisterClient(String clientName) {
         records.remove(clientName);
-        System.out.println("Unregistered client " + clientName + " from failure detection.");
+        LOG.info("Unregistered client {} from failure detection.", clientName);
     }
 
     // Query client state
@@ -109,6 +111,17 @@ public class FailureDetector {
         return record != null ? record.getState() : null;
     }
 
+    // Count the monitored clients in a given state
+    public int countClients(ClientState state) {
+        int count = 0;
+        for (FailureRecord record : records.values()) {
+            if (record.getState() == state) {
+                count++;
+            }
+        }
+        return count;
+    }
+
     // Shutdown the detector
     public void shutdown() {
         running = false;
@@ -143,14 +156,13 @@ public class FailureDetector {
                             if (record.getState() == ClientState.ALIVE) {
                                 record.setState(ClientState.SUSPECTED);
                                 record.incrementSuspectCount();
-                                System.out.println("Client " + clientName + " is now SUSPECTED.");
+                                LOG.info("Client {} is now SUSPECTED.", clientName);
                             } else if (record.getState() == ClientState.SUSPECTED) {
                                 record.incrementSuspectCount();
-                                System.out.println("Client " + clientName + " remains SUSPECTED (" 
-                                    + record.getSuspectCount() + "/" + xFactor + ").");
+                                LOG.info("Client {} remains SUSPECTED ({}/{}).", clientName, record.getSuspectCount(), xFactor);
                                 if (record.getSuspectCount() >= xFactor) {
                                     record.setState(ClientState.FAILED);
-                                    System.out.println("Client " + clientName + " has FAILED.");
+                                    LOG.info("Client {} has FAILED.", clientName);
                                     // Call the server's callback to release game state
                                     if (crissCrossImplserver != null)
                                         crissCrossImplserver.releaseGameState(clientName);
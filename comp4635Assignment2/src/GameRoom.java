@@ -7,9 +7,12 @@ import java.util.Map;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.Random;
+import java.util.stream.Collectors;
 
 
 public class GameRoom {
+    private static final Log.Logger LOG = Log.get("GameRoom");
+
     int gameId;
     private int numPlayers;
     private int gameLevel;
@@ -54,7 +57,7 @@ public class GameRoom {
         try {
             gameServer = (CrissCrossPuzzleServer) Naming.lookup("rmi://localhost:1099/GameServer");
         } catch (Exception e) {
-            System.err.println("Error looking up GameServer: " + e.getMessage());
+            LOG.warn("Error looking up GameServer: {}", e.getMessage());
         }
 
     }
@@ -66,25 +69,39 @@ public class GameRoom {
     
 
     public boolean addPlayer(String playerName, ClientCallback callback) throws RemoteException {
-        Random rand = new Random();
         if (players.size() < numPlayers) {
-            Player player = new Player(playerName);
-            players.add(player);
-            playerCallbacks.put(playerName, callback);
-
-            // Notes for Stanley: Set up the clock for each player
-            int id = rand.nextInt(100);
-            playerID.put(playerName, id);
-            playerClocks.put(playerName, new LamportClock(id)); // player's size is the id
-            // set peers
-            List<LamportClock> allClocks = new ArrayList<>(playerClocks.values());
-            for (LamportClock c : allClocks) {
-                c.setPeers(allClocks);
-            }
+            registerPlayer(playerName, callback);
             return true;
         }
         return false;
     }
+
+    /**
+     * Adds a player who joins a peer-to-peer game after it started. The room is already full at
+     * that point, so the player limit does not apply.
+     */
+    public synchronized void addLatePlayer(String playerName) throws RemoteException {
+        if (getPlayerByName(playerName) == null) {
+            registerPlayer(playerName, null);
+        }
+    }
+
+    private void registerPlayer(String playerName, ClientCallback callback) throws RemoteException {
+        Random rand = new Random();
+        Player player = new Player(playerName);
+        players.add(player);
+        playerCallbacks.put(playerName, callback);
+
+        // Notes for Stanley: Set up the clock for each player
+        int id = rand.nextInt(100);
+        playerID.put(playerName, id);
+        playerClocks.put(playerName, new LamportClock(id)); // player's size is the id
+        // set peers
+        List<LamportClock> allClocks = new ArrayList<>(playerClocks.values());
+        for (LamportClock c : allClocks) {
+            c.setPeers(allClocks);
+        }
+    }
     
     // Method to retrieve a player's name by their node ID
     public String getPlayerName(int nodeId) {
@@ -179,7 +196,7 @@ public class GameRoom {
                 return -1;
 
             default:
-                System.out.println("Unknown client state.");
+                LOG.warn("Unknown client state.");
                 return -99;
         }
 
@@ -187,7 +204,7 @@ public class GameRoom {
 
     public void submitGuess(String playerName, String word) throws RemoteException {
         if (puzzleServer == null) {
-            System.out.println("Game has not started yet. Cannot accept guesses.");
+            LOG.info("Game has not started yet. Cannot accept guesses.");
             return;
         }
         if (puzzleServer.is_All_words_are_guessed())
@@ -201,39 +218,24 @@ public class GameRoom {
 
     public synchronized void processGuess(String word, String senderName) throws RemoteException {
         if (puzzleServer == null) {
-            System.err.println("Puzzle server is not initialized yet. Ignoring guess: " + word);
+            LOG.warn("Puzzle server is not initialized yet. Ignoring guess: {}", word);
             return;
         }
         Player currPlayer = getPlayerByName(senderName);
         if (currPlayer == null) {
-            System.err.println("Player not found: " + senderName);
+            LOG.warn("Player not found: {}", senderName);
             return;
         }
         if (!guessedWords.contains(word)) {
             if (puzzleServer.is_guessed_word_correct(word)) {
-                System.out.println("Guess correct: " + word);
+                LOG.info("Guess correct: {}", word);
                 guessedWords.add(word);
                 currPlayer.increaseScore();
                 // Broadcast a TEXT message announcing the correct guess
                 broadcastMessage(senderName + " guessed correctly: " + word);
-                // Prepare and broadcast updated puzzle state
+                // Peers replay the GUESS event on their own puzzle replica, so the rendered
+                // board is no longer broadcast; only the central server display is refreshed.
                 String updatedView = puzzleServer.render_player_view_puzzle();
-                PeerProcess.Message puzzleMsg = new PeerProcess.Message(PeerProcess.Message.Type.PUZZLE, updatedView);
-                // **MODIFIED:** Use local peer's identity for the message
-                if (hostPeer != null) {
-                    puzzleMsg.senderName = senderName;  // label with the guesser's name (origin)
-                    puzzleMsg.senderId = hostPeer.lamportClock.getId();
-                    try {
-                        int ts = hostPeer.lamportClock.tick();
-                        puzzleMsg.timestamp = ts;
-                    } catch (Exception e) {
-                        puzzleMsg.timestamp = new Random().nextInt(1000);
-                    }
-                    hostPeer.broadcastMessageToAll(puzzleMsg);
-                } else {
-                    // No hostPeer (probably processing a peer guess on a non-origin node), so skip broadcast
-                    System.out.println(">> Puzzle state updated locally for guess '" + word + "' (no broadcast).");
-                }
                 // Update central server puzzle state if applicable
                 if (gameServer != null) {
                     gameServer.updateRevealedPuzzle(updatedView);
@@ -243,7 +245,7 @@ public class GameRoom {
                     isFinished = true;
                 }
             } else {
-                System.out.println("Guess incorrect: " + word);
+                LOG.info("Guess incorrect: {}", word);
                 currPlayer.decrementFailAttempt();
                 broadcastMessage(senderName + " guessed wrong: " + word);
             }
@@ -255,14 +257,14 @@ public class GameRoom {
     }
     
     
-    // Helper method to broadcast messages via PeerProcess
+    // Helper method to broadcast messages through the host's long-lived peer session
     private void broadcastMessageToAll(PeerProcess.Message message) {
-        try {
-            PeerProcess peer = new PeerProcess(host); // This assumes host can access its own PeerProcess instance
-            peer.broadcastMessageToAll(message);
-        } catch (RemoteException e) {
-            System.err.println("Broadcast failed: " + e.getMessage());
+        PeerSession session = hostPeer != null ? hostPeer.getSession() : PeerSession.get(host);
+        if (session == null) {
+            LOG.warn("Broadcast failed: no peer session for host {}", host);
+            return;
         }
+        session.publish(message);
     }
 
     private Player getPlayerByName(String name) {
@@ -460,7 +462,7 @@ public class GameRoom {
             if (!activePlayers.containsKey(playerName) || !activePlayers.get(playerName)) {
                 iterator.remove();
                 playerCallbacks.remove(playerName);
-                System.out.println("Removed inactive player: " + playerName);
+                LOG.info("Removed inactive player: {}", playerName);
             }
         }
     }
@@ -482,9 +484,9 @@ public class GameRoom {
             } catch (RemoteException e) {
                 msg.timestamp = new Random().nextInt(1000);
             }
-            hostPeer.broadcastMessageToAll(msg);
+            broadcastMessageToAll(msg);
         } else {
-            System.err.println("hostPeer is null. Cannot broadcast message: " + message);
+            LOG.warn("hostPeer is null. Cannot broadcast message: {}", message);
         }
     }
     
@@ -505,24 +507,25 @@ public class GameRoom {
                     receiverClock.onReceiveMessage(timestamp, playerID.get(senderName), message, this);
 
                 } catch (RemoteException e) {
-                    System.out.println("Could not send Lamport message to " + targetPlayer + ": " + e.getMessage());
+                    LOG.warn("Could not send Lamport message to {}: {}", targetPlayer, e.getMessage());
                 }
             }
         }
     }
 
     private void shufflePlayers() {
-        System.out.println("Before Shuffle: \n");
-        for (int i = 0; i < players.size(); i++) {
-            System.out.println((i + 1) + ". " + players.get(i).getName());
+        if (LOG.isEnabled(Log.Level.DEBUG)) {
+            // Copied: the list is shuffled before the writer thread formats the entry
+            LOG.debug("Before shuffle: {}", players.stream().map(Player::getName).collect(Collectors.toList()));
         }
 
         Collections.shuffle(players);
         broadcastMessage("The players have been shuffled.");
 
-        System.out.println("After Shuffle: \n");
+        if (LOG.isEnabled(Log.Level.DEBUG)) {
+            LOG.debug("After shuffle: {}", players.stream().map(Player::getName).collect(Collectors.toList()));
+        }
         for (int i = 0; i < players.size(); i++) {
-            System.out.println((i + 1) + ". " + players.get(i).getName());
             broadcastMessage((i + 1) + ". " + players.get(i).getName());
         }
     }
@@ -4,14 +4,26 @@ import java.rmi.Naming;
 import java.rmi.RemoteException;
 import java.rmi.registry.LocateRegistry;
 import java.rmi.registry.Registry;
+import java.rmi.server.UnicastRemoteObject;
 
 public class GameServer {
-    private static final String USAGE = "java GameServer <rmi_url>";
+    private static final String USAGE = "java GameServer [-embedded] <rmi_url>";
     private static final String HOST = "localhost";
     private static final int REGISTRY_PORT = 1099;
    
 
     public GameServer(String name) {
+        this(name, false);
+    }
+
+    /**
+     * Starts the game server.
+     *
+     * @param name     The server name.
+     * @param embedded true to also start the UserAccountServer and the WordRepositoryServer in this
+     *                 JVM (single-process deployment); false if they run as separate servers.
+     */
+    public GameServer(String name, boolean embedded) {
         try {
         	// Create or get the RMI registry
             Registry registry;
@@ -22,30 +34,30 @@ public class GameServer {
                 registry = LocateRegistry.createRegistry(REGISTRY_PORT);
             }
             
-            
-//         // --- Automatically start and bind the UserAccountServer ---
-//            try {
-//            	// Bind UserAccountServer
-//                UserAccountImpl accountServer = new UserAccountImpl();
-//                registry.rebind("UserAccountServer", accountServer);
-//                System.out.println("UserAccountServer bound.");
-//                System.out.println("UserAccountServer is running and bound as 'UserAccountServer'");
-//            } catch (Exception e) {
-//                System.err.println("Failed to start UserAccountServer: " + e.getMessage());
-//                e.printStackTrace();
-//            }
-//            
-//            // --- Automatically start and bind the WordRepositoryServer ---
-//            try {
-//            	WordRepositoryImpl wordServer = new WordRepositoryImpl();
-//                registry.rebind("WordRepositoryServer", wordServer);
-//                System.out.println("WordRepositoryServer bound.");
-//            } catch (Exception e) {
-//                System.err.println("Failed to start WordRepositoryServer: " + e.getMessage());
-//                e.printStackTrace();
-//            }
-            
-            CrissCrossPuzzleServer gameServer = new CrissCrossImpl(name);
+            CrissCrossPuzzleServer gameServer;
+            if (embedded) {
+                // --- Embedded deployment: the account and word services run in this JVM ---
+                // They are still bound for external clients, while the game server calls them
+                // through direct references instead of registry stubs.
+                UserAccountImpl accountServer = new UserAccountImpl();
+                registry.rebind("UserAccountServer", accountServer);
+                WordRepositoryImpl wordServer = new WordRepositoryImpl();
+                registry.rebind("WordRepositoryServer", wordServer);
+                System.out.println("UserAccountServer and WordRepositoryServer bound (embedded).");
+                gameServer = new CrissCrossImpl(name, wordServer, accountServer);
+            } else {
+                CrissCrossImpl crissCross = new CrissCrossImpl(name);
+                WordShardRouter words = crissCross.getWordService();
+                if (words.getShardCount() > 1) {
+                    // The shards listen on their own registry ports: bind the router under the
+                    // usual name so that clients reach the whole dictionary through it
+                    WordRepositoryServer stub = (WordRepositoryServer) UnicastRemoteObject.exportObject(words, 0,
+                            TunedSocketFactory.configured(), TunedSocketFactory.configured());
+                    registry.rebind("WordRepositoryServer", stub);
+                    System.out.println("WordRepositoryServer bound (routing to " + words.getShardCount() + " shards).");
+                }
+                gameServer = crissCross;
+            }
             
           //	Create the string URL holding the object's name
             String rmiObjectName = "rmi://localhost:1099/GameServer";
@@ -59,18 +71,20 @@ public class GameServer {
 
 
     public static void main(String[] args) {
-        if (args.length > 1 || (args.length > 0 && args[0].equalsIgnoreCase("-h"))) {
+        boolean embedded = args.length > 0 && args[0].equalsIgnoreCase("-embedded");
+        int first = embedded ? 1 : 0;
+        if (args.length > first + 1 || (args.length > first && args[first].equalsIgnoreCase("-h"))) {
             System.out.println(USAGE);
             System.exit(1);
         }
 
         String name;
-        if (args.length > 0) {
-            name = args[0];
+        if (args.length > first) {
+            name = args[first];
         } else {
             name = "A";
         }
 
-        new GameServer(name);
+        new GameServer(name, embedded);
     }
 }
@@ -0,0 +1,110 @@
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free latency histogram with HDR-style log-linear buckets.
+ * <p>
+ * Values below 64 get a bucket each; above that every power-of-two range is split into 32
+ * linear sub-buckets, so a recorded value is known to within about 3% over the whole range of
+ * a long. Recording is a handful of atomic increments and never blocks, which makes it cheap
+ * enough to wrap every RMI call. Percentiles are reported as the upper bound of their bucket.
+ * </p>
+ */
+public class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder total = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Records one value (usually a latency in nanoseconds). Negative values are recorded as 0.
+     *
+     * @param value the value to record.
+     */
+    public void record(long value) {
+        long v = Math.max(0, value);
+        counts.incrementAndGet(bucketOf(v));
+        total.increment();
+        sum.add(v);
+        if (v > max.get()) {
+            max.accumulateAndGet(v, Math::max);
+        }
+    }
+
+    /** @return the number of recorded values. */
+    public long getCount() {
+        return total.sum();
+    }
+
+    /** @return the largest recorded value (0 if nothing was recorded). */
+    public long getMax() {
+        return max.get();
+    }
+
+    /** @return the mean of the recorded values (0 if nothing was recorded). */
+    public double getMean() {
+        long n = total.sum();
+        return n == 0 ? 0 : (double) sum.sum() / n;
+    }
+
+    /**
+     * Returns the value at a percentile.
+     *
+     * @param percentile the percentile, between 0 and 100.
+     * @return the upper bound of the bucket holding the percentile (0 if nothing was recorded).
+     */
+    public long getPercentile(double percentile) {
+        long[] snapshot = new long[BUCKETS];
+        long n = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = counts.get(i);
+            n += snapshot[i];
+        }
+        if (n == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(Math.min(100.0, Math.max(0.0, percentile)) / 100.0 * n));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) {
+                return Math.min(upperBoundOf(i), getMax());
+            }
+        }
+        return getMax();
+    }
+
+    /** Clears all recorded values. Values recorded concurrently with a reset may be lost. */
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts.set(i, 0);
+        }
+        total.reset();
+        sum.reset();
+        max.set(0);
+    }
+
+    private static int bucketOf(long v) {
+        if (v < 2 * SUB_BUCKETS) {
+            return (int) v;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(v) - SUB_BUCKET_BITS;
+        return (shift + 1) * SUB_BUCKETS + (int) ((v >>> shift) - SUB_BUCKETS);
+    }
+
+    private static long upperBoundOf(int bucket) {
+        if (bucket < 2 * SUB_BUCKETS) {
+            return bucket;
+        }
+        int shift = bucket / SUB_BUCKETS - 1;
+        long mantissa = bucket % SUB_BUCKETS + SUB_BUCKETS;
+        long next = (mantissa + 1) << shift;
+        // The last bucket ends at Long.MAX_VALUE (next overflows)
+        return next <= 0 ? Long.MAX_VALUE : next - 1;
+    }
+}
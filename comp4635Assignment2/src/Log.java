@@ -0,0 +1,350 @@
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Asynchronous structured logging for the servers and peers.
+ * <p>
+ * A log call only checks the level of its component and puts an entry (template plus arguments)
+ * into a bounded lock-free ring buffer; a single daemon thread formats the entries and writes
+ * them to the console in batches. RMI threads therefore never block on console I/O: when the
+ * buffer is full the entry is dropped and counted, and the writer reports the number of dropped
+ * entries. Messages use "{}" placeholders, e.g.
+ * {@code LOG.info("Processed guessLetter for {} [seq={}]", player, seq)}.
+ * </p>
+ * <p>
+ * Configuration is read from "logging.properties" in the working directory (or the file named by
+ * the system property {@code log.config}):
+ * <ul>
+ * <li>{@code level} - default level: DEBUG, INFO, WARN, ERROR or OFF (INFO by default)</li>
+ * <li>{@code level.<component>} - level of one component, e.g. {@code level.FailureDetector=WARN}</li>
+ * <li>{@code sample.<component>} - log only every Nth INFO/DEBUG entry of a high-rate component,
+ *     e.g. {@code sample.Heartbeat=100}</li>
+ * <li>{@code format} - "text" (default) or "json" (one JSON object per line)</li>
+ * <li>{@code bufferSize} - ring buffer capacity in entries, rounded up to a power of two</li>
+ * </ul>
+ * </p>
+ */
+public final class Log {
+
+    /** Log levels, from most to least verbose. */
+    public enum Level { DEBUG, INFO, WARN, ERROR, OFF }
+
+    private static final Properties CONFIG = loadConfig();
+    private static final Level DEFAULT_LEVEL = parseLevel(CONFIG.getProperty("level"), Level.INFO);
+    private static final boolean JSON = "json".equalsIgnoreCase(CONFIG.getProperty("format", "text").trim());
+
+    private static final Map<String, Logger> LOGGERS = new ConcurrentHashMap<>();
+    private static final RingBuffer BUFFER = new RingBuffer(intProperty("bufferSize", 8192));
+    private static final Writer WRITER = new Writer();
+
+    static {
+        WRITER.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(Log::flush, "log-shutdown"));
+    }
+
+    private Log() {
+    }
+
+    /**
+     * Returns the logger of a component, creating it with the configured level and sampling rate.
+     *
+     * @param component the component name, e.g. "CrissCross" or "Heartbeat".
+     * @return the logger of the component.
+     */
+    public static Logger get(String component) {
+        return LOGGERS.computeIfAbsent(component, Logger::new);
+    }
+
+    /**
+     * Changes the level of a component at runtime.
+     *
+     * @param component the component name.
+     * @param level     the new level; OFF disables the component.
+     */
+    public static void setLevel(String component, Level level) {
+        get(component).level = level;
+    }
+
+    /** @return the number of entries dropped because the ring buffer was full. */
+    public static long getDroppedCount() {
+        return BUFFER.dropped.sum();
+    }
+
+    /**
+     * Blocks until every entry logged before this call has been written (at most 5 seconds).
+     */
+    public static void flush() {
+        long target = BUFFER.tail.get();
+        long deadline = System.nanoTime() + 5_000_000_000L;
+        while (WRITER.written < target && System.nanoTime() < deadline) {
+            LockSupport.unpark(WRITER);
+            LockSupport.parkNanos(100_000);
+        }
+    }
+
+    /** Logger of one component. Instances are obtained with {@link Log#get(String)}. */
+    public static final class Logger {
+        private final String component;
+        private volatile Level level;
+        private final int sampleEvery;
+        private final AtomicLong sampleCounter = new AtomicLong();
+
+        private Logger(String component) {
+            this.component = component;
+            this.level = parseLevel(CONFIG.getProperty("level." + component), DEFAULT_LEVEL);
+            this.sampleEvery = Math.max(1, intProperty("sample." + component, 1));
+        }
+
+        /** @return true if entries of the given level are currently logged by this component. */
+        public boolean isEnabled(Level level) {
+            return level != Level.OFF && level.ordinal() >= this.level.ordinal();
+        }
+
+        public void debug(String template, Object... args) {
+            log(Level.DEBUG, template, args);
+        }
+
+        public void info(String template, Object... args) {
+            log(Level.INFO, template, args);
+        }
+
+        public void warn(String template, Object... args) {
+            log(Level.WARN, template, args);
+        }
+
+        public void error(String template, Object... args) {
+            log(Level.ERROR, template, args);
+        }
+
+        private void log(Level level, String template, Object[] args) {
+            if (!isEnabled(level)) {
+                return;
+            }
+            // Warnings and errors are never sampled away
+            if (sampleEvery > 1 && level.ordinal() < Level.WARN.ordinal()
+                    && sampleCounter.getAndIncrement() % sampleEvery != 0) {
+                return;
+            }
+            BUFFER.offer(new Entry(System.currentTimeMillis(), level, component,
+                    Thread.currentThread().getName(), template, args));
+        }
+    }
+
+    /** One log call; formatted by the writer thread. */
+    private static final class Entry {
+        final long timeMillis;
+        final Level level;
+        final String component;
+        final String thread;
+        final String template;
+        final Object[] args;
+
+        Entry(long timeMillis, Level level, String component, String thread, String template, Object[] args) {
+            this.timeMillis = timeMillis;
+            this.level = level;
+            this.component = component;
+            this.thread = thread;
+            this.template = template;
+            this.args = args;
+        }
+    }
+
+    /**
+     * Bounded multi-producer, single-consumer ring buffer. Producers claim a slot by advancing
+     * the tail with a CAS and then publish the entry into it; the consumer takes published entries
+     * in order and clears their slots. A slot is only reused once the consumer has moved past it.
+     */
+    private static final class RingBuffer {
+        final AtomicReferenceArray<Entry> slots;
+        final int mask;
+        final AtomicLong tail = new AtomicLong();
+        final LongAdder dropped = new LongAdder();
+        volatile long head;
+
+        RingBuffer(int capacity) {
+            int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+            slots = new AtomicReferenceArray<>(size);
+            mask = size - 1;
+        }
+
+        void offer(Entry entry) {
+            long t;
+            do {
+                t = tail.get();
+                if (t - head > mask) {
+                    dropped.increment();
+                    return;
+                }
+            } while (!tail.compareAndSet(t, t + 1));
+            slots.lazySet((int) (t & mask), entry);
+            WRITER.wakeUp();
+        }
+
+        /** @return the next entry, or null if none has been published yet. Consumer thread only. */
+        Entry poll() {
+            int index = (int) (head & mask);
+            Entry entry = slots.get(index);
+            if (entry != null) {
+                slots.lazySet(index, null);
+                head = head + 1;
+            }
+            return entry;
+        }
+    }
+
+    /** Daemon thread that drains the ring buffer to the console. */
+    private static final class Writer extends Thread {
+        private static final int BATCH = 256;
+        private volatile boolean idle;
+        volatile long written;
+        private long reportedDropped;
+        private final StringBuilder line = new StringBuilder(256);
+
+        Writer() {
+            super("log-writer");
+            setDaemon(true);
+        }
+
+        void wakeUp() {
+            if (idle) {
+                idle = false;
+                LockSupport.unpark(this);
+            }
+        }
+
+        @Override
+        public void run() {
+            StringBuilder batch = new StringBuilder(16 * 1024);
+            while (true) {
+                int count = 0;
+                Entry entry;
+                while (count < BATCH && (entry = BUFFER.poll()) != null) {
+                    int start = batch.length();
+                    try {
+                        format(entry, batch);
+                    } catch (Throwable t) {
+                        // An argument's toString() failed (or its collection was modified after
+                        // the entry was queued): write a marker instead of losing the writer
+                        batch.setLength(start);
+                        format(unformattable(entry, t), batch);
+                    }
+                    count++;
+                }
+                long dropped = BUFFER.dropped.sum();
+                if (dropped != reportedDropped) {
+                    batch.append("[log] ").append(dropped - reportedDropped)
+                            .append(" log entries dropped, ring buffer full\n");
+                    reportedDropped = dropped;
+                }
+                if (batch.length() > 0) {
+                    PrintStream out = System.out;
+                    out.print(batch);
+                    out.flush();
+                    batch.setLength(0);
+                }
+                written += count;
+                if (count == 0) {
+                    idle = true;
+                    // Re-check after announcing idleness so a concurrent offer is not missed
+                    if (BUFFER.tail.get() == BUFFER.head) {
+                        LockSupport.parkNanos(50_000_000L);
+                    }
+                    idle = false;
+                }
+            }
+        }
+
+        private static Entry unformattable(Entry e, Throwable t) {
+            return new Entry(e.timeMillis, e.level, e.component, e.thread,
+                    "[log] could not format \"{}\": {}", new Object[] { e.template, t.getClass().getName() });
+        }
+
+        private void format(Entry e, StringBuilder out) {
+            line.setLength(0);
+            appendMessage(e.template, e.args, line);
+            String time = Instant.ofEpochMilli(e.timeMillis).toString();
+            if (JSON) {
+                out.append("{\"time\":\"").append(time)
+                        .append("\",\"level\":\"").append(e.level)
+                        .append("\",\"component\":\"").append(escape(e.component))
+                        .append("\",\"thread\":\"").append(escape(e.thread))
+                        .append("\",\"message\":\"").append(escape(line.toString())).append("\"}\n");
+            } else {
+                out.append(time).append(' ').append(e.level).append(e.level == Level.DEBUG || e.level == Level.ERROR ? " " : "  ")
+                        .append(e.component).append(" [").append(e.thread).append("] ")
+                        .append(line).append('\n');
+            }
+        }
+    }
+
+    private static void appendMessage(String template, Object[] args, StringBuilder out) {
+        int argIndex = 0;
+        int from = 0;
+        int at;
+        while (args != null && argIndex < args.length && (at = template.indexOf("{}", from)) >= 0) {
+            out.append(template, from, at).append(String.valueOf(args[argIndex++]));
+            from = at + 2;
+        }
+        out.append(template, from, template.length());
+    }
+
+    private static String escape(String s) {
+        StringBuilder sb = new StringBuilder(s.length() + 8);
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"': sb.append("\\\""); break;
+                case '\\': sb.append("\\\\"); break;
+                case '\n': sb.append("\\n"); break;
+                case '\r': sb.append("\\r"); break;
+                case '\t': sb.append("\\t"); break;
+                default:
+                    if (c < 0x20) {
+                        sb.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        sb.append(c);
+                    }
+            }
+        }
+        return sb.toString();
+    }
+
+    private static Properties loadConfig() {
+        Properties config = new Properties();
+        String path = System.getProperty("log.config", "logging.properties");
+        try (FileInputStream fis = new FileInputStream(path)) {
+            config.load(fis);
+        } catch (IOException e) {
+            // No configuration file: INFO for every component, no sampling
+        }
+        return config;
+    }
+
+    private static Level parseLevel(String value, Level defaultLevel) {
+        if (value == null) {
+            return defaultLevel;
+        }
+        try {
+            return Level.valueOf(value.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return defaultLevel;
+        }
+    }
+
+    private static int intProperty(String name, int defaultValue) {
+        try {
+            return Integer.parseInt(CONFIG.getProperty(name, String.valueOf(defaultValue)).trim());
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+}
@@ -5,6 +5,7 @@ import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
 public class Multiplayer {
+    private static final Log.Logger LOG = Log.get("Multiplayer");
     private Map<Integer, GameRoom> gameRooms; // Stores active game rooms
     private AtomicInteger gameIdCounter; // Thread-safe counter
     private Map<String, Integer> hostGameMap;
@@ -29,7 +30,7 @@ public class Multiplayer {
         GameRoom gameRoom = new GameRoom(gameId, numPlayers, gameLevel, host, hostPeerProcess);
         gameRooms.put(gameId, gameRoom);
         hostGameMap.put(host, gameId);
-        System.out.println("Game room created: Game ID = " + gameId + " by " + host);
+        LOG.info("Game room created: Game ID = {} by {}", gameId, host);
         return gameId;
     }
 
@@ -114,7 +115,7 @@ public class Multiplayer {
 
         String result = game.runGame(player, wordServer);
 
-        System.out.println("Game ends: " + player + " " + roomId);
+        LOG.info("Game ends: {} {}", player, roomId);
 
         // Delete the game room after the game finishes
         // if (gameRooms.containsKey(roomId)) {
@@ -180,6 +181,11 @@ public class Multiplayer {
     public GameRoom getGameRoom(int gameId) {
         return gameRooms.get(gameId);
     }
+
+    // Number of game rooms held by the manager (pending, running and finished)
+    public int getRoomCount() {
+        return gameRooms.size();
+    }
     
     
 
@@ -104,6 +104,179 @@ public class Mutiplayer_Puzzle {
 		}
 	}
 
+	/**
+	 * 
+	 * Details: constructor for a puzzle replica. the grid is not generated
+	 *         here; it is rebuilt from a layout produced by export_layout on
+	 *         the host, see from_layout.
+	 */
+	private Mutiplayer_Puzzle() {
+
+		this.wordServer = null;
+
+	}
+
+	/**
+	 * 
+	 * Method: from_layout
+	 * 
+	 * @param layout: a layout string produced by export_layout
+	 * @return a puzzle replica with the same grid and words as the host puzzle,
+	 *         with every letter still hidden
+	 * 
+	 *         Details: used by peers in the multiplayer game. the host sends the
+	 *         layout once when the game starts and every peer builds its own
+	 *         replica from it. guesses are then applied locally with
+	 *         is_guessed_word_correct, so the rendered board never has to be sent.
+	 */
+	public static Mutiplayer_Puzzle from_layout(String layout) {
+
+		Mutiplayer_Puzzle replica = new Mutiplayer_Puzzle();
+
+		replica.reset_All();
+
+		String[] entries = layout.split(";");
+
+		String[] size = entries[0].split(":");
+
+		replica.max_row_size = Integer.parseInt(size[0]);
+
+		replica.max_col_size = Integer.parseInt(size[1]);
+
+		replica.puzzle_solution = new char[replica.max_row_size][replica.max_col_size];
+
+		for (char[] row : replica.puzzle_solution)
+
+			Arrays.fill(row, '.');
+
+		for (int index = 1; index < entries.length; index++) {
+
+			String[] entry = entries[index].split(":", 4);
+
+			boolean is_vertical = entry[0].equals("V");
+
+			int row = Integer.parseInt(entry[1]);
+
+			int col = Integer.parseInt(entry[2]);
+
+			String word = entry[3];
+
+			if (is_vertical) {
+
+				replica.vertical_stem.add(word);
+
+				replica.vertical_stem_position.put(word, new int[] { row, col });
+
+			} else {
+
+				replica.horizontal_stem.add(word);
+
+				replica.horizontal_stem_position.put(word, new int[] { row, col });
+			}
+
+			for (int offset = 0; offset < word.length(); offset++) {
+
+				int target_row = is_vertical ? row + offset : row;
+
+				int target_col = is_vertical ? col : col + offset;
+
+				if (target_row < replica.max_row_size && target_col < replica.max_col_size)
+
+					replica.puzzle_solution[target_row][target_col] = word.charAt(offset);
+			}
+		}
+
+		for (int row = 0; row < replica.max_row_size; row++)
+
+			replica.puzzle_solution[row][replica.max_col_size - 1] = '+';
+
+		replica.construct_player_view_puzzle();
+
+		return replica;
+	}
+
+	/**
+	 * 
+	 * Method: export_layout
+	 * 
+	 * @return: a compact string describing the puzzle grid size and where every
+	 *          word is placed. format:
+	 *          "rows:cols;V:row:col:word;H:row:col:word;..."
+	 *          (row, col) is the first letter of the word, V = vertical,
+	 *          H = horizontal
+	 *
+	 *         Details: sent to the peers once so they can build a replica with
+	 *         from_layout.
+	 */
+	public String export_layout() {
+
+		StringBuilder layout = new StringBuilder();
+
+		layout.append(max_row_size).append(':').append(max_col_size);
+
+		for (String word : vertical_stem) {
+
+			int[] point = vertical_stem_position.get(word);
+
+			if (point != null)
+
+				layout.append(";V:").append(point[0]).append(':').append(point[1]).append(':').append(word);
+		}
+
+		for (String word : horizontal_stem) {
+
+			int[] point = horizontal_stem_position.get(word);
+
+			if (point != null)
+
+				layout.append(";H:").append(point[0]).append(':').append(point[1]).append(':').append(word);
+		}
+
+		return layout.toString();
+	}
+
+	/**
+	 * 
+	 * Method: export_revealed_state
+	 * 
+	 * @return: the player view puzzle as one string, row after row without
+	 *          separators (each row is exactly max_col_size chars)
+	 *
+	 *         Details: together with export_layout this is a compact snapshot
+	 *         of a running game.
+	 */
+	public String export_revealed_state() {
+
+		StringBuilder revealed = new StringBuilder(max_row_size * max_col_size);
+
+		for (char[] row : player_view_puzzle)
+
+			revealed.append(row);
+
+		return revealed.toString();
+	}
+
+	/**
+	 * 
+	 * Method: restore_revealed_state
+	 * 
+	 * @param revealed: a string produced by export_revealed_state on a puzzle
+	 *                  with the same layout
+	 *
+	 *         Details: overwrite the player view puzzle so the letters that were
+	 *         already guessed are shown again.
+	 */
+	public void restore_revealed_state(String revealed) {
+
+		if (revealed == null || revealed.length() != max_row_size * max_col_size)
+
+			return;
+
+		for (int row = 0; row < max_row_size; row++)
+
+			revealed.getChars(row * max_col_size, (row + 1) * max_col_size, player_view_puzzle[row], 0);
+	}
+
 	/**
 	 * 
 	 * Method: is_guessed_word_correct
@@ -0,0 +1,86 @@
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Call statistics of one server operation (usually one RMI method).
+ * <p>
+ * All counters are lock-free ({@link LongAdder}) and the latencies go into a
+ * {@link LatencyHistogram}, so recording costs a few atomic increments per call.
+ * </p>
+ * Typical use in a remote method:
+ * <pre>
+ * OperationMetrics op = metrics.operation("checkWord");
+ * long start = op.begin();
+ * try {
+ *     ...
+ * } catch (Throwable t) {
+ *     op.failed();
+ *     throw t;
+ * } finally {
+ *     op.end(start);
+ * }
+ * </pre>
+ */
+public class OperationMetrics {
+    private final String name;
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder inFlight = new LongAdder();
+    private final LatencyHistogram latency = new LatencyHistogram();
+
+    OperationMetrics(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Marks the start of a call.
+     *
+     * @return the start time to pass to {@link #end(long)}.
+     */
+    public long begin() {
+        inFlight.increment();
+        return System.nanoTime();
+    }
+
+    /**
+     * Marks the end of a call that was started with {@link #begin()}.
+     *
+     * @param startNanos the value returned by begin().
+     */
+    public void end(long startNanos) {
+        latency.record(System.nanoTime() - startNanos);
+        calls.increment();
+        inFlight.decrement();
+    }
+
+    /** Counts a call that ended with an exception (in addition to {@link #end(long)}). */
+    public void failed() {
+        errors.increment();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getCalls() {
+        return calls.sum();
+    }
+
+    public long getErrors() {
+        return errors.sum();
+    }
+
+    public long getInFlight() {
+        return inFlight.sum();
+    }
+
+    public LatencyHistogram getLatency() {
+        return latency;
+    }
+
+    /** Clears the counters and the histogram (the in-flight gauge is kept). */
+    public void reset() {
+        calls.reset();
+        errors.reset();
+        latency.reset();
+    }
+}
@@ -3,8 +3,16 @@ import java.rmi.Remote;
 import java.rmi.RemoteException;
 import java.rmi.registry.LocateRegistry;
 import java.rmi.server.UnicastRemoteObject;
-import java.io.Serializable;
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
 import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * The PeerProcess class represents a peer in the multiplayer Criss-Cross puzzle game.
@@ -16,6 +24,8 @@ import java.util.*;
  * </p>
  */
 public class PeerProcess {
+    /** Log of the peer internals (message traffic, server errors); the game UI prints directly */
+    private static final Log.Logger LOG = Log.get("PeerProcess");
     /** Name/ID of this peer (used as RMI registry binding name and unique identifier) */
     private String peerName;
     /** Flag to indicate if this peer is the host of the current game */
@@ -26,16 +36,45 @@ public class PeerProcess {
     private int targetPlayers;
     /** Whether the game has started (true if running, false if pending or no game) */
     private boolean gameStarted = false;
-    /** List of participant names in the game (order of joining, index+1 serves as Lamport ID) */
-    private List<String> participantNames = new ArrayList<>();
-    /** List of participant receiver stubs (parallel to participantNames list) */
-    private List<ReceiverInterface> participantStubs = new ArrayList<>();
+    /** List of participant names in the game (order of joining, index+1 serves as Lamport ID); copy-on-write so snapshots can copy it while JOINs are applied */
+    private List<String> participantNames = new CopyOnWriteArrayList<>();
+    /** List of participant receiver stubs (parallel to participantNames list); copy-on-write so broadcasts can iterate it while JOINs are applied */
+    private List<ReceiverInterface> participantStubs = new CopyOnWriteArrayList<>();
     /** The Lamport clock for this peer (manages logical timestamps) */
     LamportClockInterface lamportClock;
     /** The Receiver remote object for this peer (handles incoming messages via RMI) */
     private ReceiverInterface receiver;
-    //** Multiplayer Puzzle server
-    private Mutiplayer_Puzzle puzzleServer;
+    /** Asynchronous per-peer send queues used by broadcastMessageToAll */
+    private final PeerTransport transport = new PeerTransport(new TransportListener());
+    /** Session that owns this exported peer and caches the stubs of other peers */
+    private PeerSession session;
+    /** Local replica of the game puzzle, built from the host's LAYOUT event and advanced by GUESS events */
+    private Mutiplayer_Puzzle puzzleReplica;
+    /** Ordered log of the puzzle events (GUESSes) applied to the replica since the last snapshot */
+    private final List<Message> eventLog = new ArrayList<>();
+    /** Last compact snapshot of the room and puzzle state (null until the layout is known) */
+    private Snapshot lastSnapshot;
+    /** Sequence number of the last puzzle event applied to the replica (the LAYOUT event is 1) */
+    private long eventSeq = 0;
+    /** Lamport timestamp and sender ID of the last puzzle event applied, i.e. its place in the total order */
+    private int lastEventTimestamp, lastEventSenderId;
+    /** Number of catch-ups in progress; live puzzle events are deferred while it is not 0 */
+    private int catchUps = 0;
+    /** Live puzzle events delivered during a catch-up, applied once the log tail has been replayed */
+    private final List<Message> deferredEvents = new ArrayList<>();
+    /** Runs the catch-ups requested by other peers one at a time */
+    private final ExecutorService resyncExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "PeerResync-" + peerName);
+        thread.setDaemon(true);
+        return thread;
+    });
+    /** Peer to catch up from in the next resync, and whether that resync is already queued */
+    private final AtomicReference<ReceiverInterface> resyncSource = new AtomicReference<>();
+    private final AtomicBoolean resyncQueued = new AtomicBoolean();
+    /** A new snapshot is taken after this many events, which bounds the log a joining peer has to replay */
+    private static final int SNAPSHOT_INTERVAL = 16;
+    /** Maximum number of events returned by one fetchEvents call */
+    private static final int EVENT_PAGE_SIZE = 32;
     private Multiplayer multiplayer;
     private GameRoom currentGameRoom;
     
@@ -65,6 +104,32 @@ public class PeerProcess {
          * @throws RemoteException if a communication error occurs.
          */
         GameState joinGame(String newPeerName, ReceiverInterface newPeerStub) throws RemoteException;
+        
+        /**
+         * Fetch the latest compact snapshot of the room and puzzle state.
+         * @return the snapshot, or null if no game is running on this peer yet.
+         * @throws RemoteException if a communication error occurs.
+         */
+        Snapshot fetchSnapshot() throws RemoteException;
+        
+        /**
+         * Fetch the puzzle events applied after a given sequence number (the log tail after a snapshot).
+         * Peers call this repeatedly, one page at a time, until an empty list is returned.
+         * @param afterSeq  sequence number of the last event the caller has applied.
+         * @param maxEvents maximum number of events to return.
+         * @return the next events in order, or null if afterSeq is older than the current snapshot
+         *         (the caller has to fetch the snapshot again).
+         * @throws RemoteException if a communication error occurs.
+         */
+        List<Message> fetchEvents(long afterSeq, int maxEvents) throws RemoteException;
+        
+        /**
+         * Tells this peer that messages sent to it by another peer were lost (the sender had declared it failed).
+         * The peer catches up in the background from the sender's snapshot and event log.
+         * @param source the receiver stub of the peer whose messages were lost.
+         * @throws RemoteException if a communication error occurs.
+         */
+        void resync(ReceiverInterface source) throws RemoteException;
     }
     
    
@@ -103,6 +168,7 @@ public class PeerProcess {
         private int clockId;           // unique ID for this clock (peer's ID for tie-break)
         
         protected LamportClockImpl(int id) throws RemoteException {
+            super(0, TunedSocketFactory.configured(), TunedSocketFactory.configured());
             this.clockId = id;
         }
         
@@ -140,8 +206,9 @@ public class PeerProcess {
      * GameState is a serializable snapshot of the game room state, used to transfer state to joining peers.
      * It includes game settings and current participant info so a joining peer can synchronize its local state.
      */
-    public static class GameState implements Serializable {
-        private static final long serialVersionUID = 1L;
+    @SuppressWarnings("serial") // written field by field by writeExternal
+    public static class GameState implements Externalizable {
+        private static final long serialVersionUID = 2L;
         public int gameId;
         public String difficulty;
         public int targetPlayers;
@@ -150,7 +217,151 @@ public class PeerProcess {
         public List<ReceiverInterface> participantStubs;  // Remote stubs for all players
         public int assignedId;                      // Lamport clock ID assigned to the joining peer
         public int hostCurrentLamport;              // Host's current Lamport time (to help sync clocks)
-        // (Additional game data like puzzle grid or scores can be included as needed)
+        public Snapshot snapshot;                   // Latest snapshot if the game is already running (null otherwise)
+        
+        /** Public no-arg constructor required by Externalizable. */
+        public GameState() {
+        }
+        
+        /**
+         * Compact encoding: varint numbers, a flags byte for the optional difficulty and snapshot,
+         * and counted lists instead of serialized ArrayList objects.
+         */
+        @Override
+        public void writeExternal(ObjectOutput out) throws IOException {
+            int flags = (started ? 1 : 0) | (difficulty != null ? 2 : 0) | (snapshot != null ? 4 : 0);
+            out.writeByte(flags);
+            PeerWireFormat.writeVarInt(out, gameId);
+            PeerWireFormat.writeVarInt(out, targetPlayers);
+            PeerWireFormat.writeVarInt(out, assignedId);
+            PeerWireFormat.writeVarInt(out, hostCurrentLamport);
+            if (difficulty != null) {
+                out.writeUTF(difficulty);
+            }
+            int count = participants != null ? participants.size() : 0;
+            PeerWireFormat.writeVarInt(out, count);
+            for (int i = 0; i < count; i++) {
+                out.writeUTF(participants.get(i));
+            }
+            int stubCount = participantStubs != null ? participantStubs.size() : 0;
+            PeerWireFormat.writeVarInt(out, stubCount);
+            for (int i = 0; i < stubCount; i++) {
+                out.writeObject(participantStubs.get(i));
+            }
+            if (snapshot != null) {
+                out.writeObject(snapshot);
+            }
+        }
+        
+        @Override
+        public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException {
+            int flags = in.readUnsignedByte();
+            started = (flags & 1) != 0;
+            gameId = PeerWireFormat.readVarInt(in);
+            targetPlayers = PeerWireFormat.readVarInt(in);
+            assignedId = PeerWireFormat.readVarInt(in);
+            hostCurrentLamport = PeerWireFormat.readVarInt(in);
+            difficulty = (flags & 2) != 0 ? in.readUTF() : null;
+            int count = PeerWireFormat.readVarInt(in);
+            participants = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                participants.add(in.readUTF());
+            }
+            int stubCount = PeerWireFormat.readVarInt(in);
+            participantStubs = new ArrayList<>(stubCount);
+            for (int i = 0; i < stubCount; i++) {
+                participantStubs.add((ReceiverInterface) in.readObject());
+            }
+            snapshot = (flags & 4) != 0 ? (Snapshot) in.readObject() : null;
+        }
+    }
+    
+    /**
+     * Snapshot is a compact, serializable copy of the room and puzzle state at a given event sequence number.
+     * A joining or reconnecting peer restores the snapshot and then replays only the events logged after it,
+     * so the cost of catching up does not grow with the length of the game.
+     * Before the host has published the layout a snapshot carries the room state only.
+     */
+    @SuppressWarnings("serial") // written field by field by writeExternal
+    public static class Snapshot implements Externalizable {
+        private static final long serialVersionUID = 3L;
+        // Flags for the optional fields in the wire format
+        private static final int STARTED = 1, HAS_LAYOUT = 2, HAS_REVEALED = 4, HAS_DIFFICULTY = 8;
+        public long seq;                    // Sequence number of the last event included in the snapshot
+        public String layout;               // Puzzle layout (Mutiplayer_Puzzle.export_layout), null if not known yet
+        public String revealed;             // Revealed player view (Mutiplayer_Puzzle.export_revealed_state)
+        public List<String> participants;   // Names of all players in the game, in Lamport ID order
+        public List<ReceiverInterface> participantStubs; // Receiver stubs parallel to participants
+        public String difficulty;
+        public int targetPlayers;
+        public boolean started;
+        public int lastTimestamp;           // Lamport timestamp of the last event included in the snapshot
+        public int lastSenderId;            // Sender ID of that event
+        
+        /** Public no-arg constructor required by Externalizable. */
+        public Snapshot() {
+        }
+        
+        /**
+         * Compact encoding: a flags byte for the started flag and the optional strings, varint numbers and counted
+         * lists, as in GameState. The sequence number is written as an int varint; a game never gets near 2^31 events.
+         */
+        @Override
+        public void writeExternal(ObjectOutput out) throws IOException {
+            int flags = (started ? STARTED : 0) | (layout != null ? HAS_LAYOUT : 0)
+                    | (revealed != null ? HAS_REVEALED : 0) | (difficulty != null ? HAS_DIFFICULTY : 0);
+            out.writeByte(flags);
+            try {
+                PeerWireFormat.writeVarInt(out, Math.toIntExact(seq));
+            } catch (ArithmeticException e) {
+                throw new IOException("Snapshot sequence number out of range: " + seq);
+            }
+            PeerWireFormat.writeVarInt(out, targetPlayers);
+            PeerWireFormat.writeVarInt(out, lastTimestamp);
+            PeerWireFormat.writeVarInt(out, lastSenderId);
+            if (layout != null) {
+                out.writeUTF(layout);
+            }
+            if (revealed != null) {
+                out.writeUTF(revealed);
+            }
+            if (difficulty != null) {
+                out.writeUTF(difficulty);
+            }
+            int count = participants != null ? participants.size() : 0;
+            PeerWireFormat.writeVarInt(out, count);
+            for (int i = 0; i < count; i++) {
+                out.writeUTF(participants.get(i));
+            }
+            int stubCount = participantStubs != null ? participantStubs.size() : 0;
+            PeerWireFormat.writeVarInt(out, stubCount);
+            for (int i = 0; i < stubCount; i++) {
+                out.writeObject(participantStubs.get(i));
+            }
+        }
+        
+        @Override
+        public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException {
+            int flags = in.readUnsignedByte();
+            started = (flags & STARTED) != 0;
+            seq = PeerWireFormat.readVarInt(in);
+            targetPlayers = PeerWireFormat.readVarInt(in);
+            lastTimestamp = PeerWireFormat.readVarInt(in);
+            lastSenderId = PeerWireFormat.readVarInt(in);
+            layout = (flags & HAS_LAYOUT) != 0 ? in.readUTF() : null;
+            revealed = (flags & HAS_REVEALED) != 0 ? in.readUTF() : null;
+            difficulty = (flags & HAS_DIFFICULTY) != 0 ? in.readUTF() : null;
+            int count = PeerWireFormat.readVarInt(in);
+            participants = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                participants.add(in.readUTF());
+            }
+            int stubCount = PeerWireFormat.readVarInt(in);
+            participantStubs = new ArrayList<>(stubCount);
+            for (int i = 0; i < stubCount; i++) {
+                participantStubs.add((ReceiverInterface) in.readObject());
+            }
+        }
     }
     
     /**
@@ -158,21 +369,88 @@ public class PeerProcess {
      * Each Message includes the type of event, an optional content payload, and metadata for ordering:
      * the Lamport timestamp and sender's ID (and name for reference).
      */
-    public static class Message implements Serializable {
-        private static final long serialVersionUID = 1L;
-        public enum Type { JOIN, START, GUESS, PUZZLE, TEXT  }
+    @SuppressWarnings("serial") // written field by field by writeExternal
+    public static class Message implements Externalizable {
+        private static final long serialVersionUID = 2L;
+        // New types must be appended: the wire format encodes the ordinal
+        public enum Type { JOIN, START, GUESS, PUZZLE, TEXT, LAYOUT  }
+        private static final Type[] TYPES = Type.values();
+        // Flags for the optional fields in the wire format
+        private static final int HAS_CONTENT = 1, HAS_NAME = 2, HAS_STUB = 4, HAS_PEER_ID = 8;
         public Type type;              // Type of the message/event
         public String content;        // Event details (e.g., guess word, or joining player name)
         public ReceiverInterface newPeerStub; // (Optional) used for JOIN messages to carry the new peer's stub
+        public int newPeerId;         // (Optional) used for JOIN messages to carry the new peer's Lamport ID
         public String senderName;     // Name of the peer who sent the message
         public int senderId;          // Lamport ID of the sender peer
         public int timestamp;         // Lamport timestamp of the event (assigned by sender)
         
+        /** Public no-arg constructor required by Externalizable. */
+        public Message() {
+        }
+        
         public Message(Type type, String content) {
             this.type = type;
             this.content = content;
         }
         
+        /**
+         * Copy of this message without the sender's name, sent by the transport to a receiver that already
+         * has the name for the sender ID.
+         */
+        Message withoutSenderName() {
+            Message copy = new Message(type, content);
+            copy.newPeerStub = newPeerStub;
+            copy.newPeerId = newPeerId;
+            copy.senderId = senderId;
+            copy.timestamp = timestamp;
+            return copy;
+        }
+        
+        /**
+         * Compact encoding: one byte for the type, one flags byte for the optional fields, varint sender ID
+         * and timestamp. The sender's name is left out when it is null; the receiving peer then resolves it
+         * from the sender ID through its session's name table.
+         */
+        @Override
+        public void writeExternal(ObjectOutput out) throws IOException {
+            boolean writeName = senderName != null;
+            int flags = (content != null ? HAS_CONTENT : 0) | (writeName ? HAS_NAME : 0)
+                    | (newPeerStub != null ? HAS_STUB : 0) | (newPeerId != 0 ? HAS_PEER_ID : 0);
+            out.writeByte(type.ordinal());
+            out.writeByte(flags);
+            PeerWireFormat.writeVarInt(out, senderId);
+            PeerWireFormat.writeVarInt(out, timestamp);
+            if (content != null) {
+                out.writeUTF(content);
+            }
+            if (writeName) {
+                out.writeUTF(senderName);
+            }
+            if (newPeerId != 0) {
+                PeerWireFormat.writeVarInt(out, newPeerId);
+            }
+            if (newPeerStub != null) {
+                out.writeObject(newPeerStub);
+            }
+        }
+        
+        @Override
+        public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException {
+            int ordinal = in.readUnsignedByte();
+            if (ordinal >= TYPES.length) {
+                throw new IOException("Unknown message type " + ordinal);
+            }
+            type = TYPES[ordinal];
+            int flags = in.readUnsignedByte();
+            senderId = PeerWireFormat.readVarInt(in);
+            timestamp = PeerWireFormat.readVarInt(in);
+            content = (flags & HAS_CONTENT) != 0 ? in.readUTF() : null;
+            senderName = (flags & HAS_NAME) != 0 ? in.readUTF() : null;
+            newPeerId = (flags & HAS_PEER_ID) != 0 ? PeerWireFormat.readVarInt(in) : 0;
+            newPeerStub = (flags & HAS_STUB) != 0 ? (ReceiverInterface) in.readObject() : null;
+        }
+        
         @Override
         public String toString() {
             if (type == Type.GUESS) {
@@ -181,6 +459,8 @@ public class PeerProcess {
                 return "[Join] " + content + " has joined the game";
             } else if (type == Type.START) {
                 return "[Start] Game is starting (difficulty: " + content + ")";
+            } else if (type == Type.LAYOUT) {
+                return "[Layout] Puzzle layout published by " + senderName;
             }
             return "[Unknown Message]";
         }
@@ -198,7 +478,7 @@ public class PeerProcess {
         
         protected ReceiverImpl() throws RemoteException {
             // Initialize a priority queue sorted by Lamport timestamp, then by sender ID (for tie-break)
-            super();  // export this remote object
+            super(0, TunedSocketFactory.configured(), TunedSocketFactory.configured());  // export this remote object
             this.holdBackQueue = new PriorityQueue<>(50, new Comparator<Message>() {
                 public int compare(Message m1, Message m2) {
                     if (m1.timestamp != m2.timestamp) {
@@ -218,13 +498,15 @@ public class PeerProcess {
          */
         @Override
         public synchronized void receiveMessage(Message message) throws RemoteException {
+            // Learn the sender's name, or fill it in if the sender left it out
+            message.senderName = session.names().resolve(message.senderId, message.senderName);
             // Update local Lamport clock with the timestamp of the received message
             int prevTime = lamportClock.getTime();
             lamportClock.update(message.timestamp);
             int newTime = lamportClock.getTime();
             // Log receipt for debugging (could be removed or adjusted as needed)
-            System.out.println("<< Received " + message.type + " message from " + message.senderName +
-                               " (timestamp=" + message.timestamp + ", localClock was " + prevTime + " -> now " + newTime + ")");
+            LOG.debug("<< Received {} message from {} (timestamp={}, localClock was {} -> now {})",
+                    message.type, message.senderName, message.timestamp, prevTime, newTime);
             // Enqueue the message in the hold-back queue for ordering
             holdBackQueue.offer(message);
             // Attempt to deliver all messages that are in order (FIFO-total order delivery)
@@ -233,7 +515,9 @@ public class PeerProcess {
         
         /**
          * Remote method for a peer to join a game hosted by this peer.
-         * Only valid if this peer is the host and the game is still pending (not yet started).
+         * Only valid if this peer is the host and the game is pending or running. A peer that joins a running
+         * game gets the next Lamport ID and catches up from the returned snapshot; a participant of the running
+         * game that calls again is treated as reconnecting.
          * The new peer's receiver stub is added to the participants list and the current game state is returned.
          */
         @Override
@@ -243,10 +527,13 @@ public class PeerProcess {
                 throw new RemoteException("Cannot join: This peer is not hosting a game.");
             }
             if (participantNames.contains(newPeerName)) {
+                if (gameStarted && !newPeerName.equals(peerName)) {
+                    return rejoinGame(newPeerName, newPeerStub);
+                }
                 throw new RemoteException("Peer name " + newPeerName + " is already in the game.");
             }
-            if (participantNames.size() >= targetPlayers) {
-                throw new RemoteException("Cannot join: no pending game hosted here.");
+            if (!gameStarted && participantNames.size() >= targetPlayers) {
+                throw new RemoteException("Cannot join: no pending or running game hosted here.");
             }
             
             // Add the new player to the game room
@@ -257,7 +544,11 @@ public class PeerProcess {
             
             // Add player to GameRoom as well
             if (isHost) {
-                currentGameRoom.addPlayer(newPeerName, null); // No ClientCallback in PeerProcess
+                if (gameStarted) {
+                    currentGameRoom.addLatePlayer(newPeerName); // The room is already full
+                } else {
+                    currentGameRoom.addPlayer(newPeerName, null); // No ClientCallback in PeerProcess
+                }
             }
             
             // Prepare game state to send back to the joining peer
@@ -265,7 +556,7 @@ public class PeerProcess {
             state.gameId = currentGameRoom.gameId;
             state.difficulty = gameDifficulty;
             state.targetPlayers = targetPlayers;
-            state.started = false; // Game is still pending
+            state.started = gameStarted;
             state.participants = new ArrayList<>(participantNames);
             state.participantStubs = new ArrayList<>(participantStubs);
             state.assignedId = newPeerId;
@@ -274,6 +565,7 @@ public class PeerProcess {
             // Broadcast join notification to all peers
             Message joinMsg = new Message(Message.Type.JOIN, newPeerName);
             joinMsg.newPeerStub = newPeerStub;
+            joinMsg.newPeerId = newPeerId;
             joinMsg.senderName = peerName;
             joinMsg.senderId = 1;  // Host's ID
             try {
@@ -284,6 +576,12 @@ public class PeerProcess {
             }
             broadcastMessageToAll(joinMsg);
             
+            if (gameStarted) {
+                // Late joiner: it catches up from the latest snapshot and the log tail
+                state.snapshot = fetchSnapshot();
+                return state;
+            }
+            
             // If the room is now full, mark the game as started and initialize the puzzle
             if (participantNames.size() == targetPlayers) {
                 gameStarted = true;
@@ -304,58 +602,144 @@ public class PeerProcess {
                 }
                 broadcastMessageToAll(startMsg);
                 
-                // Initialize the puzzle server and generate the initial puzzle view
-                int level = 0;
-                try {
-                    level = Integer.parseInt(gameDifficulty) + participantNames.size();
-                } catch (NumberFormatException nfe) {
-                    level = participantNames.size(); // Fallback if difficulty is not numeric
-                }
+                // Initialize the puzzle server and generate the initial puzzle
                 WordRepositoryServer wordServer = null;
                 try {
                     wordServer = (WordRepositoryServer) Naming.lookup("rmi://localhost:1099/WordRepositoryServer");
                 } catch (Exception ex) {
-                    System.err.println("Failed to lookup WordRepositoryServer: " + ex.getMessage());
+                    LOG.warn("Failed to lookup WordRepositoryServer: {}", ex.getMessage());
                 }
                 
                 // **Added: Initialize puzzleServer in GameRoom**
                 if (wordServer != null) {
                     currentGameRoom.initializePuzzle(wordServer);
                 } else {
-                    System.err.println("Cannot initialize puzzle: WordRepositoryServer is null.");
+                    LOG.warn("Cannot initialize puzzle: WordRepositoryServer is null.");
                 }
                 
-                puzzleServer = new Mutiplayer_Puzzle(participantNames.size(), level, wordServer);
-                String puzzleView = currentGameRoom.getPuzzleServer().render_player_view_puzzle();
-                String solvedPuzzleView = currentGameRoom.getPuzzleServer().render_puzzle_solution();
-                
-                // Update the server-side puzzle state via RMI
-                try {
-                    CrissCrossPuzzleServer gameServer = (CrissCrossPuzzleServer) Naming.lookup("rmi://localhost:1099/GameServer");
-                    gameServer.updateRevealedPuzzle(solvedPuzzleView);
-                    System.out.println("** Initial puzzle sent to server for display.");
-                } catch (Exception e) {
-                    System.err.println("Failed to update revealed puzzle on server: " + e.getMessage());
-                }
-                
-                // Broadcast the initial puzzle view to all peers
-                Message puzzleMsg = new Message(Message.Type.PUZZLE, puzzleView);
-                puzzleMsg.senderName = peerName;
-                puzzleMsg.senderId = 1;
-                try {
-                    int puzzleTs = lamportClock.tick();
-                    puzzleMsg.timestamp = puzzleTs;
-                } catch (RemoteException e) {
-                    puzzleMsg.timestamp = lamportClockFallbackTick();
+                Mutiplayer_Puzzle roomPuzzle = currentGameRoom.getPuzzleServer();
+                if (roomPuzzle != null) {
+                    String solvedPuzzleView = roomPuzzle.render_puzzle_solution();
+                    
+                    // Update the server-side puzzle state via RMI
+                    try {
+                        CrissCrossPuzzleServer gameServer = (CrissCrossPuzzleServer) Naming.lookup("rmi://localhost:1099/GameServer");
+                        gameServer.updateRevealedPuzzle(solvedPuzzleView);
+                        System.out.println("** Initial puzzle sent to server for display.");
+                    } catch (Exception e) {
+                        LOG.warn("Failed to update revealed puzzle on server: {}", e.getMessage());
+                    }
+                    
+                    // Broadcast the puzzle layout once; afterwards peers only receive GUESS events
+                    // and replay them on their own replica of the puzzle.
+                    Message layoutMsg = new Message(Message.Type.LAYOUT, roomPuzzle.export_layout());
+                    layoutMsg.senderName = peerName;
+                    layoutMsg.senderId = 1;
+                    try {
+                        int layoutTs = lamportClock.tick();
+                        layoutMsg.timestamp = layoutTs;
+                    } catch (RemoteException e) {
+                        layoutMsg.timestamp = lamportClockFallbackTick();
+                    }
+                    broadcastMessageToAll(layoutMsg);
                 }
-                broadcastMessageToAll(puzzleMsg);
                 
                 state.started = true;
+                state.snapshot = fetchSnapshot();
+            }
+            
+            return state;
+        }
+        
+        /**
+         * Handles a participant that reconnects to the running game (e.g. after a restart): its new stub
+         * replaces the old one everywhere and it receives the latest snapshot to catch up from.
+         */
+        private GameState rejoinGame(String peer, ReceiverInterface newPeerStub) throws RemoteException {
+            int index = participantNames.indexOf(peer);
+            if (!newPeerStub.equals(participantStubs.get(index))) {
+                verifyRejoin(peer, participantStubs.get(index), newPeerStub);
+            }
+            ReceiverInterface oldStub = participantStubs.set(index, newPeerStub);
+            if (oldStub != null && !oldStub.equals(newPeerStub)) {
+                transport.removePeer(oldStub);
+            }
+            session.cacheReceiver(peer, newPeerStub);
+            System.out.println("** Peer reconnected: " + peer + " (ID=" + (index + 1) + ")");
+            
+            // Let the other peers switch to the new stub as well
+            Message joinMsg = new Message(Message.Type.JOIN, peer);
+            joinMsg.newPeerStub = newPeerStub;
+            joinMsg.newPeerId = index + 1;
+            joinMsg.senderName = peerName;
+            joinMsg.senderId = 1;
+            try {
+                joinMsg.timestamp = lamportClock.tick();
+            } catch (RemoteException e) {
+                joinMsg.timestamp = lamportClockFallbackTick();
             }
+            broadcastMessageToAll(joinMsg);
             
+            GameState state = new GameState();
+            state.gameId = currentGameRoom != null ? currentGameRoom.gameId : 0;
+            state.difficulty = gameDifficulty;
+            state.targetPlayers = targetPlayers;
+            state.started = true;
+            state.participants = new ArrayList<>(participantNames);
+            state.participantStubs = new ArrayList<>(participantStubs);
+            state.assignedId = index + 1;
+            state.hostCurrentLamport = lamportClock.getTime();
+            state.snapshot = fetchSnapshot();
             return state;
         }
         
+        /**
+         * Accepts a new stub for a participant only if the registry binds the participant's name to it and
+         * the old stub no longer answers, so a peer cannot take over another player by claiming its name.
+         */
+        private void verifyRejoin(String peer, ReceiverInterface oldStub, ReceiverInterface newPeerStub) throws RemoteException {
+            session.invalidate(peer);
+            if (!newPeerStub.equals(session.lookupReceiver(peer))) {
+                throw new RemoteException("Cannot rejoin: " + peer + " is bound to another receiver.");
+            }
+            if (oldStub == null) {
+                return;
+            }
+            try {
+                oldStub.fetchSnapshot();
+            } catch (RemoteException e) {
+                return; // The old receiver is gone, so this is a genuine reconnect
+            }
+            throw new RemoteException("Cannot rejoin: " + peer + " is still connected.");
+        }
+        
+        @Override
+        public void resync(ReceiverInterface source) throws RemoteException {
+            // Catch up on the resync thread: the source is waiting for this call and serves the catch-up itself.
+            // Requests that arrive while one is still queued are folded into it.
+            resyncSource.set(source);
+            if (resyncQueued.compareAndSet(false, true)) {
+                resyncExecutor.execute(PeerProcess.this::runResync);
+            }
+        }
+        
+        @Override
+        public Snapshot fetchSnapshot() throws RemoteException {
+            return currentSnapshot();
+        }
+        
+        @Override
+        public List<Message> fetchEvents(long afterSeq, int maxEvents) throws RemoteException {
+            synchronized (PeerProcess.this) {
+                if (lastSnapshot == null || afterSeq < lastSnapshot.seq) {
+                    return null; // The requested events were folded into a newer snapshot
+                }
+                int from = (int) Math.min(afterSeq - lastSnapshot.seq, eventLog.size());
+                int to = Math.min(eventLog.size(), from + Math.max(1, Math.min(maxEvents, EVENT_PAGE_SIZE)));
+                return new ArrayList<>(eventLog.subList(from, to));
+            }
+        }
+        
         /**
          * Helper method to deliver any messages from the hold-back queue that are ready in Lamport total order.
          * It checks the smallest timestamp message and delivers it if no other message in the queue has a smaller 
@@ -382,11 +766,10 @@ public class PeerProcess {
                 // Remove the message from queue and apply its effects to local game state
                 holdBackQueue.poll();
                 try {
-					applyMessage(head);
-				} catch (RemoteException e) {
-					// TODO Auto-generated catch block
-					e.printStackTrace();
-				}
+                    applyMessage(head);
+                } catch (RemoteException e) {
+                    LOG.warn("Could not apply {} message from {}: {}", head.type, head.senderName, e.getMessage());
+                }
             }
         }
         
@@ -402,10 +785,23 @@ public class PeerProcess {
                 // A new peer has joined: update local participants list and stubs.
                 String newPlayer = message.content;
                 ReceiverInterface newStub = message.newPeerStub;
-                if (!participantNames.contains(newPlayer)) {
+                // Our own JOIN is skipped: a peer that joined keeps itself out of its participant list
+                if (!participantNames.contains(newPlayer) && !newPlayer.equals(peerName)) {
                     participantNames.add(newPlayer);
                     participantStubs.add(newStub);
+                    session.cacheReceiver(newPlayer, newStub);
                     System.out.println(">> " + newPlayer + " joined the game (added to local state).");
+                } else if (!newPlayer.equals(peerName) && newStub != null) {
+                    // A participant reconnected with a new receiver: switch to its new stub
+                    int index = participantNames.indexOf(newPlayer);
+                    if (index < participantStubs.size()) {
+                        ReceiverInterface oldStub = participantStubs.set(index, newStub);
+                        if (oldStub != null && !oldStub.equals(newStub)) {
+                            transport.removePeer(oldStub);
+                            System.out.println(">> " + newPlayer + " reconnected to the game.");
+                        }
+                    }
+                    session.cacheReceiver(newPlayer, newStub);
                 }
                 break;
             case START:
@@ -414,6 +810,7 @@ public class PeerProcess {
                 System.out.println(">> Game has started! Difficulty: " + message.content);
                 break;
             case GUESS:
+                deliverPuzzleEvent(message);
                 if (currentGameRoom != null) {
                     if (message.senderName.equals(peerName)) {
                         // **NEW:** This peer was the origin of the guess, so it has already processed it locally.
@@ -437,11 +834,11 @@ public class PeerProcess {
                 break;
             case PUZZLE:
                 // --- Modified PUZZLE handling ---
-                System.out.println("PUZZLE msg received: " + message.content + " (TS=" + message.timestamp + ")");
+                LOG.debug("PUZZLE msg received: {} (TS={})", message.content, message.timestamp);
                 // Synchronize to ensure thread-safe update of the puzzle state
                 synchronized(PeerProcess.this) {
                     localPuzzleState = message.content;   // Update the local puzzle state
-                    System.out.println("Local puzzle state updated to: " + localPuzzleState);
+                    LOG.debug("Local puzzle state updated to: {}", localPuzzleState);
                     displayPuzzle();                        // Refresh the UI (console output)
                 }
                 if (message.content.contains("Game over")) {
@@ -453,6 +850,10 @@ public class PeerProcess {
                 // Display general text messages (e.g., guess results)
                 System.out.println(">> " + message.content);
                 break;
+            case LAYOUT:
+                // The host has published the puzzle layout: build the local replica from it
+                deliverPuzzleEvent(message);
+                break;
             }
         }
     }
@@ -465,6 +866,9 @@ public class PeerProcess {
      * @throws RemoteException if RMI setup fails.
      */
     public PeerProcess(String name) throws RemoteException {
+        if (PeerSession.isOpen(name)) {
+            throw new RemoteException("Peer " + name + " is already running in this process.");
+        }
         this.peerName = name;
         this.multiplayer = new Multiplayer();
         
@@ -491,6 +895,7 @@ public class PeerProcess {
             e.printStackTrace();
             throw new RemoteException("Failed to bind RMI objects for peer " + peerName);
         }
+        session = PeerSession.open(peerName, this);
         
         // Start the command-line interface loop for user commands (p2pcheck, p2ppropose, p2pjoin, etc.)
         startCommandInterface();
@@ -568,6 +973,9 @@ public class PeerProcess {
             }
         }
         scanner.close();
+        transport.shutdown();
+        resyncExecutor.shutdownNow();
+        session.close();
         // Clean up RMI objects before exiting (optional in this context)
         try {
             Naming.unbind(peerName);
@@ -599,12 +1007,16 @@ public class PeerProcess {
         }
         // Initialize local state for hosting
         this.isHost = true;
+        resetReplica();
         this.gameDifficulty = difficulty;
         this.targetPlayers = numPlayers;
         this.gameStarted = false;
         participantNames.clear();
         participantStubs.clear();
+        // Our Lamport ID changes with the game, so every receiver has to be sent our name again
+        transport.forgetNames();
         participantNames.add(peerName);
+        participantStubs.add(receiver);  // Keep participantStubs parallel to participantNames (index+1 = Lamport ID)
         // Set your own Lamport clock ID as 1
         ((LamportClockImpl)lamportClock).setId(1);
         
@@ -637,22 +1049,29 @@ public class PeerProcess {
             System.out.println("Cannot join a new game: You are already in a pending or running game.");
             return;
         }
-        // Assume hostName is on localhost if not fully qualified
-        String lookupHost = hostName.contains(".") ? hostName : "localhost";
-        String hostUrl = "rmi://" + lookupHost + "/" + hostName;
-        ReceiverInterface hostReceiver = (ReceiverInterface) Naming.lookup(hostUrl);
+        ReceiverInterface hostReceiver = session.lookupReceiver(hostName);
         System.out.println("** Found host peer: " + hostName + ". Attempting to join their game...");
         
         // Call the host's joinGame method remotely.
-        GameState state = hostReceiver.joinGame(peerName, this.receiver);
+        GameState state;
+        try {
+            state = hostReceiver.joinGame(peerName, this.receiver);
+        } catch (RemoteException e) {
+            // The cached stub may be stale (host restarted); resolve it again on the next attempt
+            session.invalidate(hostName);
+            throw e;
+        }
         
         // Instead of rejecting when the game has started, update local state:
         this.isHost = false;
+        resetReplica();
         this.gameDifficulty = state.difficulty;
         this.targetPlayers = state.targetPlayers;
         this.gameStarted = state.started;
-        this.participantNames = new ArrayList<>(state.participants);
-        this.participantStubs = new ArrayList<>(state.participantStubs);
+        this.participantNames = new CopyOnWriteArrayList<>(state.participants);
+        // Our Lamport ID changes with the game, so every receiver has to be sent our name again
+        transport.forgetNames();
+        this.participantStubs = new CopyOnWriteArrayList<>(state.participantStubs);
         // Remove our own entry if present.
         int selfIndex = participantNames.indexOf(peerName);
         if (selfIndex >= 0) {
@@ -665,8 +1084,13 @@ public class PeerProcess {
         lamportClock.update(state.hostCurrentLamport);
         System.out.println("** Joined game hosted by " + hostName + ". Difficulty: \"" + gameDifficulty 
             + "\", Participants: " + participantNames);
-        System.out.println("** Game is pending, waiting for more players (" 
-            + participantNames.size() + "/" + targetPlayers + " joined).");
+        if (state.started) {
+            // The game is already running: restore the snapshot and replay the log tail
+            catchUp(hostReceiver, state.snapshot);
+        } else {
+            System.out.println("** Game is pending, waiting for more players (" 
+                + participantNames.size() + "/" + targetPlayers + " joined).");
+        }
         
         // Retrieve the current GameRoom from Multiplayer.
         // (Assuming Multiplayer is a singleton or is accessible.)
@@ -713,33 +1137,312 @@ public class PeerProcess {
         // Note: The guess message will still be delivered to all (including self) via the Receiver, 
         // but we handle our own guess in advance to avoid waiting for host.
     }
+    /**
+     * Handles a LAYOUT or GUESS event delivered live. During a catch-up the event is deferred until the log tail
+     * has been replayed. An event that is not after the last applied event in the Lamport order already came with
+     * a snapshot or log tail (or was sent again after a resync) and is skipped, so it is neither applied nor
+     * logged twice and the sequence numbers stay those of the peer the state was fetched from.
+     * @param event the delivered LAYOUT or GUESS message.
+     */
+    private synchronized void deliverPuzzleEvent(Message event) {
+        if (catchUps > 0) {
+            deferredEvents.add(event);
+        } else if (isAfterLastEvent(event)) {
+            applyPuzzleEvent(event);
+        } else {
+            LOG.debug("Skipping {} event from {} (timestamp={}): already applied", event.type, event.senderName, event.timestamp);
+        }
+    }
+    
+    /** @return true if the event comes after the last applied puzzle event in the Lamport total order. */
+    private boolean isAfterLastEvent(Message event) {
+        return event.timestamp > lastEventTimestamp
+                || (event.timestamp == lastEventTimestamp && event.senderId > lastEventSenderId);
+    }
+    
+    /**
+     * Applies an event of a fetched log tail by its sequence number on the peer it was fetched from. Events at or
+     * below the local sequence number are already part of the replica and are skipped without being logged again.
+     */
+    private synchronized void replayPuzzleEvent(Message event, long sourceSeq) {
+        if (sourceSeq > eventSeq) {
+            applyPuzzleEvent(event);
+        }
+    }
+    
+    /**
+     * Applies a LAYOUT or GUESS event to the local puzzle replica and records it in the event log.
+     * Every peer applies the same events in the same (Lamport) order, so all replicas stay identical
+     * without the rendered board being shipped around. Every SNAPSHOT_INTERVAL events the state is folded
+     * into a new snapshot and the log is cleared.
+     * @param event the LAYOUT or GUESS message.
+     */
+    private synchronized void applyPuzzleEvent(Message event) {
+        lastEventTimestamp = event.timestamp;
+        lastEventSenderId = event.senderId;
+        if (event.type == Message.Type.LAYOUT) {
+            puzzleReplica = Mutiplayer_Puzzle.from_layout(event.content);
+            eventSeq = 1;
+            takeSnapshot();
+        } else if (puzzleReplica != null) {
+            eventLog.add(event);
+            eventSeq++;
+            boolean changed = puzzleReplica.is_guessed_word_correct(event.content);
+            if (eventLog.size() >= SNAPSHOT_INTERVAL) {
+                takeSnapshot();
+            }
+            if (!changed) {
+                return; // Wrong guess: the board does not change
+            }
+        } else {
+            return; // No layout yet, nothing to apply the guess to
+        }
+        localPuzzleState = puzzleReplica.render_player_view_puzzle();
+        displayPuzzle();
+        if (puzzleReplica.is_All_words_are_guessed()) {
+            gameStarted = false;
+            System.out.println(">> Game has ended.");
+        }
+    }
+    
+    /** Folds the current replica state into a new snapshot and clears the event log. */
+    private synchronized void takeSnapshot() {
+        Snapshot snapshot = new Snapshot();
+        snapshot.seq = eventSeq;
+        snapshot.layout = puzzleReplica.export_layout();
+        snapshot.revealed = puzzleReplica.export_revealed_state();
+        snapshot.lastTimestamp = lastEventTimestamp;
+        snapshot.lastSenderId = lastEventSenderId;
+        fillRoom(snapshot);
+        lastSnapshot = snapshot;
+        eventLog.clear();
+    }
+    
+    /**
+     * @return the last puzzle snapshot together with the current room state (room state only while the layout
+     *         is not known yet), or null if this peer is not in a game.
+     */
+    private synchronized Snapshot currentSnapshot() {
+        if (participantNames.isEmpty()) {
+            return null;
+        }
+        Snapshot snapshot = new Snapshot();
+        if (lastSnapshot != null) {
+            snapshot.seq = lastSnapshot.seq;
+            snapshot.layout = lastSnapshot.layout;
+            snapshot.revealed = lastSnapshot.revealed;
+            snapshot.lastTimestamp = lastSnapshot.lastTimestamp;
+            snapshot.lastSenderId = lastSnapshot.lastSenderId;
+        }
+        fillRoom(snapshot);
+        return snapshot;
+    }
+    
+    /**
+     * Copies the room state into a snapshot. The participants are listed in Lamport ID order and include this
+     * peer, which a peer that joined keeps out of its own participant list.
+     */
+    private void fillRoom(Snapshot snapshot) {
+        List<String> names = new ArrayList<>(participantNames);
+        List<ReceiverInterface> stubs = new ArrayList<>(participantStubs);
+        if (!names.contains(peerName)) {
+            int id;
+            try {
+                id = lamportClock.getId();
+            } catch (RemoteException e) {
+                id = names.size() + 1;
+            }
+            int at = Math.min(Math.max(id - 1, 0), names.size());
+            names.add(at, peerName);
+            stubs.add(Math.min(at, stubs.size()), receiver);
+        }
+        snapshot.participants = names;
+        snapshot.participantStubs = stubs;
+        snapshot.difficulty = gameDifficulty;
+        snapshot.targetPlayers = targetPlayers;
+        snapshot.started = gameStarted;
+    }
+    
+    /**
+     * Restores the room state of a snapshot: the game settings and the participants this peer does not know
+     * yet (e.g. because it missed their JOIN). Runs under the receiver lock, like the delivery of a JOIN.
+     */
+    private void restoreRoom(Snapshot snapshot) {
+        synchronized (receiver) {
+            if (snapshot.difficulty != null) {
+                gameDifficulty = snapshot.difficulty;
+            }
+            targetPlayers = snapshot.targetPlayers;
+            gameStarted = snapshot.started;
+            if (snapshot.participants == null) {
+                return;
+            }
+            for (int i = 0; i < snapshot.participants.size(); i++) {
+                String name = snapshot.participants.get(i);
+                if (name.equals(peerName) || participantNames.contains(name)) {
+                    continue;
+                }
+                ReceiverInterface stub = snapshot.participantStubs != null && i < snapshot.participantStubs.size()
+                        ? snapshot.participantStubs.get(i) : null;
+                participantNames.add(name);
+                participantStubs.add(stub);
+                session.cacheReceiver(name, stub);
+                System.out.println(">> " + name + " is in the game (restored from a snapshot).");
+            }
+        }
+    }
+    
+    /** Forgets the puzzle replica of a previous game. */
+    private synchronized void resetReplica() {
+        puzzleReplica = null;
+        lastSnapshot = null;
+        eventLog.clear();
+        eventSeq = 0;
+        lastEventTimestamp = 0;
+        lastEventSenderId = 0;
+    }
+    
+    /** Replaces the local replica with the state stored in a snapshot. */
+    private synchronized void restoreSnapshot(Snapshot snapshot) {
+        puzzleReplica = Mutiplayer_Puzzle.from_layout(snapshot.layout);
+        puzzleReplica.restore_revealed_state(snapshot.revealed);
+        eventSeq = snapshot.seq;
+        lastEventTimestamp = snapshot.lastTimestamp;
+        lastEventSenderId = snapshot.lastSenderId;
+        eventLog.clear();
+        lastSnapshot = snapshot;
+        localPuzzleState = puzzleReplica.render_player_view_puzzle();
+    }
+    
+    /** Runs one queued resync against the peer that requested it last. */
+    private void runResync() {
+        resyncQueued.set(false);
+        ReceiverInterface source = resyncSource.getAndSet(null);
+        if (source == null) {
+            return;
+        }
+        try {
+            catchUp(source, null);
+        } catch (RemoteException e) {
+            LOG.warn("Could not resynchronize with a peer: {}", e.getMessage());
+        }
+    }
+    
+    /**
+     * Brings the local replica up to date with a running game: restores the snapshot and then streams the
+     * log tail from the host page by page. If the host takes a new snapshot in the meantime the transfer
+     * starts again from that snapshot. Live puzzle events are deferred while this runs and applied afterwards.
+     * @param host     the host's receiver stub.
+     * @param snapshot the snapshot returned with the join, or null to fetch it from the host.
+     */
+    private void catchUp(ReceiverInterface host, Snapshot snapshot) throws RemoteException {
+        synchronized (this) {
+            catchUps++;
+        }
+        try {
+            transferState(host, snapshot);
+        } finally {
+            synchronized (this) {
+                if (--catchUps == 0) {
+                    for (Message event : deferredEvents) {
+                        if (isAfterLastEvent(event)) {
+                            applyPuzzleEvent(event);
+                        }
+                    }
+                    deferredEvents.clear();
+                }
+            }
+        }
+    }
+    
+    /** Restores the snapshot and replays the log tail for {@link #catchUp}. */
+    private void transferState(ReceiverInterface host, Snapshot snapshot) throws RemoteException {
+        for (int attempt = 0; attempt < 3; attempt++) {
+            if (snapshot == null) {
+                snapshot = host.fetchSnapshot();
+                if (snapshot == null) {
+                    return; // The host has no running game
+                }
+            }
+            restoreRoom(snapshot);
+            if (snapshot.layout == null) {
+                System.out.println("** Caught up with the game room; the puzzle layout is not published yet.");
+                return;
+            }
+            restoreSnapshot(snapshot);
+            long seq = snapshot.seq;
+            while (true) {
+                List<Message> tail = host.fetchEvents(seq, EVENT_PAGE_SIZE);
+                if (tail == null) {
+                    break; // Log was folded into a newer snapshot: start over
+                }
+                if (tail.isEmpty()) {
+                    displayPuzzle();
+                    System.out.println("** Caught up with the running game (event " + seq + ").");
+                    return;
+                }
+                for (Message event : tail) {
+                    replayPuzzleEvent(event, ++seq);
+                }
+            }
+            snapshot = null;
+        }
+        System.err.println("Could not catch up with the running game; waiting for live events.");
+    }
+    
     /**
      * Broadcasts a message to all participants in the game (all other peers).
-     * It sends the message via RMI to each peer's Receiver, and also enqueues it locally for this peer's Receiver to process.
-     * This ensures the message is delivered to everyone, including the sender, in the Lamport total order.
+     * The message is queued on each remote peer's send queue in the PeerTransport and this method returns
+     * without waiting for the remote calls, so a slow peer cannot block the caller (which may hold the receiver lock).
+     * A peer whose queue is full is declared failed and catches up later instead.
+     * The message is also delivered locally to this peer's Receiver so it takes part in the Lamport total order.
      * @param message the Message to broadcast.
      */
     void broadcastMessageToAll(Message message) {
-        // Send the message to each remote peer (skip our own receiver)
+        // Queue the message for each remote peer (skip our own receiver)
         for (ReceiverInterface stub : participantStubs) {
-            try {
-                // Use a comparison based on a unique identifier (here we compare string representations)
-                if (stub.toString().equals(receiver.toString())) {
-                    continue; // Skip sending to ourselves
-                }
-                stub.receiveMessage(message);
-            } catch (RemoteException e) {
-                System.err.println("Failed to send message to a peer: " + e.getMessage());
+            // Use a comparison based on a unique identifier (here we compare string representations)
+            if (stub == null || stub.toString().equals(receiver.toString())) {
+                continue; // Skip sending to ourselves
             }
+            transport.send(stub, message);
         }
         // Also deliver the message locally (loopback)
         try {
             receiver.receiveMessage(message);
         } catch (RemoteException e) {
-            System.err.println("Local message delivery error: " + e.getMessage());
+            LOG.warn("Local message delivery error: {}", e.getMessage());
         }
     }
     
+    /** @return the name of the participant with this receiver stub, for messages to the user. */
+    private String participantName(ReceiverInterface stub) {
+        int index = participantStubs.indexOf(stub);
+        return index >= 0 && index < participantNames.size() ? participantNames.get(index) : "a peer";
+    }
+    
+    /**
+     * Reacts to peers that missed messages: a failed peer is told to catch up from this peer's
+     * snapshot and event log once it can be reached again.
+     */
+    private class TransportListener implements PeerTransport.Listener {
+        @Override
+        public void peerFailed(ReceiverInterface peer, Message message) {
+            System.out.println("** Lost contact with " + participantName(peer) + "; it will catch up when it is back.");
+        }
+        
+        @Override
+        public void resync(ReceiverInterface peer) throws RemoteException {
+            peer.resync(receiver);
+            System.out.println("** " + participantName(peer) + " is back and catching up.");
+        }
+    }
+    
+    /** @return the session that owns this exported peer. */
+    PeerSession getSession() {
+        return session;
+    }
+    
     /**
      * Fallback method to increment Lamport clock if the remote interface call fails.
      * This should rarely be needed since we call tick() on a local LamportClockImpl, but it's here for completeness.
@@ -0,0 +1,125 @@
+import java.net.MalformedURLException;
+import java.rmi.Naming;
+import java.rmi.NotBoundException;
+import java.rmi.RemoteException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Long-lived peer-session layer for the peer-to-peer mode.
+ * <p>
+ * A PeerSession owns the single exported PeerProcess of a node (its Receiver and Lamport clock are
+ * exported and bound exactly once, when the PeerProcess is created) and a cache of resolved
+ * {@link PeerProcess.ReceiverInterface} stubs of other peers. Game rooms publish their messages
+ * through the session instead of creating PeerProcess instances, so a broadcast reuses the
+ * existing exported objects and connections.
+ * </p>
+ */
+public class PeerSession {
+    // One session per peer name in this JVM
+    private static final Map<String, PeerSession> sessions = new ConcurrentHashMap<>();
+
+    private final String peerName;
+    private final PeerProcess peer;
+    // Resolved receiver stubs of other peers, keyed by peer name
+    private final Map<String, PeerProcess.ReceiverInterface> receiverCache = new ConcurrentHashMap<>();
+    // Names of the peers that sent messages to this peer, by Lamport ID
+    private final PeerWireFormat.NameTable names = new PeerWireFormat.NameTable();
+
+    private PeerSession(String peerName, PeerProcess peer) {
+        this.peerName = peerName;
+        this.peer = peer;
+    }
+
+    /**
+     * Registers the session for a freshly exported PeerProcess.
+     *
+     * @param peerName the peer's unique name.
+     * @param peer     the exported PeerProcess of this node.
+     * @return the new session.
+     * @throws RemoteException if a session for this peer name already exists in this process.
+     */
+    static PeerSession open(String peerName, PeerProcess peer) throws RemoteException {
+        PeerSession session = new PeerSession(peerName, peer);
+        if (sessions.putIfAbsent(peerName, session) != null) {
+            throw new RemoteException("Peer " + peerName + " is already running in this process.");
+        }
+        return session;
+    }
+
+    /**
+     * @param peerName the peer's unique name.
+     * @return the session of a peer running in this process, or null if there is none.
+     */
+    public static PeerSession get(String peerName) {
+        return peerName == null ? null : sessions.get(peerName);
+    }
+
+    /** @return true if a peer with this name is already exported in this process. */
+    public static boolean isOpen(String peerName) {
+        return sessions.containsKey(peerName);
+    }
+
+    public String getPeerName() {
+        return peerName;
+    }
+
+    public PeerProcess getPeer() {
+        return peer;
+    }
+
+    /** @return the table used to resolve the sender names left out of incoming messages. */
+    public PeerWireFormat.NameTable names() {
+        return names;
+    }
+
+    /**
+     * Publishes a message to all participants of the peer's game through the peer's transport.
+     *
+     * @param message the message to broadcast.
+     */
+    public void publish(PeerProcess.Message message) {
+        peer.broadcastMessageToAll(message);
+    }
+
+    /**
+     * Returns the receiver stub of another peer, resolving it through the RMI registry only on the first use.
+     *
+     * @param otherPeer the name of the peer to look up.
+     * @return the cached or newly resolved receiver stub.
+     * @throws RemoteException if the peer cannot be found in the registry.
+     */
+    public PeerProcess.ReceiverInterface lookupReceiver(String otherPeer) throws RemoteException {
+        PeerProcess.ReceiverInterface stub = receiverCache.get(otherPeer);
+        if (stub != null) {
+            return stub;
+        }
+        // Assume the peer is on localhost if the name is not fully qualified
+        String lookupHost = otherPeer.contains(".") ? otherPeer : "localhost";
+        try {
+            stub = (PeerProcess.ReceiverInterface) Naming.lookup("rmi://" + lookupHost + "/" + otherPeer);
+        } catch (NotBoundException | MalformedURLException e) {
+            throw new RemoteException("Could not find peer " + otherPeer + ": " + e.getMessage(), e);
+        }
+        receiverCache.put(otherPeer, stub);
+        return stub;
+    }
+
+    /** Remembers a stub received from another peer (e.g. in a JOIN message or GameState). */
+    public void cacheReceiver(String otherPeer, PeerProcess.ReceiverInterface stub) {
+        if (otherPeer != null && stub != null) {
+            receiverCache.put(otherPeer, stub);
+        }
+    }
+
+    /** Drops a cached stub, e.g. after a call on it failed, so the next lookup resolves it again. */
+    public void invalidate(String otherPeer) {
+        receiverCache.remove(otherPeer);
+    }
+
+    /** Unregisters the session when the peer shuts down. */
+    public void close() {
+        sessions.remove(peerName, this);
+        receiverCache.clear();
+    }
+}
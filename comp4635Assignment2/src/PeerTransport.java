@@ -0,0 +1,288 @@
+import java.rmi.RemoteException;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Asynchronous transport used by PeerProcess to push messages to remote peers.
+ * <p>
+ * Every remote peer gets its own bounded send queue and a dedicated sender thread that
+ * drains it in FIFO order, so a broadcast only enqueues and returns right away. A slow or
+ * unreachable peer can only back up its own queue and the delivery to the other peers goes on.
+ * </p>
+ * <p>
+ * Failed sends are retried with exponential backoff. The queue capacity is the per-peer
+ * in-flight limit.
+ * </p>
+ * <p>
+ * The messages are part of the Lamport total order, so none of them is dropped quietly. When a
+ * message finds the peer's queue full, or still fails after the last retry, the peer is
+ * declared failed: its queue is discarded and further messages for it are refused
+ * until it can be reached again. The sender then probes the peer with backoff and hands it to
+ * the {@link Listener}, which makes it catch up on the missed events from a snapshot, before
+ * regular sending resumes.
+ * </p>
+ * <p>
+ * The sender's name is only written into the first message for each sender ID; once a call that
+ * carried it has succeeded, the receiver has interned it and later messages leave it out
+ * (see {@link PeerWireFormat}).
+ * </p>
+ */
+public class PeerTransport {
+    private static final Log.Logger LOG = Log.get("PeerTransport");
+    /** Default maximum number of queued (not yet acknowledged) messages per peer */
+    public static final int DEFAULT_MAX_IN_FLIGHT = 64;
+    /** Default number of retries after the first failed send */
+    public static final int DEFAULT_MAX_RETRIES = 5;
+    /** Default delay before the first retry, doubled on each further retry */
+    public static final long DEFAULT_INITIAL_BACKOFF_MILLIS = 100;
+    /** Default upper bound for the retry delay */
+    public static final long DEFAULT_MAX_BACKOFF_MILLIS = 2000;
+
+    /**
+     * Notified about peers that missed messages.
+     */
+    public interface Listener {
+        /**
+         * Called once when a peer is declared failed, with the first message it missed.
+         */
+        void peerFailed(PeerProcess.ReceiverInterface peer, PeerProcess.Message message);
+
+        /**
+         * Called on the peer's sender thread when a failed peer may be reachable again, before the
+         * sender resumes. It has to make the peer catch up on everything it missed.
+         * @throws RemoteException if the peer is still unreachable; the sender tries again later.
+         */
+        void resync(PeerProcess.ReceiverInterface peer) throws RemoteException;
+    }
+
+    private final Listener listener;
+    private final int maxInFlight;
+    private final int maxRetries;
+    private final long initialBackoffMillis;
+    private final long maxBackoffMillis;
+
+    // One sender per remote stub (RMI stubs compare equal when they refer to the same remote object)
+    private final Map<PeerProcess.ReceiverInterface, PeerSender> senders = new ConcurrentHashMap<>();
+    private volatile boolean running = true;
+
+    public PeerTransport(Listener listener) {
+        this(listener, DEFAULT_MAX_IN_FLIGHT, DEFAULT_MAX_RETRIES, DEFAULT_INITIAL_BACKOFF_MILLIS,
+                DEFAULT_MAX_BACKOFF_MILLIS);
+    }
+
+    public PeerTransport(Listener listener, int maxInFlight, int maxRetries, long initialBackoffMillis,
+            long maxBackoffMillis) {
+        if (listener == null) {
+            throw new IllegalArgumentException("listener must not be null");
+        }
+        if (maxInFlight < 1) {
+            throw new IllegalArgumentException("maxInFlight must be >= 1");
+        }
+        this.listener = listener;
+        this.maxInFlight = maxInFlight;
+        this.maxRetries = maxRetries;
+        this.initialBackoffMillis = initialBackoffMillis;
+        this.maxBackoffMillis = maxBackoffMillis;
+    }
+
+    /**
+     * Queues a message for delivery to one peer and returns immediately. If the peer's in-flight
+     * limit is reached the peer is declared failed instead.
+     *
+     * @param peer    the remote receiver stub of the peer.
+     * @param message the message to deliver.
+     * @return true if the message was queued; false if the peer is failed (it receives the message
+     *         through its catch-up instead) or the transport has been shut down.
+     */
+    public boolean send(PeerProcess.ReceiverInterface peer, PeerProcess.Message message) {
+        if (!running || peer == null) {
+            return false;
+        }
+        return senders.computeIfAbsent(peer, PeerSender::new).enqueue(message);
+    }
+
+    /**
+     * Makes every peer be sent the sender names again, e.g. when this peer's Lamport ID changes
+     * because it proposes or joins a new game.
+     */
+    public void forgetNames() {
+        for (PeerSender sender : senders.values()) {
+            sender.acknowledgedNames.clear();
+        }
+    }
+
+    /** @return true if a peer is currently declared failed and waiting to catch up. */
+    public boolean isFailed(PeerProcess.ReceiverInterface peer) {
+        PeerSender sender = senders.get(peer);
+        return sender != null && sender.failed;
+    }
+
+    /**
+     * Stops the sender for a peer that has left the game. Messages still queued for it are discarded.
+     */
+    public void removePeer(PeerProcess.ReceiverInterface peer) {
+        PeerSender sender = senders.remove(peer);
+        if (sender != null) {
+            sender.stop();
+        }
+    }
+
+    /** @return the number of messages currently queued for a peer (0 if the peer is unknown). */
+    public int pendingFor(PeerProcess.ReceiverInterface peer) {
+        PeerSender sender = senders.get(peer);
+        return sender != null ? sender.queue.size() : 0;
+    }
+
+    /** Stops all sender threads. Messages that were not delivered yet are discarded. */
+    public void shutdown() {
+        running = false;
+        for (PeerSender sender : senders.values()) {
+            sender.stop();
+        }
+        senders.clear();
+    }
+
+    /**
+     * Queue plus dedicated thread for a single peer. Messages are sent one at a time so that
+     * the FIFO order per sender, which the Lamport hold-back queue relies on, is preserved.
+     * Whenever messages for the peer are discarded the sender is failed, and it only resumes
+     * after a successful resync, so every discarded message is covered by a catch-up.
+     */
+    private class PeerSender implements Runnable {
+        private final PeerProcess.ReceiverInterface peer;
+        private final BlockingQueue<PeerProcess.Message> queue;
+        private final String label;
+        private final Thread thread;
+        private volatile boolean active = true;
+        private volatile boolean failed = false;
+        // Sender names by Lamport ID that this peer has received in a successful call
+        private final Map<Integer, String> acknowledgedNames = new ConcurrentHashMap<>();
+
+        PeerSender(PeerProcess.ReceiverInterface peer) {
+            this.peer = peer;
+            this.queue = new ArrayBlockingQueue<>(maxInFlight);
+            this.label = "peer#" + Integer.toHexString(peer.hashCode());
+            this.thread = new Thread(this, "PeerSender-" + label);
+            this.thread.setDaemon(true);
+            this.thread.start();
+        }
+
+        void stop() {
+            active = false;
+            thread.interrupt();
+            queue.clear();
+        }
+
+        boolean enqueue(PeerProcess.Message message) {
+            if (failed) {
+                return false;
+            }
+            if (queue.offer(message)) {
+                return true;
+            }
+            fail(message, "send queue full (" + maxInFlight + " in flight)");
+            return false;
+        }
+
+        /** Declares the peer failed and discards its queue; the sender thread then starts the recovery. */
+        private synchronized void fail(PeerProcess.Message message, String reason) {
+            if (failed || !active) {
+                return;
+            }
+            failed = true;
+            queue.clear();
+            LOG.warn("Declaring {} failed after a {} message: {}. It will catch up when it is reachable again.",
+                    label, message.type, reason);
+            listener.peerFailed(peer, message);
+        }
+
+        @Override
+        public void run() {
+            while (active && running) {
+                if (failed && !recover()) {
+                    break;
+                }
+                PeerProcess.Message message;
+                try {
+                    // Timed wait so a failure declared by a caller is noticed while the queue is empty
+                    message = queue.poll(maxBackoffMillis, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+                if (message != null && !deliver(message)) {
+                    break;
+                }
+            }
+        }
+
+        /**
+         * Probes a failed peer with backoff until the listener has resynchronized it.
+         * Messages queued while a resync attempt is running are kept if it succeeds (a duplicate of
+         * an event the peer already caught up on does no harm) and discarded if it fails.
+         * @return false if the sender was stopped in the meantime.
+         */
+        private boolean recover() {
+            long backoff = initialBackoffMillis;
+            while (active && running) {
+                synchronized (this) {
+                    queue.clear();
+                    failed = false;
+                }
+                try {
+                    listener.resync(peer);
+                    LOG.info("{} is reachable again and was resynchronized", label);
+                    return true;
+                } catch (RemoteException e) {
+                    synchronized (this) {
+                        failed = true;
+                        queue.clear();
+                    }
+                }
+                try {
+                    TimeUnit.MILLISECONDS.sleep(backoff);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+                backoff = Math.min(backoff * 2, maxBackoffMillis);
+            }
+            return false;
+        }
+
+        /**
+         * Sends one message, retrying with exponential backoff. If the last retry fails too the
+         * peer is declared failed.
+         * @return false if the sender was interrupted and should stop.
+         */
+        private boolean deliver(PeerProcess.Message message) {
+            long backoff = initialBackoffMillis;
+            for (int attempt = 0; ; attempt++) {
+                boolean interned = message.senderName != null
+                        && message.senderName.equals(acknowledgedNames.get(message.senderId));
+                try {
+                    peer.receiveMessage(interned ? message.withoutSenderName() : message);
+                    if (!interned && message.senderName != null) {
+                        acknowledgedNames.put(message.senderId, message.senderName);
+                    }
+                    return true;
+                } catch (RemoteException e) {
+                    if (attempt >= maxRetries) {
+                        fail(message, (attempt + 1) + " attempts failed (" + e.getMessage() + ")");
+                        return true;
+                    }
+                }
+                try {
+                    TimeUnit.MILLISECONDS.sleep(backoff);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+                backoff = Math.min(backoff * 2, maxBackoffMillis);
+            }
+        }
+    }
+}
@@ -0,0 +1,75 @@
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Helpers for the compact binary encoding of the peer-to-peer messages
+ * ({@link PeerProcess.Message} and {@link PeerProcess.GameState}).
+ * <p>
+ * Integers are written as zig-zag varints (1 byte for values between -64 and 63), and peer names
+ * are interned: every peer of a game has a Lamport ID assigned by the host (index + 1 in join order),
+ * and a message leaves out the sender's name once the receiver has it for that ID. Each peer session
+ * keeps its own {@link NameTable}, filled only from the names senders put on the wire, and the
+ * sender's transport only leaves a name out after a call that carried it has succeeded on that
+ * receiver, so the receiver can always resolve the ID.
+ * </p>
+ */
+public final class PeerWireFormat {
+
+    private PeerWireFormat() {
+    }
+
+    /**
+     * Names of the peers by Lamport ID, as received by one peer session. An entry is only replaced
+     * by a message that carries the name, which happens when another peer holds the ID in a new game.
+     */
+    public static final class NameTable {
+        private final Map<Integer, String> namesById = new ConcurrentHashMap<>();
+
+        /**
+         * Records the name a message carries, or looks up the name a message left out.
+         *
+         * @param id   the sender's Lamport ID.
+         * @param name the name carried by the message, or null if it was left out.
+         * @return the sender's name.
+         */
+        public String resolve(int id, String name) {
+            if (name != null) {
+                namesById.put(id, name);
+                return name;
+            }
+            String interned = namesById.get(id);
+            return interned != null ? interned : "peer-" + id;
+        }
+
+        /** @return the interned name of a peer, or null if the ID is unknown. */
+        public String nameOf(int id) {
+            return namesById.get(id);
+        }
+    }
+
+    /** Writes an int as a zig-zag encoded varint (1 to 5 bytes). */
+    public static void writeVarInt(DataOutput out, int value) throws IOException {
+        int v = (value << 1) ^ (value >> 31);
+        while ((v & ~0x7F) != 0) {
+            out.writeByte((v & 0x7F) | 0x80);
+            v >>>= 7;
+        }
+        out.writeByte(v);
+    }
+
+    /** Reads an int written by {@link #writeVarInt}. */
+    public static int readVarInt(DataInput in) throws IOException {
+        int v = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            int b = in.readUnsignedByte();
+            v |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return (v >>> 1) ^ -(v & 1);
+            }
+        }
+        throw new IOException("Malformed varint");
+    }
+}
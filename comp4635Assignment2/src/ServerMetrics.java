@@ -0,0 +1,260 @@
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanOperationInfo;
+import javax.management.MBeanParameterInfo;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.ReflectionException;
+
+/**
+ * Per-server instrumentation, exposed as a JMX MBean.
+ * <p>
+ * Each server registers one ServerMetrics with its name ({@link #register(String)}); it is
+ * registered with the platform MBean server as {@code comp4635:type=ServerMetrics,name=<server>}
+ * and shows up in JConsole/VisualVM. Remote methods wrap their body in
+ * {@link #timed(String, Call)}. For every operation recorded through {@link #operation(String)}
+ * the MBean exposes the call and
+ * error counts, the in-flight gauge and the mean, p50, p90, p99 and max latency in milliseconds
+ * (attributes named {@code <operation>.calls}, {@code <operation>.p99Millis}, ...). Servers can
+ * add gauges for their own state, e.g. the number of sessions.
+ * </p>
+ */
+public class ServerMetrics implements DynamicMBean {
+    private static final String[] OPERATION_ATTRIBUTES = { "calls", "errors", "inFlight", "meanMillis",
+            "p50Millis", "p90Millis", "p99Millis", "maxMillis" };
+
+    private final String serverName;
+    private final Map<String, OperationMetrics> operations = new ConcurrentHashMap<>();
+    private final Map<String, LongSupplier> gauges = new ConcurrentHashMap<>();
+
+    /** A timed call returning a value. */
+    public interface Call<T, E extends Exception> {
+        T run() throws E;
+    }
+
+    /** A timed call without a result. */
+    public interface Task<E extends Exception> {
+        void run() throws E;
+    }
+
+    private ServerMetrics(String serverName) {
+        this.serverName = serverName;
+    }
+
+    /**
+     * Creates the metrics of a server and registers them with the platform MBean server. A
+     * previously registered MBean with the same server name is replaced.
+     *
+     * @param serverName the server name used in the MBean's ObjectName.
+     * @return the metrics.
+     */
+    public static ServerMetrics register(String serverName) {
+        ServerMetrics metrics = new ServerMetrics(serverName);
+        try {
+            MBeanServer mbs = ManagementFactory.getPlatformMBeanServer();
+            ObjectName objectName = new ObjectName("comp4635:type=ServerMetrics,name=" + ObjectName.quote(serverName));
+            if (mbs.isRegistered(objectName)) {
+                mbs.unregisterMBean(objectName);
+            }
+            mbs.registerMBean(metrics, objectName);
+        } catch (Exception e) {
+            System.err.println("Could not register JMX metrics for " + serverName + ": " + e.getMessage());
+        }
+        return metrics;
+    }
+
+    /**
+     * Runs a call of an operation and records its latency, and an error if it throws.
+     *
+     * @param name the operation (method) name.
+     * @param call the call.
+     * @return the call's result.
+     */
+    public <T, E extends Exception> T timed(String name, Call<T, E> call) throws E {
+        OperationMetrics metric = operation(name);
+        long startNanos = metric.begin();
+        try {
+            return call.run();
+        } catch (Throwable t) {
+            metric.failed();
+            throw t;
+        } finally {
+            metric.end(startNanos);
+        }
+    }
+
+    /** Runs a call of an operation without a result, like {@link #timed(String, Call)}. */
+    public <E extends Exception> void timed(String name, Task<E> task) throws E {
+        OperationMetrics metric = operation(name);
+        long startNanos = metric.begin();
+        try {
+            task.run();
+        } catch (Throwable t) {
+            metric.failed();
+            throw t;
+        } finally {
+            metric.end(startNanos);
+        }
+    }
+
+    /**
+     * Returns the statistics of an operation, creating them on first use.
+     *
+     * @param name the operation (method) name.
+     * @return the operation's statistics.
+     */
+    public OperationMetrics operation(String name) {
+        OperationMetrics op = operations.get(name);
+        return op != null ? op : operations.computeIfAbsent(name, OperationMetrics::new);
+    }
+
+    /**
+     * Registers a gauge that is read whenever the MBean attribute is queried.
+     *
+     * @param name  the attribute name, e.g. "sessions".
+     * @param value supplier of the current value.
+     */
+    public void gauge(String name, LongSupplier value) {
+        gauges.put(name, value);
+    }
+
+    public String getServerName() {
+        return serverName;
+    }
+
+    /** Clears the counters and histograms of all operations. */
+    public void reset() {
+        for (OperationMetrics op : operations.values()) {
+            op.reset();
+        }
+    }
+
+    /** @return a text table of all operations and gauges. */
+    public String summary() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format(Locale.ROOT, "%-36s %10s %8s %8s %10s %10s %10s %10s%n", serverName, "calls", "errors",
+                "inFlight", "mean ms", "p50 ms", "p99 ms", "max ms"));
+        for (OperationMetrics op : new TreeMap<>(operations).values()) {
+            LatencyHistogram h = op.getLatency();
+            sb.append(String.format(Locale.ROOT, "%-36s %10d %8d %8d %10.3f %10.3f %10.3f %10.3f%n", op.getName(),
+                    op.getCalls(), op.getErrors(), op.getInFlight(), h.getMean() / 1e6, millis(h.getPercentile(50)),
+                    millis(h.getPercentile(99)), millis(h.getMax())));
+        }
+        for (Map.Entry<String, LongSupplier> g : new TreeMap<>(gauges).entrySet()) {
+            sb.append(String.format(Locale.ROOT, "%-36s %10d%n", g.getKey(), g.getValue().getAsLong()));
+        }
+        return sb.toString();
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1e6;
+    }
+
+    // ---------------------------------------------------------------------
+    // DynamicMBean
+    // ---------------------------------------------------------------------
+
+    @Override
+    public Object getAttribute(String attribute) throws AttributeNotFoundException {
+        LongSupplier gauge = gauges.get(attribute);
+        if (gauge != null) {
+            return gauge.getAsLong();
+        }
+        int dot = attribute.lastIndexOf('.');
+        OperationMetrics op = dot > 0 ? operations.get(attribute.substring(0, dot)) : null;
+        if (op == null) {
+            throw new AttributeNotFoundException(attribute);
+        }
+        LatencyHistogram h = op.getLatency();
+        switch (attribute.substring(dot + 1)) {
+            case "calls":
+                return op.getCalls();
+            case "errors":
+                return op.getErrors();
+            case "inFlight":
+                return op.getInFlight();
+            case "meanMillis":
+                return h.getMean() / 1e6;
+            case "p50Millis":
+                return millis(h.getPercentile(50));
+            case "p90Millis":
+                return millis(h.getPercentile(90));
+            case "p99Millis":
+                return millis(h.getPercentile(99));
+            case "maxMillis":
+                return millis(h.getMax());
+            default:
+                throw new AttributeNotFoundException(attribute);
+        }
+    }
+
+    @Override
+    public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+        throw new AttributeNotFoundException("Metrics are read-only: " + attribute.getName());
+    }
+
+    @Override
+    public AttributeList getAttributes(String[] attributes) {
+        AttributeList list = new AttributeList();
+        for (String name : attributes) {
+            try {
+                list.add(new Attribute(name, getAttribute(name)));
+            } catch (AttributeNotFoundException ignored) {
+                // Unknown attributes are left out, as the DynamicMBean contract allows
+            }
+        }
+        return list;
+    }
+
+    @Override
+    public AttributeList setAttributes(AttributeList attributes) {
+        return new AttributeList();
+    }
+
+    @Override
+    public Object invoke(String actionName, Object[] params, String[] signature) throws ReflectionException {
+        switch (actionName) {
+            case "reset":
+                reset();
+                return null;
+            case "summary":
+                return summary();
+            default:
+                throw new ReflectionException(new NoSuchMethodException(actionName));
+        }
+    }
+
+    @Override
+    public MBeanInfo getMBeanInfo() {
+        List<MBeanAttributeInfo> attributes = new ArrayList<>();
+        for (String gauge : new TreeMap<>(gauges).keySet()) {
+            attributes.add(new MBeanAttributeInfo(gauge, "java.lang.Long", gauge, true, false, false));
+        }
+        for (String op : new TreeMap<>(operations).keySet()) {
+            for (String suffix : OPERATION_ATTRIBUTES) {
+                String type = suffix.endsWith("Millis") ? "java.lang.Double" : "java.lang.Long";
+                attributes.add(new MBeanAttributeInfo(op + "." + suffix, type, op + " " + suffix, true, false, false));
+            }
+        }
+        MBeanOperationInfo[] ops = {
+                new MBeanOperationInfo("reset", "Clears all operation counters and histograms",
+                        new MBeanParameterInfo[0], "void", MBeanOperationInfo.ACTION),
+                new MBeanOperationInfo("summary", "Text table of all operations and gauges",
+                        new MBeanParameterInfo[0], "java.lang.String", MBeanOperationInfo.INFO) };
+        return new MBeanInfo(getClass().getName(), "Call metrics of " + serverName,
+                attributes.toArray(new MBeanAttributeInfo[0]), null, ops, null);
+    }
+}
@@ -0,0 +1,465 @@
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.rmi.server.RMIClientSocketFactory;
+import java.rmi.server.RMIServerSocketFactory;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.Properties;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * RMI socket factory with tuned TCP options and optional deflate compression.
+ * <p>
+ * One instance serves as both the client and the server factory of an exported object. The
+ * client factory travels inside the stub, so a caller connects with exactly the options the
+ * server was exported with and both ends always agree on compression.
+ * </p>
+ * <p>
+ * With compression on, each side buffers what RMI writes until RMI flushes (the end of a call or
+ * a reply) and sends it as one frame. A frame is deflated only if it is at least
+ * {@code compressionThreshold} bytes and gets smaller, so a short guess reply goes out as-is and a
+ * puzzle render or scoreboard goes out compressed. Frame layout: a flag byte (0 raw, 1 deflated),
+ * the raw length and, for deflated frames, the compressed length, followed by the payload.
+ * </p>
+ * <p>
+ * The options are read once from "rmi.properties" in the working directory (or the file named by
+ * the system property {@code rmi.config}):
+ * <ul>
+ * <li>{@code socketFactory} - "tuned" (default) or "default" for the plain RMI factories</li>
+ * <li>{@code tcpNoDelay} - disable Nagle's algorithm (true by default)</li>
+ * <li>{@code sendBufferSize}, {@code receiveBufferSize} - socket buffer sizes in bytes (0 keeps
+ *     the OS default)</li>
+ * <li>{@code compression} - deflate large frames (false by default)</li>
+ * <li>{@code compressionThreshold} - smallest frame that is deflated (1024 bytes by default)</li>
+ * <li>{@code compressionLevel} - deflate level 1-9 (1, the fastest, by default)</li>
+ * </ul>
+ * </p>
+ */
+public class TunedSocketFactory implements RMIClientSocketFactory, RMIServerSocketFactory, Serializable {
+    private static final long serialVersionUID = 1L;
+
+    /** Largest frame written at once; also the upper bound accepted from the peer */
+    private static final int MAX_FRAME = 64 * 1024;
+    private static final int RAW = 0, DEFLATED = 1;
+
+    // Bytes written to and read from the network by sockets of this factory (whole JVM)
+    private static final LongAdder BYTES_SENT = new LongAdder();
+    private static final LongAdder BYTES_RECEIVED = new LongAdder();
+
+    private static volatile TunedSocketFactory configured;
+    private static volatile boolean configLoaded;
+
+    private final boolean tcpNoDelay;
+    private final int sendBufferSize;
+    private final int receiveBufferSize;
+    private final boolean compression;
+    private final int compressionThreshold;
+    private final int compressionLevel;
+
+    /**
+     * Creates a factory with explicit options.
+     *
+     * @param tcpNoDelay           disable Nagle's algorithm.
+     * @param sendBufferSize       SO_SNDBUF in bytes, 0 for the OS default.
+     * @param receiveBufferSize    SO_RCVBUF in bytes, 0 for the OS default.
+     * @param compression          deflate frames of at least compressionThreshold bytes.
+     * @param compressionThreshold smallest frame that is deflated.
+     * @param compressionLevel     deflate level, 1 (fastest) to 9 (smallest).
+     */
+    public TunedSocketFactory(boolean tcpNoDelay, int sendBufferSize, int receiveBufferSize,
+                              boolean compression, int compressionThreshold, int compressionLevel) {
+        this.tcpNoDelay = tcpNoDelay;
+        this.sendBufferSize = Math.max(0, sendBufferSize);
+        this.receiveBufferSize = Math.max(0, receiveBufferSize);
+        this.compression = compression;
+        this.compressionThreshold = Math.max(0, compressionThreshold);
+        this.compressionLevel = Math.min(9, Math.max(1, compressionLevel));
+    }
+
+    /**
+     * Returns the factory configured in rmi.properties, for use as both the client and the server
+     * socket factory when exporting a remote object.
+     *
+     * @return the configured factory, or null if the plain RMI factories are configured (RMI
+     *         treats null factories as the defaults).
+     */
+    public static TunedSocketFactory configured() {
+        if (!configLoaded) {
+            synchronized (TunedSocketFactory.class) {
+                if (!configLoaded) {
+                    configured = loadConfig();
+                    configLoaded = true;
+                }
+            }
+        }
+        return configured;
+    }
+
+    private static TunedSocketFactory loadConfig() {
+        Properties config = new Properties();
+        try (FileInputStream fis = new FileInputStream(System.getProperty("rmi.config", "rmi.properties"))) {
+            config.load(fis);
+        } catch (IOException e) {
+            // No configuration file: tuned TCP options, no compression
+        }
+        if ("default".equalsIgnoreCase(config.getProperty("socketFactory", "tuned").trim())) {
+            return null;
+        }
+        return new TunedSocketFactory(
+                Boolean.parseBoolean(config.getProperty("tcpNoDelay", "true").trim()),
+                Integer.parseInt(config.getProperty("sendBufferSize", "0").trim()),
+                Integer.parseInt(config.getProperty("receiveBufferSize", "0").trim()),
+                Boolean.parseBoolean(config.getProperty("compression", "false").trim()),
+                Integer.parseInt(config.getProperty("compressionThreshold", "1024").trim()),
+                Integer.parseInt(config.getProperty("compressionLevel", "1").trim()));
+    }
+
+    /** @return bytes written to the network by sockets of this factory in this JVM. */
+    public static long getBytesSent() {
+        return BYTES_SENT.sum();
+    }
+
+    /** @return bytes read from the network by sockets of this factory in this JVM. */
+    public static long getBytesReceived() {
+        return BYTES_RECEIVED.sum();
+    }
+
+    @Override
+    public Socket createSocket(String host, int port) throws IOException {
+        TunedSocket socket = new TunedSocket();
+        // Buffer sizes must be set before connecting for the TCP window to use them
+        applyBufferSizes(socket);
+        try {
+            socket.connect(new InetSocketAddress(host, port));
+            socket.setTcpNoDelay(tcpNoDelay);
+        } catch (IOException e) {
+            socket.close();
+            throw e;
+        }
+        return socket;
+    }
+
+    @Override
+    public ServerSocket createServerSocket(int port) throws IOException {
+        ServerSocket serverSocket = new ServerSocket() {
+            @Override
+            public Socket accept() throws IOException {
+                TunedSocket socket = new TunedSocket();
+                implAccept(socket);
+                applyBufferSizes(socket);
+                socket.setTcpNoDelay(tcpNoDelay);
+                return socket;
+            }
+        };
+        if (receiveBufferSize > 0) {
+            // Inherited by the accepted sockets; must be set before binding
+            serverSocket.setReceiveBufferSize(receiveBufferSize);
+        }
+        serverSocket.bind(new InetSocketAddress(port));
+        return serverSocket;
+    }
+
+    private void applyBufferSizes(Socket socket) throws SocketException {
+        if (sendBufferSize > 0) {
+            socket.setSendBufferSize(sendBufferSize);
+        }
+        if (receiveBufferSize > 0) {
+            socket.setReceiveBufferSize(receiveBufferSize);
+        }
+    }
+
+    // RMI compares factories to share connections and listening ports between exported objects
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || o.getClass() != getClass()) {
+            return false;
+        }
+        TunedSocketFactory other = (TunedSocketFactory) o;
+        return tcpNoDelay == other.tcpNoDelay && sendBufferSize == other.sendBufferSize
+                && receiveBufferSize == other.receiveBufferSize && compression == other.compression
+                && compressionThreshold == other.compressionThreshold
+                && compressionLevel == other.compressionLevel;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(tcpNoDelay, sendBufferSize, receiveBufferSize, compression,
+                compressionThreshold, compressionLevel);
+    }
+
+    @Override
+    public String toString() {
+        return "TunedSocketFactory[tcpNoDelay=" + tcpNoDelay + ", sendBufferSize=" + sendBufferSize
+                + ", receiveBufferSize=" + receiveBufferSize + ", compression=" + compression
+                + (compression ? ", threshold=" + compressionThreshold + ", level=" + compressionLevel : "") + "]";
+    }
+
+    /** Socket whose streams count the bytes on the wire and, if enabled, compress frames. */
+    private class TunedSocket extends Socket {
+        private InputStream in;
+        private OutputStream out;
+
+        @Override
+        public synchronized InputStream getInputStream() throws IOException {
+            if (in == null) {
+                InputStream counted = new CountingInputStream(super.getInputStream());
+                in = compression ? new InflatingInputStream(counted) : counted;
+            }
+            return in;
+        }
+
+        @Override
+        public synchronized OutputStream getOutputStream() throws IOException {
+            if (out == null) {
+                OutputStream counted = new CountingOutputStream(super.getOutputStream());
+                out = compression ? new DeflatingOutputStream(counted, compressionThreshold, compressionLevel) : counted;
+            }
+            return out;
+        }
+    }
+
+    private static class CountingInputStream extends FilterInputStream {
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = in.read();
+            if (b >= 0) {
+                BYTES_RECEIVED.increment();
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = in.read(b, off, len);
+            if (n > 0) {
+                BYTES_RECEIVED.add(n);
+            }
+            return n;
+        }
+    }
+
+    private static class CountingOutputStream extends FilterOutputStream {
+        CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            BYTES_SENT.increment();
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            BYTES_SENT.add(len);
+        }
+    }
+
+    /** Buffers writes until flush (or MAX_FRAME bytes) and sends them as one frame. */
+    private static class DeflatingOutputStream extends OutputStream {
+        private final DataOutputStream out;
+        private final int threshold;
+        private final Deflater deflater;
+        private final byte[] buffer = new byte[MAX_FRAME];
+        private byte[] compressed = new byte[1024];
+        private int count;
+
+        DeflatingOutputStream(OutputStream out, int threshold, int level) {
+            this.out = new DataOutputStream(out);
+            this.threshold = threshold;
+            this.deflater = new Deflater(level);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            if (count == buffer.length) {
+                writeFrame();
+            }
+            buffer[count++] = (byte) b;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            while (len > 0) {
+                if (count == buffer.length) {
+                    writeFrame();
+                }
+                int n = Math.min(len, buffer.length - count);
+                System.arraycopy(b, off, buffer, count, n);
+                count += n;
+                off += n;
+                len -= n;
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            writeFrame();
+            out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                flush();
+            } finally {
+                deflater.end();
+                out.close();
+            }
+        }
+
+        private void writeFrame() throws IOException {
+            if (count == 0) {
+                return;
+            }
+            int length = count >= threshold ? deflate() : -1;
+            if (length > 0 && length < count) {
+                out.writeByte(DEFLATED);
+                out.writeInt(count);
+                out.writeInt(length);
+                out.write(compressed, 0, length);
+            } else {
+                out.writeByte(RAW);
+                out.writeInt(count);
+                out.write(buffer, 0, count);
+            }
+            count = 0;
+        }
+
+        /** @return the deflated length of the buffered bytes, held in {@code compressed}. */
+        private int deflate() {
+            deflater.reset();
+            deflater.setInput(buffer, 0, count);
+            deflater.finish();
+            int length = 0;
+            while (!deflater.finished()) {
+                if (length == compressed.length) {
+                    if (length >= count) {
+                        // Incompressible: send the frame raw
+                        return -1;
+                    }
+                    compressed = Arrays.copyOf(compressed, compressed.length * 2);
+                }
+                length += deflater.deflate(compressed, length, compressed.length - length);
+            }
+            return length;
+        }
+    }
+
+    /** Reads the frames written by DeflatingOutputStream. */
+    private static class InflatingInputStream extends InputStream {
+        private final DataInputStream in;
+        private final Inflater inflater = new Inflater();
+        private final byte[] buffer = new byte[MAX_FRAME];
+        private byte[] compressed = new byte[1024];
+        private int position;
+        private int limit;
+
+        InflatingInputStream(InputStream in) {
+            this.in = new DataInputStream(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (position == limit && !readFrame()) {
+                return -1;
+            }
+            return buffer[position++] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            if (position == limit && !readFrame()) {
+                return -1;
+            }
+            int n = Math.min(len, limit - position);
+            System.arraycopy(buffer, position, b, off, n);
+            position += n;
+            return n;
+        }
+
+        @Override
+        public int available() {
+            return limit - position;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                in.close();
+            } finally {
+                inflater.end();
+            }
+        }
+
+        /** @return false at the end of the stream. */
+        private boolean readFrame() throws IOException {
+            int flag = in.read();
+            if (flag < 0) {
+                return false;
+            }
+            int rawLength = in.readInt();
+            if (rawLength <= 0 || rawLength > MAX_FRAME || (flag != RAW && flag != DEFLATED)) {
+                throw new IOException("Corrupt frame (flag=" + flag + ", length=" + rawLength + ")");
+            }
+            if (flag == RAW) {
+                in.readFully(buffer, 0, rawLength);
+            } else {
+                int length = in.readInt();
+                if (length <= 0 || length > 2 * MAX_FRAME) {
+                    throw new IOException("Corrupt frame (compressed length=" + length + ")");
+                }
+                if (compressed.length < length) {
+                    compressed = new byte[Math.max(length, compressed.length * 2)];
+                }
+                in.readFully(compressed, 0, length);
+                inflater.reset();
+                inflater.setInput(compressed, 0, length);
+                try {
+                    int n = 0;
+                    while (n < rawLength && !inflater.finished()) {
+                        int inflated = inflater.inflate(buffer, n, rawLength - n);
+                        if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                            throw new EOFException("Truncated deflated frame");
+                        }
+                        n += inflated;
+                    }
+                    if (n != rawLength) {
+                        throw new IOException("Deflated frame has " + n + " bytes, expected " + rawLength);
+                    }
+                } catch (DataFormatException e) {
+                    throw new IOException("Corrupt deflated frame", e);
+                }
+            }
+            position = 0;
+            limit = rawLength;
+            return true;
+        }
+    }
+}
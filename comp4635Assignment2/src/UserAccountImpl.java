@@ -17,9 +17,11 @@ import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
+@SuppressWarnings("serial")
 public class UserAccountImpl extends UnicastRemoteObject implements UserAccountServer {
 
     private static final String ACCOUNTS_FILE = "accounts.txt";
+    private static final Log.Logger LOG = Log.get("UserAccount");
 
     // In-memory maps for accounts and scores.
     // Accounts map now stores username -> hashedPassword
@@ -27,10 +29,14 @@ public class UserAccountImpl extends UnicastRemoteObject implements UserAccountS
     private Map<String, Integer> scores = new ConcurrentHashMap<>();
     private Map<String, Integer> multiplayerScore = new ConcurrentHashMap<>();
 
+    // Call metrics, exposed over JMX.
+    private final ServerMetrics metrics = ServerMetrics.register("UserAccountServer");
+
     // Load accounts from file upon instantiation.
     protected UserAccountImpl() throws RemoteException {
-        super();
+        super(0, TunedSocketFactory.configured(), TunedSocketFactory.configured());
         loadAccountsFromFile();
+        metrics.gauge("accounts", () -> accounts.size());
     }
 
     /**
@@ -57,73 +63,80 @@ public class UserAccountImpl extends UnicastRemoteObject implements UserAccountS
 
     @Override
     public synchronized boolean createAccount(String username, String password) throws RemoteException {
-        if (accounts.containsKey(username)) {
-            return false; // Account already exists.
-        }
-        // Store the hashed password
-        String hashed = hashPassword(password);
-        accounts.put(username, hashed);
-        // Initialize score for a new account to zero.
-        scores.put(username, 0);
-        System.out.println("Created account for " + username);
-        saveAccountsToFile();
-        return true;
+        return metrics.timed("createAccount", () -> {
+            if (accounts.containsKey(username)) {
+                return false; // Account already exists.
+            }
+            // Store the hashed password
+            String hashed = hashPassword(password);
+            accounts.put(username, hashed);
+            // Initialize score for a new account to zero.
+            scores.put(username, 0);
+            LOG.info("Created account for {}", username);
+            saveAccountsToFile();
+            return true;
+        });
     }
 
     @Override
     public synchronized boolean loginAccount(String username, String password) throws RemoteException {
-        // Hash the provided password and compare it with the stored hash.
-        String hashed = hashPassword(password);
-        if (accounts.containsKey(username) && accounts.get(username).equals(hashed)) {
-            System.out.println("User " + username + " logged in successfully.");
-            return true;
-        }
-        return false;
+        return metrics.timed("loginAccount", () -> {
+            // Hash the provided password and compare it with the stored hash.
+            String hashed = hashPassword(password);
+            if (accounts.containsKey(username) && accounts.get(username).equals(hashed)) {
+                LOG.info("User {} logged in successfully.", username);
+                return true;
+            }
+            return false;
+        });
     }
 
     @Override
     public void updateScore(String username, int score, boolean multiplayerMode) throws RemoteException {
-        int newScore;
-        if (!multiplayerMode) {
-            newScore = scores.getOrDefault(username, 0) + score;
-            scores.put(username, newScore);
-        } else {
-            newScore = multiplayerScore.getOrDefault(username, 0) + score;
-            multiplayerScore.put(username, newScore);
-        }
-        System.out.println("Updated score for " + username + " by " + score
-                + ". New score: " + newScore);
-        saveAccountsToFile();
+        metrics.timed("updateScore", () -> {
+            int newScore;
+            if (!multiplayerMode) {
+                newScore = scores.getOrDefault(username, 0) + score;
+                scores.put(username, newScore);
+            } else {
+                newScore = multiplayerScore.getOrDefault(username, 0) + score;
+                multiplayerScore.put(username, newScore);
+            }
+            LOG.info("Updated score for {} by {}. New score: {}", username, score, newScore);
+            saveAccountsToFile();
+        });
     }
 
     // Get the score for a given user.
     @Override
     public synchronized int getScore(String username) throws RemoteException {
-        return scores.getOrDefault(username, 0);
+        return metrics.timed("getScore", () -> scores.getOrDefault(username, 0));
     }
 
     // New method: get the scoreboard for all users.
     @Override
     public synchronized Map<String, Integer> getScoreboard(boolean multimode) throws RemoteException {
-        // Create a list from the entries in the scores map.
-        List<Map.Entry<String, Integer>> list;
-
-        if (!multimode) {
-            list = new ArrayList<>(scores.entrySet());
-        } else {
-            list = new ArrayList<>(multiplayerScore.entrySet());
-        }
+        return metrics.timed("getScoreboard", () -> {
+            // Create a list from the entries in the scores map.
+            List<Map.Entry<String, Integer>> list;
+
+            if (!multimode) {
+                list = new ArrayList<>(scores.entrySet());
+            } else {
+                list = new ArrayList<>(multiplayerScore.entrySet());
+            }
 
-        // Sort the list in descending order by score.
-        Collections.sort(list, (e1, e2) -> e2.getValue().compareTo(e1.getValue()));
+            // Sort the list in descending order by score.
+            Collections.sort(list, (e1, e2) -> e2.getValue().compareTo(e1.getValue()));
 
-        // Create a LinkedHashMap to preserve the sorted order.
-        Map<String, Integer> sortedMap = new LinkedHashMap<>();
-        for (Map.Entry<String, Integer> entry : list) {
-            sortedMap.put(entry.getKey(), entry.getValue());
-        }
+            // Create a LinkedHashMap to preserve the sorted order.
+            Map<String, Integer> sortedMap = new LinkedHashMap<>();
+            for (Map.Entry<String, Integer> entry : list) {
+                sortedMap.put(entry.getKey(), entry.getValue());
+            }
 
-        return Collections.unmodifiableMap(sortedMap);
+            return Collections.unmodifiableMap(sortedMap);
+        });
     }
 
     // Helper method: load accounts from file into the in-memory maps.
@@ -153,9 +166,9 @@ public class UserAccountImpl extends UnicastRemoteObject implements UserAccountS
                     scores.put(username, score);
                 }
             }
-            System.out.println("Loaded " + accounts.size() + " account(s) from file.");
+            LOG.info("Loaded {} account(s) from file.", accounts.size());
         } catch (IOException e) {
-            System.err.println("Error reading " + ACCOUNTS_FILE + ": " + e.getMessage());
+            LOG.warn("Error reading {}: {}", ACCOUNTS_FILE, e.getMessage());
         }
     }
 
@@ -170,7 +183,7 @@ public class UserAccountImpl extends UnicastRemoteObject implements UserAccountS
                 bw.newLine();
             }
         } catch (IOException e) {
-            System.err.println("Error writing to " + ACCOUNTS_FILE + ": " + e.getMessage());
+            LOG.warn("Error writing to {}: {}", ACCOUNTS_FILE, e.getMessage());
         }
     }
 
@@ -191,4 +204,4 @@ public class UserAccountImpl extends UnicastRemoteObject implements UserAccountS
             e.printStackTrace();
         }
     }
-}
\ No newline at end of file
+}
\ No newline at end of file
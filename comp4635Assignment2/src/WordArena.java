@@ -0,0 +1,466 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Packed, immutable dictionary used to generate puzzles.
+ * <p>
+ * All words are stored lower-case in one byte[] arena with an int[] of offsets; a word is
+ * referred to by its ID, its index in the arena. IDs are stable for the lifetime of an arena,
+ * and an arena never changes: a dictionary change produces a new arena, while a puzzle or session
+ * keeps the arena its IDs came from. Puzzle grids are ASCII, so words with other characters are
+ * left out and every byte is one character.
+ * </p>
+ * <p>
+ * The indexes are int arrays of IDs: the IDs ordered by length (so "at least n letters" is a
+ * range), per character the IDs that contain it, contain it exactly once and start with it, and
+ * per position and character the IDs that have the character at that position. Candidate sets are
+ * therefore slices of primitive arrays instead of lists of Strings. The index arrays are shared;
+ * callers must not modify them.
+ * </p>
+ * <p>
+ * The per-position and exactly-once indexes are also available as bitsets over the IDs, built
+ * from the ID lists the first time a query needs them and then kept with the arena, so that
+ * {@link WordQuery} can combine constraints by AND-ing 64 words at a time.
+ * </p>
+ * <p>
+ * {@link #load(String)} memory-maps the word file and finds the lines in the mapped bytes; each
+ * word is copied once into the arena and indexed as it is copied, so loading allocates no String
+ * per word and reads the file in a single pass. The word repository's snapshots are loaded the
+ * same way, decoding the lines they keep from the same mapped bytes.
+ * </p>
+ */
+public final class WordArena {
+    private static final int[] NONE = new int[0];
+    private static final int ASCII = 128;
+    // A file stays mapped until the mapping is garbage collected, and Windows cannot truncate a
+    // mapped file: there the word file is read into the heap instead, so removeWord can rewrite it
+    private static final boolean MAP_FILES = !System.getProperty("os.name", "").startsWith("Windows");
+
+    private final byte[] bytes;
+    private final int[] offsets;
+    private final int size;
+
+    private final int[] idsByLength;
+    // lengthStart[n] is the first index in idsByLength of a word with at least n letters
+    private final int[] lengthStart;
+    private final int[][] withChar;
+    private final int[][] withCharOnce;
+    private final int[][] startingWith;
+    // atPosition[position * 128 + c]: the words with character c at that position
+    private final int[][] atPosition;
+    // Bitsets of the lists above, built on first use
+    private final AtomicReferenceArray<long[]> withCharOnceBits;
+    private final AtomicReferenceArray<long[]> atPositionBits;
+    private volatile CrossingIndex crossing;
+
+    private WordArena(Builder b) {
+        this.bytes = Arrays.copyOf(b.bytes, b.end);
+        this.offsets = Arrays.copyOf(b.offsets, b.size + 1);
+        this.size = b.size;
+
+        // The builder counted the entries of every index; allocate them at their exact sizes and
+        // fill them in one sweep over the arena
+        int maxLength = b.byLength.keys - 1;
+        this.lengthStart = new int[maxLength + 2];
+        for (int n = 0; n <= maxLength; n++) {
+            lengthStart[n + 1] = lengthStart[n] + b.byLength.counts[n];
+        }
+        int[] nextOfLength = Arrays.copyOf(lengthStart, lengthStart.length);
+        this.idsByLength = new int[size];
+        this.withChar = b.withChar.allocate();
+        this.withCharOnce = b.withCharOnce.allocate();
+        this.startingWith = b.startingWith.allocate();
+        this.atPosition = b.atPosition.allocate();
+        this.withCharOnceBits = new AtomicReferenceArray<>(withCharOnce.length);
+        this.atPositionBits = new AtomicReferenceArray<>(atPosition.length);
+        for (int id = 0; id < size; id++) {
+            idsByLength[nextOfLength[length(id)]++] = id;
+            b.index(offsets[id], offsets[id + 1], id, true);
+        }
+    }
+
+    /**
+     * Loads a word file (one word per line) into an arena. Lines are trimmed and lower-cased;
+     * empty lines and words with non-ASCII characters are skipped.
+     *
+     * @param path the word file.
+     * @return the arena.
+     * @throws IOException if the file cannot be read.
+     */
+    public static WordArena load(String path) throws IOException {
+        return load(path, null);
+    }
+
+    /**
+     * Loads a word file into an arena like {@link #load(String)}, and also collects its lines
+     * (UTF-8, without the line terminator) from the same mapped bytes, e.g. for a
+     * {@link WordDictionary} snapshot.
+     *
+     * @param path  the word file.
+     * @param lines receives every line of the file, in file order; may be null.
+     * @return the arena.
+     * @throws IOException if the file cannot be read.
+     */
+    static WordArena load(String path, List<String> lines) throws IOException {
+        try (FileChannel channel = FileChannel.open(Path.of(path), StandardOpenOption.READ)) {
+            long length = channel.size();
+            if (length > Integer.MAX_VALUE) {
+                throw new IOException(path + " is too large to load (" + length + " bytes).");
+            }
+            Builder builder = new Builder((int) length);
+            if (length == 0) {
+                return builder.build();
+            }
+            ByteBuffer buffer;
+            if (MAP_FILES) {
+                buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+            } else {
+                buffer = ByteBuffer.allocate((int) length);
+                while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+                    // read until the buffer is full or the file ends
+                }
+            }
+            int end = buffer.limit();
+            int lineStart = 0;
+            byte[] line = lines == null ? null : new byte[256];
+            for (int i = 0; i <= end; i++) {
+                if (i == end ? lineStart < end : buffer.get(i) == '\n') {
+                    builder.add(buffer, lineStart, i);
+                    if (lines != null) {
+                        // Like BufferedReader.readLine: "\r\n" ends a line too
+                        int lineEnd = i > lineStart && buffer.get(i - 1) == '\r' ? i - 1 : i;
+                        if (lineEnd - lineStart > line.length) {
+                            line = new byte[Math.max(lineEnd - lineStart, line.length * 2)];
+                        }
+                        buffer.get(lineStart, line, 0, lineEnd - lineStart);
+                        lines.add(new String(line, 0, lineEnd - lineStart, StandardCharsets.UTF_8));
+                    }
+                    lineStart = i + 1;
+                }
+            }
+            return builder.build();
+        }
+    }
+
+    /** @return an arena without words. */
+    public static WordArena empty() {
+        return new Builder(0).build();
+    }
+
+    /** Collects words into an arena, counting the index entries of each word as it is added. */
+    public static final class Builder {
+        private byte[] bytes;
+        private int[] offsets;
+        private int size;
+        private int end;
+        private final int[] occurrences = new int[ASCII];
+
+        private final Postings byLength = new Postings(32);
+        private final Postings withChar = new Postings(ASCII);
+        private final Postings withCharOnce = new Postings(ASCII);
+        private final Postings startingWith = new Postings(ASCII);
+        private final Postings atPosition = new Postings(16 * ASCII);
+
+        public Builder() {
+            this(1 << 16);
+        }
+
+        /**
+         * @param expectedBytes the expected total size of the words, e.g. the size of the word file.
+         */
+        public Builder(int expectedBytes) {
+            this.bytes = new byte[Math.max(16, expectedBytes)];
+            this.offsets = new int[Math.max(16, expectedBytes / 6)];
+        }
+
+        /**
+         * Adds a word, trimmed and lower-cased; empty and non-ASCII words are skipped.
+         *
+         * @return this builder.
+         */
+        public Builder add(String word) {
+            String w = word.trim().toLowerCase(Locale.ROOT);
+            for (int i = 0; i < w.length(); i++) {
+                if (w.charAt(i) >= ASCII) {
+                    return this;
+                }
+            }
+            if (w.isEmpty()) {
+                return this;
+            }
+            ensureCapacity(w.length());
+            int start = end;
+            for (int i = 0; i < w.length(); i++) {
+                bytes[end++] = (byte) w.charAt(i);
+            }
+            endWord(start);
+            return this;
+        }
+
+        /**
+         * Adds the word in buffer[from, to) (a line of a word file), trimmed and lower-cased;
+         * empty and non-ASCII words are skipped.
+         */
+        void add(ByteBuffer buffer, int from, int to) {
+            // Copy the line straight into the arena and trim, check and lower-case it there
+            ensureCapacity(to - from);
+            buffer.get(from, bytes, end, to - from);
+            int start = end;
+            int stop = end + (to - from);
+            // Same trimming as String.trim(): every byte up to the space
+            while (start < stop && (bytes[start] & 0xff) <= ' ') {
+                start++;
+            }
+            while (stop > start && (bytes[stop - 1] & 0xff) <= ' ') {
+                stop--;
+            }
+            if (start == stop) {
+                return;
+            }
+            int length = stop - start;
+            for (int i = 0; i < length; i++) {
+                byte b = bytes[start + i];
+                if (b < 0) {
+                    return;
+                }
+                bytes[end + i] = b >= 'A' && b <= 'Z' ? (byte) (b + ('a' - 'A')) : b;
+            }
+            start = end;
+            end += length;
+            endWord(start);
+        }
+
+        public WordArena build() {
+            return new WordArena(this);
+        }
+
+        private void ensureCapacity(int length) {
+            if (end + length > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, end + length));
+            }
+            if (size + 2 > offsets.length) {
+                offsets = Arrays.copyOf(offsets, offsets.length * 2);
+            }
+        }
+
+        // Ends the word stored at bytes[start, end) and counts its entries in the indexes
+        private void endWord(int start) {
+            offsets[++size] = end;
+            byLength.count(end - start);
+            index(start, end, size - 1, false);
+        }
+
+        // Counts (fill == false) or records the index entries of the word in bytes[from, to)
+        private void index(int from, int to, int id, boolean fill) {
+            startingWith.record(bytes[from], id, fill);
+            for (int i = from; i < to; i++) {
+                atPosition.record((i - from) * ASCII + bytes[i], id, fill);
+                occurrences[bytes[i]]++;
+            }
+            for (int i = from; i < to; i++) {
+                int c = bytes[i];
+                if (occurrences[c] == 0) {
+                    continue; // already recorded for this word
+                }
+                withChar.record(c, id, fill);
+                if (occurrences[c] == 1) {
+                    withCharOnce.record(c, id, fill);
+                }
+                occurrences[c] = 0;
+            }
+        }
+    }
+
+    /**
+     * Posting lists of IDs by key: the entries are counted while the words are added, then the
+     * lists are allocated at their exact sizes and filled in ascending ID order.
+     */
+    private static final class Postings {
+        int[] counts;
+        int keys;
+        int[][] lists;
+        int[] filled;
+
+        Postings(int initialKeys) {
+            counts = new int[initialKeys];
+        }
+
+        void record(int key, int id, boolean fill) {
+            if (fill) {
+                lists[key][filled[key]++] = id;
+                return;
+            }
+            if (key >= counts.length) {
+                counts = Arrays.copyOf(counts, Math.max(key + 1, counts.length * 2));
+            }
+            counts[key]++;
+            if (key >= keys) {
+                keys = key + 1;
+            }
+        }
+
+        void count(int key) {
+            record(key, 0, false);
+        }
+
+        int[][] allocate() {
+            lists = new int[keys][];
+            filled = new int[keys];
+            for (int key = 0; key < keys; key++) {
+                lists[key] = counts[key] == 0 ? NONE : new int[counts[key]];
+            }
+            return lists;
+        }
+    }
+
+    /** @return the number of words; IDs are 0 to size() - 1. */
+    public int size() {
+        return size;
+    }
+
+    public int length(int id) {
+        return offsets[id + 1] - offsets[id];
+    }
+
+    public char charAt(int id, int index) {
+        return (char) bytes[offsets[id] + index];
+    }
+
+    /** @return the word as a String (allocates; meant for the edges of the game: replies, logs). */
+    public String word(int id) {
+        return new String(bytes, offsets[id], length(id), StandardCharsets.US_ASCII);
+    }
+
+    /** @return the first index of a character in a word, or -1. */
+    public int indexOf(int id, char c) {
+        int from = offsets[id];
+        int to = offsets[id + 1];
+        for (int i = from; i < to; i++) {
+            if (bytes[i] == c) {
+                return i - from;
+            }
+        }
+        return -1;
+    }
+
+    /** @return true if the word equals the given lower-case text. */
+    public boolean matches(int id, String lowerCase) {
+        int from = offsets[id];
+        if (lowerCase.length() != length(id)) {
+            return false;
+        }
+        for (int i = 0; i < lowerCase.length(); i++) {
+            if (bytes[from + i] != lowerCase.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** @return the IDs ordered by length; those from {@link #firstWithLength(int)} on have at least that length. */
+    public int[] idsByLength() {
+        return idsByLength;
+    }
+
+    /** @return the index in {@link #idsByLength()} of the first word with at least minLength letters. */
+    public int firstWithLength(int minLength) {
+        if (minLength <= 0) {
+            return 0;
+        }
+        return minLength < lengthStart.length ? lengthStart[minLength] : size;
+    }
+
+    /** @return the IDs of the words containing c, ascending. */
+    public int[] idsWith(char c) {
+        return list(withChar, c);
+    }
+
+    /** @return the IDs of the words containing c exactly once, ascending. */
+    public int[] idsWithOnce(char c) {
+        return list(withCharOnce, c);
+    }
+
+    /** @return the IDs of the words starting with c, ascending. */
+    public int[] idsStartingWith(char c) {
+        return list(startingWith, c);
+    }
+
+    /** @return the IDs of the words with c at the given position, ascending. */
+    public int[] idsWithAt(int position, char c) {
+        return c < ASCII ? list(atPosition, position * ASCII + c) : NONE;
+    }
+
+    /** @return the index of the words by a letter they contain once and its position, built on first use. */
+    public CrossingIndex crossing() {
+        CrossingIndex index = crossing;
+        if (index == null) {
+            synchronized (this) {
+                index = crossing;
+                if (index == null) {
+                    index = crossing = new CrossingIndex(this);
+                }
+            }
+        }
+        return index;
+    }
+
+    /** @return the bitset of the words containing c exactly once, or null if there is none. */
+    public long[] bitsWithOnce(char c) {
+        return bits(withCharOnce, withCharOnceBits, c);
+    }
+
+    /** @return the bitset of the words with c at the given position, or null if there is none. */
+    public long[] bitsWithAt(int position, char c) {
+        return c < ASCII ? bits(atPosition, atPositionBits, position * ASCII + c) : null;
+    }
+
+    private long[] bits(int[][] lists, AtomicReferenceArray<long[]> cache, int key) {
+        int[] ids = list(lists, key);
+        if (ids.length == 0) {
+            return null;
+        }
+        long[] bits = cache.get(key);
+        if (bits == null) {
+            bits = new long[(size + 63) >>> 6];
+            for (int id : ids) {
+                bits[id >>> 6] |= 1L << id;
+            }
+            // Threads racing here build identical bitsets; keep the first
+            if (!cache.compareAndSet(key, null, bits)) {
+                bits = cache.get(key);
+            }
+        }
+        return bits;
+    }
+
+    private static int[] list(int[][] lists, int key) {
+        return key >= 0 && key < lists.length ? lists[key] : NONE;
+    }
+
+    /**
+     * @return a random word with at least minLength letters, or -1 if there is none.
+     */
+    public int randomWithMinLength(int minLength, Random random) {
+        int from = firstWithLength(minLength);
+        return from >= size ? -1 : idsByLength[from + random.nextInt(size - from)];
+    }
+
+    /** @return a random ID of a candidate list, or -1 if it is empty. */
+    public static int random(int[] ids, int count, Random random) {
+        return count == 0 ? -1 : ids[random.nextInt(count)];
+    }
+
+    /** @return the size of the arena in bytes (word bytes and offsets, without the indexes). */
+    public long getArenaBytes() {
+        return bytes.length + 4L * offsets.length;
+    }
+}
@@ -0,0 +1,122 @@
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bloom filter over a dictionary, compared ignoring case like the repository's exact lookup.
+ * <p>
+ * {@link #mightContain(String)} never answers false for a word that was added, so a false
+ * answer lets a lookup return "absent" without consulting the dictionary; a true answer may be
+ * wrong with about the configured false-positive rate. Words are folded per code point the way
+ * {@link String#equalsIgnoreCase(String)} compares them, so two words that are equal ignoring
+ * case always hash alike. The bits are an AtomicLongArray: words can be added while other
+ * threads query the filter, and a word is visible to every query that starts after its add.
+ * Bloom filters cannot remove words: a removed word stays a false positive until the owner
+ * builds a new filter.
+ * </p>
+ */
+public class WordBloomFilter {
+    private final AtomicLongArray bits;
+    private final long bitCount;
+    private final int hashCount;
+    private final long capacity;
+    private final LongAdder added = new LongAdder();
+
+    /**
+     * Creates a filter sized for a number of words and a false-positive rate, within a memory budget.
+     *
+     * @param expectedWords     the number of words the filter is sized for.
+     * @param falsePositiveRate the false-positive rate at that number of words, e.g. 0.01.
+     * @param maxBytes          the most memory the bits may take; a smaller filter has a higher
+     *                          false-positive rate than requested.
+     */
+    public WordBloomFilter(long expectedWords, double falsePositiveRate, long maxBytes) {
+        long n = Math.max(1, expectedWords);
+        double p = Math.min(0.5, Math.max(1e-9, falsePositiveRate));
+        long wanted = (long) Math.ceil(-n * Math.log(p) / (Math.log(2) * Math.log(2)));
+        // Indexes are computed from 32-bit hashes, so at most 2^32 bits (512 MB)
+        long maxBits = Math.max(64, Math.min(maxBytes * 8, 1L << 32));
+        long words = (Math.min(Math.max(64, wanted), maxBits) + 63) / 64;
+        this.bits = new AtomicLongArray((int) words);
+        this.bitCount = words * 64;
+        this.hashCount = (int) Math.max(1, Math.min(16, Math.round((double) bitCount / n * Math.log(2))));
+        this.capacity = n;
+    }
+
+    /** Adds a word. */
+    public void add(String word) {
+        added.increment();
+        long hash = hash(word);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 1; i <= hashCount; i++) {
+            long bit = index(h1 + i * h2);
+            int slot = (int) (bit >>> 6);
+            long mask = 1L << bit;
+            long current = bits.get(slot);
+            while ((current & mask) == 0 && !bits.compareAndSet(slot, current, current | mask)) {
+                current = bits.get(slot);
+            }
+        }
+    }
+
+    /**
+     * @param word the word.
+     * @return false if the word was certainly never added; true if it may have been.
+     */
+    public boolean mightContain(String word) {
+        long hash = hash(word);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 1; i <= hashCount; i++) {
+            long bit = index(h1 + i * h2);
+            if ((bits.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** @return the number of words the filter was sized for. */
+    public long getCapacity() {
+        return capacity;
+    }
+
+    /** @return the number of adds so far (words added more than once count every time). */
+    public long getAddedCount() {
+        return added.sum();
+    }
+
+    public long getBitCount() {
+        return bitCount;
+    }
+
+    public int getHashCount() {
+        return hashCount;
+    }
+
+    /** @return the expected false-positive rate once {@code words} words have been added. */
+    public double expectedFalsePositiveRate(long words) {
+        return Math.pow(1 - Math.exp(-(double) hashCount * words / bitCount), hashCount);
+    }
+
+    // Kirsch-Mitzenmacher double hashing: the k indexes are h1 + i * h2 over one 64-bit hash
+    private long index(int combined) {
+        return ((combined & 0xffffffffL) * bitCount) >>> 32;
+    }
+
+    // FNV-1a over the case-folded code points, finished with a 64-bit mix
+    private static long hash(String word) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < word.length(); ) {
+            int cp = word.codePointAt(i);
+            i += Character.charCount(cp);
+            h = (h ^ Character.toLowerCase(Character.toUpperCase(cp))) * 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,28 @@
+import java.rmi.Remote;
+import java.rmi.RemoteException;
+import java.util.List;
+
+/**
+ * Callback through which the WordRepositoryServer announces dictionary changes to subscribers
+ * (e.g. the near-cache of the game server).
+ */
+public interface WordChangeListener extends Remote {
+    /**
+     * Called after a word was added to or removed from the repository, before the call that
+     * changed it returns.
+     *
+     * @param word    the word as given to createWord/removeWord.
+     * @param version the repository version after the change.
+     */
+    void wordChanged(String word, long version) throws RemoteException;
+
+    /**
+     * Called instead of {@link #wordChanged} when one commit changed several words (a batch
+     * change or a reload of the word file), before the call that changed them returns.
+     *
+     * @param words   the changed words, in the order they changed; the first changed at version
+     *                {@code version - words.size() + 1}.
+     * @param version the repository version after the last change.
+     */
+    void wordsChanged(List<String> words, long version) throws RemoteException;
+}
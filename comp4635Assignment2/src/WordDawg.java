@@ -0,0 +1,297 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Directed acyclic word graph (minimal acyclic automaton) of a dictionary's keys, for prefix
+ * queries.
+ * <p>
+ * Words that share a prefix share the path of the prefix, and words that share a suffix share
+ * the nodes of the suffix, so the graph usually has far fewer edges than the dictionary has
+ * characters. It is built from the sorted keys in one pass with Daciuk's incremental
+ * minimization (each finished branch is replaced by an equivalent registered node) and then
+ * flattened into arrays: per node the range of its edges, per edge its label and target, sorted
+ * by label. Every node also records the number of words below it, so counting the words with a
+ * prefix is a walk of the prefix. A graph never changes; a new dictionary builds a new one.
+ * </p>
+ */
+public final class WordDawg {
+    // Node n has the edges edgeStart[n] to edgeStart[n + 1] - 1; node 0 is the root
+    private final int[] edgeStart;
+    private final char[] edgeLabel;
+    private final int[] edgeTarget;
+    private final boolean[] terminal;
+    // The number of words accepted from each node
+    private final int[] wordCount;
+
+    private WordDawg(int[] edgeStart, char[] edgeLabel, int[] edgeTarget, boolean[] terminal, int[] wordCount) {
+        this.edgeStart = edgeStart;
+        this.edgeLabel = edgeLabel;
+        this.edgeTarget = edgeTarget;
+        this.terminal = terminal;
+        this.wordCount = wordCount;
+    }
+
+    /**
+     * Builds the graph of some words.
+     *
+     * @param words the words, sorted in String order; repeats are ignored.
+     * @return the graph.
+     */
+    public static WordDawg build(String[] words) {
+        Builder builder = new Builder();
+        String previous = null;
+        for (String word : words) {
+            if (previous != null) {
+                int order = word.compareTo(previous);
+                if (order == 0) {
+                    continue;
+                }
+                if (order < 0) {
+                    throw new IllegalArgumentException("Words are not sorted: " + previous + ", " + word);
+                }
+            }
+            builder.add(word);
+            previous = word;
+        }
+        return builder.finish();
+    }
+
+    /** @return the number of words in the graph. */
+    public int size() {
+        return wordCount[0];
+    }
+
+    public int getNodeCount() {
+        return terminal.length;
+    }
+
+    public int getEdgeCount() {
+        return edgeLabel.length;
+    }
+
+    /** @return the approximate size of the arrays in bytes. */
+    public long getBytes() {
+        return 4L * edgeStart.length + 2L * edgeLabel.length + 4L * edgeTarget.length + terminal.length
+                + 4L * wordCount.length;
+    }
+
+    public boolean contains(String word) {
+        int node = walk(word);
+        return node >= 0 && terminal[node];
+    }
+
+    /** @return the number of words starting with the prefix. */
+    public int countWithPrefix(String prefix) {
+        int node = walk(prefix);
+        return node < 0 ? 0 : wordCount[node];
+    }
+
+    /**
+     * @param prefix the prefix.
+     * @param limit  the most words to return.
+     * @return the first words starting with the prefix, in String order.
+     */
+    public List<String> withPrefix(String prefix, int limit) {
+        List<String> words = new ArrayList<>();
+        int node = walk(prefix);
+        if (node >= 0 && limit > 0) {
+            collect(node, new StringBuilder(prefix), limit, words);
+        }
+        return words;
+    }
+
+    private void collect(int node, StringBuilder word, int limit, List<String> words) {
+        if (terminal[node]) {
+            words.add(word.toString());
+        }
+        for (int e = edgeStart[node]; e < edgeStart[node + 1] && words.size() < limit; e++) {
+            word.append(edgeLabel[e]);
+            collect(edgeTarget[e], word, limit, words);
+            word.setLength(word.length() - 1);
+        }
+    }
+
+    // The node reached by a word from the root, or -1
+    private int walk(String word) {
+        int node = 0;
+        for (int i = 0; i < word.length() && node >= 0; i++) {
+            node = next(node, word.charAt(i));
+        }
+        return node;
+    }
+
+    private int next(int node, char c) {
+        int e = Arrays.binarySearch(edgeLabel, edgeStart[node], edgeStart[node + 1], c);
+        return e >= 0 ? edgeTarget[e] : -1;
+    }
+
+    /** Daciuk's construction from sorted words, on linked nodes that are flattened at the end. */
+    private static final class Builder {
+        private final Node root = new Node();
+        private final Map<Node, Node> register = new HashMap<>();
+        private String previous = "";
+
+        void add(String word) {
+            int common = 0;
+            while (common < word.length() && common < previous.length()
+                    && word.charAt(common) == previous.charAt(common)) {
+                common++;
+            }
+            Node node = root;
+            for (int i = 0; i < common; i++) {
+                node = node.lastChild();
+            }
+            if (node.edges > 0) {
+                replaceOrRegister(node);
+            }
+            for (int i = common; i < word.length(); i++) {
+                Node child = new Node();
+                node.addEdge(word.charAt(i), child);
+                node = child;
+            }
+            node.terminal = true;
+            previous = word;
+        }
+
+        WordDawg finish() {
+            if (root.edges > 0) {
+                replaceOrRegister(root);
+            }
+            // Number the nodes parents first, then fill the arrays in that order
+            List<Node> nodes = new ArrayList<>();
+            Map<Node, Integer> ids = new IdentityHashMap<>();
+            number(root, nodes, ids);
+            int edges = 0;
+            for (Node node : nodes) {
+                edges += node.edges;
+            }
+            int[] edgeStart = new int[nodes.size() + 1];
+            char[] edgeLabel = new char[edges];
+            int[] edgeTarget = new int[edges];
+            boolean[] terminal = new boolean[nodes.size()];
+            int[] wordCount = new int[nodes.size()];
+            int e = 0;
+            for (int n = 0; n < nodes.size(); n++) {
+                Node node = nodes.get(n);
+                edgeStart[n] = e;
+                terminal[n] = node.terminal;
+                for (int i = 0; i < node.edges; i++) {
+                    edgeLabel[e] = node.labels[i];
+                    edgeTarget[e] = ids.get(node.targets[i]);
+                    e++;
+                }
+            }
+            edgeStart[nodes.size()] = e;
+            // Children are numbered after their parents: count from the last node back
+            for (int n = nodes.size() - 1; n >= 0; n--) {
+                int count = terminal[n] ? 1 : 0;
+                for (int i = edgeStart[n]; i < edgeStart[n + 1]; i++) {
+                    count += wordCount[edgeTarget[i]];
+                }
+                wordCount[n] = count;
+            }
+            return new WordDawg(edgeStart, edgeLabel, edgeTarget, terminal, wordCount);
+        }
+
+        // Replaces the last child's subtree by an equivalent registered node, bottom up
+        private void replaceOrRegister(Node node) {
+            Node child = node.lastChild();
+            if (child.edges > 0) {
+                replaceOrRegister(child);
+            }
+            Node equivalent = register.putIfAbsent(child, child);
+            if (equivalent != null) {
+                node.targets[node.edges - 1] = equivalent;
+            }
+        }
+
+        // Numbers the nodes so that every node comes before the nodes it points to
+        private static void number(Node root, List<Node> nodes, Map<Node, Integer> ids) {
+            // Reverse post-order of a depth-first search is a topological order of the DAG
+            List<Node> postOrder = new ArrayList<>();
+            Map<Node, Boolean> visited = new IdentityHashMap<>();
+            List<Node> stack = new ArrayList<>();
+            List<Integer> nextEdge = new ArrayList<>();
+            stack.add(root);
+            nextEdge.add(0);
+            visited.put(root, Boolean.TRUE);
+            while (!stack.isEmpty()) {
+                int top = stack.size() - 1;
+                Node node = stack.get(top);
+                int i = nextEdge.get(top);
+                if (i < node.edges) {
+                    nextEdge.set(top, i + 1);
+                    Node child = node.targets[i];
+                    if (visited.put(child, Boolean.TRUE) == null) {
+                        stack.add(child);
+                        nextEdge.add(0);
+                    }
+                } else {
+                    stack.remove(top);
+                    nextEdge.remove(top);
+                    postOrder.add(node);
+                }
+            }
+            for (int n = postOrder.size() - 1; n >= 0; n--) {
+                ids.put(postOrder.get(n), nodes.size());
+                nodes.add(postOrder.get(n));
+            }
+        }
+    }
+
+    /**
+     * A node under construction. Once registered it is never changed, so nodes are equal when
+     * they are both terminal or not and have the same labels leading to the same (registered)
+     * nodes.
+     */
+    private static final class Node {
+        char[] labels = new char[2];
+        Node[] targets = new Node[2];
+        int edges;
+        boolean terminal;
+
+        Node lastChild() {
+            return targets[edges - 1];
+        }
+
+        void addEdge(char label, Node target) {
+            if (edges == labels.length) {
+                labels = Arrays.copyOf(labels, edges * 2);
+                targets = Arrays.copyOf(targets, edges * 2);
+            }
+            labels[edges] = label;
+            targets[edges] = target;
+            edges++;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Node)) {
+                return false;
+            }
+            Node other = (Node) o;
+            if (terminal != other.terminal || edges != other.edges) {
+                return false;
+            }
+            for (int i = 0; i < edges; i++) {
+                if (labels[i] != other.labels[i] || targets[i] != other.targets[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public int hashCode() {
+            int h = terminal ? 1 : 0;
+            for (int i = 0; i < edges; i++) {
+                h = 31 * (31 * h + labels[i]) + System.identityHashCode(targets[i]);
+            }
+            return h;
+        }
+    }
+}
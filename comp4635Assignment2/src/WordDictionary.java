@@ -0,0 +1,711 @@
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Immutable, versioned snapshot of the word repository's dictionary.
+ * <p>
+ * The repository publishes the current snapshot through an atomic reference; readers take it
+ * once and answer from it without locks or file access, while writers build the next snapshot
+ * from a batch of changes (see {@link #edit()}) and publish it in one step. A snapshot is a base,
+ * which holds the lines of the word file (in file order, as written) and their case-folded
+ * words for exact lookups, plus the changes since the base: the lines appended and the words
+ * removed. The next snapshot shares the base and copies only the changes, so a write costs the
+ * size of the changes rather than of the dictionary. The repository folds the changes into a new
+ * base in the background (see {@link #compact()}) and publishes it through {@link #rebase(WordDictionary)}.
+ * </p>
+ * <p>
+ * The words ordered by length for random picks and the packed {@link WordArena} used to generate
+ * puzzles are derived from a base, built the first time they are needed and shared by the
+ * snapshots over it. Random picks correct them with the changes; puzzles and pattern queries use
+ * the arena as it is, i.e. the words of the base (see {@link #getArenaVersion()}), until the next
+ * compaction. A compaction builds those indexes for the new base if the old one had them, so
+ * readers never wait for one after a change. A dictionary nobody has picked a word from or
+ * generated a puzzle with (e.g. during a bulk import) costs no more than its lines and keys.
+ * </p>
+ * <p>
+ * The word graph takes seconds to build for a large dictionary, so it is not built by the
+ * writer. Until a snapshot's own graph is built (by {@link #dawg()}, which the repository calls
+ * in the background), its prefix queries use the graph of an earlier snapshot and correct it
+ * with the keys added and removed since.
+ * </p>
+ * <p>
+ * A snapshot's Bloom filter may be shared with the snapshots after it and receive their added
+ * words; that only adds false positives to the older snapshot, never false negatives.
+ * </p>
+ */
+public final class WordDictionary {
+    private final long version;
+    private final Base base;
+    // The changes since the base, or null if there are none
+    private final Delta delta;
+    private final WordBloomFilter bloom;
+    // The lines of the base with the changes applied, made the first time they are asked for
+    private volatile List<String> lines;
+    // The snapshot this one was compacted from (see compact), until it is rebased
+    private WordDictionary compactedFrom;
+    private volatile WordDawg dawg;
+    // The keys the graph was built from, in order, so the next snapshot's graph can be built
+    // from them and the changed keys without sorting every key again
+    private volatile String[] sortedKeys;
+    // Until the graph is built: the earlier graph prefix queries use and the changes since it
+    private volatile GraphDelta graphDelta;
+
+    // The lines and keys of a snapshot, with the indexes derived from them once built
+    private static final class Base {
+        final long version;
+        final List<String> lines;
+        final WordKeySet keys;
+        volatile LengthIndex lengthIndex;
+        volatile WordArena arena;
+
+        Base(long version, List<String> lines, WordKeySet keys) {
+            this.version = version;
+            this.lines = lines;
+            this.keys = keys;
+        }
+
+        LengthIndex lengthIndex() {
+            LengthIndex index = lengthIndex;
+            if (index == null) {
+                synchronized (this) {
+                    index = lengthIndex;
+                    if (index == null) {
+                        // Counting sort of the trimmed lines by length
+                        int maxLength = 0;
+                        String[] trimmed = new String[lines.size()];
+                        for (int i = 0; i < trimmed.length; i++) {
+                            trimmed[i] = lines.get(i).trim();
+                            maxLength = Math.max(maxLength, trimmed[i].length());
+                        }
+                        int[] start = new int[maxLength + 2];
+                        for (String word : trimmed) {
+                            start[word.length() + 1]++;
+                        }
+                        for (int n = 1; n < start.length; n++) {
+                            start[n] += start[n - 1];
+                        }
+                        int[] next = start.clone();
+                        String[] byLength = new String[trimmed.length];
+                        for (String word : trimmed) {
+                            byLength[next[word.length()]++] = word;
+                        }
+                        index = lengthIndex = new LengthIndex(byLength, start);
+                    }
+                }
+            }
+            return index;
+        }
+
+        WordArena arena() {
+            WordArena a = arena;
+            if (a == null) {
+                synchronized (this) {
+                    a = arena;
+                    if (a == null) {
+                        int bytes = 0;
+                        for (String line : lines) {
+                            bytes += line.length();
+                        }
+                        WordArena.Builder builder = new WordArena.Builder(bytes);
+                        for (String line : lines) {
+                            builder.add(line);
+                        }
+                        a = arena = builder.build();
+                    }
+                }
+            }
+            return a;
+        }
+    }
+
+    // The changes since a base: the lines appended (in order) and their keys, the keys of the
+    // base whose lines were removed, and the changes themselves, latest first
+    private static final class Delta {
+        final List<String> appended;
+        final WordKeySet appendedKeys;
+        final WordKeySet dropped;
+        final Op last;
+        final int changes;
+
+        Delta(List<String> appended, WordKeySet appendedKeys, WordKeySet dropped, Op last, int changes) {
+            this.appended = appended;
+            this.appendedKeys = appendedKeys;
+            this.dropped = dropped;
+            this.last = last;
+            this.changes = changes;
+        }
+    }
+
+    // A word added or removed since the base, linked to the change before it
+    private static final class Op {
+        final String word;
+        final boolean add;
+        final Op previous;
+
+        Op(String word, boolean add, Op previous) {
+            this.word = word;
+            this.add = add;
+            this.previous = previous;
+        }
+    }
+
+    // The trimmed words ordered by length; start[n] is the index of the first with at least n characters
+    private static final class LengthIndex {
+        final String[] byLength;
+        final int[] start;
+
+        LengthIndex(String[] byLength, int[] start) {
+            this.byLength = byLength;
+            this.start = start;
+        }
+    }
+
+    // The keys added to and removed from a snapshot whose graph is built, each sorted; the added
+    // keys are not in source and the removed ones are
+    private static final class GraphDelta {
+        final WordDictionary source;
+        final String[] added;
+        final String[] removed;
+
+        GraphDelta(WordDictionary source, String[] added, String[] removed) {
+            this.source = source;
+            this.added = added;
+            this.removed = removed;
+        }
+    }
+
+    private WordDictionary(long version, Base base, Delta delta, WordBloomFilter bloom) {
+        this.version = version;
+        this.base = base;
+        this.delta = delta;
+        this.bloom = bloom;
+    }
+
+    /**
+     * The next snapshot of a dictionary, changed one word at a time by the writer that publishes
+     * it. It copies only the changes of the snapshot it starts from, never the base.
+     */
+    public static final class Editor {
+        private final Base base;
+        private final List<String> appended;
+        private final WordKeySet appendedKeys;
+        private final WordKeySet dropped;
+        private Op last;
+        private int changes;
+
+        private Editor(WordDictionary from) {
+            base = from.base;
+            Delta d = from.delta;
+            if (d == null) {
+                appended = new ArrayList<>();
+                appendedKeys = WordKeySet.withCapacity(0);
+                dropped = WordKeySet.withCapacity(0);
+            } else {
+                appended = new ArrayList<>(d.appended);
+                appendedKeys = d.appendedKeys.copy(0);
+                dropped = d.dropped.copy(0);
+                last = d.last;
+                changes = d.changes;
+            }
+        }
+
+        /**
+         * Appends the word as a line unless a line already equals it ignoring case.
+         *
+         * @return true if the word was added.
+         */
+        public boolean add(String word) {
+            String key = fold(word.trim());
+            if (appendedKeys.contains(key) || (base.keys.contains(key) && !dropped.contains(key))) {
+                return false;
+            }
+            appended.add(word);
+            appendedKeys.add(key);
+            last = new Op(word, true, last);
+            changes++;
+            return true;
+        }
+
+        /**
+         * Removes the lines equal to the word ignoring case.
+         *
+         * @return true if there were any.
+         */
+        public boolean remove(String word) {
+            String key = fold(word.trim());
+            if (appendedKeys.remove(key)) {
+                appended.removeIf(line -> fold(line.trim()).equals(key));
+            } else if (!base.keys.contains(key) || !dropped.add(key)) {
+                return false;
+            }
+            last = new Op(word, false, last);
+            changes++;
+            return true;
+        }
+
+        /** @return the snapshot with the changes made so far; the editor is not to be used after. */
+        public WordDictionary build(long version, WordBloomFilter bloom) {
+            Delta d = changes == 0 ? null
+                    : new Delta(Collections.unmodifiableList(appended), appendedKeys, dropped, last, changes);
+            return new WordDictionary(version, base, d, bloom);
+        }
+    }
+
+    /** @return an editor that starts from this snapshot's words. */
+    public Editor edit() {
+        return new Editor(this);
+    }
+
+    /**
+     * Reads a word file into a snapshot. A missing file is an empty dictionary.
+     * <p>
+     * The file is memory-mapped and read once (see {@link WordArena#load(String)}): the arena is
+     * built from the mapped bytes while the lines are decoded, so it comes with the snapshot.
+     * </p>
+     *
+     * @param path    the word file.
+     * @param version the version of the snapshot.
+     * @return the snapshot, without a Bloom filter.
+     * @throws IOException if the file exists but cannot be read.
+     */
+    public static WordDictionary load(String path, long version) throws IOException {
+        List<String> lines = new ArrayList<>();
+        WordArena arena = new File(path).exists() ? WordArena.load(path, lines) : WordArena.empty();
+        WordKeySet keys = WordKeySet.withCapacity(lines.size());
+        for (String line : lines) {
+            keys.add(fold(line.trim()));
+        }
+        Base base = new Base(version, Collections.unmodifiableList(lines), keys);
+        base.arena = arena;
+        return new WordDictionary(version, base, null, null);
+    }
+
+    /**
+     * @return a snapshot of the same words with another version and Bloom filter, sharing the
+     *         indexes this one has built (e.g. a loaded file published as the next version).
+     */
+    public WordDictionary withVersion(long version, WordBloomFilter bloom) {
+        WordDictionary copy = new WordDictionary(version, base, delta, bloom);
+        copy.lines = lines;
+        copy.dawg = dawg;
+        copy.sortedKeys = sortedKeys;
+        copy.graphDelta = graphDelta;
+        return copy;
+    }
+
+    /**
+     * Folds a word per code point the way {@link String#equalsIgnoreCase(String)} compares
+     * characters, so two words are equal ignoring case exactly when their folded forms are equal.
+     */
+    public static String fold(String word) {
+        StringBuilder sb = null;
+        for (int i = 0; i < word.length(); ) {
+            int cp = word.codePointAt(i);
+            int folded = Character.toLowerCase(Character.toUpperCase(cp));
+            if (folded != cp && sb == null) {
+                sb = new StringBuilder(word.length()).append(word, 0, i);
+            }
+            if (sb != null) {
+                sb.appendCodePoint(folded);
+            }
+            i += Character.charCount(cp);
+        }
+        return sb == null ? word : sb.toString();
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    /** @return the number of words (lines that differ ignoring case) in the word file. */
+    public int size() {
+        Delta d = delta;
+        return d == null ? base.keys.size() : base.keys.size() - d.dropped.size() + d.appendedKeys.size();
+    }
+
+    /**
+     * @return the lines of the word file, in file order (unmodifiable). With changes since the
+     *         base, the first call puts them together, which costs as much as the dictionary.
+     */
+    public List<String> lines() {
+        Delta d = delta;
+        if (d == null) {
+            return base.lines;
+        }
+        List<String> l = lines;
+        if (l == null) {
+            List<String> all = new ArrayList<>(base.lines.size() + d.appended.size());
+            for (String line : base.lines) {
+                if (d.dropped.size() == 0 || !d.dropped.contains(fold(line.trim()))) {
+                    all.add(line);
+                }
+            }
+            all.addAll(d.appended);
+            lines = l = Collections.unmodifiableList(all);
+        }
+        return l;
+    }
+
+    /**
+     * @return the folded, trimmed lines (see {@link #fold(String)}), each once; not to be
+     *         modified. With changes since the base they are copied, which costs as much as the
+     *         dictionary.
+     */
+    public Iterable<String> keys() {
+        Delta d = delta;
+        if (d == null) {
+            return base.keys;
+        }
+        List<String> keys = new ArrayList<>(size());
+        for (String key : base.keys) {
+            if (!d.dropped.contains(key)) {
+                keys.add(key);
+            }
+        }
+        for (String key : d.appendedKeys) {
+            keys.add(key);
+        }
+        return keys;
+    }
+
+    /** @return true if a line equals the folded key (after folding and trimming the line). */
+    public boolean containsKey(String key) {
+        Delta d = delta;
+        if (d == null) {
+            return base.keys.contains(key);
+        }
+        return d.appendedKeys.contains(key) || (base.keys.contains(key) && !d.dropped.contains(key));
+    }
+
+    /** @return the Bloom filter of this snapshot, or null. */
+    public WordBloomFilter bloom() {
+        return bloom;
+    }
+
+    /** @return true if a line equals the word ignoring case (after trimming the line). */
+    public boolean contains(String word) {
+        return containsKey(fold(word));
+    }
+
+    /** @return false only if the Bloom filter rules the word out. */
+    public boolean mightContain(String word) {
+        return bloom == null || bloom.mightContain(word);
+    }
+
+    /**
+     * @return a random trimmed word with at least minLength characters, or "" if there is none.
+     */
+    public String randomWord(int minLength, Random random) {
+        LengthIndex index = base.lengthIndex();
+        String[] byLength = index.byLength;
+        int from = minLength <= 0 ? 0 : minLength < index.start.length ? index.start[minLength] : byLength.length;
+        Delta d = delta;
+        if (d == null) {
+            return from >= byLength.length ? "" : byLength[from + random.nextInt(byLength.length - from)];
+        }
+        // Pick among the base's words and the appended ones, and pick again if the word was
+        // removed; after a few misses, when most of them were, pick among the words left
+        List<String> longEnough = new ArrayList<>();
+        for (String line : d.appended) {
+            if (line.trim().length() >= Math.max(0, minLength)) {
+                longEnough.add(line.trim());
+            }
+        }
+        int total = byLength.length - from + longEnough.size();
+        for (int tries = 0; tries < 16 && total > 0; tries++) {
+            int picked = random.nextInt(total);
+            if (picked >= byLength.length - from) {
+                return longEnough.get(picked - (byLength.length - from));
+            }
+            String word = byLength[from + picked];
+            if (!d.dropped.contains(fold(word))) {
+                return word;
+            }
+        }
+        for (int i = from; i < byLength.length; i++) {
+            if (!d.dropped.contains(fold(byLength[i]))) {
+                longEnough.add(byLength[i]);
+            }
+        }
+        return longEnough.isEmpty() ? "" : longEnough.get(random.nextInt(longEnough.size()));
+    }
+
+    /**
+     * @param maxChanges the most changes a snapshot keeps over its base while nobody uses the
+     *                   indexes derived from the base.
+     * @return true if the snapshot has changes since its base that {@link #compact()} should fold
+     *         into a new one: any change once the base's length index or arena is built, since
+     *         their readers do not see the changes, or more than maxChanges otherwise.
+     */
+    public boolean needsCompaction(int maxChanges) {
+        Delta d = delta;
+        return d != null && (base.lengthIndex != null || base.arena != null || d.changes > maxChanges);
+    }
+
+    /**
+     * Folds the changes into a new base, and builds the length index and arena of the new base
+     * if the old one had them. This costs as much as the dictionary and is meant to run off the
+     * write path; the result is published with {@link #rebase(WordDictionary)}.
+     *
+     * @return a snapshot of the same words and version with no changes over its base (this
+     *         snapshot if it has none).
+     */
+    public WordDictionary compact() {
+        Delta d = delta;
+        if (d == null) {
+            return this;
+        }
+        WordKeySet keys = base.keys.copy(d.appendedKeys.size());
+        for (String key : d.dropped) {
+            keys.remove(key);
+        }
+        for (String key : d.appendedKeys) {
+            keys.add(key);
+        }
+        Base compacted = new Base(version, lines(), keys);
+        if (base.lengthIndex != null) {
+            compacted.lengthIndex();
+        }
+        if (base.arena != null) {
+            compacted.arena();
+        }
+        WordDictionary snapshot = new WordDictionary(version, compacted, null, bloom);
+        snapshot.dawg = dawg;
+        snapshot.sortedKeys = sortedKeys;
+        snapshot.graphDelta = graphDelta;
+        snapshot.compactedFrom = this;
+        return snapshot;
+    }
+
+    /**
+     * Applies the changes made since a compacted snapshot was taken to the compacted snapshot, so
+     * it can replace this one. Only the changes are applied, never the whole dictionary.
+     *
+     * @param compacted the result of {@link #compact()} on this snapshot or an earlier one.
+     * @return this snapshot's words and version over the compacted base, or null if this snapshot
+     *         does not follow the one compacted (e.g. the file was reloaded since).
+     */
+    public WordDictionary rebase(WordDictionary compacted) {
+        WordDictionary from = compacted.compactedFrom;
+        if (from == null || from.base != base || from.version > version || delta == null) {
+            return null;
+        }
+        // The changes since from, latest first
+        List<Op> since = new ArrayList<>();
+        for (Op op = delta.last; op != from.delta.last; op = op.previous) {
+            if (op == null) {
+                return null;
+            }
+            since.add(op);
+        }
+        Editor editor = compacted.edit();
+        for (int i = since.size() - 1; i >= 0; i--) {
+            Op op = since.get(i);
+            if (op.add) {
+                editor.add(op.word);
+            } else {
+                editor.remove(op.word);
+            }
+        }
+        WordDictionary rebased = editor.build(version, bloom);
+        rebased.lines = lines;
+        rebased.dawg = dawg;
+        rebased.sortedKeys = sortedKeys;
+        rebased.graphDelta = graphDelta;
+        return rebased;
+    }
+
+    /**
+     * Builds the length index and arena of a new base (e.g. a reloaded file) if the previous
+     * snapshot's base had built them, so that the readers of this snapshot do not have to; a
+     * snapshot over the same base shares them. If the previous snapshot answered prefix queries,
+     * this one answers them from the latest graph built before it and the keys changed since,
+     * until its own graph is built (see {@link #needsDawg()}).
+     *
+     * @param previous the snapshot this one replaces.
+     * @param changed  the keys (see {@link #fold(String)}) added or removed since previous, in
+     *                 any order and possibly repeated; null if unknown, in which case the graph
+     *                 is built by the first prefix query.
+     */
+    public void prepareLike(WordDictionary previous, Collection<String> changed) {
+        if (previous.base.lengthIndex != null) {
+            base.lengthIndex();
+        }
+        if (previous.base.arena != null) {
+            base.arena();
+        }
+        GraphDelta previousDelta = previous.graphDelta;
+        WordDictionary source = previous.dawg != null ? previous : previousDelta != null ? previousDelta.source : null;
+        if (changed != null && source != null && dawg == null) {
+            // The keys changed since source: those changed since previous and, if previous had no
+            // graph of its own either, those previous had changed since source
+            Set<String> candidates = new HashSet<>(changed);
+            if (source != previous) {
+                candidates.addAll(Arrays.asList(previousDelta.added));
+                candidates.addAll(Arrays.asList(previousDelta.removed));
+            }
+            TreeSet<String> added = new TreeSet<>();
+            TreeSet<String> removed = new TreeSet<>();
+            for (String key : candidates) {
+                boolean before = source.containsKey(key);
+                boolean after = containsKey(key);
+                if (after && !before) {
+                    added.add(key);
+                } else if (before && !after) {
+                    removed.add(key);
+                }
+            }
+            graphDelta = new GraphDelta(source, added.toArray(new String[0]), removed.toArray(new String[0]));
+        }
+    }
+
+    /** @return true if prefix queries use an earlier snapshot's graph until {@link #dawg()} builds this one's. */
+    public boolean needsDawg() {
+        return dawg == null && graphDelta != null;
+    }
+
+    /** @return the number of keys starting with the (folded) prefix. */
+    public int countWithPrefix(String prefix) {
+        GraphDelta delta = graphDelta;
+        if (dawg == null && delta != null) {
+            return delta.source.dawg.countWithPrefix(prefix) - countPrefixed(delta.removed, prefix)
+                    + countPrefixed(delta.added, prefix);
+        }
+        return dawg().countWithPrefix(prefix);
+    }
+
+    /** @return the first keys starting with the (folded) prefix, in String order. */
+    public List<String> withPrefix(String prefix, int limit) {
+        GraphDelta delta = graphDelta;
+        if (dawg == null && delta != null) {
+            // The earlier graph's keys without the removed ones, merged with the added ones
+            List<String> earlier = delta.source.dawg.withPrefix(prefix, limit + countPrefixed(delta.removed, prefix));
+            List<String> words = new ArrayList<>(Math.min(limit, earlier.size() + delta.added.length));
+            int i = 0;
+            int j = firstAtLeast(delta.added, prefix);
+            while (words.size() < limit) {
+                String added = j < delta.added.length && delta.added[j].startsWith(prefix) ? delta.added[j] : null;
+                String kept = null;
+                while (i < earlier.size() && Arrays.binarySearch(delta.removed, earlier.get(i)) >= 0) {
+                    i++;
+                }
+                if (i < earlier.size()) {
+                    kept = earlier.get(i);
+                }
+                if (added == null && kept == null) {
+                    break;
+                }
+                if (kept == null || (added != null && added.compareTo(kept) < 0)) {
+                    words.add(added);
+                    j++;
+                } else {
+                    words.add(kept);
+                    i++;
+                }
+            }
+            return words;
+        }
+        return dawg().withPrefix(prefix, limit);
+    }
+
+    // The number of sorted keys starting with the prefix
+    private static int countPrefixed(String[] sorted, String prefix) {
+        int n = 0;
+        for (int i = firstAtLeast(sorted, prefix); i < sorted.length && sorted[i].startsWith(prefix); i++) {
+            n++;
+        }
+        return n;
+    }
+
+    // The index of the first sorted key not before the prefix
+    private static int firstAtLeast(String[] sorted, String prefix) {
+        int i = Arrays.binarySearch(sorted, prefix);
+        return i >= 0 ? i : -i - 1;
+    }
+
+    // The earlier graph's sorted keys without the removed keys, merged with the added ones
+    private static String[] mergeKeys(String[] previousKeys, GraphDelta delta) {
+        String[] merged = new String[previousKeys.length - delta.removed.length + delta.added.length];
+        int n = 0;
+        int j = 0;
+        for (String key : previousKeys) {
+            if (Arrays.binarySearch(delta.removed, key) >= 0) {
+                continue;
+            }
+            while (j < delta.added.length && delta.added[j].compareTo(key) < 0) {
+                merged[n++] = delta.added[j++];
+            }
+            merged[n++] = key;
+        }
+        while (j < delta.added.length) {
+            merged[n++] = delta.added[j++];
+        }
+        return merged;
+    }
+
+    /**
+     * @return the packed lines of the base used to generate puzzles, built on first use; without
+     *         the changes since the base.
+     */
+    public WordArena arena() {
+        return base.arena();
+    }
+
+    /** @return the version of the words in {@link #arena()}. */
+    public long getArenaVersion() {
+        return base.version;
+    }
+
+    /**
+     * @return the word graph of the keys used for prefix queries, built on first use: from the
+     *         earlier graph's sorted keys and the changes since if there is one (see
+     *         {@link #prepareLike(WordDictionary, Collection)}), otherwise by sorting every key.
+     */
+    public WordDawg dawg() {
+        WordDawg d = dawg;
+        if (d == null) {
+            synchronized (this) {
+                d = dawg;
+                if (d == null) {
+                    GraphDelta delta = graphDelta;
+                    String[] sorted;
+                    if (delta != null) {
+                        sorted = mergeKeys(delta.source.sortedKeys, delta);
+                    } else {
+                        sorted = new String[size()];
+                        int i = 0;
+                        for (String key : keys()) {
+                            sorted[i++] = key;
+                        }
+                        Arrays.sort(sorted);
+                    }
+                    d = WordDawg.build(sorted);
+                    sortedKeys = sorted;
+                    dawg = d;
+                    // The earlier snapshot is no longer needed
+                    graphDelta = null;
+                }
+            }
+        }
+        return d;
+    }
+
+    /** @return the word graph if it has been built, or null. */
+    public WordDawg builtDawg() {
+        return dawg;
+    }
+
+    /** @return the arena if it has been built, or null. */
+    public WordArena builtArena() {
+        return base.arena;
+    }
+}
@@ -0,0 +1,93 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Watches a file for changes made by other processes (e.g. an operator editing the word file)
+ * and runs a callback once the file has been quiet for a while.
+ * <p>
+ * A WatchService can only watch directories, so the file's directory is watched and events for
+ * other files are ignored. Editors and copies change a file in several steps (truncate, write,
+ * rename over it); the watcher waits until no event has arrived for the quiet period before it
+ * runs the callback, so one edit normally causes one callback. The callback runs on the
+ * watcher's daemon thread.
+ * </p>
+ */
+public class WordFileWatcher implements Closeable {
+    private static final Log.Logger LOG = Log.get("WordFileWatcher");
+
+    private final Path file;
+    private final long quietMillis;
+    private final Runnable onChange;
+    private final WatchService watchService;
+    private final Thread thread;
+
+    /**
+     * @param file        the file to watch.
+     * @param quietMillis how long the file must be unchanged before the callback runs.
+     * @param onChange    the callback.
+     * @throws IOException if the file's directory cannot be watched.
+     */
+    public WordFileWatcher(Path file, long quietMillis, Runnable onChange) throws IOException {
+        this.file = file.toAbsolutePath();
+        this.quietMillis = quietMillis;
+        this.onChange = onChange;
+        Path directory = this.file.getParent();
+        this.watchService = directory.getFileSystem().newWatchService();
+        directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+        this.thread = new Thread(this::run, "word-file-watcher");
+        thread.setDaemon(true);
+    }
+
+    public void start() {
+        thread.start();
+        LOG.info("Watching {} for changes", file);
+    }
+
+    @Override
+    public void close() throws IOException {
+        watchService.close();
+        thread.interrupt();
+    }
+
+    private void run() {
+        try {
+            while (true) {
+                if (!drain(watchService.take())) {
+                    continue;
+                }
+                // Wait until the file is quiet
+                WatchKey more;
+                while ((more = watchService.poll(quietMillis, TimeUnit.MILLISECONDS)) != null) {
+                    drain(more);
+                }
+                try {
+                    onChange.run();
+                } catch (RuntimeException e) {
+                    LOG.warn("Error handling a change of {}: {}", file, e);
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // Closed
+        }
+    }
+
+    // Consumes the events of a key; true if one of them may concern the file
+    private boolean drain(WatchKey key) {
+        boolean changed = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW || file.getFileName().equals(event.context())) {
+                changed = true;
+            }
+        }
+        key.reset();
+        return changed;
+    }
+}
@@ -0,0 +1,140 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.rmi.Naming;
+import java.rmi.RemoteException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Streams a word list (e.g. a themed word pack) into the word repository, or out of it.
+ * <p>
+ * The list is read one chunk at a time and every chunk is sent as one createWords (or
+ * removeWords) call, which the repository checks against its dictionary and commits at once:
+ * one round trip, one file write and one change announcement per chunk instead of per word.
+ * Only one chunk is held in memory, so lists of any size can be imported.
+ * </p>
+ * Usage: java WordImporter [--remove] [--chunk 50000] [--report results.tsv]
+ *        [--server rmi://localhost:1099/WordRepositoryServer] words-file
+ * <p>
+ * The report lists every word with its result (added or duplicate; removed or absent).
+ * </p>
+ */
+public class WordImporter {
+
+    /** Receives the result of every word. */
+    public interface ResultListener {
+        void result(String word, boolean changed) throws IOException;
+    }
+
+    private final WordRepositoryServer repository;
+    private final int chunkSize;
+    private final boolean remove;
+
+    /**
+     * @param repository the repository to change.
+     * @param chunkSize  the number of words committed together.
+     * @param remove     true to remove the words instead of adding them.
+     */
+    public WordImporter(WordRepositoryServer repository, int chunkSize, boolean remove) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("chunkSize must be positive");
+        }
+        this.repository = repository;
+        this.chunkSize = chunkSize;
+        this.remove = remove;
+    }
+
+    /**
+     * Sends the words of a list, one per line, in chunks. Blank lines are skipped.
+     *
+     * @param words    the word list.
+     * @param listener receives the result of every word, in list order; may be null.
+     * @return the number of words added (or removed).
+     * @throws IOException if the list cannot be read or a chunk fails; the chunks before it are
+     *                     committed, the failed one is not.
+     */
+    public long run(Reader words, ResultListener listener) throws IOException {
+        BufferedReader reader = new BufferedReader(words);
+        List<String> chunk = new ArrayList<>(chunkSize);
+        long changed = 0;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            String word = line.trim();
+            if (word.isEmpty()) {
+                continue;
+            }
+            chunk.add(word);
+            if (chunk.size() == chunkSize) {
+                changed += send(chunk, listener);
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            changed += send(chunk, listener);
+        }
+        return changed;
+    }
+
+    private long send(List<String> chunk, ResultListener listener) throws IOException {
+        boolean[] results = remove ? repository.removeWords(chunk) : repository.createWords(chunk);
+        long changed = 0;
+        for (int i = 0; i < results.length; i++) {
+            if (results[i]) {
+                changed++;
+            }
+            if (listener != null) {
+                listener.result(chunk.get(i), results[i]);
+            }
+        }
+        return changed;
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length == 0) {
+            System.out.println("Usage: java WordImporter [--remove] [--chunk 50000] [--report results.tsv] "
+                    + "[--server rmi://localhost:1099/WordRepositoryServer] words-file");
+            return;
+        }
+        String file = args[args.length - 1];
+        boolean remove = false;
+        int chunkSize = 50000;
+        String report = null;
+        String server = "rmi://localhost:1099/WordRepositoryServer";
+        for (int i = 0; i < args.length - 1; i++) {
+            switch (args[i]) {
+                case "--remove" -> remove = true;
+                case "--chunk" -> chunkSize = Integer.parseInt(args[++i]);
+                case "--report" -> report = args[++i];
+                case "--server" -> server = args[++i];
+                default -> throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+
+        WordRepositoryServer repository = (WordRepositoryServer) Naming.lookup(server);
+        WordImporter importer = new WordImporter(repository, chunkSize, remove);
+        String changedLabel = remove ? "removed" : "added";
+        String unchangedLabel = remove ? "absent" : "duplicate";
+        long[] total = new long[1];
+        long start = System.nanoTime();
+        long changed;
+        try (Reader words = new FileReader(file);
+                Writer out = report == null ? null : new BufferedWriter(new FileWriter(report))) {
+            changed = importer.run(words, (word, result) -> {
+                total[0]++;
+                if (out != null) {
+                    out.write(word + "\t" + (result ? changedLabel : unchangedLabel) + "\n");
+                }
+            });
+        } catch (RemoteException e) {
+            System.out.println("Import failed: " + e.getMessage());
+            return;
+        }
+        System.out.printf("%d words: %d %s, %d %s in %.1f s%n", total[0], changed, changedLabel,
+                total[0] - changed, unchangedLabel, (System.nanoTime() - start) / 1e9);
+    }
+}
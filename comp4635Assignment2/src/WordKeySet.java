@@ -0,0 +1,167 @@
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Set of dictionary keys (folded words) that is cheap to copy, for copy-on-write snapshots.
+ * <p>
+ * The keys live in a single String[] hash table with linear probing, so a copy is one array copy
+ * (no entry objects to allocate and no hashes to recompute) and the next version of a large set
+ * costs a memory copy plus the changed keys, instead of rebuilding a HashSet of every key.
+ * Removal shifts the following entries back, so the table never holds tombstones.
+ * </p>
+ * <p>
+ * A set is changed only by the code that created it with {@link #copy(int)} or
+ * {@link #withCapacity(int)}, before it is published; once published it must not change, and it
+ * can then be read by any number of threads.
+ * </p>
+ */
+public final class WordKeySet implements Iterable<String> {
+    private String[] table;
+    private int size;
+
+    private WordKeySet(int capacity) {
+        this.table = new String[tableSize(capacity)];
+    }
+
+    /** @return an empty, modifiable set sized for the given number of keys. */
+    public static WordKeySet withCapacity(int keys) {
+        return new WordKeySet(keys);
+    }
+
+    /**
+     * @param extra the number of keys the copy is expected to gain.
+     * @return a modifiable copy of this set.
+     */
+    public WordKeySet copy(int extra) {
+        int wanted = tableSize(size + extra);
+        if (wanted <= table.length) {
+            WordKeySet copy = new WordKeySet(0);
+            copy.table = Arrays.copyOf(table, table.length);
+            copy.size = size;
+            return copy;
+        }
+        WordKeySet copy = new WordKeySet(size + extra);
+        for (String key : table) {
+            if (key != null) {
+                copy.insert(key);
+            }
+        }
+        copy.size = size;
+        return copy;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean contains(String key) {
+        int mask = table.length - 1;
+        for (int i = slot(key, mask); ; i = (i + 1) & mask) {
+            String k = table[i];
+            if (k == null) {
+                return false;
+            }
+            if (k.equals(key)) {
+                return true;
+            }
+        }
+    }
+
+    /** @return true if the key was added, false if it was already present. */
+    public boolean add(String key) {
+        if (contains(key)) {
+            return false;
+        }
+        if (tableSize(size + 1) > table.length) {
+            String[] old = table;
+            table = new String[old.length * 2];
+            for (String k : old) {
+                if (k != null) {
+                    insert(k);
+                }
+            }
+        }
+        insert(key);
+        size++;
+        return true;
+    }
+
+    /** @return true if the key was present and removed. */
+    public boolean remove(String key) {
+        int mask = table.length - 1;
+        int i = slot(key, mask);
+        while (true) {
+            String k = table[i];
+            if (k == null) {
+                return false;
+            }
+            if (k.equals(key)) {
+                break;
+            }
+            i = (i + 1) & mask;
+        }
+        table[i] = null;
+        size--;
+        // Shift back the following entries that may no longer be reachable from their slot
+        for (int j = (i + 1) & mask; table[j] != null; j = (j + 1) & mask) {
+            int home = slot(table[j], mask);
+            boolean reachable = i <= j ? (i < home && home <= j) : (i < home || home <= j);
+            if (!reachable) {
+                table[i] = table[j];
+                table[j] = null;
+                i = j;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public Iterator<String> iterator() {
+        return new Iterator<String>() {
+            private int next = advance(0);
+
+            private int advance(int from) {
+                while (from < table.length && table[from] == null) {
+                    from++;
+                }
+                return from;
+            }
+
+            @Override
+            public boolean hasNext() {
+                return next < table.length;
+            }
+
+            @Override
+            public String next() {
+                if (next >= table.length) {
+                    throw new NoSuchElementException();
+                }
+                String key = table[next];
+                next = advance(next + 1);
+                return key;
+            }
+        };
+    }
+
+    // Places a key known to be absent, without counting it
+    private void insert(String key) {
+        int mask = table.length - 1;
+        int i = slot(key, mask);
+        while (table[i] != null) {
+            i = (i + 1) & mask;
+        }
+        table[i] = key;
+    }
+
+    private static int slot(String key, int mask) {
+        int h = key.hashCode() * 0x9e3779b9;
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+    // A power of two at least twice the number of keys, so probe runs stay short
+    private static int tableSize(int keys) {
+        return Integer.highestOneBit(Math.max(8, keys) * 2 - 1) << 1;
+    }
+}
@@ -0,0 +1,64 @@
+import java.io.Serializable;
+
+/**
+ * Entries of the change log of a primary {@link WordRepositoryImpl}, read by its replicas with
+ * {@link WordRepositoryServer#readChangeLog}.
+ * <p>
+ * Every successful change gets the next version, so the entries after version v are the changes
+ * that took the dictionary from version v to {@code v + size()}, in order. A replica that applies
+ * them in order to its copy at version v reaches the primary's dictionary at that version.
+ * </p>
+ */
+public class WordLogPage implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private final long epoch;
+    private final long afterVersion;
+    private final String[] words;
+    private final boolean[] adds;
+    private final boolean snapshotRequired;
+
+    /**
+     * @param epoch            the primary's epoch (see {@link WordSnapshot#getEpoch()}).
+     * @param afterVersion     the version the entries follow.
+     * @param words            the changed words, the first one at version afterVersion + 1.
+     * @param adds             for each word, true if it was added and false if it was removed.
+     * @param snapshotRequired true if the log no longer holds the entries after afterVersion.
+     */
+    public WordLogPage(long epoch, long afterVersion, String[] words, boolean[] adds, boolean snapshotRequired) {
+        this.epoch = epoch;
+        this.afterVersion = afterVersion;
+        this.words = words;
+        this.adds = adds;
+        this.snapshotRequired = snapshotRequired;
+    }
+
+    public long getEpoch() {
+        return epoch;
+    }
+
+    public long getAfterVersion() {
+        return afterVersion;
+    }
+
+    public int size() {
+        return words.length;
+    }
+
+    /** @return the word changed at version getAfterVersion() + i + 1. */
+    public String getWord(int i) {
+        return words[i];
+    }
+
+    public boolean isAdd(int i) {
+        return adds[i];
+    }
+
+    /**
+     * @return true if the requested entries were dropped from the log; the reader has to start
+     *         again from {@link WordRepositoryServer#getSnapshot()}.
+     */
+    public boolean isSnapshotRequired() {
+        return snapshotRequired;
+    }
+}
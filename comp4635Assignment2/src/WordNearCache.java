@@ -0,0 +1,95 @@
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded LRU cache of dictionary lookups (word to present/absent) kept next to the game server.
+ * <p>
+ * Entries are removed when the repository announces a change of their word. Every removal and
+ * clear advances an epoch; a lookup result is only stored if no change was announced while the
+ * lookup was in flight, so a result read before a change can never be cached after it.
+ * Words are compared ignoring case exactly as the repository compares them (see
+ * {@link WordDictionary#fold(String)}), so an announced change removes every spelling it affects.
+ * </p>
+ */
+public class WordNearCache {
+    private final Map<String, Boolean> entries;
+    private long epoch;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * @param capacity the maximum number of cached words; the least recently used are evicted.
+     */
+    public WordNearCache(int capacity) {
+        this.entries = new LinkedHashMap<String, Boolean>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * @param word the word.
+     * @return the cached lookup result, or null if the word is not cached.
+     */
+    public synchronized Boolean get(String word) {
+        Boolean present = entries.get(key(word));
+        if (present != null) {
+            hits.increment();
+        } else {
+            misses.increment();
+        }
+        return present;
+    }
+
+    /** @return the current epoch; pass it to {@link #put} with the result of the lookup started now. */
+    public synchronized long epoch() {
+        return epoch;
+    }
+
+    /**
+     * Stores a lookup result unless a change was announced since the lookup started.
+     *
+     * @param word          the word.
+     * @param present       whether the repository has the word.
+     * @param epochAtLookup the epoch read before the lookup was sent.
+     */
+    public synchronized void put(String word, boolean present, long epochAtLookup) {
+        if (epoch == epochAtLookup) {
+            entries.put(key(word), present);
+        }
+    }
+
+    /** Removes a changed word (the repository stores words trimmed, so its trimmed form too). */
+    public synchronized void invalidate(String word) {
+        epoch++;
+        entries.remove(key(word));
+        entries.remove(key(word.trim()));
+    }
+
+    /** Removes every entry (e.g. after reconnecting, when changes may have been missed). */
+    public synchronized void clear() {
+        epoch++;
+        entries.clear();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    private static String key(String word) {
+        return WordDictionary.fold(word);
+    }
+}
@@ -0,0 +1,44 @@
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * One page of the results of {@link WordRepositoryServer#findWords}.
+ */
+public class WordPage implements Serializable {
+    private static final long serialVersionUID = 2L;
+
+    private final String[] words;
+    private final int nextCursor;
+    private final long version;
+
+    /**
+     * @param words      the matching words of this page.
+     * @param nextCursor the cursor of the next page, or -1 if this is the last page.
+     * @param version    the dictionary version the page was read from.
+     */
+    public WordPage(List<String> words, int nextCursor, long version) {
+        this.words = words.toArray(new String[0]);
+        this.nextCursor = nextCursor;
+        this.version = version;
+    }
+
+    /** @return the matching words of this page (unmodifiable). */
+    public List<String> getWords() {
+        return Collections.unmodifiableList(Arrays.asList(words));
+    }
+
+    /** @return the cursor to pass for the next page, or -1 if there are no more matches. */
+    public int getNextCursor() {
+        return nextCursor;
+    }
+
+    /**
+     * @return the dictionary version the page was read from; if a later page has another version,
+     *         the dictionary changed while paging and words may have been skipped or repeated.
+     */
+    public long getVersion() {
+        return version;
+    }
+}
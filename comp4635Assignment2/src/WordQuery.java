@@ -0,0 +1,174 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.IntConsumer;
+
+/**
+ * Word search over a {@link WordArena}: letters fixed at positions, letters that must occur
+ * exactly once, and a length range.
+ * <p>
+ * Patterns are written one character per position: a letter fixes the position, {@code *} or
+ * {@code ?} leaves it open. Positions after the pattern are open too, so the pattern constrains
+ * a word's start and the length range its length. Letters after a {@code /} must occur exactly
+ * once in the word. For example {@code "*a**e/x"} matches words with an 'a' second, an 'e' fifth
+ * and exactly one 'x'.
+ * </p>
+ * <p>
+ * Every constraint is a bitset of the arena (see {@link WordArena#bitsWithAt(int, char)}); a
+ * search ANDs them 64 IDs at a time, sparsest first, and checks only the length of the words
+ * that are left. Matches come in ascending ID order, so a search can be resumed from the ID
+ * after the last match it returned.
+ * </p>
+ */
+public final class WordQuery {
+    private final char[] fixed;
+    private final char[] once;
+    private final int minLength;
+    private final int maxLength;
+
+    /**
+     * @param fixed     the letter of each position, or '*' for an open position.
+     * @param once      the letters that must occur exactly once.
+     * @param minLength the minimum length of a match.
+     * @param maxLength the maximum length of a match.
+     */
+    public WordQuery(char[] fixed, char[] once, int minLength, int maxLength) {
+        this.fixed = new char[fixed.length];
+        for (int i = 0; i < fixed.length; i++) {
+            this.fixed[i] = fixed[i] == '?' ? '*' : Character.toLowerCase(fixed[i]);
+        }
+        this.once = new String(once).toLowerCase(Locale.ROOT).toCharArray();
+        int lastFixed = -1;
+        for (int i = 0; i < this.fixed.length; i++) {
+            if (this.fixed[i] != '*') {
+                lastFixed = i;
+            }
+        }
+        // A fixed letter implies the word reaches it
+        this.minLength = Math.max(minLength, Math.max(lastFixed + 1, 1));
+        this.maxLength = maxLength;
+    }
+
+    /**
+     * Parses a pattern (see the class comment).
+     *
+     * @throws IllegalArgumentException if the pattern has a character that is neither a letter,
+     *                                  '*' nor '?', or a non-letter after '/'.
+     */
+    public static WordQuery parse(String pattern, int minLength, int maxLength) {
+        int slash = pattern.indexOf('/');
+        String positions = slash < 0 ? pattern : pattern.substring(0, slash);
+        String once = slash < 0 ? "" : pattern.substring(slash + 1);
+        for (char c : positions.toCharArray()) {
+            if (c != '*' && c != '?' && !Character.isLetter(c)) {
+                throw new IllegalArgumentException("Invalid character '" + c + "' in pattern " + pattern);
+            }
+        }
+        for (char c : once.toCharArray()) {
+            if (!Character.isLetter(c)) {
+                throw new IllegalArgumentException("Invalid letter '" + c + "' after '/' in pattern " + pattern);
+            }
+        }
+        return new WordQuery(positions.toCharArray(), once.toCharArray(), minLength, maxLength);
+    }
+
+    /**
+     * Finds matches in ascending ID order.
+     *
+     * @param words the arena to search.
+     * @param from  the first ID to consider (0, or the value returned by the previous call).
+     * @param limit the most matches to report.
+     * @param found receives the ID of each match.
+     * @return the ID to continue from, or -1 if there are no more matches.
+     */
+    public int find(WordArena words, int from, int limit, IntConsumer found) {
+        int size = words.size();
+        if (limit <= 0 || from < 0 || from >= size || minLength > maxLength) {
+            return -1;
+        }
+        // The bitsets of the constraints, ordered by the number of words they hold
+        List<long[]> sets = new ArrayList<>();
+        List<Integer> counts = new ArrayList<>();
+        for (int i = 0; i < fixed.length; i++) {
+            if (fixed[i] != '*') {
+                long[] bits = words.bitsWithAt(i, fixed[i]);
+                if (bits == null) {
+                    return -1;
+                }
+                sets.add(bits);
+                counts.add(words.idsWithAt(i, fixed[i]).length);
+            }
+        }
+        for (char c : once) {
+            long[] bits = words.bitsWithOnce(c);
+            if (bits == null) {
+                return -1;
+            }
+            sets.add(bits);
+            counts.add(words.idsWithOnce(c).length);
+        }
+
+        int count = 0;
+        if (sets.isEmpty()) {
+            for (int id = from; id < size; id++) {
+                if (lengthMatches(words, id)) {
+                    found.accept(id);
+                    if (++count == limit) {
+                        return id + 1 < size ? id + 1 : -1;
+                    }
+                }
+            }
+            return -1;
+        }
+        // The sparsest set first, so most blocks are ruled out by the first AND
+        Integer[] order = new Integer[sets.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Integer.compare(counts.get(a), counts.get(b)));
+        long[][] bitsets = new long[order.length][];
+        for (int i = 0; i < order.length; i++) {
+            bitsets[i] = sets.get(order[i]);
+        }
+        int blocks = bitsets[0].length;
+        for (int block = from >>> 6; block < blocks; block++) {
+            long bits = bitsets[0][block];
+            for (int s = 1; s < bitsets.length && bits != 0; s++) {
+                bits &= bitsets[s][block];
+            }
+            if (block == from >>> 6) {
+                bits &= -1L << from;
+            }
+            while (bits != 0) {
+                int id = (block << 6) + Long.numberOfTrailingZeros(bits);
+                bits &= bits - 1;
+                if (lengthMatches(words, id)) {
+                    found.accept(id);
+                    if (++count == limit) {
+                        return id + 1 < size ? id + 1 : -1;
+                    }
+                }
+            }
+        }
+        return -1;
+    }
+
+    /** @return the IDs of every match, ascending. */
+    public int[] findAll(WordArena words) {
+        int[][] ids = { new int[16] };
+        int[] count = { 0 };
+        find(words, 0, Integer.MAX_VALUE, id -> {
+            if (count[0] == ids[0].length) {
+                ids[0] = Arrays.copyOf(ids[0], count[0] * 2);
+            }
+            ids[0][count[0]++] = id;
+        });
+        return Arrays.copyOf(ids[0], count[0]);
+    }
+
+    private boolean lengthMatches(WordArena words, int id) {
+        int length = words.length(id);
+        return length >= minLength && length <= maxLength;
+    }
+}
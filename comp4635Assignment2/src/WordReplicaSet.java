@@ -0,0 +1,318 @@
+import java.rmi.RemoteException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A primary word repository and its read replicas (see {@link WordRepositoryImpl#replicate}),
+ * used as one repository.
+ * <p>
+ * Changes go to the primary, so they stay linearizable. Reads go to the replica with the fewest
+ * reads in flight from this client (ties broken at random) and fall back to the primary when no
+ * replica can be reached. A reader that wants to see its own writes passes the version returned
+ * by {@link #createWordVersioned}/{@link #removeWordVersioned}: a replica that is not known to
+ * have reached it is asked to wait for it for up to catchUpMillis, and if it does not catch up in
+ * time the read goes to the primary. Replicas announce the changes they apply before
+ * {@link WordRepositoryServer#awaitVersion} returns, so the replica clients' near-caches are
+ * already up to date when a read is sent.
+ * </p>
+ * <p>
+ * Without replicas every call goes to the primary.
+ * </p>
+ */
+public class WordReplicaSet implements WordRepositoryServer {
+
+    /** A read on one of the repositories. */
+    private interface Read<T> {
+        T run(WordServiceClient client) throws RemoteException;
+    }
+
+    private final WordServiceClient primary;
+    private final List<WordServiceClient> replicas;
+    // Per replica: reads in flight from this client, and the highest version it is known to have
+    private final AtomicInteger[] inFlight;
+    private final AtomicLong[] knownVersion;
+    private final long catchUpMillis;
+    private final LongAdder primaryReads = new LongAdder();
+    // The primary's epoch as last seen (0 until then); versions of other epochs are meaningless
+    private final AtomicLong epoch = new AtomicLong();
+
+    /**
+     * @param primary       the client of the primary.
+     * @param replicas      the clients of the replicas (may be empty).
+     * @param catchUpMillis how long a read-your-writes read waits for a replica to catch up.
+     */
+    public WordReplicaSet(WordServiceClient primary, List<WordServiceClient> replicas, long catchUpMillis) {
+        this.primary = primary;
+        this.replicas = new ArrayList<>(replicas);
+        this.catchUpMillis = catchUpMillis;
+        this.inFlight = new AtomicInteger[replicas.size()];
+        this.knownVersion = new AtomicLong[replicas.size()];
+        for (int i = 0; i < inFlight.length; i++) {
+            inFlight[i] = new AtomicInteger();
+            knownVersion[i] = new AtomicLong();
+        }
+    }
+
+    /**
+     * Creates the clients of a primary and its replicas with the "wordService*" settings of a
+     * configuration (see {@link WordServiceClient#fromConfig}), and wordServiceCatchUpMillis (200)
+     * for read-your-writes.
+     *
+     * @param config      the configuration.
+     * @param local       the in-process repository of an embedded deployment (the primary), or null.
+     * @param primaryUrl  registry URL of the primary (ignored if local is given).
+     * @param replicaUrls registry URLs of the replicas, comma separated; may be empty.
+     * @return the replica set.
+     */
+    public static WordReplicaSet fromConfig(Properties config, WordRepositoryServer local, String primaryUrl,
+                                            String replicaUrls) {
+        long catchUpMillis = Long.parseLong(config.getProperty("wordServiceCatchUpMillis", "200").trim());
+        WordServiceClient primary = WordServiceClient.fromConfig(withUrl(config, primaryUrl), local);
+        List<WordServiceClient> replicas = new ArrayList<>();
+        for (String url : replicaUrls.split(",")) {
+            if (!url.trim().isEmpty()) {
+                replicas.add(WordServiceClient.fromConfig(withUrl(config, url.trim()), null));
+            }
+        }
+        return new WordReplicaSet(primary, replicas, catchUpMillis);
+    }
+
+    private static Properties withUrl(Properties config, String url) {
+        Properties copy = new Properties();
+        copy.putAll(config);
+        copy.setProperty("wordServiceUrl", url);
+        return copy;
+    }
+
+    public WordServiceClient getPrimary() {
+        return primary;
+    }
+
+    public List<WordServiceClient> getReplicas() {
+        return replicas;
+    }
+
+    /** @return the number of reads sent to the primary because no replica could serve them. */
+    public long getPrimaryReadCount() {
+        return primaryReads.sum();
+    }
+
+    /**
+     * Runs a read on the least-loaded replica that has reached minVersion, or on the primary.
+     *
+     * @param minVersion the version the read must reflect (0 for any).
+     */
+    private <T> T read(Read<T> read, long minVersion) throws RemoteException {
+        int r = leastLoaded();
+        if (r >= 0 && minVersion > knownVersion[r].get()) {
+            try {
+                long reached = replicas.get(r).call(server -> server.awaitVersion(minVersion, catchUpMillis));
+                knownVersion[r].accumulateAndGet(reached, Math::max);
+                if (reached < minVersion) {
+                    r = -1;
+                    // The version may be from before a restart of the primary: look at its epoch
+                    // (any change log read returns it) so the sessions of the old one are reset
+                    seenEpoch(primary.call(server -> server.readChangeLog(-1, 0, 0)).getEpoch());
+                }
+            } catch (RemoteException e) {
+                r = -1;
+            }
+        }
+        if (r >= 0) {
+            inFlight[r].incrementAndGet();
+            try {
+                return read.run(replicas.get(r));
+            } catch (RemoteException e) {
+                // Reads can be repeated: fall back to the primary
+            } finally {
+                inFlight[r].decrementAndGet();
+            }
+        }
+        primaryReads.increment();
+        return read.run(primary);
+    }
+
+    // The replica with the fewest reads in flight among those whose circuit is closed, or -1
+    private int leastLoaded() {
+        int n = replicas.size();
+        if (n == 0) {
+            return -1;
+        }
+        int start = n == 1 ? 0 : ThreadLocalRandom.current().nextInt(n);
+        int best = -1;
+        for (int k = 0; k < n; k++) {
+            int i = (start + k) % n;
+            if (replicas.get(i).getState() == WordServiceClient.State.CLOSED
+                    && (best < 0 || inFlight[i].get() < inFlight[best].get())) {
+                best = i;
+            }
+        }
+        return best;
+    }
+
+    @Override
+    public boolean createWord(String word) throws RemoteException {
+        return primary.createWord(word);
+    }
+
+    @Override
+    public boolean removeWord(String word) throws RemoteException {
+        return primary.removeWord(word);
+    }
+
+    @Override
+    public WordWrite createWordVersioned(String word) throws RemoteException {
+        return written(primary.call(server -> server.createWordVersioned(word)));
+    }
+
+    @Override
+    public WordWrite removeWordVersioned(String word) throws RemoteException {
+        return written(primary.call(server -> server.removeWordVersioned(word)));
+    }
+
+    private WordWrite written(WordWrite write) {
+        seenEpoch(write.getEpoch());
+        return write;
+    }
+
+    // A restarted primary counts versions from 0 again: forget what the replicas had reached
+    private void seenEpoch(long current) {
+        if (epoch.getAndSet(current) != current) {
+            for (AtomicLong known : knownVersion) {
+                known.set(0);
+            }
+        }
+    }
+
+    /**
+     * @return the primary's epoch as last seen by a write or a read-your-writes read, or 0 if
+     *         none has been seen; a version is only meaningful in the epoch it was returned in.
+     */
+    public long getEpoch() {
+        return epoch.get();
+    }
+
+    @Override
+    public boolean[] createWords(List<String> words) throws RemoteException {
+        return primary.createWords(words);
+    }
+
+    @Override
+    public boolean[] removeWords(List<String> words) throws RemoteException {
+        return primary.removeWords(words);
+    }
+
+    @Override
+    public boolean checkWord(String word) throws RemoteException {
+        return checkWord(word, 0);
+    }
+
+    /**
+     * Checks a word on a replica that reflects at least a version (read-your-writes).
+     *
+     * @param minVersion a version returned by createWordVersioned/removeWordVersioned, or 0.
+     */
+    public boolean checkWord(String word, long minVersion) throws RemoteException {
+        return read(client -> client.checkWord(word), minVersion);
+    }
+
+    @Override
+    public String getRandomWord(int length) throws RemoteException {
+        return read(client -> client.call(server -> server.getRandomWord(length)), 0);
+    }
+
+    @Override
+    public HashMap<String, Integer> generate_map_list(int word_len) throws RemoteException {
+        return read(client -> client.call(server -> server.generate_map_list(word_len)), 0);
+    }
+
+    @Override
+    public String find_matching_addtional_vertical_stem(char[] constraint_letter) throws RemoteException {
+        return read(client -> client.call(server -> server.find_matching_addtional_vertical_stem(constraint_letter)), 0);
+    }
+
+    /**
+     * Finds words on a replica. The pages of one search may come from different replicas; like
+     * a change of the dictionary between pages, that can skip or repeat words, which the pages'
+     * versions show.
+     */
+    @Override
+    public WordPage findWords(String pattern, int minLength, int maxLength, int limit, int cursor) throws RemoteException {
+        return read(client -> client.findWords(pattern, minLength, maxLength, limit, cursor), 0);
+    }
+
+    @Override
+    public List<String> prefixSearch(String prefix, int limit) throws RemoteException {
+        return read(client -> client.prefixSearch(prefix, limit), 0);
+    }
+
+    @Override
+    public int countWithPrefix(String prefix) throws RemoteException {
+        return read(client -> client.countWithPrefix(prefix), 0);
+    }
+
+    @Override
+    public int getWordCount() throws RemoteException {
+        return read(client -> client.call(WordRepositoryServer::getWordCount), 0);
+    }
+
+    @Override
+    public void ping() throws RemoteException {
+        primary.call(server -> {
+            server.ping();
+            return null;
+        });
+    }
+
+    /** @return the primary's version. */
+    @Override
+    public long getVersion() throws RemoteException {
+        return primary.call(WordRepositoryServer::getVersion);
+    }
+
+    @Override
+    public long awaitVersion(long version, long timeoutMillis) throws RemoteException {
+        return primary.call(server -> server.awaitVersion(version, timeoutMillis));
+    }
+
+    /** Subscribes to the primary, which announces every change first. */
+    @Override
+    public void addWordChangeListener(WordChangeListener listener) throws RemoteException {
+        primary.call(server -> {
+            server.addWordChangeListener(listener);
+            return null;
+        });
+    }
+
+    @Override
+    public void removeWordChangeListener(WordChangeListener listener) throws RemoteException {
+        primary.call(server -> {
+            server.removeWordChangeListener(listener);
+            return null;
+        });
+    }
+
+    @Override
+    public WordSnapshot getSnapshot() throws RemoteException {
+        return primary.call(WordRepositoryServer::getSnapshot);
+    }
+
+    @Override
+    public WordLogPage readChangeLog(long afterVersion, int limit, long waitMillis) throws RemoteException {
+        return primary.call(server -> server.readChangeLog(afterVersion, limit, waitMillis));
+    }
+
+    /** Stops the clients. */
+    public void close() {
+        primary.close();
+        for (WordServiceClient replica : replicas) {
+            replica.close();
+        }
+    }
+}
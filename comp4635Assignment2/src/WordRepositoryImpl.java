@@ -1,141 +1,1161 @@
 import java.rmi.RemoteException;
 import java.rmi.server.UnicastRemoteObject;
 import java.io.*;
+import java.nio.file.Path;
 import java.util.*;
-
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Word repository backed by a word file.
+ * <p>
+ * The dictionary is an immutable {@link WordDictionary} snapshot published through an atomic
+ * reference. Readers (checkWord, getRandomWord and the puzzle queries) take the current snapshot
+ * and never lock or read the file. Writers queue their change and the first writer to find no
+ * commit in progress commits every queued change as one batch (group commit): it applies the
+ * changes in order to the next snapshot, which copies only the changes since the snapshot's base
+ * (see {@link WordDictionary#edit()}), writes the file once (an append, or a rewrite if the batch
+ * removes words), publishes the new snapshot and then notifies the change listeners, all before
+ * any writer of the batch returns. The indexes derived from the words are rebuilt in the
+ * background for the latest snapshot, one batch of changes at a time: a compaction folds the
+ * changes into a new base with its length index and arena, and goes through the commit queue to
+ * be published; the word graph used by prefix queries is built after it. Readers use the
+ * previous indexes meanwhile.
+ * </p>
+ * <p>
+ * Edits made to the word file by other processes are picked up by a {@link WordFileWatcher}:
+ * a reload goes through the same commit queue, diffs the file against the current snapshot,
+ * announces the added and removed words to the change listeners and publishes the file's
+ * contents as the next version. Readers keep using the previous snapshot meanwhile.
+ * </p>
+ * <p>
+ * A repository can be one shard of a sharded dictionary (see {@link WordShardRouter}): it then
+ * holds only the words of its hash range, in its own word file, and rejects changes to the
+ * words of the other shards.
+ * </p>
+ * <p>
+ * Replication: every commit also appends its changed words, with their versions, to an
+ * in-memory change log. A read replica (see {@link #replicate(String)}) starts from the
+ * primary's snapshot and then applies the log in order through its own commit queue, so it goes
+ * through the same versions as the primary and announces the same changes to its own listeners.
+ * A replica rejects writes. {@link #awaitVersion(long, long)} lets a reader wait until a replica
+ * has caught up with its own writes.
+ * </p>
+ */
+@SuppressWarnings("serial")
 public class WordRepositoryImpl extends UnicastRemoteObject implements WordRepositoryServer {
 
-    // File where words are stored.
+    // Default file where words are stored.
     private static final String WORDS_FILE = "words.txt";
-    private static List<String> words;
+    // Repository settings, read from "wordrepository.properties" (or -Dwordrepository.config).
+    private static final Properties CONFIG = loadConfig();
+    private static final Log.Logger LOG = Log.get("WordRepository");
+
+    // File this repository reads and writes.
+    private final String wordsFile;
+
+    // The shard this repository is, of how many (0 of 1 when the dictionary is not sharded).
+    private final int shard;
+    private final int shardCount;
+
+    // Current dictionary snapshot; replaced (never modified) by each commit.
+    private final AtomicReference<WordDictionary> dictionary = new AtomicReference<>();
+
+    // Group commit: changes waiting for the next batch, and whether a writer is committing one.
+    private final Object commitLock = new Object();
+    private List<Change> pending = new ArrayList<>();
+    private boolean committing;
+    private final LongAdder commits = new LongAdder();
+    private final LongAdder committedChanges = new LongAdder();
+    private final LongAdder reloads = new LongAdder();
+
+    // Size and modification time of the word file after this repository last wrote or read it,
+    // so a reload triggered by its own write is skipped. Only the committing writer uses them.
+    private long knownFileLength = -1;
+    private long knownFileModified = -1;
+    // Line terminator of the word file, which this repository keeps when it writes the file and
+    // passes on to its replicas, so that their copies match the file byte for byte
+    private volatile String lineSeparator;
+    private WordFileWatcher watcher;
+
+    // Call metrics, exposed over JMX.
+    private final ServerMetrics metrics;
+
+    // Change subscription: the subscribers notified of changes. The version of the dictionary
+    // is the version of the current snapshot; every successful change increments it.
+    private final CopyOnWriteArrayList<WordChangeListener> listeners = new CopyOnWriteArrayList<>();
+    // Announcements run on virtual threads so that a listener that stops answering delays a
+    // commit by at most listenerTimeoutMillis before it is dropped
+    private final ExecutorService notifier = Executors.newVirtualThreadPerTaskExecutor();
+    private final long listenerTimeoutMillis = Long.parseLong(CONFIG.getProperty("listenerTimeoutMillis", "2000").trim());
+    private final LongAdder droppedListeners = new LongAdder();
+
+    // Largest page findWords returns, and longest wait of a change log reader
+    private static final int MAX_PAGE = 1000;
+    private static final long MAX_LOG_WAIT_MILLIS = 10000;
+
+    // Change log read by the replicas: the word changed at each of the latest versions (version v
+    // at index v % size), from logFirst to logLast. The epoch identifies this repository's
+    // history: a restarted primary starts a new one, and so does a reload that replaying the log
+    // would not reproduce; its replicas then start again from a snapshot.
+    private final Object logLock = new Object();
+    private final String[] logWords;
+    private final boolean[] logAdds;
+    private long logFirst = 1;
+    private long logLast;
+    private long epoch = new Random().nextLong();
+
+    // The latest version whose changes have been announced, for awaitVersion and the log readers
+    private final Object versionMonitor = new Object();
+    private long announcedVersion;
+
+    // Registry URL of the primary if this repository is a read replica, and its replication state
+    private volatile String primaryUrl;
+    private final LongAdder replicaResyncs = new LongAdder();
+
+    // Bloom filter over the dictionary in front of the exact lookup: words it rules out are
+    // answered without a hash lookup. Each snapshot carries one unless it is disabled.
+    private final boolean bloomEnabled = Boolean.parseBoolean(CONFIG.getProperty("bloomFilter", "true").trim());
+    private final double bloomFalsePositiveRate = Double.parseDouble(CONFIG.getProperty("bloomFalsePositiveRate", "0.01").trim());
+    private final long bloomMaxBytes = Long.parseLong(CONFIG.getProperty("bloomMaxBytes", "4194304").trim());
+    private final LongAdder bloomNegatives = new LongAdder();
+    private final LongAdder bloomFalsePositives = new LongAdder();
+
+    // Compacts the latest snapshot and builds its word graph off the commit path, one at a time;
+    // a build requested while one is queued is coalesced with it
+    private final ExecutorService indexBuilder = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "WordIndexBuilder");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicBoolean indexesQueued = new AtomicBoolean();
+    private final LongAdder graphBuilds = new LongAdder();
+    private final LongAdder compactions = new LongAdder();
+    // Most changes a snapshot keeps over its base while nobody reads the base's arena or length index
+    private final int compactChanges = Integer.parseInt(CONFIG.getProperty("compactChanges", "4096").trim());
 
     // Constructor must throw RemoteException.
     protected WordRepositoryImpl() throws RemoteException {
-        super();
+        this(WORDS_FILE);
     }
 
     /**
-     * Creates a word in the repository.
-     * If the word already exists (ignoring case), returns false.
-     * Otherwise, appends the word to the file and returns true.
+     * Creates a repository backed by a specific word file (e.g. a generated dictionary for benchmarks).
+     *
+     * @param wordsFile path of the word file, one word per line.
      */
-    @Override
-    public synchronized boolean createWord(String word) throws RemoteException {
-        // Check if the word already exists.
-        if (checkWord(word)) {
-            return false;
+    protected WordRepositoryImpl(String wordsFile) throws RemoteException {
+        this(wordsFile, 0, 1);
+    }
+
+    /**
+     * Creates one shard of a sharded dictionary.
+     *
+     * @param wordsFile  path of the shard's word file, one word per line.
+     * @param shard      the shard this repository is, from 0.
+     * @param shardCount the number of shards.
+     */
+    protected WordRepositoryImpl(String wordsFile, int shard, int shardCount) throws RemoteException {
+        super(0, TunedSocketFactory.configured(), TunedSocketFactory.configured());
+        if (shard < 0 || shard >= shardCount) {
+            throw new IllegalArgumentException("Invalid shard " + shard + " of " + shardCount);
         }
-        try (BufferedWriter bw = new BufferedWriter(new FileWriter(WORDS_FILE, true))) {
-            bw.write(word);
-            bw.newLine();
+        this.wordsFile = wordsFile;
+        this.shard = shard;
+        this.shardCount = shardCount;
+        int logSize = Math.max(1, Integer.parseInt(CONFIG.getProperty("changeLogSize", "100000").trim()));
+        this.logWords = new String[logSize];
+        this.logAdds = new boolean[logSize];
+        WordDictionary loaded;
+        try {
+            loaded = WordDictionary.load(wordsFile, 0);
         } catch (IOException e) {
-            throw new RemoteException("Error creating word: " + word, e);
+            throw new RemoteException("Error reading words file.", e);
         }
-        return true;
+        rememberFile();
+        lineSeparator = lineSeparatorOf(wordsFile);
+        dictionary.set(loaded.withVersion(0, buildBloomFilter(loaded.lines())));
+        this.metrics = ServerMetrics.register("WordRepositoryServer");
+        metrics.gauge("dictionaryWords", () -> dictionary.get().size());
+        metrics.gauge("dictionaryVersion", () -> dictionary.get().getVersion());
+        metrics.gauge("dictionaryArenaBytes", () -> {
+            WordArena arena = dictionary.get().builtArena();
+            return arena == null ? 0 : arena.getArenaBytes();
+        });
+        metrics.gauge("dictionaryDawgBytes", () -> {
+            WordDawg dawg = dictionary.get().builtDawg();
+            return dawg == null ? 0 : dawg.getBytes();
+        });
+        metrics.gauge("commits", commits::sum);
+        metrics.gauge("committedChanges", committedChanges::sum);
+        metrics.gauge("reloads", reloads::sum);
+        metrics.gauge("changeListeners", () -> listeners.size());
+        metrics.gauge("droppedChangeListeners", droppedListeners::sum);
+        metrics.gauge("changeLogEntries", () -> {
+            synchronized (logLock) {
+                return logLast - logFirst + 1;
+            }
+        });
+        metrics.gauge("replicaResyncs", replicaResyncs::sum);
+        metrics.gauge("bloomFilterBytes", () -> {
+            WordBloomFilter bloom = dictionary.get().bloom();
+            return bloom == null ? 0 : bloom.getBitCount() / 8;
+        });
+        metrics.gauge("bloomNegatives", bloomNegatives::sum);
+        metrics.gauge("bloomFalsePositives", bloomFalsePositives::sum);
+        metrics.gauge("dictionaryGraphBuilds", graphBuilds::sum);
+        metrics.gauge("dictionaryCompactions", compactions::sum);
+    }
+
+    /**
+     * Creates a word in the repository.
+     * If the word already exists (ignoring case), returns false.
+     * Otherwise, appends the word to the file, notifies the change listeners and returns true.
+     */
+    @Override
+    public boolean createWord(String word) throws RemoteException {
+        return metrics.timed("createWord", () -> change(Collections.singletonList(word), true)[0]);
     }
 
     /**
      * Removes a word from the repository.
-     * Reads all words, filters out the given word (ignoring case), and rewrites the
-     * file.
-     * Returns true if the word was found and removed; false otherwise.
+     * Removes every line equal to the given word (ignoring case) and rewrites the file.
+     * Returns true if the word was found and removed (after notifying the change listeners);
+     * false otherwise.
      */
     @Override
-    public synchronized boolean removeWord(String word) throws RemoteException {
-        List<String> words = new ArrayList<>();
-        boolean found = false;
-        try (BufferedReader br = new BufferedReader(new FileReader(WORDS_FILE))) {
-            String line;
-            while ((line = br.readLine()) != null) {
-                if (line.trim().equalsIgnoreCase(word)) {
-                    found = true;
+    public boolean removeWord(String word) throws RemoteException {
+        return metrics.timed("removeWord", () -> change(Collections.singletonList(word), false)[0]);
+    }
+
+    /**
+     * Creates several words in one commit: the words are checked against the dictionary and
+     * against each other, the new ones are appended to the file in one write and the change
+     * listeners are notified of them in one call.
+     *
+     * @return for each word, what createWord would have returned had the words been created one
+     *         after the other.
+     */
+    @Override
+    public boolean[] createWords(List<String> words) throws RemoteException {
+        return metrics.timed("createWords", () -> change(words, true));
+    }
+
+    /**
+     * Removes several words in one commit (and at most one rewrite of the file).
+     *
+     * @return for each word, what removeWord would have returned had the words been removed one
+     *         after the other.
+     */
+    @Override
+    public boolean[] removeWords(List<String> words) throws RemoteException {
+        return metrics.timed("removeWords", () -> change(words, false));
+    }
+
+    /**
+     * Creates a word like createWord, and returns the version from which the result is visible:
+     * the version published by the commit that applied it.
+     */
+    @Override
+    public WordWrite createWordVersioned(String word) throws RemoteException {
+        return metrics.timed("createWordVersioned", () -> {
+            long[] version = new long[1];
+            boolean changed = change(Collections.singletonList(word), true, version)[0];
+            return new WordWrite(changed, version[0], currentEpoch());
+        });
+    }
+
+    /** Removes a word like removeWord, and returns the version from which the result is visible. */
+    @Override
+    public WordWrite removeWordVersioned(String word) throws RemoteException {
+        return metrics.timed("removeWordVersioned", () -> {
+            long[] version = new long[1];
+            boolean changed = change(Collections.singletonList(word), false, version)[0];
+            return new WordWrite(changed, version[0], currentEpoch());
+        });
+    }
+
+    /**
+     * Checks if the given word exists in the repository (ignoring case).
+     * Answers from the current snapshot without locking; words ruled out by the Bloom filter
+     * are answered without a lookup.
+     */
+    @Override
+    public boolean checkWord(String word) throws RemoteException {
+        return metrics.timed("checkWord", () -> containsWord(dictionary.get(), word));
+    }
+
+    /**
+     * Reloads the word file if it was changed by another process: the added and removed words
+     * are announced to the change listeners and the file's contents become the next version.
+     *
+     * @return true if the dictionary changed.
+     * @throws RemoteException if the file cannot be read; the dictionary is then unchanged.
+     */
+    public boolean reloadWordsFile() throws RemoteException {
+        Change reload = new Change(null, false, true);
+        submit(Collections.singletonList(reload));
+        return await(reload);
+    }
+
+    /**
+     * Starts watching the word file and reloading it when another process changes it.
+     *
+     * @param quietMillis how long the file must be unchanged before it is reloaded.
+     * @throws IOException if the file cannot be watched.
+     */
+    public void watchWordsFile(long quietMillis) throws IOException {
+        watcher = new WordFileWatcher(Path.of(wordsFile), quietMillis, () -> {
+            try {
+                reloadWordsFile();
+            } catch (RemoteException e) {
+                LOG.warn("Could not reload {}: {}", wordsFile, e.getMessage());
+            }
+        });
+        watcher.start();
+    }
+
+    /** A requested change, completed with its result by the writer that commits its batch. */
+    private static final class Change {
+        final String word;
+        final boolean add;
+        // Reload the word file instead of changing a word
+        final boolean reload;
+        // Or publish this compacted snapshot (see WordDictionary#compact) instead
+        final WordDictionary compacted;
+        final CompletableFuture<Boolean> result = new CompletableFuture<>();
+        // The version published by the commit of the change; set before the result is completed
+        long version;
+
+        Change(String word, boolean add) {
+            this(word, add, false);
+        }
+
+        Change(String word, boolean add, boolean reload) {
+            this.word = word;
+            this.add = add;
+            this.reload = reload;
+            this.compacted = null;
+        }
+
+        Change(WordDictionary compacted) {
+            this.word = null;
+            this.add = false;
+            this.reload = false;
+            this.compacted = compacted;
+        }
+    }
+
+    /**
+     * Adds or removes words and waits until they are committed. Null words, and words to remove
+     * that the Bloom filter rules out, change nothing and are not queued. A shard rejects the
+     * whole call if a word belongs to another shard, and a replica rejects every change.
+     */
+    private boolean[] change(List<String> words, boolean add) throws RemoteException {
+        return change(words, add, null);
+    }
+
+    /**
+     * @param versions receives, for each word, the version from which its result is visible; may
+     *                 be null.
+     */
+    private boolean[] change(List<String> words, boolean add, long[] versions) throws RemoteException {
+        String primary = primaryUrl;
+        if (primary != null) {
+            throw new RemoteException("This word repository is a read replica of " + primary
+                    + "; send changes to the primary.");
+        }
+        if (shardCount > 1) {
+            for (String word : words) {
+                if (word != null && WordShardRouter.shardOf(word, shardCount) != shard) {
+                    throw new RemoteException("Word '" + word + "' belongs to shard "
+                            + WordShardRouter.shardOf(word, shardCount) + ", not shard " + shard + " of " + shardCount);
+                }
+            }
+        }
+        WordDictionary snapshot = dictionary.get();
+        Change[] changes = new Change[words.size()];
+        List<Change> queued = new ArrayList<>(changes.length);
+        for (int i = 0; i < changes.length; i++) {
+            String word = words.get(i);
+            if (word != null && (add || mightContain(snapshot, word))) {
+                changes[i] = new Change(word, add);
+                queued.add(changes[i]);
+            }
+        }
+        submit(queued);
+        boolean[] results = new boolean[changes.length];
+        for (int i = 0; i < changes.length; i++) {
+            results[i] = changes[i] != null && await(changes[i]);
+            if (versions != null) {
+                versions[i] = changes[i] != null ? changes[i].version : snapshot.getVersion();
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Queues changes (committed together, in order). If no commit is in progress this writer
+     * commits the queued batches itself until the queue is empty.
+     */
+    private void submit(List<Change> changes) {
+        if (changes.isEmpty()) {
+            return;
+        }
+        boolean commit;
+        synchronized (commitLock) {
+            pending.addAll(changes);
+            commit = !committing;
+            committing = true;
+        }
+        if (commit) {
+            while (true) {
+                List<Change> batch;
+                synchronized (commitLock) {
+                    if (pending.isEmpty()) {
+                        committing = false;
+                        break;
+                    }
+                    batch = pending;
+                    pending = new ArrayList<>();
+                }
+                commitBatch(batch);
+            }
+        }
+    }
+
+    // Waits for the batch that commits a change
+    private boolean await(Change change) throws RemoteException {
+        try {
+            return change.result.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RemoteException("Interrupted while waiting for the word change to be committed.");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RemoteException) {
+                throw (RemoteException) cause;
+            }
+            throw new RemoteException(change.reload ? "Error reloading " + wordsFile
+                    : "Error committing word change: " + change.word, cause);
+        }
+    }
+
+    // Commits the word changes between reloads and compactions as batches, and the reloads and
+    // compactions in between, in order
+    private void commitBatch(List<Change> batch) {
+        int from = 0;
+        for (int i = 0; i <= batch.size(); i++) {
+            if (i == batch.size() || batch.get(i).reload || batch.get(i).compacted != null) {
+                if (i > from) {
+                    commit(batch.subList(from, i));
+                }
+                if (i < batch.size() && batch.get(i).reload) {
+                    reload(batch.get(i));
+                } else if (i < batch.size()) {
+                    publishCompacted(batch.get(i));
+                }
+                from = i + 1;
+            }
+        }
+    }
+
+    /**
+     * Applies a batch of changes in order, writes the file, publishes the new snapshot, notifies
+     * the listeners and completes the changes. If the file cannot be written no change of the
+     * batch takes effect.
+     */
+    private void commit(List<Change> batch) {
+        try {
+            WordDictionary current = dictionary.get();
+            WordDictionary.Editor editor = current.edit();
+            // Lines added by the batch, and whether it removed any (the file is then rewritten)
+            List<String> added = new ArrayList<>();
+            boolean removed = false;
+            List<String> changedWords = new ArrayList<>();
+            List<Boolean> changedAdds = new ArrayList<>();
+            boolean[] results = new boolean[batch.size()];
+            for (int i = 0; i < batch.size(); i++) {
+                Change change = batch.get(i);
+                if (change.add) {
+                    results[i] = editor.add(change.word);
+                    if (results[i]) {
+                        added.add(change.word);
+                    }
                 } else {
-                    words.add(line);
+                    results[i] = editor.remove(change.word);
+                    removed |= results[i];
+                }
+                if (results[i]) {
+                    changedWords.add(change.word);
+                    changedAdds.add(change.add);
+                }
+            }
+
+            WordDictionary next = current;
+            if (!changedWords.isEmpty()) {
+                WordDictionary edited = editor.build(current.getVersion() + changedWords.size(), null);
+                if (removed) {
+                    rewriteLines(edited.lines());
+                } else {
+                    appendLines(added);
+                }
+                rememberFile();
+                next = edited.withVersion(edited.getVersion(), nextBloomFilter(current, edited, added));
+                next.prepareLike(current, foldAll(changedWords));
+                dictionary.set(next);
+                buildIndexesLater();
+                appendLog(changedWords, changedAdds, next.getVersion());
+            }
+            commits.increment();
+            committedChanges.add(changedWords.size());
+
+            notifyListeners(changedWords, next.getVersion());
+            announce(next.getVersion());
+            for (int i = 0; i < batch.size(); i++) {
+                batch.get(i).version = next.getVersion();
+                batch.get(i).result.complete(results[i]);
+            }
+        } catch (Throwable t) {
+            for (Change change : batch) {
+                change.result.completeExceptionally(t);
+            }
+        }
+    }
+
+    /**
+     * Reloads the word file unless it is as this repository last wrote or read it, and publishes
+     * it as the next version if it differs from the current snapshot.
+     */
+    private void reload(Change change) {
+        try {
+            File file = new File(wordsFile);
+            if (file.length() == knownFileLength && file.lastModified() == knownFileModified) {
+                change.result.complete(false);
+                return;
+            }
+            rememberFile();
+            WordDictionary current = dictionary.get();
+            WordDictionary loaded = WordDictionary.load(wordsFile, 0);
+            String separator = lineSeparatorOf(wordsFile);
+            List<String> added = linesMissingFrom(loaded, current);
+            List<String> removed = linesMissingFrom(current, loaded);
+            if (added.isEmpty() && removed.isEmpty() && loaded.lines().equals(current.lines())
+                    && separator.equals(lineSeparator)) {
+                change.result.complete(false);
+                return;
+            }
+            boolean replayable = separator.equals(lineSeparator) && replays(current, loaded, added, removed);
+            lineSeparator = separator;
+
+            WordBloomFilter bloom = nextBloomFilter(current, loaded, added);
+            WordDictionary next = loaded.withVersion(current.getVersion() + added.size() + removed.size(), bloom);
+            List<String> changedWords = new ArrayList<>(added);
+            changedWords.addAll(removed);
+            // Build the indexes readers are using here rather than on a reader
+            next.prepareLike(current, foldAll(changedWords));
+            dictionary.set(next);
+            buildIndexesLater();
+            reloads.increment();
+            committedChanges.add(added.size() + removed.size());
+            LOG.info("Reloaded {}: {} words added, {} removed, version {}", wordsFile, added.size(),
+                    removed.size(), next.getVersion());
+
+            if (replayable) {
+                List<Boolean> changedAdds = new ArrayList<>(Collections.nCopies(added.size(), true));
+                changedAdds.addAll(Collections.nCopies(removed.size(), false));
+                appendLog(changedWords, changedAdds, next.getVersion());
+            } else {
+                // Replaying the changes would not give the replicas this file (words were inserted
+                // before the end, lines have blanks around them or the line terminator changed),
+                // so start a new epoch: the replicas copy a snapshot instead
+                synchronized (logLock) {
+                    epoch = new Random().nextLong();
+                    logFirst = next.getVersion() + 1;
+                    logLast = next.getVersion();
+                }
+                LOG.info("Started a new replication epoch: the reloaded {} cannot be replayed from the change log",
+                        wordsFile);
+            }
+            notifyListeners(changedWords, next.getVersion());
+            announce(next.getVersion());
+            change.result.complete(!added.isEmpty() || !removed.isEmpty());
+        } catch (Throwable t) {
+            change.result.completeExceptionally(t);
+        }
+    }
+
+    // Compacts the latest snapshot and builds its word graph in the background if its readers
+    // are answered from earlier indexes meanwhile
+    private void buildIndexesLater() {
+        WordDictionary snapshot = dictionary.get();
+        if ((snapshot.needsCompaction(compactChanges) || snapshot.needsDawg()) && indexesQueued.compareAndSet(false, true)) {
+            indexBuilder.execute(this::buildIndexes);
+        }
+    }
+
+    private void buildIndexes() {
+        indexesQueued.set(false);
+        WordDictionary snapshot = dictionary.get();
+        if (snapshot.needsCompaction(compactChanges)) {
+            long start = System.nanoTime();
+            Change compaction = new Change(snapshot.compact());
+            submit(Collections.singletonList(compaction));
+            LOG.debug("Compacted version {} in {} ms", snapshot.getVersion(),
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        }
+        snapshot = dictionary.get();
+        if (snapshot.needsDawg()) {
+            long start = System.nanoTime();
+            snapshot.dawg();
+            graphBuilds.increment();
+            LOG.debug("Built the word graph of version {} in {} ms", snapshot.getVersion(),
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        }
+    }
+
+    /**
+     * Publishes a compacted snapshot with the changes committed since it was taken, unless the
+     * dictionary was replaced meanwhile (e.g. reloaded). The version does not change.
+     */
+    private void publishCompacted(Change change) {
+        try {
+            WordDictionary rebased = dictionary.get().rebase(change.compacted);
+            if (rebased != null) {
+                dictionary.set(rebased);
+                compactions.increment();
+            }
+            change.result.complete(rebased != null);
+        } catch (Throwable t) {
+            change.result.completeExceptionally(t);
+        }
+    }
+
+    /**
+     * @return true if removing the removed words' lines from current and appending the added
+     *         words gives loaded's lines, which is how a replica applies the change log.
+     */
+    private static boolean replays(WordDictionary current, WordDictionary loaded, List<String> added, List<String> removed) {
+        Set<String> removedKeys = new HashSet<>(foldAll(removed));
+        List<String> replayed = new ArrayList<>(loaded.lines().size());
+        for (String line : current.lines()) {
+            if (!removedKeys.contains(WordDictionary.fold(line.trim()))) {
+                replayed.add(line);
+            }
+        }
+        replayed.addAll(added);
+        return replayed.equals(loaded.lines());
+    }
+
+    // The line terminator of a word file: the one that ends its first line, or the platform's
+    private static String lineSeparatorOf(String path) {
+        try (InputStream in = new BufferedInputStream(new FileInputStream(path))) {
+            int previous = -1;
+            for (int b = in.read(); b >= 0; previous = b, b = in.read()) {
+                if (b == '\n') {
+                    return previous == '\r' ? "\r\n" : "\n";
                 }
             }
         } catch (IOException e) {
-            throw new RemoteException("Error reading words file.", e);
+            // a missing or unreadable file is written with the platform's terminator
         }
-        if (!found) {
-            return false;
+        return System.lineSeparator();
+    }
+
+    // The trimmed lines of a snapshot whose words the other one lacks, the first line of each word
+    private static List<String> linesMissingFrom(WordDictionary snapshot, WordDictionary other) {
+        List<String> missing = new ArrayList<>();
+        Set<String> seen = new HashSet<>();
+        for (String line : snapshot.lines()) {
+            String word = line.trim();
+            String key = WordDictionary.fold(word);
+            if (!other.containsKey(key) && seen.add(key)) {
+                missing.add(word);
+            }
+        }
+        return missing;
+    }
+
+    // The keys of the words (see WordDictionary#fold), which is how the indexes compare them
+    private static List<String> foldAll(List<String> words) {
+        List<String> keys = new ArrayList<>(words.size());
+        for (String word : words) {
+            keys.add(WordDictionary.fold(word.trim()));
+        }
+        return keys;
+    }
+
+    // Remembers the word file's current size and modification time
+    private void rememberFile() {
+        File file = new File(wordsFile);
+        knownFileLength = file.length();
+        knownFileModified = file.lastModified();
+    }
+
+    /**
+     * Returns the Bloom filter for the next snapshot: the current one with the added words while
+     * it has room for them (Bloom filters only grow, so it can be shared; removed words are left
+     * in it as false positives), otherwise a new one. Filling it to its capacity counts the
+     * removed words too, so their false positives are bounded like the rest.
+     */
+    private WordBloomFilter nextBloomFilter(WordDictionary current, WordDictionary next, List<String> added) {
+        WordBloomFilter bloom = current.bloom();
+        if (bloom == null || bloom.getAddedCount() + added.size() > bloom.getCapacity()) {
+            return buildBloomFilter(next.lines());
+        }
+        for (String word : added) {
+            bloom.add(word.trim());
+        }
+        return bloom;
+    }
+
+    private void appendLines(List<String> lines) throws RemoteException {
+        try (BufferedWriter bw = new BufferedWriter(new FileWriter(wordsFile, true))) {
+            for (String line : lines) {
+                bw.write(line);
+                bw.write(lineSeparator);
+            }
+        } catch (IOException e) {
+            throw new RemoteException("Error creating words: " + lines, e);
         }
-        try (BufferedWriter bw = new BufferedWriter(new FileWriter(WORDS_FILE, false))) {
-            for (String w : words) {
-                bw.write(w);
-                bw.newLine();
+    }
+
+    private void rewriteLines(List<String> lines) throws RemoteException {
+        try (BufferedWriter bw = new BufferedWriter(new FileWriter(wordsFile, false))) {
+            for (String line : lines) {
+                bw.write(line);
+                bw.write(lineSeparator);
             }
         } catch (IOException e) {
             throw new RemoteException("Error writing words file.", e);
         }
-        return true;
     }
 
     /**
-     * Checks if the given word exists in the repository (ignoring case).
+     * Notifies the change listeners of the words changed by a commit, in one call per listener.
+     * The calls run in parallel and the committing writer waits for them, so the changes are
+     * announced before createWord/removeWord returns and every listener receives them in version
+     * order. A listener that cannot be reached, or has not answered within
+     * listenerTimeoutMillis, is dropped: it notices the version gap when it next reads the
+     * version and subscribes again.
+     *
+     * @param words   the changed words, in the order they changed.
+     * @param version the version after the last of them.
      */
+    private void notifyListeners(List<String> words, long version) {
+        if (words.isEmpty() || listeners.isEmpty()) {
+            return;
+        }
+        List<WordChangeListener> notified = new ArrayList<>(listeners);
+        List<Future<?>> calls = new ArrayList<>(notified.size());
+        List<String> changed = words.size() == 1 ? null : new ArrayList<>(words);
+        for (WordChangeListener listener : notified) {
+            calls.add(notifier.submit(() -> {
+                if (changed == null) {
+                    listener.wordChanged(words.get(0), version);
+                } else {
+                    listener.wordsChanged(changed, version);
+                }
+                return null;
+            }));
+        }
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(listenerTimeoutMillis);
+        for (int i = 0; i < calls.size(); i++) {
+            Future<?> call = calls.get(i);
+            try {
+                call.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            } catch (TimeoutException e) {
+                call.cancel(true);
+                dropListener(notified.get(i), "no answer within " + listenerTimeoutMillis + " ms");
+            } catch (ExecutionException e) {
+                dropListener(notified.get(i), String.valueOf(e.getCause().getMessage()));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private void dropListener(WordChangeListener listener, String reason) {
+        if (listeners.remove(listener)) {
+            droppedListeners.increment();
+            LOG.warn("Dropping word change listener: {}", reason);
+        }
+    }
+
     @Override
-    public synchronized boolean checkWord(String word) throws RemoteException {
-        try (BufferedReader br = new BufferedReader(new FileReader(WORDS_FILE))) {
-            String line;
-            while ((line = br.readLine()) != null) {
-                if (line.trim().equalsIgnoreCase(word)) {
-                    return true;
+    public long getVersion() throws RemoteException {
+        return metrics.timed("getVersion", () -> dictionary.get().getVersion());
+    }
+
+    @Override
+    public void addWordChangeListener(WordChangeListener listener) throws RemoteException {
+        metrics.timed("addWordChangeListener", () -> listeners.addIfAbsent(listener));
+    }
+
+    @Override
+    public void removeWordChangeListener(WordChangeListener listener) throws RemoteException {
+        metrics.timed("removeWordChangeListener", () -> listeners.remove(listener));
+    }
+
+    /**
+     * Waits until the changes up to a version have been published and announced, e.g. for a
+     * reader of a replica that wants to see its own writes to the primary.
+     *
+     * @return the version reached, lower than the requested one if the timeout passed first.
+     */
+    @Override
+    public long awaitVersion(long version, long timeoutMillis) throws RemoteException {
+        return metrics.timed("awaitVersion", () -> waitForVersion(version, timeoutMillis));
+    }
+
+    @Override
+    public WordSnapshot getSnapshot() throws RemoteException {
+        return metrics.timed("getSnapshot", () -> {
+            WordDictionary snapshot = dictionary.get();
+            synchronized (logLock) {
+                return new WordSnapshot(epoch, snapshot.getVersion(), snapshot.lines(), lineSeparator);
+            }
+        });
+    }
+
+    /**
+     * Returns the changes after a version from the change log, waiting up to waitMillis (at most
+     * MAX_LOG_WAIT_MILLIS) for one if there are none yet. If the log no longer holds them, or
+     * the reader is ahead of this repository (a restarted primary), the page asks the reader to
+     * start again from a snapshot.
+     */
+    @Override
+    public WordLogPage readChangeLog(long afterVersion, int limit, long waitMillis) throws RemoteException {
+        return metrics.timed("readChangeLog", () -> {
+            waitForVersion(afterVersion + 1, Math.min(waitMillis, MAX_LOG_WAIT_MILLIS));
+            synchronized (logLock) {
+                if (afterVersion < logFirst - 1 || afterVersion > logLast) {
+                    return new WordLogPage(epoch, afterVersion, new String[0], new boolean[0], true);
+                }
+                int count = (int) Math.min(Math.max(0, limit), logLast - afterVersion);
+                String[] words = new String[count];
+                boolean[] adds = new boolean[count];
+                for (int i = 0; i < count; i++) {
+                    int slot = (int) ((afterVersion + 1 + i) % logWords.length);
+                    words[i] = logWords[slot];
+                    adds[i] = logAdds[slot];
                 }
+                return new WordLogPage(epoch, afterVersion, words, adds, false);
             }
-        } catch (IOException e) {
-            throw new RemoteException("Error reading words file.", e);
+        });
+    }
+
+    // The epoch of this repository's history (a primary keeps one for its lifetime)
+    private long currentEpoch() {
+        synchronized (logLock) {
+            return epoch;
+        }
+    }
+
+    // Appends the words changed by a commit, the last one at lastVersion, to the change log
+    private void appendLog(List<String> words, List<Boolean> adds, long lastVersion) {
+        synchronized (logLock) {
+            long version = lastVersion - words.size();
+            for (int i = 0; i < words.size(); i++) {
+                int slot = (int) (++version % logWords.length);
+                logWords[slot] = words.get(i);
+                logAdds[slot] = adds.get(i);
+            }
+            logLast = lastVersion;
+            logFirst = Math.max(logFirst, logLast - logWords.length + 1);
+        }
+    }
+
+    // Records that the changes up to a version have been announced, and wakes up their waiters
+    private void announce(long version) {
+        synchronized (versionMonitor) {
+            // Only lower after a replica copied a restarted primary
+            announcedVersion = version;
+            versionMonitor.notifyAll();
+        }
+    }
+
+    private long waitForVersion(long version, long timeoutMillis) throws RemoteException {
+        long deadline = System.currentTimeMillis() + Math.max(0, timeoutMillis);
+        synchronized (versionMonitor) {
+            long left;
+            while (announcedVersion < version && (left = deadline - System.currentTimeMillis()) > 0) {
+                try {
+                    versionMonitor.wait(left);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new RemoteException("Interrupted while waiting for version " + version);
+                }
+            }
+            return announcedVersion;
+        }
+    }
+
+    /**
+     * Makes this repository a read replica of a primary: it copies the primary's dictionary into
+     * its own word file, then follows the primary's change log on a daemon thread
+     * ("word-replicator"), applying each page of changes as one commit. Changes from clients are
+     * rejected from now on. If the primary cannot be reached the replica keeps serving its
+     * current copy and tries again every replicaRetryMillis.
+     *
+     * @param primaryUrl registry URL of the primary.
+     */
+    public void replicate(String primaryUrl) {
+        this.primaryUrl = primaryUrl;
+        long pollMillis = Long.parseLong(CONFIG.getProperty("replicaPollMillis", "1000").trim());
+        long retryMillis = Long.parseLong(CONFIG.getProperty("replicaRetryMillis", "1000").trim());
+        int pageSize = Integer.parseInt(CONFIG.getProperty("replicaPageSize", "10000").trim());
+        Thread replicator = new Thread(() -> {
+            WordRepositoryServer primary = null;
+            boolean synced = false;
+            while (!Thread.currentThread().isInterrupted()) {
+                try {
+                    if (primary == null) {
+                        primary = (WordRepositoryServer) java.rmi.Naming.lookup(primaryUrl);
+                    }
+                    if (!synced) {
+                        resync(primary.getSnapshot());
+                        synced = true;
+                    }
+                    WordLogPage page = primary.readChangeLog(dictionary.get().getVersion(), pageSize, pollMillis);
+                    if (page.isSnapshotRequired() || page.getEpoch() != epoch) {
+                        synced = false;
+                    } else if (page.size() > 0 && !apply(page)) {
+                        LOG.warn("Replica of {} diverged at version {}; copying the primary again", primaryUrl,
+                                page.getAfterVersion());
+                        synced = false;
+                    }
+                } catch (Exception e) {
+                    LOG.warn("Cannot replicate from {}: {}", primaryUrl, e.getMessage());
+                    primary = null;
+                    try {
+                        Thread.sleep(retryMillis);
+                    } catch (InterruptedException ie) {
+                        return;
+                    }
+                }
+            }
+        }, "word-replicator");
+        replicator.setDaemon(true);
+        replicator.start();
+    }
+
+    /**
+     * Applies a page of the primary's change log as one commit. The replicator is a replica's
+     * only writer, so its copy is at the page's first version.
+     *
+     * @return false if the commit did not reach the version the primary reached with the same
+     *         changes.
+     */
+    private boolean apply(WordLogPage page) throws RemoteException {
+        if (dictionary.get().getVersion() != page.getAfterVersion()) {
+            return false;
+        }
+        List<Change> changes = new ArrayList<>(page.size());
+        for (int i = 0; i < page.size(); i++) {
+            changes.add(new Change(page.getWord(i), page.isAdd(i)));
         }
+        submit(changes);
+        for (Change change : changes) {
+            await(change);
+        }
+        return dictionary.get().getVersion() == page.getAfterVersion() + page.size();
+    }
+
+    /**
+     * Replaces this replica's copy with a snapshot of the primary, like a reload: the words that
+     * differ are announced to the listeners and the snapshot's version is published.
+     */
+    private void resync(WordSnapshot snapshot) throws IOException {
+        List<String> lines = new ArrayList<>(snapshot.getLines());
+        lineSeparator = snapshot.getLineSeparator();
+        rewriteLines(lines);
+        rememberFile();
+        WordDictionary current = dictionary.get();
+        WordDictionary loaded = WordDictionary.load(wordsFile, snapshot.getVersion());
+        List<String> changedWords = linesMissingFrom(loaded, current);
+        changedWords.addAll(linesMissingFrom(current, loaded));
+        WordDictionary next = loaded.withVersion(snapshot.getVersion(), buildBloomFilter(loaded.lines()));
+        next.prepareLike(current, foldAll(changedWords));
+        dictionary.set(next);
+        buildIndexesLater();
+        synchronized (logLock) {
+            epoch = snapshot.getEpoch();
+            logFirst = snapshot.getVersion() + 1;
+            logLast = snapshot.getVersion();
+        }
+        replicaResyncs.increment();
+        LOG.info("Copied the dictionary of {} at version {}: {} words", primaryUrl, snapshot.getVersion(),
+                next.size());
+        notifyListeners(changedWords, next.getVersion());
+        announce(next.getVersion());
+    }
+
+    // Looks a word up in a snapshot (ignoring case), through its Bloom filter.
+    private boolean containsWord(WordDictionary snapshot, String word) {
+        if (word == null || !mightContain(snapshot, word)) {
+            return false;
+        }
+        boolean found = snapshot.contains(word);
+        if (!found && snapshot.bloom() != null) {
+            bloomFalsePositives.increment();
+        }
+        return found;
+    }
+
+    // False only if the word is certainly not in the snapshot.
+    private boolean mightContain(WordDictionary snapshot, String word) {
+        if (word == null || snapshot.mightContain(word)) {
+            return true;
+        }
+        bloomNegatives.increment();
         return false;
     }
 
+    /**
+     * Builds a Bloom filter over the given lines of the word file, or returns null if the filter
+     * is disabled. The filter is sized for twice the current words so that adds do not raise its
+     * false-positive rate much before a commit outgrows it and builds a new one.
+     */
+    private WordBloomFilter buildBloomFilter(List<String> lines) {
+        if (!bloomEnabled) {
+            return null;
+        }
+        WordBloomFilter filter = new WordBloomFilter(Math.max(1024, 2L * lines.size()), bloomFalsePositiveRate, bloomMaxBytes);
+        for (String line : lines) {
+            filter.add(line.trim());
+        }
+        double expected = filter.expectedFalsePositiveRate(filter.getCapacity());
+        if (expected > bloomFalsePositiveRate * 1.05) {
+            LOG.warn("Bloom filter limited to {} bytes by bloomMaxBytes; expected false-positive rate {}",
+                    filter.getBitCount() / 8, String.format("%.4f", expected));
+        }
+        LOG.info("Built the Bloom filter of {}: {} words, {} bytes, {} hashes", wordsFile,
+                lines.size(), filter.getBitCount() / 8, filter.getHashCount());
+        return filter;
+    }
+
+    private static Properties loadConfig() {
+        Properties config = new Properties();
+        try (FileInputStream fis = new FileInputStream(System.getProperty("wordrepository.config", "wordrepository.properties"))) {
+            config.load(fis);
+        } catch (IOException e) {
+            // No configuration file: defaults
+        }
+        return config;
+    }
+
     /**
      * Returns a random word from the repository that has at least the specified
      * length.
      * If no such word exists, returns an empty string.
      */
     @Override
-    public synchronized String getRandomWord(int length) throws RemoteException {
-        List<String> words = new ArrayList<>();
-        try (BufferedReader br = new BufferedReader(new FileReader(WORDS_FILE))) {
-            String line;
-            while ((line = br.readLine()) != null) {
-                line = line.trim();
-                if (line.length() >= length) {
-                    words.add(line);
-                }
-            }
-        } catch (IOException e) {
-            throw new RemoteException("Error reading words file.", e);
-        }
-        if (words.isEmpty()) {
-            return "";
-        }
-        Random random = new Random();
-        return words.get(random.nextInt(words.size()));
+    public String getRandomWord(int length) throws RemoteException {
+        return metrics.timed("getRandomWord", () -> dictionary.get().randomWord(length, ThreadLocalRandom.current()));
     }
 
     /**
      * Main method to start the WordRepositoryServer.
+     * <p>
+     * Usage: java WordRepositoryImpl [--shard i/n] [--replica-of primary-url] [--port 1099] [--words file]
+     * </p>
+     * With --shard the server is shard i (from 0) of n: its word file defaults to
+     * words.shard-i-of-n.txt, which is created from the words of words.txt in the shard's hash
+     * range if it does not exist. Every shard runs in its own JVM with its own registry port.
+     * With --replica-of the server is a read replica of the repository bound at that URL (of the
+     * same shard, if sharded), kept in words.replica-port.txt by default.
      */
     public static void main(String[] args) {
         try {
-            // Create or get the registry on port 1099.
+            int shard = 0;
+            int shardCount = 1;
+            int port = 1099;
+            String file = null;
+            String primary = null;
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--shard" -> {
+                        String[] parts = args[++i].split("/");
+                        shard = Integer.parseInt(parts[0].trim());
+                        shardCount = Integer.parseInt(parts[1].trim());
+                    }
+                    case "--replica-of" -> primary = args[++i];
+                    case "--port" -> port = Integer.parseInt(args[++i]);
+                    case "--words" -> file = args[++i];
+                    default -> throw new IllegalArgumentException("Unknown option: " + args[i]);
+                }
+            }
+            if (file == null && primary != null) {
+                file = "words.replica-" + port + ".txt";
+            } else if (file == null) {
+                file = shardCount > 1 ? "words.shard-" + shard + "-of-" + shardCount + ".txt" : WORDS_FILE;
+            }
+            if (primary != null) {
+                // Filled from the primary's snapshot once it is reached
+                new File(file).createNewFile();
+            } else if (shardCount > 1 && !new File(file).exists()) {
+                int seeded = seedShardFile(WORDS_FILE, file, shard, shardCount);
+                LOG.info("Created {} with the {} words of shard {} of {} from {}", file, seeded, shard, shardCount, WORDS_FILE);
+            }
+            // Create or get the registry on the port.
+            java.rmi.registry.Registry registry;
             try {
-                java.rmi.registry.LocateRegistry.getRegistry(1099).list();
+                registry = java.rmi.registry.LocateRegistry.getRegistry(port);
+                registry.list();
             } catch (Exception e) {
                 // If the registry doesn't exist, create it.
-                java.rmi.registry.LocateRegistry.createRegistry(1099);
+                registry = java.rmi.registry.LocateRegistry.createRegistry(port);
             }
             // Create an instance of the repository implementation.
-            WordRepositoryImpl wordServer = new WordRepositoryImpl();
+            WordRepositoryImpl wordServer = new WordRepositoryImpl(file, shard, shardCount);
+            if (primary != null) {
+                wordServer.replicate(primary);
+            } else if (Boolean.parseBoolean(CONFIG.getProperty("watchWordsFile", "true").trim())) {
+                wordServer.watchWordsFile(Long.parseLong(CONFIG.getProperty("watchQuietMillis", "200").trim()));
+            }
             // Bind the repository instance in the registry with the name
             // "WordRepositoryServer".
-            java.rmi.Naming.rebind("WordRepositoryServer", wordServer);
-            System.out.println("WordRepositoryServer is running and bound to 'WordRepositoryServer'.");
+            registry.rebind("WordRepositoryServer", wordServer);
+            System.out.println("WordRepositoryServer is running and bound to 'WordRepositoryServer' on port " + port
+                    + (shardCount > 1 ? " (shard " + shard + " of " + shardCount + ")" : "")
+                    + (primary != null ? " as a read replica of " + primary + "." : "."));
         } catch (Exception e) {
             e.printStackTrace();
         }
     }
+
+    /**
+     * Writes the lines of a word file that belong to one shard to the shard's word file.
+     *
+     * @return the number of lines written.
+     */
+    static int seedShardFile(String source, String target, int shard, int shardCount) throws IOException {
+        int written = 0;
+        try (BufferedReader reader = new BufferedReader(new FileReader(source));
+                BufferedWriter writer = new BufferedWriter(new FileWriter(target))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.trim().isEmpty() && WordShardRouter.shardOf(line, shardCount) == shard) {
+                    writer.write(line);
+                    writer.newLine();
+                    written++;
+                }
+            }
+        }
+        return written;
+    }
     
     /**
      * 
@@ -146,26 +1166,33 @@ public class WordRepositoryImpl extends UnicastRemoteObject implements WordRepos
      * @ author Stanley
      *
      * Details:
-     * 			read words as stores as string list 
+     * 			use the packed dictionary (words referred to by ID)
      * 			randomly pick a vertical word 
      * 			then find horizontal word match with the vertical word
-     * 			if the puzzle is null than re call this function again.
+     * 			if the puzzle is null than pick another vertical word and try again.
      * 			return hash map that record which letter of the vertical
      * 			must match with each horizontal words 
      */
     public HashMap<String, Integer> generate_map_list(int word_len) throws RemoteException {
+        return metrics.timed("generate_map_list", () -> {
+            WordArena words = dictionary.get().arena();
 
-        read_words_info();
+            HashMap<String, Integer> puzzle;
 
-        String verticle_stem = find_vertical_stem(word_len - 1);
+            do { // if cant find the matching horizontal words, pick another vertical word
 
-        HashMap<String, Integer> puzzle = find_horizontal_stem(verticle_stem, word_len - 1);
+                int verticle_stem = find_vertical_stem(words, word_len - 1);
 
-        while (puzzle == null) // if cant find the matching horizontal words
+                if (verticle_stem < 0)
 
-            puzzle = generate_map_list(word_len);
+                    throw new RemoteException("No word of at least " + (word_len - 1) + " letters in " + wordsFile);
 
-        return puzzle;
+                puzzle = find_horizontal_stem(words, verticle_stem, word_len - 1);
+
+            } while (puzzle == null);
+
+            return puzzle;
+        });
     }
 
     /**
@@ -181,106 +1208,83 @@ public class WordRepositoryImpl extends UnicastRemoteObject implements WordRepos
      * 			can randomly pick on of those
      */
     public String find_matching_addtional_vertical_stem(char constraint_letter[]) {
+        return metrics.timed("find_matching_addtional_vertical_stem", () -> {
+            WordArena words = dictionary.get().arena();
 
-        int index;
-
-        List<String> candidate = new ArrayList<>();
-
-        boolean is_first_index_letter_only = is_first_index_letter_only(constraint_letter);
-
-        if (is_first_index_letter_only)
-
-            return find_constrained_word_match_with_first_letter(constraint_letter[0]);
-
-        for (String word : words) {
+            boolean is_first_index_letter_only = is_first_index_letter_only(constraint_letter);
 
-            boolean matches = true;
+            if (is_first_index_letter_only)
 
-            for (index = 0; index < word.length() && index < constraint_letter.length; index++) {
+                return find_constrained_word_match_with_first_letter(words, constraint_letter[0]);
 
-                if (constraint_letter[index] != '*') {
-
-                    char word_ch = word.charAt(index);
-
-                    if (word_ch != constraint_letter[index]) {
-
-                        matches = false;
-
-                        break;
-                    }
+            // A match has the constrained letters at their positions and is shorter than the
+            // constraint (the positions after the word must all be open)
 
-                }
-
-            }
-
-            if (!rest_is_matched_with_any_letter(index, constraint_letter))
-
-                matches = false;
-
-            if (matches)
-
-                candidate.add(word);
-
-        }
-
-        if (candidate.isEmpty())
-
-            return null;
+            int[] candidate = new WordQuery(constraint_letter, new char[0], 1, constraint_letter.length - 1).findAll(words);
 
-        return candidate.get(new Random().nextInt(candidate.size()));
+            int picked = WordArena.random(candidate, candidate.length, ThreadLocalRandom.current());
 
+            return picked < 0 ? null : words.word(picked);
+        });
     }
-    public void ping() throws RemoteException {return;}
-    
-    private void read_words_info() {
-
-        BufferedReader br;
-
-        words = new ArrayList<>();
-
-        try {
-
-            br = new BufferedReader(new FileReader(WORDS_FILE));
-
-            for (String line = br.readLine(); line != null; line = br.readLine()) {
-                words.add(line.toLowerCase());
+    /**
+     * Finds the words matching a pattern (see {@link WordQuery}), one page at a time, in the
+     * arena of the current snapshot, i.e. its words as of the last compaction. The cursor is an
+     * ID of the arena, so paging continues where the previous page ended as long as the arena
+     * does not change meanwhile; the page's version is the arena's.
+     */
+    @Override
+    public WordPage findWords(String pattern, int minLength, int maxLength, int limit, int cursor) throws RemoteException {
+        return metrics.timed("findWords", () -> {
+            WordQuery query;
+            try {
+                query = WordQuery.parse(pattern, minLength, maxLength);
+            } catch (IllegalArgumentException e) {
+                throw new RemoteException(e.getMessage());
             }
+            WordDictionary snapshot = dictionary.get();
+            WordArena words = snapshot.arena();
+            List<String> found = new ArrayList<>();
+            int next = query.find(words, cursor, Math.min(limit, MAX_PAGE), id -> found.add(words.word(id)));
+            return new WordPage(found, next, snapshot.getArenaVersion());
+        });
+    }
 
-        } catch (IOException e) {
-
-            System.err.println("\nCouldn't read from file...");
-        }
+    /**
+     * Returns the first words starting with a prefix, from the word graph of the current snapshot
+     * (built by the first prefix query, then in the background after each change, with the
+     * previous graph and the changed words answering meanwhile).
+     */
+    @Override
+    public List<String> prefixSearch(String prefix, int limit) throws RemoteException {
+        return metrics.timed("prefixSearch", () -> dictionary.get().withPrefix(WordDictionary.fold(prefix), Math.min(limit, MAX_PAGE)));
+    }
 
-        return;
+    @Override
+    public int countWithPrefix(String prefix) throws RemoteException {
+        return metrics.timed("countWithPrefix", () -> dictionary.get().countWithPrefix(WordDictionary.fold(prefix)));
+    }
 
+    @Override
+    public int getWordCount() throws RemoteException {
+        return metrics.timed("getWordCount", () -> dictionary.get().size());
     }
 
+    public void ping() throws RemoteException {return;}
+    
     /**
      * Method: find_vertical_stem
      * find all the match word lenght and store them into a list string
      * then randomly choose one of the word from the list
      * 
      * @param word_len
-     * @return random word from filtered_words
+     * @return ID of a random word with at least word_len letters, or -1 if there is none
      * @ author Stanley
      */
-    private String find_vertical_stem(int word_len) {
+    private int find_vertical_stem(WordArena words, int word_len) {
 
-        List<String> filtered_words = new ArrayList<>();
-
-        for (String word : words)
-
-            if (word.length() >= word_len)
-
-                filtered_words.add(word);
-
-        if (filtered_words.isEmpty()) // no matching words
-
-            return null;
-
-        int random_index = new Random().nextInt(filtered_words.size());
-
-        return filtered_words.get(random_index);
+        // The arena orders the IDs by length: the matching words are one range of it
+        return words.randomWithMinLength(word_len, ThreadLocalRandom.current());
 
     }
 
@@ -290,36 +1294,39 @@ public class WordRepositoryImpl extends UnicastRemoteObject implements WordRepos
      * check every char at vertical word and find a horizontal word that match
      * with the char
      * 
-     * @param verticle_stem selected vertical word
+     * @param verticle_stem ID of the selected vertical word
      * @param word_len      number of horizontal word need to found
-     * @return a string list of horizontal words
+     * @return the words of the puzzle mapped to the letter of the vertical word they cross
      * @ author Stanley
      */
-    private HashMap<String, Integer> find_horizontal_stem(String vertical_stem, int word_len) {
-
-        HashMap<String, Integer> puzzle = new HashMap<>();
+    private HashMap<String, Integer> find_horizontal_stem(WordArena words, int vertical_stem, int word_len) {
 
-        puzzle.put(vertical_stem, -1);
+        int[] random_postion = generate_random_position(words.length(vertical_stem));
 
-        int[] random_postion = generate_random_position(vertical_stem.length());
+        int[] horizontal_words = new int[word_len];
 
         for (int index = 0, word_char_position = 0; index < word_len; index++) {
 
             word_char_position = random_postion[index];
 
-            char target_letter = vertical_stem.charAt(word_char_position);
+            char target_letter = words.charAt(vertical_stem, word_char_position);
 
-            String horizontal_word = find_constrained_word(target_letter);
+            horizontal_words[index] = find_constrained_word(words, target_letter);
 
-            if (horizontal_word == null)
+            if (horizontal_words[index] < 0)
 
                 return null;
 
-            else
+        }
 
-                puzzle.put(horizontal_word, word_char_position);
+        // The layout is computed on IDs; the remote interface returns the words themselves
+        HashMap<String, Integer> puzzle = new HashMap<>();
 
-        }
+        puzzle.put(words.word(vertical_stem), -1);
+
+        for (int index = 0; index < word_len; index++)
+
+            puzzle.put(words.word(horizontal_words[index]), random_postion[index]);
 
         return puzzle;
     }
@@ -364,77 +1371,23 @@ public class WordRepositoryImpl extends UnicastRemoteObject implements WordRepos
      * and randomly select one of the word as horizontal word
      * 
      * @param target_letter
-     * @param word_len
-     * @return a single horizontal word that contain the target_letter
-     * @ author Stanley
-     */
-    private String find_constrained_word(char target_letter) {
-
-        List<String> candidate = new ArrayList<>();
-
-        for (String word : words)
-
-            if (word.indexOf(target_letter) != -1) {
-
-                candidate.add(word);
-
-            }
-
-        if (candidate.isEmpty())
-
-            return null;
-
-        return candidate.get(new Random().nextInt(candidate.size()));
-
-    }
-    /**
-     * 
-     * Method: rest_is_matched_with_any_letter
-     *
-     * @param index
-     * @param constraint_letter
-     * @return
-     *
+     * @return ID of a single horizontal word that contain the target_letter, or -1
      * @ author Stanley
-     *
-     * Details:
-     * 			check if the element after the index only contain '*'
-     * 			if true, that only find for a word that match the element before the index
-     * 			the rest does care including the length as well
      */
-    private boolean rest_is_matched_with_any_letter(int index, char[] constraint_letter) {
+    private int find_constrained_word(WordArena words, char target_letter) {
 
-        if (constraint_letter == null || index >= constraint_letter.length)
+        int[] candidate = words.idsWith(target_letter);
 
-            return false;
-
-        for (; index < constraint_letter.length; index++)
-
-            if (constraint_letter[index] != '*')
-
-                return false;
-
-        return true;
+        return WordArena.random(candidate, candidate.length, ThreadLocalRandom.current());
 
     }
+    private String find_constrained_word_match_with_first_letter(WordArena words, char target_letter) {
 
-    private String find_constrained_word_match_with_first_letter(char target_letter) {
-
-        List<String> candidate = new ArrayList<>();
-
-        for (String word : words)
+        int[] candidate = words.idsStartingWith(target_letter);
 
-            if (word.charAt(0) == target_letter) {
-
-                candidate.add(word);
-
-            }
-
-        if (candidate.isEmpty())
-
-            return null;
+        int picked = WordArena.random(candidate, candidate.length, ThreadLocalRandom.current());
 
-        return candidate.get(new Random().nextInt(candidate.size()));
+        return picked < 0 ? null : words.word(picked);
 
     }
 
@@ -452,4 +1405,4 @@ public class WordRepositoryImpl extends UnicastRemoteObject implements WordRepos
         return letter_count == 1;
 
     }
-}
\ No newline at end of file
+}
\ No newline at end of file
@@ -1,5 +1,6 @@
 import java.rmi.*;
 import java.util.HashMap;
+import java.util.List;
 
 public interface WordRepositoryServer extends Remote {
 	
@@ -7,6 +8,18 @@ public interface WordRepositoryServer extends Remote {
 
     public boolean removeWord(String word) throws RemoteException;
 
+    // createWord/removeWord that also return the version from which the result is visible, for
+    // read-your-writes on the read replicas (see awaitVersion).
+    public WordWrite createWordVersioned(String word) throws RemoteException;
+
+    public WordWrite removeWordVersioned(String word) throws RemoteException;
+
+    // Batch changes, committed together: result[i] is what createWord/removeWord would have
+    // returned for words.get(i) had the words been changed one after the other.
+    public boolean[] createWords(List<String> words) throws RemoteException;
+
+    public boolean[] removeWords(List<String> words) throws RemoteException;
+
     public boolean checkWord(String word) throws RemoteException;
 
     public String getRandomWord(int length) throws RemoteException;
@@ -15,6 +28,38 @@ public interface WordRepositoryServer extends Remote {
 
     public String find_matching_addtional_vertical_stem(char constraint_letter[]) throws RemoteException;
 
+    // Pattern search (see WordQuery for the pattern syntax): the matches with a length in
+    // [minLength, maxLength], at most limit per page. Pass cursor 0 for the first page and then
+    // the page's next cursor.
+    public WordPage findWords(String pattern, int minLength, int maxLength, int limit, int cursor) throws RemoteException;
+
+    // Autocomplete: the first words (in lower case, alphabetical order) starting with a prefix,
+    // and the number of words starting with it. Prefixes are compared ignoring case.
+    public List<String> prefixSearch(String prefix, int limit) throws RemoteException;
+
+    public int countWithPrefix(String prefix) throws RemoteException;
+
+    // The number of words in the dictionary (used to weight random picks across shards).
+    public int getWordCount() throws RemoteException;
+
 	public void ping() throws RemoteException;
 
+    // Change subscription: the version is incremented by every successful createWord/removeWord,
+    // and the listeners are notified of the changed word before that call returns.
+    public long getVersion() throws RemoteException;
+
+    public void addWordChangeListener(WordChangeListener listener) throws RemoteException;
+
+    public void removeWordChangeListener(WordChangeListener listener) throws RemoteException;
+
+    // Waits up to timeoutMillis until the dictionary reaches a version (and its changes have
+    // been announced to the listeners); returns the version then.
+    public long awaitVersion(long version, long timeoutMillis) throws RemoteException;
+
+    // Replication: the whole dictionary, and the changes after a version (at most limit; waits
+    // up to waitMillis for one if there are none yet).
+    public WordSnapshot getSnapshot() throws RemoteException;
+
+    public WordLogPage readChangeLog(long afterVersion, int limit, long waitMillis) throws RemoteException;
+
 }
\ No newline at end of file
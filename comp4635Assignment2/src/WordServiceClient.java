@@ -0,0 +1,533 @@
+import java.net.MalformedURLException;
+import java.rmi.ConnectException;
+import java.rmi.ConnectIOException;
+import java.rmi.Naming;
+import java.rmi.NoSuchObjectException;
+import java.rmi.NotBoundException;
+import java.rmi.RemoteException;
+import java.rmi.ServerError;
+import java.rmi.ServerException;
+import java.rmi.server.UnicastRemoteObject;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Client of the WordRepositoryServer used by the game server.
+ * <p>
+ * The client caches the looked-up stub and gives every call a deadline. A circuit breaker
+ * protects the callers: after {@code failureThreshold} consecutive failed calls, or at once when
+ * the server is clearly gone (connection refused, stale stub), the circuit opens and calls fail
+ * immediately with a RemoteException instead of tying up RMI threads. While the circuit is open,
+ * a background thread looks the server up again and probes it with
+ * {@link WordRepositoryServer#ping()} (half-open); the first successful probe closes the circuit.
+ * Errors thrown by the repository itself (ServerException/ServerError) prove the server is
+ * reachable and do not count as failures.
+ * </p>
+ * <p>
+ * checkWord results, positive and negative, are kept in a {@link WordNearCache}. The client
+ * subscribes to the repository's change announcements, which arrive before the createWord or
+ * removeWord that caused them returns, and drops the changed word from the cache. The cache is
+ * cleared whenever announcements may have been missed: after reconnecting, and when the
+ * periodic comparison with {@link WordRepositoryServer#getVersion()} finds a gap (the
+ * repository drops listeners it cannot reach). The cache is only used while the circuit is closed.
+ * </p>
+ * <p>
+ * Concurrent checks of the same word are coalesced: the first caller sends the lookup and
+ * every caller that asks for the word (ignoring case) while it is in flight waits for and shares
+ * its result or its failure, so a burst on a popular word costs one repository call. A change
+ * announcement for the word detaches the in-flight lookup, so a check that starts after a change
+ * was announced never joins a lookup sent before it. Coalescing also relies on the change
+ * subscription and, like the cache, is only used while the circuit is closed.
+ * </p>
+ * <p>
+ * In an embedded deployment the client wraps the in-process repository and simply delegates
+ * (still through the near-cache).
+ * </p>
+ */
+public class WordServiceClient {
+    private static final Log.Logger LOG = Log.get("WordService");
+
+    /** Circuit breaker states. */
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    /** One call to the repository. */
+    public interface Call<T> {
+        T run(WordRepositoryServer server) throws RemoteException;
+    }
+
+    private final String url;
+    private final WordRepositoryServer local;
+    private final long deadlineMillis;
+    private final int failureThreshold;
+    private final long retryMillis;
+    private final long maxRetryMillis;
+
+    // Near-cache of checkWord results (null if disabled), the in-flight checkWord lookups by
+    // lower-case word (null if coalescing is disabled) and the change subscription they rely on
+    private final WordNearCache cache;
+    private final ConcurrentHashMap<String, CompletableFuture<Boolean>> inFlight;
+    private final LongAdder coalesced = new LongAdder();
+    private final WordChangeListener listener;
+    private final AtomicLong knownVersion = new AtomicLong();
+
+    private volatile WordRepositoryServer stub;
+    private final AtomicReference<State> state = new AtomicReference<>(State.CLOSED);
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+    private final AtomicBoolean probeScheduled = new AtomicBoolean();
+    private long nextRetryMillis;
+
+    private final ExecutorService callExecutor;
+    private final ScheduledExecutorService reconnector;
+
+    /**
+     * Creates a client of a remote repository and looks it up once. If the lookup fails the
+     * circuit starts open and the repository is looked up again in the background.
+     *
+     * @param url              registry URL of the repository.
+     * @param deadlineMillis   deadline of each call (and of each lookup and probe).
+     * @param failureThreshold consecutive failed calls that open the circuit.
+     * @param retryMillis      delay before the first probe after the circuit opens; doubled after
+     *                         each failed probe, up to 16 times this value.
+     * @param cacheSize        capacity of the near-cache, 0 to disable it.
+     * @param coalesce         whether concurrent checks of the same word share one lookup.
+     * @param validateMillis   interval of the version check that detects missed change announcements.
+     */
+    public WordServiceClient(String url, long deadlineMillis, int failureThreshold, long retryMillis,
+                             int cacheSize, boolean coalesce, long validateMillis) {
+        this.url = url;
+        this.local = null;
+        this.deadlineMillis = deadlineMillis;
+        this.failureThreshold = Math.max(1, failureThreshold);
+        this.retryMillis = Math.max(1, retryMillis);
+        this.maxRetryMillis = this.retryMillis * 16;
+        this.nextRetryMillis = this.retryMillis;
+        // Calls run on virtual threads so a caller can stop waiting when the deadline passes
+        this.callExecutor = Executors.newVirtualThreadPerTaskExecutor();
+        this.reconnector = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "word-service-reconnect");
+            t.setDaemon(true);
+            return t;
+        });
+        this.cache = cacheSize > 0 ? new WordNearCache(cacheSize) : null;
+        this.inFlight = coalesce ? new ConcurrentHashMap<>() : null;
+        this.listener = cache != null || coalesce ? exportListener() : null;
+        try {
+            WordRepositoryServer server = withDeadline(this::lookup);
+            withDeadline(() -> subscribe(server));
+            stub = server;
+            LOG.info("Connected to WordRepositoryServer at {}", url);
+        } catch (RemoteException e) {
+            LOG.warn("Failed to connect to WordRepositoryServer: {}", e.getMessage());
+            open();
+        }
+        if (listener != null) {
+            reconnector.scheduleWithFixedDelay(this::validate, validateMillis, validateMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Creates a client that delegates to an in-process repository (embedded deployment).
+     *
+     * @param local     the repository.
+     * @param cacheSize capacity of the near-cache, 0 to disable it.
+     * @param coalesce  whether concurrent checks of the same word share one lookup.
+     */
+    public WordServiceClient(WordRepositoryServer local, int cacheSize, boolean coalesce) {
+        this.url = null;
+        this.local = local;
+        this.deadlineMillis = 0;
+        this.failureThreshold = 0;
+        this.retryMillis = 0;
+        this.maxRetryMillis = 0;
+        this.callExecutor = null;
+        this.reconnector = null;
+        this.cache = cacheSize > 0 ? new WordNearCache(cacheSize) : null;
+        this.inFlight = coalesce ? new ConcurrentHashMap<>() : null;
+        this.listener = cache != null || coalesce ? new ChangeListener() : null;
+        if (listener != null) {
+            try {
+                subscribe(local);
+            } catch (RemoteException e) {
+                // Not thrown by an in-process repository
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    /**
+     * Creates a client from the "wordService*" keys of a configuration: wordServiceUrl,
+     * wordServiceDeadlineMillis (2000), wordServiceFailureThreshold (3), wordServiceRetryMillis
+     * (1000), wordServiceCacheSize (10000), wordServiceCoalesce (true) and
+     * wordServiceValidateMillis (5000).
+     *
+     * @param config the configuration.
+     * @param local  the in-process repository of an embedded deployment, or null to use the
+     *               repository bound at wordServiceUrl.
+     * @return the client.
+     */
+    public static WordServiceClient fromConfig(Properties config, WordRepositoryServer local) {
+        int cacheSize = Integer.parseInt(config.getProperty("wordServiceCacheSize", "10000").trim());
+        boolean coalesce = Boolean.parseBoolean(config.getProperty("wordServiceCoalesce", "true").trim());
+        if (local != null) {
+            return new WordServiceClient(local, cacheSize, coalesce);
+        }
+        return new WordServiceClient(
+                config.getProperty("wordServiceUrl", "rmi://localhost:1099/WordRepositoryServer"),
+                Long.parseLong(config.getProperty("wordServiceDeadlineMillis", "2000").trim()),
+                Integer.parseInt(config.getProperty("wordServiceFailureThreshold", "3").trim()),
+                Long.parseLong(config.getProperty("wordServiceRetryMillis", "1000").trim()),
+                cacheSize,
+                coalesce,
+                Long.parseLong(config.getProperty("wordServiceValidateMillis", "5000").trim()));
+    }
+
+    public boolean createWord(String word) throws RemoteException {
+        return call(server -> server.createWord(word));
+    }
+
+    public boolean removeWord(String word) throws RemoteException {
+        return call(server -> server.removeWord(word));
+    }
+
+    public boolean[] createWords(List<String> words) throws RemoteException {
+        return call(server -> server.createWords(words));
+    }
+
+    public boolean[] removeWords(List<String> words) throws RemoteException {
+        return call(server -> server.removeWords(words));
+    }
+
+    public WordPage findWords(String pattern, int minLength, int maxLength, int limit, int cursor) throws RemoteException {
+        return call(server -> server.findWords(pattern, minLength, maxLength, limit, cursor));
+    }
+
+    public List<String> prefixSearch(String prefix, int limit) throws RemoteException {
+        return call(server -> server.prefixSearch(prefix, limit));
+    }
+
+    public int countWithPrefix(String prefix) throws RemoteException {
+        return call(server -> server.countWithPrefix(prefix));
+    }
+
+    /**
+     * Checks a word, answering from the near-cache when possible and otherwise sharing the
+     * lookup with concurrent checks of the same word.
+     */
+    public boolean checkWord(String word) throws RemoteException {
+        if (state.get() != State.CLOSED) {
+            return call(server -> server.checkWord(word));
+        }
+        if (cache != null) {
+            Boolean cached = cache.get(word);
+            if (cached != null) {
+                return cached;
+            }
+        }
+        if (inFlight == null) {
+            return fetch(word);
+        }
+        String key = WordDictionary.fold(word);
+        CompletableFuture<Boolean> mine = new CompletableFuture<>();
+        CompletableFuture<Boolean> shared = inFlight.putIfAbsent(key, mine);
+        if (shared != null) {
+            coalesced.increment();
+            return join(shared);
+        }
+        try {
+            boolean present = fetch(word);
+            mine.complete(present);
+            return present;
+        } catch (Throwable t) {
+            // Waiting callers get the same failure instead of waiting forever
+            mine.completeExceptionally(t);
+            throw t;
+        } finally {
+            inFlight.remove(key, mine);
+        }
+    }
+
+    /** Looks a word up in the repository and caches the result. */
+    private boolean fetch(String word) throws RemoteException {
+        long epoch = cache != null ? cache.epoch() : 0;
+        boolean present = call(server -> server.checkWord(word));
+        if (cache != null) {
+            cache.put(word, present, epoch);
+        }
+        return present;
+    }
+
+    /** Waits for a lookup sent by another caller; it is bounded by that caller's deadline. */
+    private static boolean join(CompletableFuture<Boolean> lookup) throws RemoteException {
+        try {
+            return lookup.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RemoteException("Interrupted while calling WordRepositoryServer.");
+        } catch (ExecutionException e) {
+            throw failure(e.getCause());
+        }
+    }
+
+    /**
+     * Runs a call against the repository.
+     *
+     * @param call the call.
+     * @return the result of the call.
+     * @throws RemoteException if the circuit is open, the deadline passed or the call failed.
+     */
+    public <T> T call(Call<T> call) throws RemoteException {
+        if (local != null) {
+            return call.run(local);
+        }
+        WordRepositoryServer server = stub;
+        State current = state.get();
+        if (current != State.CLOSED || server == null) {
+            throw new RemoteException("WordRepositoryServer is unavailable (circuit " + current + ").");
+        }
+        try {
+            T result = withDeadline(() -> call.run(server));
+            consecutiveFailures.set(0);
+            return result;
+        } catch (ServerException | ServerError e) {
+            // Thrown by the repository itself: the server is reachable
+            consecutiveFailures.set(0);
+            throw e;
+        } catch (RemoteException e) {
+            recordFailure(e);
+            throw e;
+        }
+    }
+
+    /** @return the circuit state (always CLOSED for an in-process repository). */
+    public State getState() {
+        return state.get();
+    }
+
+    /** @return the near-cache, or null if it is disabled. */
+    public WordNearCache getCache() {
+        return cache;
+    }
+
+    /** @return the number of checks that shared another caller's in-flight lookup. */
+    public long getCoalescedCount() {
+        return coalesced.sum();
+    }
+
+    /** Stops the background threads and ends the change subscription. */
+    public void close() {
+        WordRepositoryServer server = local != null ? local : stub;
+        if (listener != null && server != null) {
+            try {
+                server.removeWordChangeListener(listener);
+            } catch (RemoteException e) {
+                // The repository drops unreachable listeners by itself
+            }
+        }
+        if (local == null) {
+            reconnector.shutdownNow();
+            callExecutor.shutdownNow();
+            if (listener != null) {
+                try {
+                    UnicastRemoteObject.unexportObject(listener, true);
+                } catch (NoSuchObjectException e) {
+                    // Already unexported
+                }
+            }
+        }
+    }
+
+    /**
+     * Receives the repository's change announcements, drops the changed words from the cache and
+     * detaches their in-flight lookups so later checks send a new one.
+     */
+    private class ChangeListener implements WordChangeListener {
+        @Override
+        public void wordChanged(String word, long version) {
+            invalidate(word);
+            // Only advance past consecutive versions; a gap is left for validate() to resolve
+            knownVersion.compareAndSet(version - 1, version);
+        }
+
+        @Override
+        public void wordsChanged(List<String> words, long version) {
+            for (String word : words) {
+                invalidate(word);
+            }
+            knownVersion.compareAndSet(version - words.size(), version);
+        }
+
+        private void invalidate(String word) {
+            if (inFlight != null) {
+                // The repository stores words trimmed: a change of " word" is a change of "word"
+                inFlight.remove(WordDictionary.fold(word));
+                inFlight.remove(WordDictionary.fold(word.trim()));
+            }
+            if (cache != null) {
+                cache.invalidate(word);
+            }
+        }
+    }
+
+    private WordChangeListener exportListener() {
+        ChangeListener changeListener = new ChangeListener();
+        try {
+            UnicastRemoteObject.exportObject(changeListener, 0, TunedSocketFactory.configured(), TunedSocketFactory.configured());
+        } catch (RemoteException e) {
+            throw new IllegalStateException("Cannot export the word change listener", e);
+        }
+        return changeListener;
+    }
+
+    /**
+     * Subscribes to the repository's changes and empties the cache and the in-flight lookups,
+     * since changes made while unsubscribed were not announced.
+     */
+    private Void subscribe(WordRepositoryServer server) throws RemoteException {
+        if (listener != null) {
+            server.addWordChangeListener(listener);
+            if (cache != null) {
+                cache.clear();
+            }
+            if (inFlight != null) {
+                inFlight.clear();
+            }
+            knownVersion.set(server.getVersion());
+        }
+        return null;
+    }
+
+    /** Periodic version check: clears the cache and resubscribes if an announcement was missed. */
+    private void validate() {
+        WordRepositoryServer server = stub;
+        if (state.get() != State.CLOSED || server == null) {
+            return;
+        }
+        try {
+            long version = withDeadline(server::getVersion);
+            if (version != knownVersion.get()) {
+                LOG.info("Word cache is behind the repository (version {} != {}); clearing it.",
+                        knownVersion.get(), version);
+                withDeadline(() -> subscribe(server));
+            }
+        } catch (RemoteException e) {
+            recordFailure(e);
+        }
+    }
+
+    private interface RemoteTask<T> {
+        T run() throws Exception;
+    }
+
+    /** Runs a task on a virtual thread and waits for it until the deadline. */
+    private <T> T withDeadline(RemoteTask<T> task) throws RemoteException {
+        Future<T> future = callExecutor.submit(task::run);
+        try {
+            return future.get(deadlineMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            throw new RemoteException("WordRepositoryServer call exceeded the deadline of " + deadlineMillis + " ms.");
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new RemoteException("Interrupted while calling WordRepositoryServer.");
+        } catch (ExecutionException e) {
+            throw failure(e.getCause());
+        }
+    }
+
+    /** Rethrows the failure of a call run on another thread, as a RemoteException if it is checked. */
+    private static RemoteException failure(Throwable cause) {
+        if (cause instanceof RemoteException) {
+            return (RemoteException) cause;
+        }
+        if (cause instanceof RuntimeException) {
+            throw (RuntimeException) cause;
+        }
+        if (cause instanceof Error) {
+            throw (Error) cause;
+        }
+        return new RemoteException("WordRepositoryServer call failed: " + cause, cause);
+    }
+
+    private WordRepositoryServer lookup() throws RemoteException {
+        try {
+            return (WordRepositoryServer) Naming.lookup(url);
+        } catch (NotBoundException | MalformedURLException e) {
+            throw new RemoteException("WordRepositoryServer is not bound at " + url + ".");
+        }
+    }
+
+    private void recordFailure(RemoteException e) {
+        // Connection refused or a stub of a restarted server: no point in trying again right away
+        boolean serverGone = e instanceof ConnectException || e instanceof ConnectIOException
+                || e instanceof NoSuchObjectException;
+        if (serverGone || consecutiveFailures.incrementAndGet() >= failureThreshold) {
+            LOG.warn("WordRepositoryServer call failed ({}); opening the circuit.", e.getMessage());
+            if (serverGone) {
+                stub = null;
+            }
+            open();
+        }
+    }
+
+    private void open() {
+        State previous = state.getAndSet(State.OPEN);
+        if (previous == State.CLOSED) {
+            synchronized (this) {
+                nextRetryMillis = retryMillis;
+            }
+        }
+        scheduleProbe();
+    }
+
+    private void scheduleProbe() {
+        if (probeScheduled.compareAndSet(false, true)) {
+            long delay;
+            synchronized (this) {
+                delay = nextRetryMillis;
+                nextRetryMillis = Math.min(maxRetryMillis, nextRetryMillis * 2);
+            }
+            reconnector.schedule(this::probe, delay, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /** Half-open probe: look the server up if needed and ping it; close the circuit on success. */
+    private void probe() {
+        probeScheduled.set(false);
+        state.set(State.HALF_OPEN);
+        try {
+            WordRepositoryServer server = stub;
+            if (server == null) {
+                server = withDeadline(this::lookup);
+            }
+            WordRepositoryServer probed = server;
+            withDeadline(() -> {
+                probed.ping();
+                return subscribe(probed);
+            });
+            stub = probed;
+            consecutiveFailures.set(0);
+            state.set(State.CLOSED);
+            LOG.info("Reconnected to WordRepositoryServer at {}", url);
+        } catch (RemoteException | RuntimeException e) {
+            LOG.debug("WordRepositoryServer probe failed: {}", e.getMessage());
+            stub = null;
+            state.set(State.OPEN);
+            scheduleProbe();
+        }
+    }
+}
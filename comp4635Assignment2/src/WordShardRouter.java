@@ -0,0 +1,535 @@
+import java.rmi.RemoteException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Word repository made of several shards, each a WordRepositoryServer process that owns one
+ * hash range of the dictionary (see {@link #shardOf(String, int)}).
+ * <p>
+ * Point lookups and changes go to the shard that owns the word; batches are split by shard and
+ * the parts sent in parallel. Random picks (getRandomWord, find_matching_addtional_vertical_stem
+ * and generate_map_list) go to one shard chosen with a probability proportional to its number of
+ * words, so every word is about as likely to be picked as in a single repository, and fall back
+ * to the other shards if that shard has no match or cannot be reached. Pattern and prefix queries
+ * are sent to every shard in parallel and the answers merged.
+ * </p>
+ * <p>
+ * Each shard is a {@link WordReplicaSet}: a primary and its read replicas, each reached through
+ * its own {@link WordServiceClient} with its own circuit breaker and near-cache, so a shard that
+ * is down only fails the calls that need it. Versions are per shard, so read-your-writes is
+ * tracked per shard by a {@link Session}. With a single shard the router simply delegates. The
+ * router implements WordRepositoryServer itself so that it can be bound in place of a single
+ * repository (see {@link GameServer}).
+ * </p>
+ */
+public class WordShardRouter implements WordRepositoryServer {
+    private static final Log.Logger LOG = Log.get("WordShards");
+
+    private final List<WordReplicaSet> shards;
+    private final ExecutorService scatter;
+    // Number of words per shard, used to weight random picks; refreshed when older than sizeMillis
+    private final long sizeMillis;
+    private volatile int[] sizes;
+    private volatile long sizesAt;
+
+    /**
+     * The versions of the writes of one caller (e.g. a player), per shard, so that the caller's
+     * later reads reflect them.
+     */
+    public static final class Session {
+        // Per shard: the latest version written, and the primary's epoch it belongs to
+        private final long[] versions;
+        private final long[] epochs;
+
+        private Session(int shards) {
+            this.versions = new long[shards];
+            this.epochs = new long[shards];
+        }
+
+        synchronized void wrote(int shard, WordWrite write) {
+            if (epochs[shard] != write.getEpoch()) {
+                epochs[shard] = write.getEpoch();
+                versions[shard] = write.getVersion();
+            } else {
+                versions[shard] = Math.max(versions[shard], write.getVersion());
+            }
+        }
+
+        /** @return the version to read at, or 0 if the session's writes are from another epoch. */
+        synchronized long version(int shard, long epoch) {
+            if (epochs[shard] != epoch) {
+                // Written to a primary that has restarted since: its versions count again
+                epochs[shard] = epoch;
+                versions[shard] = 0;
+            }
+            return versions[shard];
+        }
+    }
+
+    /**
+     * @param shards     the shards; shard i owns the words w with
+     *                   {@code shardOf(w, shards.size()) == i}.
+     * @param sizeMillis how long the shard sizes used to weight random picks are reused.
+     */
+    public WordShardRouter(List<WordReplicaSet> shards, long sizeMillis) {
+        if (shards.isEmpty()) {
+            throw new IllegalArgumentException("At least one shard is required");
+        }
+        this.shards = new ArrayList<>(shards);
+        this.sizeMillis = sizeMillis;
+        // Scatter-gather calls block on RMI, so each one gets a virtual thread
+        this.scatter = shards.size() > 1 ? Executors.newVirtualThreadPerTaskExecutor() : null;
+    }
+
+    /**
+     * Creates a router from a configuration: wordServiceShards lists the registry URLs of the
+     * shards' primaries, comma separated, in shard order; if it is empty (or unset) the repository
+     * at wordServiceUrl is the only shard. The read replicas of shard i are listed in
+     * wordServiceReplicas.i, or in wordServiceReplicas when there is one shard. Every client gets
+     * the other "wordService*" settings (see {@link WordReplicaSet#fromConfig}). The lists can
+     * also be given as system properties.
+     *
+     * @param config the configuration.
+     * @param local  the in-process repository of an embedded deployment (the only shard), or null.
+     * @return the router.
+     */
+    public static WordShardRouter fromConfig(Properties config, WordRepositoryServer local) {
+        long sizeMillis = Long.parseLong(config.getProperty("wordServiceValidateMillis", "5000").trim());
+        String urls = setting(config, "wordServiceShards");
+        List<WordReplicaSet> shards = new ArrayList<>();
+        if (local != null || urls.isEmpty()) {
+            String url = config.getProperty("wordServiceUrl", "rmi://localhost:1099/WordRepositoryServer");
+            shards.add(WordReplicaSet.fromConfig(config, local, url, setting(config, "wordServiceReplicas")));
+        } else {
+            String[] primaries = urls.split(",");
+            for (int i = 0; i < primaries.length; i++) {
+                shards.add(WordReplicaSet.fromConfig(config, null, primaries[i].trim(),
+                        setting(config, "wordServiceReplicas." + i)));
+            }
+            LOG.info("Routing words to {} shards", shards.size());
+        }
+        return new WordShardRouter(shards, sizeMillis);
+    }
+
+    // A setting from the configuration, or else from the system properties
+    private static String setting(Properties config, String key) {
+        String value = config.getProperty(key, "").trim();
+        return value.isEmpty() ? System.getProperty(key, "").trim() : value;
+    }
+
+    /**
+     * Returns the shard that owns a word: the hash of the case-folded, trimmed word is split
+     * into shardCount equal ranges.
+     */
+    public static int shardOf(String word, int shardCount) {
+        int h = WordDictionary.fold(word.trim()).hashCode() * 0x9e3779b9;
+        h ^= h >>> 16;
+        return (int) (((h & 0xffffffffL) * shardCount) >>> 32);
+    }
+
+    public int getShardCount() {
+        return shards.size();
+    }
+
+    /** @return shard i. */
+    public WordReplicaSet shard(int i) {
+        return shards.get(i);
+    }
+
+    /** @return a new, empty read-your-writes session. */
+    public Session newSession() {
+        return new Session(shards.size());
+    }
+
+    // The shard that owns a word; null words go to the first shard, which rejects them as usual
+    private int shardIndex(String word) {
+        return word == null ? 0 : shardOf(word, shards.size());
+    }
+
+    private WordReplicaSet owner(String word) {
+        return shards.get(shardIndex(word));
+    }
+
+    @Override
+    public boolean createWord(String word) throws RemoteException {
+        return owner(word).createWord(word);
+    }
+
+    @Override
+    public boolean removeWord(String word) throws RemoteException {
+        return owner(word).removeWord(word);
+    }
+
+    @Override
+    public boolean checkWord(String word) throws RemoteException {
+        return owner(word).checkWord(word);
+    }
+
+    @Override
+    public WordWrite createWordVersioned(String word) throws RemoteException {
+        return owner(word).createWordVersioned(word);
+    }
+
+    @Override
+    public WordWrite removeWordVersioned(String word) throws RemoteException {
+        return owner(word).removeWordVersioned(word);
+    }
+
+    /** Creates a word and records its version in the session. */
+    public boolean createWord(String word, Session session) throws RemoteException {
+        int shard = shardIndex(word);
+        WordWrite write = shards.get(shard).createWordVersioned(word);
+        session.wrote(shard, write);
+        return write.isChanged();
+    }
+
+    /** Removes a word and records its version in the session. */
+    public boolean removeWord(String word, Session session) throws RemoteException {
+        int shard = shardIndex(word);
+        WordWrite write = shards.get(shard).removeWordVersioned(word);
+        session.wrote(shard, write);
+        return write.isChanged();
+    }
+
+    /** Checks a word on a replica that reflects the session's writes to the word's shard. */
+    public boolean checkWord(String word, Session session) throws RemoteException {
+        int shard = shardIndex(word);
+        WordReplicaSet owner = shards.get(shard);
+        return owner.checkWord(word, session.version(shard, owner.getEpoch()));
+    }
+
+    /**
+     * Creates the words of every shard in parallel, each shard's part in one commit. If a shard
+     * fails its part is not committed, but the parts of the other shards may be.
+     */
+    @Override
+    public boolean[] createWords(List<String> words) throws RemoteException {
+        return changeWords(words, true);
+    }
+
+    /** Removes the words of every shard in parallel (see {@link #createWords(List)}). */
+    @Override
+    public boolean[] removeWords(List<String> words) throws RemoteException {
+        return changeWords(words, false);
+    }
+
+    private boolean[] changeWords(List<String> words, boolean add) throws RemoteException {
+        if (shards.size() == 1) {
+            return add ? shards.get(0).createWords(words) : shards.get(0).removeWords(words);
+        }
+        // The positions of each shard's words, to put the results back in order
+        List<List<Integer>> positions = new ArrayList<>();
+        for (int s = 0; s < shards.size(); s++) {
+            positions.add(new ArrayList<>());
+        }
+        for (int i = 0; i < words.size(); i++) {
+            String word = words.get(i);
+            positions.get(word == null ? 0 : shardOf(word, shards.size())).add(i);
+        }
+        List<Future<boolean[]>> parts = new ArrayList<>();
+        for (int s = 0; s < shards.size(); s++) {
+            List<Integer> mine = positions.get(s);
+            if (mine.isEmpty()) {
+                parts.add(null);
+                continue;
+            }
+            List<String> part = new ArrayList<>(mine.size());
+            for (int i : mine) {
+                part.add(words.get(i));
+            }
+            WordReplicaSet shard = shards.get(s);
+            parts.add(scatter.submit(() -> add ? shard.createWords(part) : shard.removeWords(part)));
+        }
+        boolean[] results = new boolean[words.size()];
+        for (int s = 0; s < shards.size(); s++) {
+            if (parts.get(s) != null) {
+                boolean[] part = gather(parts.get(s));
+                List<Integer> mine = positions.get(s);
+                for (int j = 0; j < part.length; j++) {
+                    results[mine.get(j)] = part[j];
+                }
+            }
+        }
+        return results;
+    }
+
+    @Override
+    public String getRandomWord(int length) throws RemoteException {
+        return pick(shard -> shard.getRandomWord(length));
+    }
+
+    @Override
+    public String find_matching_addtional_vertical_stem(char[] constraint_letter) throws RemoteException {
+        return pick(shard -> shard.find_matching_addtional_vertical_stem(constraint_letter));
+    }
+
+    /** Generates the puzzle from the words of one shard, picked by size like a random word. */
+    @Override
+    public HashMap<String, Integer> generate_map_list(int word_len) throws RemoteException {
+        return pick(shard -> shard.generate_map_list(word_len));
+    }
+
+    /**
+     * Runs a random pick on a shard chosen with a probability proportional to its size, then on
+     * the following shards until one has a match (a result that is not null or empty). Shards
+     * that cannot be reached are skipped; if none answers, the last failure is thrown.
+     */
+    private <T> T pick(WordServiceClient.Call<T> call) throws RemoteException {
+        if (shards.size() == 1) {
+            return call.run(shards.get(0));
+        }
+        int[] weights = sizes();
+        long total = 0;
+        for (int w : weights) {
+            total += w;
+        }
+        int first = 0;
+        if (total > 0) {
+            long r = ThreadLocalRandom.current().nextLong(total);
+            while (r >= weights[first]) {
+                r -= weights[first++];
+            }
+        }
+        T empty = null;
+        RemoteException failure = null;
+        for (int k = 0; k < shards.size(); k++) {
+            try {
+                T result = call.run(shards.get((first + k) % shards.size()));
+                if (result != null && !"".equals(result)) {
+                    return result;
+                }
+                empty = result;
+            } catch (RemoteException e) {
+                failure = e;
+            }
+        }
+        if (failure != null && empty == null) {
+            throw failure;
+        }
+        return empty;
+    }
+
+    // The shard sizes; a shard that cannot be reached counts as empty until the next refresh
+    private int[] sizes() {
+        int[] current = sizes;
+        long now = System.currentTimeMillis();
+        if (current != null && now - sizesAt < sizeMillis) {
+            return current;
+        }
+        List<Future<Integer>> counts = new ArrayList<>();
+        for (WordReplicaSet shard : shards) {
+            counts.add(scatter.submit(shard::getWordCount));
+        }
+        int[] fresh = new int[shards.size()];
+        for (int s = 0; s < fresh.length; s++) {
+            try {
+                fresh[s] = gather(counts.get(s));
+            } catch (RemoteException e) {
+                LOG.warn("Could not get the size of word shard {}: {}", s, e.getMessage());
+            }
+        }
+        sizes = fresh;
+        sizesAt = now;
+        return fresh;
+    }
+
+    /**
+     * Finds the words matching a pattern on every shard. The matches come shard by shard; the
+     * cursor of a page encodes the shard to continue on and its cursor there, so paging works as
+     * with a single repository. The shards still to be read are asked for a page in parallel, and
+     * a shard whose page is cut short by the limit is asked again for just the part that fits.
+     * The version of a page is the sum of the shard versions.
+     */
+    @Override
+    public WordPage findWords(String pattern, int minLength, int maxLength, int limit, int cursor) throws RemoteException {
+        int n = shards.size();
+        if (n == 1) {
+            return shards.get(0).findWords(pattern, minLength, maxLength, limit, cursor);
+        }
+        if (cursor < 0) {
+            return new WordPage(Collections.emptyList(), -1, getVersion());
+        }
+        int first = cursor % n;
+        int firstCursor = cursor / n;
+        List<Future<WordPage>> pages = new ArrayList<>();
+        for (int s = first; s < n; s++) {
+            WordReplicaSet shard = shards.get(s);
+            int from = s == first ? firstCursor : 0;
+            pages.add(scatter.submit(() -> shard.findWords(pattern, minLength, maxLength, limit, from)));
+        }
+        List<String> words = new ArrayList<>();
+        long version = 0;
+        int next = -1;
+        boolean full = false;
+        for (int s = first; s < n; s++) {
+            WordPage page = gather(pages.get(s - first));
+            version += page.getVersion();
+            if (full) {
+                continue;
+            }
+            int from = s == first ? firstCursor : 0;
+            int room = limit - words.size();
+            if (page.getWords().size() > room) {
+                page = shards.get(s).findWords(pattern, minLength, maxLength, room, from);
+            }
+            words.addAll(page.getWords());
+            // A shard returns a cursor when it stopped at the limit (or at its own page size)
+            if (page.getNextCursor() >= 0) {
+                next = page.getNextCursor() * n + s;
+                full = true;
+            } else if (words.size() >= limit) {
+                next = s + 1 < n ? s + 1 : -1;
+                full = true;
+            }
+        }
+        return new WordPage(words, next, version);
+    }
+
+    /** Merges the first words of every shard, in alphabetical order. */
+    @Override
+    public List<String> prefixSearch(String prefix, int limit) throws RemoteException {
+        if (shards.size() == 1) {
+            return shards.get(0).prefixSearch(prefix, limit);
+        }
+        List<String> words = new ArrayList<>();
+        for (List<String> part : gatherAll(shard -> shard.prefixSearch(prefix, limit))) {
+            words.addAll(part);
+        }
+        Collections.sort(words);
+        return words.size() > limit ? new ArrayList<>(words.subList(0, Math.max(0, limit))) : words;
+    }
+
+    @Override
+    public int countWithPrefix(String prefix) throws RemoteException {
+        int count = 0;
+        for (int part : gatherAll(shard -> shard.countWithPrefix(prefix))) {
+            count += part;
+        }
+        return count;
+    }
+
+    @Override
+    public int getWordCount() throws RemoteException {
+        int count = 0;
+        for (int part : gatherAll(WordRepositoryServer::getWordCount)) {
+            count += part;
+        }
+        return count;
+    }
+
+    /** Pings every shard; fails if any of them cannot be reached. */
+    @Override
+    public void ping() throws RemoteException {
+        gatherAll(shard -> {
+            shard.ping();
+            return null;
+        });
+    }
+
+    /**
+     * @return the sum of the shard versions. It grows with every change to any shard, but one
+     *         change can announce a shard version that differs from it.
+     */
+    @Override
+    public long getVersion() throws RemoteException {
+        long version = 0;
+        for (long part : gatherAll(WordRepositoryServer::getVersion)) {
+            version += part;
+        }
+        return version;
+    }
+
+    /** Subscribes the listener to every shard; each announces its own words and versions. */
+    @Override
+    public void addWordChangeListener(WordChangeListener listener) throws RemoteException {
+        gatherAll(shard -> {
+            shard.addWordChangeListener(listener);
+            return null;
+        });
+    }
+
+    @Override
+    public void removeWordChangeListener(WordChangeListener listener) throws RemoteException {
+        gatherAll(shard -> {
+            shard.removeWordChangeListener(listener);
+            return null;
+        });
+    }
+
+    /** Waits for a version of the only shard; versions of different shards are unrelated. */
+    @Override
+    public long awaitVersion(long version, long timeoutMillis) throws RemoteException {
+        return singleShard("awaitVersion").awaitVersion(version, timeoutMillis);
+    }
+
+    @Override
+    public WordSnapshot getSnapshot() throws RemoteException {
+        return singleShard("getSnapshot").getSnapshot();
+    }
+
+    @Override
+    public WordLogPage readChangeLog(long afterVersion, int limit, long waitMillis) throws RemoteException {
+        return singleShard("readChangeLog").readChangeLog(afterVersion, limit, waitMillis);
+    }
+
+    private WordReplicaSet singleShard(String operation) throws RemoteException {
+        if (shards.size() > 1) {
+            throw new RemoteException(operation + " is per shard: call the primary of the shard.");
+        }
+        return shards.get(0);
+    }
+
+    /** Stops the shard clients. */
+    public void close() {
+        for (WordReplicaSet shard : shards) {
+            shard.close();
+        }
+        if (scatter != null) {
+            scatter.shutdownNow();
+        }
+    }
+
+    // Runs a call on every shard in parallel and returns the results in shard order
+    private <T> List<T> gatherAll(WordServiceClient.Call<T> call) throws RemoteException {
+        List<T> results = new ArrayList<>(shards.size());
+        if (shards.size() == 1) {
+            results.add(call.run(shards.get(0)));
+            return results;
+        }
+        List<Future<T>> futures = new ArrayList<>();
+        for (WordReplicaSet shard : shards) {
+            futures.add(scatter.submit(() -> call.run(shard)));
+        }
+        for (Future<T> future : futures) {
+            results.add(gather(future));
+        }
+        return results;
+    }
+
+    // Waits for a shard call; each call is bounded by its shard client's deadline
+    private static <T> T gather(Future<T> future) throws RemoteException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RemoteException("Interrupted while calling the word shards.");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RemoteException) {
+                throw (RemoteException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new RemoteException("Word shard call failed.", cause);
+        }
+    }
+}
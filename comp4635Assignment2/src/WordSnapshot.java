@@ -0,0 +1,52 @@
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The whole dictionary at one version, from which a read replica starts (see
+ * {@link WordRepositoryServer#getSnapshot()}).
+ */
+public class WordSnapshot implements Serializable {
+    private static final long serialVersionUID = 2L;
+
+    private final long epoch;
+    private final long version;
+    private final String[] lines;
+    private final String lineSeparator;
+
+    /**
+     * @param epoch         identifies the primary's history of versions.
+     * @param version       the dictionary version.
+     * @param lines         the lines of the word file at that version, in file order.
+     * @param lineSeparator the line terminator of the primary's word file.
+     */
+    public WordSnapshot(long epoch, long version, List<String> lines, String lineSeparator) {
+        this.epoch = epoch;
+        this.version = version;
+        this.lines = lines.toArray(new String[0]);
+        this.lineSeparator = lineSeparator;
+    }
+
+    /**
+     * @return the primary's epoch: a restarted primary starts a new epoch, whose versions are
+     *         unrelated to those of the previous one.
+     */
+    public long getEpoch() {
+        return epoch;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    /** @return the lines of the word file (unmodifiable). */
+    public List<String> getLines() {
+        return Collections.unmodifiableList(Arrays.asList(lines));
+    }
+
+    /** @return the line terminator to write the lines with, so the copy matches the primary's file. */
+    public String getLineSeparator() {
+        return lineSeparator;
+    }
+}
@@ -0,0 +1,44 @@
+import java.io.Serializable;
+
+/**
+ * Result of {@link WordRepositoryServer#createWordVersioned} or
+ * {@link WordRepositoryServer#removeWordVersioned}: whether the word changed, and the dictionary
+ * version from which the result is visible, for read-your-writes on the read replicas. Versions
+ * are only comparable within one epoch of the primary: a restarted primary counts them again.
+ */
+public class WordWrite implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private final boolean changed;
+    private final long version;
+    private final long epoch;
+
+    /**
+     * @param changed true if the word was added (or removed).
+     * @param version the version of the snapshot published by the commit that applied the write.
+     * @param epoch   the epoch of the repository's history the version belongs to.
+     */
+    public WordWrite(boolean changed, long version, long epoch) {
+        this.changed = changed;
+        this.version = version;
+        this.epoch = epoch;
+    }
+
+    /** @return what createWord (or removeWord) would have returned. */
+    public boolean isChanged() {
+        return changed;
+    }
+
+    /**
+     * @return a version at which the result of the write is visible: a read from a repository at
+     *         this version or later sees the word added (or removed).
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /** @return the epoch of the primary that applied the write (see {@link WordLogPage#getEpoch()}). */
+    public long getEpoch() {
+        return epoch;
+    }
+}
@@ -1,21 +1,75 @@
 # Orchestration script for starting the microservices in order using PowerShell
 # USAGE
 #Set-ExecutionPolicy RemoteSigned
-#.\start_servers.ps1
+#.\start_servers.ps1 [-Embedded | [-Shards N] [-Replicas R]]
+#   -Embedded    start all three services in one JVM (single-process deployment)
+#   -Shards N    start N Word Repository shards, shard i on registry port 110i (JMX port 902i)
+#   -Replicas R  start R read replicas of the Word Repository (of each shard), replica j of
+#                shard i on registry port 12ij (JMX port 94ij)
+param([switch]$Embedded, [int]$Shards = 0, [int]$Replicas = 0)
+
+# JMX options: each server exposes its call metrics (MBean comp4635:type=ServerMetrics)
+# on its own port, e.g. connect JConsole to localhost:9010 for the User Account Server.
+function JmxOpts($port) {
+    return @("-Dcom.sun.management.jmxremote.port=$port", "-Dcom.sun.management.jmxremote.authenticate=false", "-Dcom.sun.management.jmxremote.ssl=false", "-Dcom.sun.management.jmxremote.host=localhost")
+}
+
+# --- Embedded deployment: one Game Server process hosting all three services ---
+if ($Embedded) {
+    Write-Host "Starting Game Server with embedded User Account and Word Repository Servers..."
+    $gameServer = Start-Process -FilePath "java" -ArgumentList ((JmxOpts 9012) + "GameServer", "-embedded") -PassThru
+    Write-Host "Game Server started with PID $($gameServer.Id)."
+    exit 0
+}
 
 # --- Start the User Account Server ---
 Write-Host "Starting User Account Server..."
 # Start the UserAccountImpl process in the background.
-$accountServer = Start-Process -FilePath "java" -ArgumentList "UserAccountImpl" -PassThru
+$accountServer = Start-Process -FilePath "java" -ArgumentList ((JmxOpts 9010) + "UserAccountImpl") -PassThru
 Write-Host "User Account Server started with PID $($accountServer.Id)."
 
 # Wait a few seconds to allow the server to initialize.
 Start-Sleep -Seconds 5
 
-# --- Start the Word Repository Server ---
-Write-Host "Starting Word Repository Server..."
-$wordRepository = Start-Process -FilePath "java" -ArgumentList "WordRepositoryImpl" -PassThru
-Write-Host "Word Repository Server started with PID $($wordRepository.Id)."
+# --- Start the Word Repository Server, or its shards ---
+$shardOpts = @()
+if ($Shards -gt 0) {
+    $urls = @()
+    for ($i = 0; $i -lt $Shards; $i++) {
+        Write-Host "Starting Word Repository shard $i of $Shards..."
+        $shard = Start-Process -FilePath "java" -ArgumentList ((JmxOpts (9020 + $i)) + "WordRepositoryImpl", "--shard", "$i/$Shards", "--port", (1101 + $i)) -PassThru
+        Write-Host "Word Repository shard $i started with PID $($shard.Id)."
+        $urls += "rmi://localhost:$(1101 + $i)/WordRepositoryServer"
+    }
+    # The Game Server routes words to the shards
+    $shardOpts = @("-DwordServiceShards=$($urls -join ',')")
+} else {
+    Write-Host "Starting Word Repository Server..."
+    $wordRepository = Start-Process -FilePath "java" -ArgumentList ((JmxOpts 9011) + "WordRepositoryImpl") -PassThru
+    Write-Host "Word Repository Server started with PID $($wordRepository.Id)."
+}
+if ($Replicas -gt 0) {
+    Start-Sleep -Seconds 5
+    for ($i = 0; $i -lt [Math]::Max($Shards, 1); $i++) {
+        if ($Shards -gt 0) {
+            $primary = "rmi://localhost:$(1101 + $i)/WordRepositoryServer"
+            $key = "wordServiceReplicas.$i"
+        } else {
+            $primary = "rmi://localhost:1099/WordRepositoryServer"
+            $key = "wordServiceReplicas"
+        }
+        $urls = @()
+        for ($j = 0; $j -lt $Replicas; $j++) {
+            $port = 1200 + 10 * $i + $j
+            Write-Host "Starting Word Repository replica $j of $primary..."
+            $replica = Start-Process -FilePath "java" -ArgumentList ((JmxOpts (9400 + 10 * $i + $j)) + "WordRepositoryImpl", "--replica-of", $primary, "--port", $port) -PassThru
+            Write-Host "Word Repository replica started with PID $($replica.Id)."
+            $urls += "rmi://localhost:$port/WordRepositoryServer"
+        }
+        # The Game Server sends checks to the replicas
+        $shardOpts += "-D$key=$($urls -join ',')"
+    }
+}
 
 # Wait again to ensure the repository server is up.
 Start-Sleep -Seconds 5
@@ -24,7 +78,7 @@ Start-Sleep -Seconds 5
 # Define the RMI URL for the Game Server.
 $RMI_URL = "rmi://localhost:1099/UserAccountServer"
 Write-Host "Starting Game Server with RMI URL: $RMI_URL..."
-$gameServer = Start-Process -FilePath "java" -ArgumentList "GameServer", $RMI_URL -PassThru
+$gameServer = Start-Process -FilePath "java" -ArgumentList ((JmxOpts 9012) + $shardOpts + "GameServer", $RMI_URL) -PassThru
 Write-Host "Game Server started with PID $($gameServer.Id)."
 
 # Optionally, wait for the Game Server process to exit before ending the script.
@@ -1,21 +1,84 @@
 #!/bin/bash
 # Orchestration script for starting the microservices in order using Bash
-# USAGE: ./startServers.sh
+# USAGE: ./startServers.sh [--embedded | [--shards N] [--replicas R]]
+#   --embedded    start all three services in one JVM (single-process deployment)
+#   --shards N    start N Word Repository shards, shard i on registry port 110i (JMX port 902i)
+#   --replicas R  start R read replicas of the Word Repository (of each shard), replica j of
+#                 shard i on registry port 12ij (JMX port 94ij)
+
+# JMX options: each server exposes its call metrics (MBean comp4635:type=ServerMetrics)
+# on its own port, e.g. connect JConsole to localhost:9010 for the User Account Server.
+jmx_opts() {
+  echo "-Dcom.sun.management.jmxremote.port=$1 -Dcom.sun.management.jmxremote.authenticate=false -Dcom.sun.management.jmxremote.ssl=false -Dcom.sun.management.jmxremote.host=localhost"
+}
+
+# --- Embedded deployment: one Game Server process hosting all three services ---
+if [ "$1" = "--embedded" ]; then
+  echo "Starting Game Server with embedded User Account and Word Repository Servers..."
+  java $(jmx_opts 9012) GameServer -embedded &
+  gameServer=$!
+  echo "Game Server started with PID $gameServer."
+  exit 0
+fi
 
 # --- Start the User Account Server ---
 echo "Starting User Account Server..."
-java UserAccountImpl &
+java $(jmx_opts 9010) UserAccountImpl &
 accountServer=$!
 echo "User Account Server started with PID $accountServer."
 
 # Wait a few seconds to allow the server to initialize.
 sleep 5
 
-# --- Start the Word Repository Server ---
-echo "Starting Word Repository Server..."
-java WordRepositoryImpl &
-wordRepository=$!
-echo "Word Repository Server started with PID $wordRepository."
+# --- Start the Word Repository Server, or its shards, and their read replicas ---
+shards=0
+replicas=0
+while [ $# -gt 0 ]; do
+  case "$1" in
+    --shards) shards=$2; shift 2 ;;
+    --replicas) replicas=$2; shift 2 ;;
+    *) shift ;;
+  esac
+done
+shard_opts=""
+if [ "$shards" -gt 0 ]; then
+  urls=""
+  for ((i = 0; i < shards; i++)); do
+    echo "Starting Word Repository shard $i of $shards..."
+    java $(jmx_opts $((9020 + i))) WordRepositoryImpl --shard "$i/$shards" --port $((1101 + i)) &
+    echo "Word Repository shard $i started with PID $!."
+    urls="$urls${urls:+,}rmi://localhost:$((1101 + i))/WordRepositoryServer"
+  done
+  # The Game Server routes words to the shards
+  shard_opts="-DwordServiceShards=$urls"
+else
+  echo "Starting Word Repository Server..."
+  java $(jmx_opts 9011) WordRepositoryImpl &
+  wordRepository=$!
+  echo "Word Repository Server started with PID $wordRepository."
+fi
+if [ "$replicas" -gt 0 ]; then
+  sleep 5
+  for ((i = 0; i < (shards > 0 ? shards : 1); i++)); do
+    if [ "$shards" -gt 0 ]; then
+      primary="rmi://localhost:$((1101 + i))/WordRepositoryServer"
+      key="wordServiceReplicas.$i"
+    else
+      primary="rmi://localhost:1099/WordRepositoryServer"
+      key="wordServiceReplicas"
+    fi
+    urls=""
+    for ((j = 0; j < replicas; j++)); do
+      port=$((1200 + 10 * i + j))
+      echo "Starting Word Repository replica $j of $primary..."
+      java $(jmx_opts $((9400 + 10 * i + j))) WordRepositoryImpl --replica-of "$primary" --port $port &
+      echo "Word Repository replica started with PID $!."
+      urls="$urls${urls:+,}rmi://localhost:$port/WordRepositoryServer"
+    done
+    # The Game Server sends checks to the replicas
+    shard_opts="$shard_opts -D$key=$urls"
+  done
+fi
 
 # Wait again to ensure the repository server is up.
 sleep 5
@@ -24,7 +87,7 @@ sleep 5
 # Define the RMI URL for the Game Server.
 RMI_URL="rmi://localhost:1099/UserAccountServer"
 echo "Starting Game Server with RMI URL: $RMI_URL..."
-java GameServer "$RMI_URL" &
+java $(jmx_opts 9012) $shard_opts GameServer "$RMI_URL" &
 gameServer=$!
 echo "Game Server started with PID $gameServer."
 